@@ -2,27 +2,91 @@ package academy.aicode.astrobookings;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
 
+import com.sun.net.httpserver.Filter;
 import com.sun.net.httpserver.HttpServer;
 
+import academy.aicode.astrobookings.cluster.Cluster;
+import academy.aicode.astrobookings.cluster.ShardedStorageBackend;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+import academy.aicode.astrobookings.persistence.StorageBackends;
+import academy.aicode.astrobookings.persistence.journal.ReplicaStorageBackend;
 import academy.aicode.astrobookings.presentation.BookingHandler;
+import academy.aicode.astrobookings.presentation.ClusterHandler;
 import academy.aicode.astrobookings.presentation.FlightHandler;
+import academy.aicode.astrobookings.presentation.IdempotencyStore;
+import academy.aicode.astrobookings.presentation.MetricsHandler;
+import academy.aicode.astrobookings.presentation.ReadViewFilter;
+import academy.aicode.astrobookings.presentation.ReplicationFilter;
 import academy.aicode.astrobookings.presentation.RocketHandler;
+import academy.aicode.astrobookings.presentation.ShardingFilter;
 
 /**
  * Punto de entrada de la aplicación. Arranca un servidor HTTP embebido en el
- * puerto 8080 y registra el contexto `/rockets`.
+ * puerto `-Dastrobookings.port` (por defecto 8080) y registra los contextos
+ * `/rockets`, `/flights` y `/bookings`, más `/metrics` con los contadores
+ * del nodo.
+ * <p>
+ * El backend de almacenamiento se elige al arrancar con la propiedad
+ * `-Dastrobookings.storage=&lt;nombre&gt;` (por defecto `memory`). Con
+ * `-Dastrobookings.replication.primary=host:puerto` el proceso es una réplica
+ * de solo lectura que sigue el journal de ese primario. Con
+ * `-Dastrobookings.cluster.nodes`, `-Dastrobookings.cluster.self` y
+ * `-Dastrobookings.cluster.secret` (el mismo en todos los nodos) el proceso
+ * es un nodo de un clúster particionado por vuelo (ver {@link Cluster}), que
+ * se administra en `/cluster`. Con `-Dastrobookings.cluster.escrowSeats=N`
+ * el nodo vende plazas de vuelos de otros nodos a partir de cupos de N plazas
+ * (ver {@link academy.aicode.astrobookings.cluster.SeatEscrow}). Cada GET lee
+ * de una vista fija del almacenamiento (ver {@link ReadViewFilter}).
  */
 public class AstrobookingsApplication {
 
   public static void main(String[] args) throws IOException {
-    HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
-    server.createContext("/rockets", new RocketHandler());
-    server.createContext("/flights", new FlightHandler());
-    server.createContext("/bookings", new BookingHandler());
-    server.setExecutor(null); // Use default executor
+    String primary = System.getProperty("astrobookings.replication.primary");
+    if (primary != null) {
+      StorageBackends.use(ReplicaStorageBackend.connect(primary));
+    }
+    Cluster cluster = Cluster.fromProperties();
+    ShardedStorageBackend sharded = null;
+    if (cluster != null) {
+      Path dataDir = Path.of(System.getProperty(StorageBackends.DATA_DIR_PROPERTY, "data"));
+      sharded = new ShardedStorageBackend(cluster, StorageBackends.current(),
+          Integer.getInteger("astrobookings.cluster.escrowSeats", 0),
+          dataDir.resolve("cluster").resolve("escrow-" + cluster.self().name() + ".log"));
+      StorageBackends.use(sharded);
+      Runtime.getRuntime().addShutdownHook(new Thread(cluster::close, "cluster-shutdown"));
+      // Without TCP_NODELAY the server's split header and body writes wait
+      // for the forwarding node's delayed ACK, about 40 ms per forwarded call
+      if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+      }
+    }
+    StorageBackend storage = StorageBackends.current();
+    Runtime.getRuntime().addShutdownHook(new Thread(storage::close, "storage-shutdown"));
+    int port = Integer.getInteger("astrobookings.port", 8080);
+    Filter replication = new ReplicationFilter(storage,
+        Duration.ofMillis(Long.getLong("astrobookings.replication.readTimeoutMillis", 1000)));
+    HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+    Filter readView = new ReadViewFilter(storage);
+    List<Filter> filters = cluster == null ? List.of(replication, readView)
+        : List.of(new ShardingFilter(cluster, sharded.escrow()), replication, readView);
+    server.createContext("/rockets", new RocketHandler()).getFilters().addAll(filters);
+    server.createContext("/flights", new FlightHandler()).getFilters().addAll(filters);
+    IdempotencyStore idempotency = IdempotencyStore.fromProperties();
+    server.createContext("/bookings", new BookingHandler(idempotency)).getFilters().addAll(filters);
+    server.createContext("/metrics", new MetricsHandler(idempotency));
+    if (cluster != null) {
+      server.createContext("/cluster", new ClusterHandler(cluster, sharded.migrator(), sharded.escrow()));
+    }
+    // Requests waiting for a replica or another node must not hold up the others
+    server.setExecutor(Executors.newCachedThreadPool());
     server.start();
-    System.out.println("Server started at http://localhost:8080");
+    System.out.println("Server started at http://localhost:" + port + " (storage: " + storage.name()
+        + (cluster == null ? "" : ", node: " + cluster.self().name()) + ")");
   }
 
 }
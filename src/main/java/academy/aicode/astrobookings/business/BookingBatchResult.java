@@ -0,0 +1,58 @@
+package academy.aicode.astrobookings.business;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Outcome of a single item in a booking batch: either the created booking or
+ * the exception that rejected it.
+ */
+public class BookingBatchResult {
+  private final Booking booking;
+  private final RuntimeException error;
+
+  private BookingBatchResult(Booking booking, RuntimeException error) {
+    this.booking = booking;
+    this.error = error;
+  }
+
+  /**
+   * Creates a successful result.
+   *
+   * @param booking the created booking
+   * @return the result
+   */
+  public static BookingBatchResult success(Booking booking) {
+    return new BookingBatchResult(booking, null);
+  }
+
+  /**
+   * Creates a failed result.
+   *
+   * @param error the exception that rejected the item
+   * @return the result
+   */
+  public static BookingBatchResult failure(RuntimeException error) {
+    return new BookingBatchResult(null, error);
+  }
+
+  /**
+   * Returns true when the booking was created.
+   */
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  /**
+   * Returns the created booking, or null on failure.
+   */
+  public Booking getBooking() {
+    return booking;
+  }
+
+  /**
+   * Returns the rejection cause, or null on success.
+   */
+  public RuntimeException getError() {
+    return error;
+  }
+}
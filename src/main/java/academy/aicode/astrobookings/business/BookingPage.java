@@ -0,0 +1,31 @@
+package academy.aicode.astrobookings.business;
+
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * One page of a paginated booking listing, with the offset of the next page
+ * if there is one.
+ */
+public class BookingPage {
+  private final List<Booking> bookings;
+  private final Integer nextOffset;
+
+  /**
+   * @param bookings   the bookings in the page
+   * @param nextOffset the offset of the next page, or null if this is the last
+   */
+  public BookingPage(List<Booking> bookings, Integer nextOffset) {
+    this.bookings = bookings;
+    this.nextOffset = nextOffset;
+  }
+
+  public List<Booking> getBookings() {
+    return bookings;
+  }
+
+  public Integer getNextOffset() {
+    return nextOffset;
+  }
+}
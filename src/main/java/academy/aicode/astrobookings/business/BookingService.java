@@ -1,11 +1,16 @@
 package academy.aicode.astrobookings.business;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.StorageBackends;
 import academy.aicode.astrobookings.persistence.models.Booking;
 import academy.aicode.astrobookings.persistence.models.Flight;
 import academy.aicode.astrobookings.persistence.models.FlightState;
@@ -20,7 +25,17 @@ public class BookingService {
 
   private static final Logger LOGGER = Logger.getLogger(BookingService.class.getName());
 
-  private final BookingRepository bookingRepository = new BookingRepository();
+  /**
+   * Page size of passenger listings when none is asked for.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 50;
+
+  /**
+   * Maximum page size of passenger listings.
+   */
+  public static final int MAX_PAGE_SIZE = 500;
+
+  private final BookingRepository bookingRepository = StorageBackends.current().bookings();
   private final FlightService flightService = new FlightService();
   private final RocketService rocketService = new RocketService();
 
@@ -43,21 +58,115 @@ public class BookingService {
     Rocket rocket = requireValidRocket(flight.getRocketId());
     int capacity = rocket.getCapacity();
 
-    int currentBookings = bookingRepository.countByFlightId(flightId);
-    requireAvailableSeats(currentBookings, capacity);
-
-    int bookingNumber = currentBookings + 1;
-    int discountPercent = computeDiscountPercent(bookingNumber, capacity, flight.getMinimumPassengers());
-    double finalPrice = computeFinalPrice(flight.getBasePrice(), discountPercent);
+    int[] seats = bookingRepository.takeSeats(flightId, capacity, 1);
+    requireAvailableSeat(seats, 0);
 
-    Booking saved = bookingRepository
-        .save(buildBooking(flightId, passengerName, passengerDocument, discountPercent, finalPrice));
-    LOGGER.log(Level.INFO, "Booking created: {0}", saved.getId());
+    Booking saved = saveBooking(flight, capacity, seats[0], passengerName, passengerDocument);
 
     flightService.refreshStateOnRead(flight);
     return saved;
   }
 
+  /**
+   * Creates several bookings in one pass. Items are grouped by flight so each
+   * flight is loaded, its seats taken and its state refreshed once per batch
+   * instead of once per item. A failing item does not abort the rest of the batch.
+   *
+   * @param requests the create booking requests
+   * @return one result per request, in request order
+   */
+  public List<BookingBatchResult> createBatch(List<CreateBookingRequest> requests) {
+    if (requests == null || requests.isEmpty()) {
+      throw new IllegalArgumentException("Request body must be a non-empty array");
+    }
+
+    BookingBatchResult[] results = new BookingBatchResult[requests.size()];
+    Map<String, List<Integer>> indexesByFlight = new LinkedHashMap<>();
+
+    for (int i = 0; i < requests.size(); i++) {
+      CreateBookingRequest request = requests.get(i);
+      try {
+        requireRequestBody(request);
+        String flightId = requireTrimmed(request.getFlightId(), "flightId must be provided");
+        requireTrimmed(request.getPassengerName(), "passengerName must be provided");
+        requireTrimmed(request.getPassengerDocument(), "passengerDocument must be provided");
+        indexesByFlight.computeIfAbsent(flightId, key -> new ArrayList<>()).add(i);
+      } catch (IllegalArgumentException iae) {
+        results[i] = BookingBatchResult.failure(iae);
+      }
+    }
+
+    for (Map.Entry<String, List<Integer>> entry : indexesByFlight.entrySet()) {
+      createForFlight(entry.getKey(), entry.getValue(), requests, results);
+    }
+
+    return Arrays.asList(results);
+  }
+
+  private void createForFlight(String flightId, List<Integer> indexes, List<CreateBookingRequest> requests,
+      BookingBatchResult[] results) {
+    Flight flight;
+    int capacity;
+    try {
+      flight = requireExistingFlight(flightId);
+      requireEligibleFlightState(flight);
+      capacity = requireValidRocket(flight.getRocketId()).getCapacity();
+    } catch (IllegalArgumentException | BookingConflictException e) {
+      for (int index : indexes) {
+        results[index] = BookingBatchResult.failure(e);
+      }
+      return;
+    }
+
+    int[] seats = bookingRepository.takeSeats(flightId, capacity, indexes.size());
+    int used = 0;
+    boolean created = false;
+
+    try {
+      for (int index : indexes) {
+        CreateBookingRequest request = requests.get(index);
+        try {
+          requireAvailableSeat(seats, used);
+          Booking saved = saveBooking(flight, capacity, seats[used++], request.getPassengerName().trim(),
+              request.getPassengerDocument().trim());
+          created = true;
+          results[index] = BookingBatchResult.success(saved);
+        } catch (IllegalArgumentException | BookingConflictException e) {
+          results[index] = BookingBatchResult.failure(e);
+        }
+      }
+    } finally {
+      for (int unused = used; unused < seats.length; unused++) {
+        bookingRepository.returnSeat(flightId, seats[unused]);
+      }
+    }
+
+    if (created) {
+      flightService.refreshStateOnRead(flight);
+    }
+  }
+
+  /**
+   * Saves a booking on the seat numbered {@code bookingNumber}, which is given
+   * back if the booking cannot be saved.
+   */
+  private Booking saveBooking(Flight flight, int capacity, int bookingNumber, String passengerName,
+      String passengerDocument) {
+    Booking saved;
+    try {
+      int discountPercent = computeDiscountPercent(bookingNumber, capacity, flight.getMinimumPassengers());
+      double finalPrice = computeFinalPrice(flight.getBasePrice(), discountPercent);
+
+      saved = bookingRepository
+          .save(buildBooking(flight.getId(), passengerName, passengerDocument, discountPercent, finalPrice));
+    } catch (RuntimeException e) {
+      bookingRepository.returnSeat(flight.getId(), bookingNumber);
+      throw e;
+    }
+    LOGGER.log(Level.INFO, "Booking created: {0}", saved.getId());
+    return saved;
+  }
+
   private static void requireRequestBody(CreateBookingRequest request) {
     if (request == null) {
       throw new IllegalArgumentException("Request body must be provided");
@@ -94,8 +203,8 @@ public class BookingService {
     return rocket;
   }
 
-  private static void requireAvailableSeats(int currentBookings, int capacity) {
-    if (currentBookings >= capacity) {
+  private static void requireAvailableSeat(int[] seats, int index) {
+    if (index >= seats.length) {
       throw new BookingConflictException("flight is sold out");
     }
   }
@@ -133,6 +242,54 @@ public class BookingService {
     return bookingRepository.findById(id.trim());
   }
 
+  /**
+   * Returns the bookings for the given ids in request order, with null for ids
+   * that do not exist.
+   *
+   * @param ids booking ids
+   * @return bookings aligned with {@code ids}
+   */
+  public List<Booking> findByIds(List<String> ids) {
+    if (ids == null || ids.isEmpty() || ids.size() > FlightService.MAX_IDS_PER_LOOKUP) {
+      throw new IllegalArgumentException(
+          "ids must contain between 1 and " + FlightService.MAX_IDS_PER_LOOKUP + " values");
+    }
+
+    List<Booking> out = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      out.add(bookingRepository.findById(id));
+    }
+    return out;
+  }
+
+  /**
+   * Returns a page of the bookings of a passenger, oldest first.
+   *
+   * @param passengerDocument the passenger document
+   * @param offset            how many bookings to skip
+   * @param limit             the most bookings to return, up to
+   *                          {@link #MAX_PAGE_SIZE}
+   * @return the page, with the offset of the next one if there are more
+   */
+  public BookingPage findByPassengerDocument(String passengerDocument, int offset, int limit) {
+    if (passengerDocument == null || passengerDocument.trim().isEmpty()) {
+      throw new IllegalArgumentException("passengerDocument must be provided");
+    }
+    if (offset < 0) {
+      throw new IllegalArgumentException("offset must not be negative");
+    }
+    if (limit < 1 || limit > MAX_PAGE_SIZE) {
+      throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+    }
+
+    // One more than asked tells whether there is a next page
+    List<Booking> found = bookingRepository.findByPassengerDocument(passengerDocument.trim(), offset, limit + 1);
+    if (found.size() <= limit) {
+      return new BookingPage(found, null);
+    }
+    return new BookingPage(found.subList(0, limit), offset + limit);
+  }
+
   /**
    * Lists bookings for a flight.
    *
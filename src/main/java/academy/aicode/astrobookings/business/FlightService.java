@@ -1,13 +1,18 @@
 package academy.aicode.astrobookings.business;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import academy.aicode.astrobookings.persistence.BookingRepository;
 import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.StorageBackends;
 import academy.aicode.astrobookings.persistence.models.Flight;
 import academy.aicode.astrobookings.persistence.models.FlightState;
 import academy.aicode.astrobookings.persistence.models.Rocket;
@@ -20,8 +25,15 @@ public class FlightService {
 
   private static final Logger LOGGER = Logger.getLogger(FlightService.class.getName());
 
-  private final FlightRepository flightRepository = new FlightRepository();
-  private final BookingRepository bookingRepository = new BookingRepository();
+  /**
+   * Maximum number of ids accepted by a single multi-get lookup.
+   */
+  public static final int MAX_IDS_PER_LOOKUP = 500;
+
+  private static final Duration CANCELLATION_HORIZON = Duration.ofDays(7);
+
+  private final FlightRepository flightRepository = StorageBackends.current().flights();
+  private final BookingRepository bookingRepository = StorageBackends.current().bookings();
   private final RocketService rocketService = new RocketService();
 
   /**
@@ -31,6 +43,36 @@ public class FlightService {
    * @return the created flight
    */
   public Flight create(CreateFlightRequest request) {
+    Flight saved = flightRepository.save(buildFlight(request, Instant.now()));
+    LOGGER.log(Level.INFO, "Flight created: {0}", saved.getId());
+    return saved;
+  }
+
+  /**
+   * Imports a batch of create requests: validates each one, saves the valid
+   * flights in one call and records the rejected ones in {@code result}. No
+   * per-flight log line is written.
+   *
+   * @param requests   the batch requests (may contain nulls)
+   * @param firstIndex position of the first item within the whole import
+   * @param result     the import accumulator
+   */
+  public void importBatch(List<CreateFlightRequest> requests, int firstIndex, ImportResult result) {
+    Instant now = Instant.now();
+    List<Flight> valid = new ArrayList<>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      try {
+        valid.add(buildFlight(requests.get(i), now));
+      } catch (IllegalArgumentException iae) {
+        result.reject(firstIndex + i, iae.getMessage());
+      }
+    }
+
+    flightRepository.saveAll(valid);
+    result.accept(valid.size());
+  }
+
+  private Flight buildFlight(CreateFlightRequest request, Instant now) {
     if (request == null) {
       throw new IllegalArgumentException("Request body must be provided");
     }
@@ -50,7 +92,6 @@ public class FlightService {
       throw new IllegalArgumentException("launchDateTime must be provided");
     }
 
-    Instant now = Instant.now();
     if (!launchDateTime.isAfter(now)) {
       throw new IllegalArgumentException("launchDateTime must be in the future");
     }
@@ -76,10 +117,7 @@ public class FlightService {
     flight.setBasePrice(basePrice);
     flight.setMinimumPassengers(minimumPassengers);
     flight.setState(FlightState.SCHEDULED);
-
-    Flight saved = flightRepository.save(flight);
-    LOGGER.log(Level.INFO, "Flight created: {0}", saved.getId());
-    return saved;
+    return flight;
   }
 
   /**
@@ -99,24 +137,68 @@ public class FlightService {
   }
 
   /**
-   * Lists future flights (launchDateTime after now), optionally filtering by
-   * state.
+   * Returns the flights for the given ids in request order, with null for ids
+   * that do not exist. Each distinct flight is looked up and refreshed once,
+   * even when its id is repeated.
+   *
+   * @param ids the flight ids
+   * @return flights aligned with {@code ids}
+   */
+  public List<Flight> findByIds(List<String> ids) {
+    if (ids == null || ids.isEmpty() || ids.size() > MAX_IDS_PER_LOOKUP) {
+      throw new IllegalArgumentException("ids must contain between 1 and " + MAX_IDS_PER_LOOKUP + " values");
+    }
+
+    Map<String, Flight> resolved = new HashMap<>();
+    List<Flight> out = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      if (!resolved.containsKey(id)) {
+        Flight flight = flightRepository.findById(id);
+        refreshStateOnRead(flight);
+        resolved.put(id, flight);
+      }
+      out.add(resolved.get(id));
+    }
+    return out;
+  }
+
+  /**
+   * Lists future flights (launchDateTime after now), ordered by launch time and
+   * optionally filtering by state.
    *
    * @param stateFilter optional state filter
    * @return list of future flights
    */
   public List<Flight> findFutureFlights(FlightState stateFilter) {
+    return findFlightsByLaunchWindow(null, null, stateFilter);
+  }
+
+  /**
+   * Lists flights launching within {@code [from, to)}, ordered by launch time
+   * and optionally filtering by state. Only flights in the window are read and
+   * refreshed; with a state filter, only flights indexed under that state plus
+   * those inside the rule-based cancellation horizon are read.
+   *
+   * @param from        lower bound (inclusive); null means "after now"
+   * @param to          upper bound (exclusive); null means no upper bound
+   * @param stateFilter optional state filter
+   * @return list of flights in the window
+   */
+  public List<Flight> findFlightsByLaunchWindow(Instant from, Instant to, FlightState stateFilter) {
+    if (from != null && to != null && !from.isBefore(to)) {
+      throw new IllegalArgumentException("from must be before to");
+    }
+
     Instant now = Instant.now();
-    List<Flight> out = new ArrayList<>();
+    Instant windowFrom = from == null ? now.plusNanos(1) : from;
+    List<Flight> candidates = stateFilter == null
+        ? flightRepository.findLaunchingBetween(windowFrom, to)
+        : findStateCandidates(windowFrom, to, stateFilter, now);
 
-    for (Flight flight : flightRepository.findAll()) {
+    List<Flight> out = new ArrayList<>();
+    for (Flight flight : candidates) {
       refreshStateOnRead(flight);
 
-      Instant launchDateTime = flight.getLaunchDateTime();
-      if (launchDateTime == null || !launchDateTime.isAfter(now)) {
-        continue;
-      }
-
       if (stateFilter != null && flight.getState() != stateFilter) {
         continue;
       }
@@ -127,6 +209,35 @@ public class FlightService {
     return out;
   }
 
+  /**
+   * Flights only change state by time alone once they are within the
+   * cancellation horizon or already launched, and those are not re-indexed
+   * until read. Every other change (a booking, a cancellation, a new rocket
+   * capacity through {@link #refreshFlightsOfRocket}) re-indexes the flight
+   * when it happens. The candidates for a state filter are therefore the
+   * flights indexed under that state plus every flight in the window launching
+   * before the horizon ends.
+   */
+  private List<Flight> findStateCandidates(Instant from, Instant to, FlightState state, Instant now) {
+    Map<String, Flight> candidates = new HashMap<>();
+    for (Flight flight : flightRepository.findByState(state)) {
+      Instant launch = flight.getLaunchDateTime();
+      if (launch != null && !launch.isBefore(from) && (to == null || launch.isBefore(to))) {
+        candidates.put(flight.getId(), flight);
+      }
+    }
+
+    Instant horizon = now.plus(CANCELLATION_HORIZON).plusNanos(1);
+    Instant horizonTo = to == null || horizon.isBefore(to) ? horizon : to;
+    for (Flight flight : flightRepository.findLaunchingBetween(from, horizonTo)) {
+      candidates.put(flight.getId(), flight);
+    }
+
+    List<Flight> ordered = new ArrayList<>(candidates.values());
+    ordered.sort(Comparator.comparing(Flight::getLaunchDateTime).thenComparing(Flight::getId));
+    return ordered;
+  }
+
   /**
    * Cancels an existing flight, setting its state to
    * {@link FlightState#CANCELLED}.
@@ -157,8 +268,9 @@ public class FlightService {
       return flight;
     }
 
-    flight.setState(FlightState.CANCELLED);
-    Flight saved = flightRepository.save(flight);
+    // updateState stores the new state; saving the flight as well would write it twice
+    flightRepository.updateState(flight, FlightState.CANCELLED);
+    Flight saved = flight;
 
     int bookings = bookingRepository.countByFlightId(saved.getId());
     LOGGER.log(Level.INFO, "Flight cancelled: {0}", saved.getId());
@@ -169,6 +281,21 @@ public class FlightService {
     return saved;
   }
 
+  /**
+   * Refreshes the state of every future flight on a rocket, so that flights
+   * whose state depends on the rocket's capacity are indexed under the right
+   * state after it changes.
+   *
+   * @param rocketId the rocket id
+   */
+  public void refreshFlightsOfRocket(String rocketId) {
+    for (Flight flight : flightRepository.findLaunchingBetween(Instant.now().plusNanos(1), null)) {
+      if (rocketId.equals(flight.getRocketId())) {
+        refreshStateOnRead(flight);
+      }
+    }
+  }
+
   /**
    * Refreshes state derived from time and (future) bookings.
    *
@@ -185,7 +312,7 @@ public class FlightService {
     Instant launchDateTime = flight.getLaunchDateTime();
     if (launchDateTime != null && Instant.now().isAfter(launchDateTime)) {
       if (current != FlightState.DONE) {
-        flight.setState(FlightState.DONE);
+        flightRepository.updateState(flight, FlightState.DONE);
         LOGGER.log(Level.INFO, "Flight state changed to DONE: {0}", flight.getId());
       }
       return;
@@ -199,7 +326,7 @@ public class FlightService {
     String rocketId = flight.getRocketId();
     if (rocketId == null || rocketId.trim().isEmpty()) {
       if (current != FlightState.SCHEDULED) {
-        flight.setState(FlightState.SCHEDULED);
+        flightRepository.updateState(flight, FlightState.SCHEDULED);
       }
       return;
     }
@@ -208,7 +335,7 @@ public class FlightService {
     Integer capacity = rocket == null ? null : rocket.getCapacity();
     if (capacity == null || capacity < 1) {
       if (current != FlightState.SCHEDULED) {
-        flight.setState(FlightState.SCHEDULED);
+        flightRepository.updateState(flight, FlightState.SCHEDULED);
       }
       return;
     }
@@ -216,11 +343,11 @@ public class FlightService {
     int bookings = bookingRepository.countByFlightId(flight.getId());
 
     // Rule-based cancellation: if within 7 days of launch and below minimum, cancel
-    if (launchDateTime != null && Instant.now().isAfter(launchDateTime.minusSeconds(7 * 24 * 3600))) {
+    if (launchDateTime != null && Instant.now().isAfter(launchDateTime.minus(CANCELLATION_HORIZON))) {
       Integer minimum = flight.getMinimumPassengers();
       if (minimum != null && bookings < minimum.intValue()) {
         if (current != FlightState.CANCELLED) {
-          flight.setState(FlightState.CANCELLED);
+          flightRepository.updateState(flight, FlightState.CANCELLED);
           LOGGER.log(Level.INFO, "Flight state changed to CANCELLED (rule-based): {0}", flight.getId());
           LOGGER.log(Level.INFO, "Simulating cancellation notification for flight: {0}", flight.getId());
           LOGGER.log(Level.INFO, "Simulating refunds for {0} bookings on flight: {1}",
@@ -240,7 +367,7 @@ public class FlightService {
     }
 
     if (current != desired) {
-      flight.setState(desired);
+      flightRepository.updateState(flight, desired);
       LOGGER.log(Level.INFO, "Flight state changed to {0}: {1}", new Object[] { desired, flight.getId() });
       if (desired == FlightState.CONFIRMED) {
         LOGGER.log(Level.INFO, "Simulating payment capture and confirmation notification for flight: {0}",
@@ -0,0 +1,80 @@
+package academy.aicode.astrobookings.business;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Running tally of a bulk import: accepted and rejected counts plus the
+ * rejection reasons of the first {@link #MAX_REPORTED_REJECTIONS} items, so a
+ * huge import never holds an unbounded error list.
+ */
+public class ImportResult {
+
+  /**
+   * Maximum number of rejection reasons kept in the report.
+   */
+  public static final int MAX_REPORTED_REJECTIONS = 100;
+
+  private final Map<Integer, String> rejections = new LinkedHashMap<>();
+  private int accepted;
+  private int rejected;
+  private boolean completed = true;
+
+  /**
+   * Records items that were stored.
+   *
+   * @param count number of stored items
+   */
+  public void accept(int count) {
+    accepted += count;
+  }
+
+  /**
+   * Records a rejected item.
+   *
+   * @param index  position of the item in the import stream
+   * @param reason why it was rejected
+   */
+  public void reject(int index, String reason) {
+    rejected++;
+    if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+      rejections.put(index, reason);
+    }
+  }
+
+  /**
+   * Marks the import as stopped before the end of the stream.
+   */
+  public void abort() {
+    completed = false;
+  }
+
+  /**
+   * Returns the number of stored items.
+   */
+  public int getAccepted() {
+    return accepted;
+  }
+
+  /**
+   * Returns the number of rejected items.
+   */
+  public int getRejected() {
+    return rejected;
+  }
+
+  /**
+   * Returns false when the stream could not be read to the end.
+   */
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  /**
+   * Returns the reported rejection reasons keyed by item index.
+   */
+  public Map<Integer, String> getRejections() {
+    return Collections.unmodifiableMap(rejections);
+  }
+}
@@ -1,10 +1,12 @@
 package academy.aicode.astrobookings.business;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackends;
 import academy.aicode.astrobookings.persistence.models.Rocket;
 import academy.aicode.astrobookings.presentation.dto.CreateRocketRequest;
 
@@ -16,7 +18,7 @@ public class RocketService {
 
   private static final Logger LOGGER = Logger.getLogger(RocketService.class.getName());
 
-  private final RocketRepository rocketRepository = new RocketRepository();
+  private final RocketRepository rocketRepository = StorageBackends.current().rockets();
 
   public List<Rocket> findAll() {
     return rocketRepository.findAll();
@@ -46,8 +48,48 @@ public class RocketService {
    * @throws IllegalArgumentException si la validación falla
    */
   public Rocket create(CreateRocketRequest req) {
+    Rocket r;
+    try {
+      r = buildRocket(req);
+    } catch (IllegalArgumentException iae) {
+      LOGGER.log(Level.WARNING, "Create rocket validation failed: {0}", iae.getMessage());
+      throw iae;
+    }
+
+    try {
+      Rocket saved = rocketRepository.save(r);
+      LOGGER.log(Level.INFO, "Rocket created: {0}", saved.getId());
+      return saved;
+    } catch (Exception e) {
+      LOGGER.log(Level.SEVERE, "Failed to save rocket", e);
+      throw new IllegalArgumentException("Failed to create rocket: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Importa un lote de peticiones: valida cada una, guarda las válidas de una
+   * sola vez y anota las rechazadas en `result`. No escribe un log por cohete.
+   *
+   * @param requests   peticiones del lote (pueden contener null)
+   * @param firstIndex posición del primer elemento dentro de la importación
+   * @param result     acumulador de la importación
+   */
+  public void importBatch(List<CreateRocketRequest> requests, int firstIndex, ImportResult result) {
+    List<Rocket> valid = new ArrayList<>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      try {
+        valid.add(buildRocket(requests.get(i)));
+      } catch (IllegalArgumentException iae) {
+        result.reject(firstIndex + i, iae.getMessage());
+      }
+    }
+
+    rocketRepository.saveAll(valid);
+    result.accept(valid.size());
+  }
+
+  private static Rocket buildRocket(CreateRocketRequest req) {
     if (req == null) {
-      LOGGER.warning("CreateRocketRequest was null");
       throw new IllegalArgumentException("Request body must be provided");
     }
 
@@ -55,11 +97,9 @@ public class RocketService {
     Integer capacity = req.getCapacity();
 
     if (name == null || name.isEmpty()) {
-      LOGGER.warning("Validation failed: name is blank");
       throw new IllegalArgumentException("Rocket name must be provided");
     }
     if (capacity == null || capacity < 1 || capacity > 10) {
-      LOGGER.warning("Validation failed: capacity out of range");
       throw new IllegalArgumentException("Rocket capacity must be between 1 and 10");
     }
 
@@ -68,15 +108,7 @@ public class RocketService {
     r.setCapacity(capacity);
     r.setRange(req.getRange());
     r.setSpeed(req.getSpeed());
-
-    try {
-      Rocket saved = rocketRepository.save(r);
-      LOGGER.log(Level.INFO, "Rocket created: {0}", saved.getId());
-      return saved;
-    } catch (Exception e) {
-      LOGGER.log(Level.SEVERE, "Failed to save rocket", e);
-      throw new IllegalArgumentException("Failed to create rocket: " + e.getMessage());
-    }
+    return r;
   }
 
   private String validateRocket(Rocket rocket) {
@@ -94,7 +126,12 @@ public class RocketService {
 
   /**
    * Actualiza parcialmente un cohete existente. Solo los campos no nulos
-   * del parámetro `updates` se aplican. Valida los cambios antes de guardar.
+   * del parámetro `updates` se aplican. Valida todos los cambios antes de
+   * aplicarlos a una copia del cohete guardado y guarda la copia: la instancia
+   * publicada no cambia nunca, así que ningún lector ve una actualización a
+   * medias ni una que no llegó a guardarse. Si cambia la capacidad, vuelve a
+   * calcular el estado de los vuelos futuros del cohete (SOLD_OUT, CONFIRMED o
+   * SCHEDULED dependen de ella).
    *
    * @param id      id del cohete a actualizar
    * @param updates objeto con los campos a actualizar
@@ -109,23 +146,28 @@ public class RocketService {
     if (existing == null) {
       return null;
     }
+    if (updates.getCapacity() != null && (updates.getCapacity() <= 0 || updates.getCapacity() > 10)) {
+      throw new IllegalArgumentException("Rocket capacity must be between 1 and 10");
+    }
 
-    // Apply updates selectively
+    Rocket updated = existing.copy();
     if (updates.getName() != null && !updates.getName().trim().isEmpty()) {
-      existing.setName(updates.getName());
+      updated.setName(updates.getName());
     }
     if (updates.getCapacity() != null) {
-      int cap = updates.getCapacity();
-      if (cap <= 0 || cap > 10) {
-        throw new IllegalArgumentException("Rocket capacity must be between 1 and 10");
-      }
-      existing.setCapacity(cap);
+      updated.setCapacity(updates.getCapacity());
     }
     if (updates.getSpeed() != null) {
-      existing.setSpeed(updates.getSpeed());
+      updated.setSpeed(updates.getSpeed());
     }
 
-    return rocketRepository.save(existing);
+    Rocket saved = rocketRepository.save(updated);
+    if (updates.getCapacity() != null && !updates.getCapacity().equals(existing.getCapacity())) {
+      // FlightService crea su propio RocketService: se construye aquí para no
+      // entrar en un ciclo de construcción
+      new FlightService().refreshFlightsOfRocket(saved.getId());
+    }
+    return saved;
   }
 
 }
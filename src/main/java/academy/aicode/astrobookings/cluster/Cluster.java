@@ -0,0 +1,498 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.StorageBackends;
+
+/**
+ * Membership of a sharded deployment and the placement of data on it.
+ * <p>
+ * Every flight, rocket and booking has a home node, the node its id hashes to
+ * on a {@link HashRing}. New entities are stored where they are created, so
+ * they get ids whose home is that node ({@link #newLocalId()}); bookings are
+ * created on their flight's node and therefore live with their flight.
+ * <p>
+ * Flights can move to another node ({@link FlightMigrator}). The node that
+ * hands a flight over keeps a pointer to its new holder for the flight and its
+ * bookings, and so does their home node, so requests reach the data by
+ * following pointers from the home node ({@link #route}). Nodes can join at
+ * runtime in two phases: while a join is prepared every node tells the new
+ * node which of its keys will be homed there, and only then do all nodes switch
+ * to the new ring.
+ * <p>
+ * Requests for data held elsewhere are forwarded with one shared
+ * {@link HttpClient}, which keeps a pool of persistent connections per node.
+ * Nodes prove to each other that they belong to the cluster with a shared
+ * secret sent in {@value #SECRET_HEADER} ({@link #sign}); the calls between
+ * nodes, and {@value #FORWARDED_HEADER}, are only honoured with it
+ * ({@link #isPeer}).
+ * Configured with `astrobookings.cluster.nodes` (`name=uri,...`, the same on
+ * every node), `astrobookings.cluster.self`, `astrobookings.cluster.secret`
+ * (the same on every node), `astrobookings.cluster.joining`
+ * (true on a node that is not yet a member), `astrobookings.cluster.virtualNodes`
+ * (default 128) and `astrobookings.cluster.timeoutMillis` (default 5000).
+ * Pointers and joined members are kept in `&lt;dataDir&gt;/cluster`.
+ */
+public final class Cluster {
+
+  /**
+   * Header added to forwarded requests, naming the nodes that forwarded them.
+   * Such requests are served where they arrive unless that node has handed
+   * the data over.
+   */
+  public static final String FORWARDED_HEADER = "X-Forwarded-By";
+
+  /**
+   * Header carrying the cluster secret on calls between nodes.
+   */
+  public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+  private final ClusterNode self;
+  private final int virtualNodes;
+  private final Duration timeout;
+  private final String secret;
+  private final HttpClient client;
+  private final PlacementLog log;
+  private final FlightGates gates = new FlightGates();
+  /** Holders of keys this node is home for or has handed over. */
+  private final Map<String, ClusterNode> pointers = new ConcurrentHashMap<>();
+  /** Keys held here although their home is another node. */
+  private final Set<String> adopted = ConcurrentHashMap.newKeySet();
+  /** Flights being received from another node, hidden until committed. */
+  private final Set<String> incoming = ConcurrentHashMap.newKeySet();
+
+  private volatile List<ClusterNode> nodes;
+  private volatile HashRing ring;
+  private volatile ClusterNode joining;
+  private volatile HashRing pendingRing;
+
+  /**
+   * Creates a member of a cluster without a placement log.
+   *
+   * @param nodes        every node, in any order
+   * @param self         name of this node
+   * @param virtualNodes points per node on the hash ring
+   * @param timeout      connect and request timeout for calls to other nodes
+   * @param secret       secret shared by the nodes
+   * @throws IllegalArgumentException if {@code self} is not one of the nodes
+   *                                  or the secret is blank
+   */
+  public Cluster(List<ClusterNode> nodes, String self, int virtualNodes, Duration timeout, String secret) {
+    this(nodes, self, false, virtualNodes, timeout, secret, null);
+  }
+
+  /**
+   * Creates a node without a placement log that may still have to join the
+   * others; it then serves no data until it is joined through a member.
+   *
+   * @param joining whether this node still has to join the others
+   */
+  public Cluster(List<ClusterNode> nodes, String self, boolean joining, int virtualNodes, Duration timeout,
+      String secret) {
+    this(nodes, self, joining, virtualNodes, timeout, secret, null);
+  }
+
+  /**
+   * @param log where placement changes are kept, or null
+   */
+  Cluster(List<ClusterNode> nodes, String self, boolean joining, int virtualNodes, Duration timeout,
+      String secret, PlacementLog log) {
+    if (secret == null || secret.isBlank()) {
+      throw new IllegalArgumentException("The cluster secret must not be blank");
+    }
+    this.self = nodes.stream().filter(node -> node.name().equals(self)).findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Node " + self + " is not in the cluster " + nodes));
+    this.virtualNodes = virtualNodes;
+    this.timeout = timeout;
+    this.secret = secret;
+    this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(timeout).build();
+    this.log = log;
+    List<ClusterNode> members = new ArrayList<>(nodes);
+    if (joining) {
+      members.remove(this.self);
+      this.joining = this.self;
+      this.pendingRing = new HashRing(nodes, virtualNodes);
+    }
+    this.nodes = List.copyOf(members);
+    this.ring = new HashRing(this.nodes, virtualNodes);
+    if (log != null) {
+      log.replay(this);
+    }
+  }
+
+  /**
+   * Returns the cluster configured by system properties, or null when
+   * `astrobookings.cluster.nodes` is not set.
+   *
+   * @throws IllegalArgumentException if the configuration is invalid
+   * @throws java.io.UncheckedIOException if the placement log cannot be read
+   */
+  public static Cluster fromProperties() {
+    String members = System.getProperty("astrobookings.cluster.nodes");
+    if (members == null || members.isBlank()) {
+      return null;
+    }
+    String self = System.getProperty("astrobookings.cluster.self");
+    if (self == null) {
+      throw new IllegalArgumentException("astrobookings.cluster.self must name this node");
+    }
+    String secret = System.getProperty("astrobookings.cluster.secret");
+    if (secret == null || secret.isBlank()) {
+      throw new IllegalArgumentException("astrobookings.cluster.secret must be set, the same on every node");
+    }
+    Path dataDir = Path.of(System.getProperty(StorageBackends.DATA_DIR_PROPERTY, "data"));
+    return new Cluster(parseNodes(members), self, Boolean.getBoolean("astrobookings.cluster.joining"),
+        Integer.getInteger("astrobookings.cluster.virtualNodes", 128),
+        Duration.ofMillis(Long.getLong("astrobookings.cluster.timeoutMillis", 5000)), secret,
+        PlacementLog.open(dataDir.resolve("cluster").resolve("placement-" + self + ".log")));
+  }
+
+  /**
+   * Parses `name=uri,name=uri,...`.
+   *
+   * @throws IllegalArgumentException if an entry is malformed
+   */
+  static List<ClusterNode> parseNodes(String members) {
+    List<ClusterNode> nodes = new ArrayList<>();
+    for (String entry : members.split(",")) {
+      int equals = entry.indexOf('=');
+      if (equals <= 0 || equals == entry.length() - 1) {
+        throw new IllegalArgumentException("Cluster node must be name=uri, was " + entry);
+      }
+      nodes.add(new ClusterNode(entry.substring(0, equals).trim(), URI.create(entry.substring(equals + 1).trim())));
+    }
+    return nodes;
+  }
+
+  public ClusterNode self() {
+    return self;
+  }
+
+  /**
+   * Returns the members, which this node is not part of while it joins.
+   */
+  public List<ClusterNode> nodes() {
+    return nodes;
+  }
+
+  /**
+   * Returns whether this node is a member, i.e. has finished joining.
+   */
+  public boolean isMember() {
+    return nodes.stream().anyMatch(node -> node.name().equals(self.name()));
+  }
+
+  /**
+   * Returns the member called {@code name}, or the node joining under that
+   * name.
+   *
+   * @throws IllegalArgumentException if there is no such node
+   */
+  public ClusterNode node(String name) {
+    ClusterNode pending = joining;
+    if (pending != null && pending.name().equals(name)) {
+      return pending;
+    }
+    return nodes.stream().filter(node -> node.name().equals(name)).findFirst()
+        .orElseThrow(() -> new IllegalArgumentException("Unknown cluster node " + name));
+  }
+
+  /**
+   * Returns the home node of {@code key}.
+   */
+  public ClusterNode owner(String key) {
+    return ring.owner(key);
+  }
+
+  /**
+   * Returns whether this node is the home of {@code key}.
+   */
+  public boolean isLocal(String key) {
+    return isSelf(ring.owner(key));
+  }
+
+  /**
+   * Returns the node a request for {@code key} should go to; this node means
+   * it is handled here. A request already forwarded is handled here unless
+   * this node has handed the key over.
+   */
+  public ClusterNode route(String key, boolean forwarded) {
+    ClusterNode holder = pointers.get(key);
+    if (holder != null) {
+      return holder;
+    }
+    if (forwarded || adopted.contains(key)) {
+      return self;
+    }
+    return ring.owner(key);
+  }
+
+  public boolean isSelf(ClusterNode node) {
+    return node.name().equals(self.name());
+  }
+
+  /**
+   * Returns a new id whose home is this node, also on the ring being joined
+   * if a join is in progress. Ids are drawn from the configured generator
+   * until one hashes here, about as many draws as there are nodes.
+   *
+   * @throws IllegalStateException if this node has not joined yet
+   */
+  public String newLocalId() {
+    if (!isMember()) {
+      throw new IllegalStateException("Node " + self.name() + " has not joined the cluster yet");
+    }
+    while (true) {
+      String id = IdGenerators.nextId();
+      HashRing pending = pendingRing;
+      if (isLocal(id) && (pending == null || isSelf(pending.owner(id)))) {
+        return id;
+      }
+    }
+  }
+
+  /**
+   * Returns whether this node stores {@code id} but no longer serves it: it
+   * was handed over, or it is a flight still being received.
+   */
+  public boolean isHidden(String id) {
+    return id != null && (pointers.containsKey(id) || incoming.contains(id));
+  }
+
+  /**
+   * Records that {@code keys} are held by {@code holder}; if that is this
+   * node, they are adopted instead.
+   */
+  public void pointTo(Collection<String> keys, ClusterNode holder) {
+    if (isSelf(holder)) {
+      adopt(keys);
+      return;
+    }
+    for (String key : keys) {
+      pointers.put(key, holder);
+      adopted.remove(key);
+    }
+    if (log != null) {
+      log.pointTo(keys, holder.name());
+    }
+  }
+
+  /**
+   * Records that {@code keys} are now held by this node.
+   */
+  public void adopt(Collection<String> keys) {
+    for (String key : keys) {
+      pointers.remove(key);
+      if (!isLocal(key)) {
+        adopted.add(key);
+      }
+    }
+    if (log != null) {
+      log.adopt(keys);
+    }
+  }
+
+  /**
+   * Returns the number of keys pointing to other nodes.
+   */
+  public int pointerCount() {
+    return pointers.size();
+  }
+
+  void receiving(String flightId) {
+    incoming.add(flightId);
+  }
+
+  void received(String flightId) {
+    incoming.remove(flightId);
+  }
+
+  boolean hasIncoming() {
+    return !incoming.isEmpty();
+  }
+
+  boolean isIncoming(String flightId) {
+    return incoming.contains(flightId);
+  }
+
+  /**
+   * Returns the gates that hold requests back while a flight changes node.
+   */
+  public FlightGates gates() {
+    return gates;
+  }
+
+  /**
+   * Returns the node whose join is being prepared, or null.
+   */
+  public ClusterNode joining() {
+    return joining;
+  }
+
+  /**
+   * Returns the home of {@code key} once the join in progress is committed,
+   * or its current home when no join is in progress.
+   */
+  ClusterNode pendingOwner(String key) {
+    HashRing pending = pendingRing;
+    return pending == null ? ring.owner(key) : pending.owner(key);
+  }
+
+  /**
+   * First phase of a join: new ids must have this node as home on the new
+   * ring too, so that the keys moving to the new node's home range are known
+   * before any node switches rings.
+   *
+   * @throws IllegalStateException if another node is joining
+   */
+  synchronized void prepareJoin(ClusterNode node) {
+    ClusterNode current = joining;
+    if (current != null) {
+      if (current.name().equals(node.name())) {
+        return;
+      }
+      throw new IllegalStateException("Node " + current.name() + " is already joining");
+    }
+    if (nodes.stream().anyMatch(member -> member.name().equals(node.name()))) {
+      throw new IllegalStateException("Node " + node.name() + " is already a member");
+    }
+    List<ClusterNode> members = new ArrayList<>(nodes);
+    members.add(node);
+    pendingRing = new HashRing(members, virtualNodes);
+    joining = node;
+  }
+
+  /**
+   * Second phase of a join: switches to the ring including the new node.
+   */
+  synchronized void commitJoin(ClusterNode node) {
+    ClusterNode current = joining;
+    if (current == null || !current.name().equals(node.name())) {
+      throw new IllegalStateException("Node " + node.name() + " is not joining");
+    }
+    addMember(current);
+    if (log != null) {
+      log.member(current);
+    }
+  }
+
+  /**
+   * Abandons a prepared join; a node that is joining itself stays joining.
+   */
+  synchronized void abortJoin(ClusterNode node) {
+    ClusterNode current = joining;
+    if (current != null && current.name().equals(node.name()) && !isSelf(current)) {
+      joining = null;
+      pendingRing = null;
+    }
+  }
+
+  /**
+   * Adds a member, when a join commits or is read back from the log.
+   */
+  synchronized void addMember(ClusterNode node) {
+    if (nodes.stream().noneMatch(member -> member.name().equals(node.name()))) {
+      List<ClusterNode> members = new ArrayList<>(nodes);
+      members.add(isSelf(node) ? self : node);
+      nodes = List.copyOf(members);
+      ring = new HashRing(nodes, virtualNodes);
+    }
+    ClusterNode current = joining;
+    if (current != null && current.name().equals(node.name())) {
+      joining = null;
+      pendingRing = null;
+    }
+  }
+
+  /**
+   * Restores pointers read back from the log.
+   */
+  void restore(String key, String holder) {
+    if (holder == null) {
+      pointers.remove(key);
+      if (!isLocal(key)) {
+        adopted.add(key);
+      }
+    } else {
+      pointers.put(key, new ClusterNode(holder, null));
+      adopted.remove(key);
+    }
+  }
+
+  /**
+   * Resolves pointers read back from the log to the members they name.
+   */
+  void resolvePointers() {
+    pointers.replaceAll((key, holder) -> holder.uri() != null ? holder : node(holder.name()));
+  }
+
+  /**
+   * Returns the client used for calls to other nodes.
+   */
+  public HttpClient client() {
+    return client;
+  }
+
+  /**
+   * Adds to a call to another node the cluster secret and
+   * {@value #FORWARDED_HEADER} naming this node.
+   *
+   * @return {@code request}
+   */
+  public HttpRequest.Builder sign(HttpRequest.Builder request) {
+    return sign(request, null);
+  }
+
+  /**
+   * Adds to a request forwarded to another node the cluster secret and
+   * {@value #FORWARDED_HEADER} naming the nodes it passed through, this one
+   * last.
+   *
+   * @param forwardedBy the nodes that forwarded the request here, or null
+   * @return {@code request}
+   */
+  public HttpRequest.Builder sign(HttpRequest.Builder request, String forwardedBy) {
+    return request.header(SECRET_HEADER, secret)
+        .header(FORWARDED_HEADER, forwardedBy == null ? self.name() : forwardedBy + "," + self.name());
+  }
+
+  /**
+   * Returns whether a request carrying {@code presentedSecret} in
+   * {@value #SECRET_HEADER} comes from a node of this cluster.
+   *
+   * @param presentedSecret the header's value, or null
+   */
+  public boolean isPeer(String presentedSecret) {
+    return presentedSecret != null && MessageDigest.isEqual(presentedSecret.getBytes(StandardCharsets.UTF_8),
+        secret.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns the timeout for calls to other nodes.
+   */
+  public Duration timeout() {
+    return timeout;
+  }
+
+  /**
+   * Closes the placement log.
+   */
+  public void close() {
+    if (log != null) {
+      log.close();
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.net.URI;
+
+/**
+ * A node of the cluster: its name and the base URI of its HTTP API.
+ */
+public record ClusterNode(String name, URI uri) {
+}
@@ -0,0 +1,122 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Append-only text file with the seat quotas of one node, so that a restarted
+ * node still knows which seats of its flights other nodes hold, and which
+ * flights it sold seats of from a quota. One change per line, forced to disk
+ * before a call returns: `H flight node sequence seats selling` (what a node
+ * holds of a flight held here), `F flight` (the flight moved away), `L flight
+ * node` (this node holds a quota of a flight held by node), `D flight` (the
+ * quota is given up) and `S sequence` (calls to other nodes may use sequences
+ * up to this one). Replaying the file in order restores the state.
+ */
+final class EscrowLog {
+
+  private final Path file;
+  private final FileChannel channel;
+
+  private EscrowLog(Path file, FileChannel channel) {
+    this.file = file;
+    this.channel = channel;
+  }
+
+  /**
+   * Opens the log, creating it and its directory if needed.
+   *
+   * @throws UncheckedIOException if the file cannot be opened
+   */
+  static EscrowLog open(Path file) {
+    try {
+      Files.createDirectories(file.getParent());
+      return new EscrowLog(file, FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open escrow log " + file, e);
+    }
+  }
+
+  /**
+   * Applies every change in the file to {@code escrow}. A torn last line,
+   * left by a crash while appending, is ignored.
+   *
+   * @throws UncheckedIOException if the file cannot be read
+   */
+  void replay(SeatEscrow escrow) {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read escrow log " + file, e);
+    }
+    for (String line : lines) {
+      String[] fields = line.split(" ");
+      try {
+        if (fields.length == 6 && "H".equals(fields[0])) {
+          escrow.restoreHolding(fields[1], fields[2], new SeatLedger.Holding(Long.parseLong(fields[3]),
+              Integer.parseInt(fields[4]), Integer.parseInt(fields[5])));
+        } else if (fields.length == 2 && "F".equals(fields[0])) {
+          escrow.restoreHolding(fields[1], null, null);
+        } else if (fields.length == 3 && "L".equals(fields[0])) {
+          escrow.restoreLease(fields[1], fields[2]);
+        } else if (fields.length == 2 && "D".equals(fields[0])) {
+          escrow.restoreLease(fields[1], null);
+        } else if (fields.length == 2 && "S".equals(fields[0])) {
+          escrow.restoreSequence(Long.parseLong(fields[1]));
+        }
+      } catch (NumberFormatException e) {
+        // Torn line
+      }
+    }
+  }
+
+  void holding(String flightId, String node, SeatLedger.Holding holding) {
+    append("H " + flightId + " " + node + " " + holding.sequence() + " " + holding.seats() + " "
+        + holding.selling() + "\n");
+  }
+
+  void forgotten(String flightId) {
+    append("F " + flightId + "\n");
+  }
+
+  void leased(String flightId, String node) {
+    append("L " + flightId + " " + node + "\n");
+  }
+
+  void released(String flightId) {
+    append("D " + flightId + "\n");
+  }
+
+  void sequence(long reserved) {
+    append("S " + reserved + "\n");
+  }
+
+  private synchronized void append(String line) {
+    ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write escrow log " + file, e);
+    }
+  }
+
+  void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot close escrow log " + file, e);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds requests for a flight back while it changes node. Requests served
+ * locally {@link #enter} and {@link #exit} the gate of their key; a migration
+ * {@link #block}s new requests, waits for those in progress and, once the
+ * flight has moved, {@link #release}s the waiting ones, which are then routed
+ * to the new holder. Only the migrating flight is held back.
+ */
+public final class FlightGates {
+
+  private final Map<String, Integer> inProgress = new ConcurrentHashMap<>();
+  private final Map<String, CountDownLatch> blocked = new ConcurrentHashMap<>();
+  private final Object drained = new Object();
+  /** Key whose gate the current request thread has entered. */
+  private final ThreadLocal<String> entered = new ThreadLocal<>();
+
+  /**
+   * Enters the gate of {@code key}, waiting while it is blocked.
+   *
+   * @return true if the request may proceed here; false if it waited for a
+   *         block and must be routed again
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean enter(String key, Duration timeout) throws InterruptedException {
+    CountDownLatch gate = blocked.get(key);
+    if (gate == null) {
+      inProgress.merge(key, 1, Integer::sum);
+      // A block may have started between the check and the registration
+      gate = blocked.get(key);
+      if (gate == null) {
+        entered.set(key);
+        return true;
+      }
+      exit(key);
+    }
+    gate.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    return false;
+  }
+
+  /**
+   * Leaves the gate entered by a request that was allowed to proceed.
+   */
+  public void exit(String key) {
+    entered.remove();
+    inProgress.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+    if (blocked.containsKey(key)) {
+      synchronized (drained) {
+        drained.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Returns whether requests for {@code key} are held back.
+   */
+  public boolean isBlocked(String key) {
+    return blocked.containsKey(key);
+  }
+
+  /**
+   * Returns whether the calling thread is a request that entered the gate of
+   * {@code key}.
+   */
+  public boolean hasEntered(String key) {
+    return key.equals(entered.get());
+  }
+
+  /**
+   * Holds back new requests for {@code key} and waits for the ones in
+   * progress to finish.
+   *
+   * @return false if requests were still in progress after {@code timeout};
+   *         the key stays blocked until {@link #release}
+   * @throws InterruptedException if interrupted while waiting
+   */
+  boolean block(String key, Duration timeout) throws InterruptedException {
+    blocked.put(key, new CountDownLatch(1));
+    long deadline = System.nanoTime() + timeout.toNanos();
+    synchronized (drained) {
+      while (inProgress.containsKey(key)) {
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+          return false;
+        }
+        drained.wait(remaining);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Lets the requests held back for {@code key} continue.
+   */
+  void release(String key) {
+    CountDownLatch gate = blocked.remove(key);
+    if (gate != null) {
+      gate.countDown();
+    }
+  }
+}
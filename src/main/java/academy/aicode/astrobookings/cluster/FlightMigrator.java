@@ -0,0 +1,399 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import academy.aicode.astrobookings.persistence.StorageBackend;
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Moves flights with their bookings between nodes while they keep taking
+ * bookings.
+ * <p>
+ * The source copies the flight and all its bookings to the target, which
+ * keeps them hidden, then sends the bookings saved during the copy again
+ * until few are left; a flight with few bookings skips the copy. It then
+ * blocks requests for the flight ({@link FlightGates}), sends the last
+ * changes in a commit, after which the target serves the flight, and points
+ * the flight and its bookings to the target before letting the blocked
+ * requests continue to it. Bookings are
+ * only ever added or replaced, so resending the latest version of every
+ * booking saved since the previous batch is enough. The home nodes of the
+ * moved keys are told about their new holder afterwards; until they are,
+ * requests reach it through the source's pointers.
+ * <p>
+ * Quotas of the flight's seats held by other nodes are taken back with their
+ * bookings before the copy starts ({@link SeatEscrow#reclaim}).
+ * <p>
+ * The source keeps its copy, hidden behind the pointers, so a flight that
+ * moves back simply overwrites it. Joins are prepared here too: every node
+ * tells a joining node which of the keys it holds will be homed there.
+ */
+public final class FlightMigrator {
+
+  private static final Logger LOGGER = Logger.getLogger(FlightMigrator.class.getName());
+
+  /** Copy rounds before blocking the flight, however many bookings changed. */
+  private static final int MAX_COPY_ROUNDS = 3;
+  /** Changed bookings few enough to send while the flight is blocked. */
+  private static final int FINAL_BATCH = 4;
+  /** Flights a node moves at the same time. */
+  private static final int PARALLEL_MOVES = 4;
+  /** Consecutive failed moves after which a node stops moving flights. */
+  private static final int MAX_FAILURES = 3;
+  /** Keys per pointer update. */
+  private static final int POINTER_CHUNK = 10_000;
+
+  private final Cluster cluster;
+  private final StorageBackend local;
+  private final MigrationCapture capture;
+  private final SeatEscrow escrow;
+  private final NodeClient nodes;
+  private final ExecutorService notifier = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "pointer-notifier");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  FlightMigrator(Cluster cluster, StorageBackend local, MigrationCapture capture, SeatEscrow escrow) {
+    this.cluster = cluster;
+    this.local = local;
+    this.capture = capture;
+    this.escrow = escrow;
+    this.nodes = new NodeClient(cluster);
+  }
+
+  /**
+   * Returns what this node holds.
+   */
+  public NodeStatus status() {
+    int flights = 0;
+    int bookings = 0;
+    for (Flight flight : local.flights().findAll()) {
+      if (!cluster.isHidden(flight.getId())) {
+        flights++;
+        bookings += local.bookings().countByFlightId(flight.getId());
+      }
+    }
+    ClusterNode joining = cluster.joining();
+    return new NodeStatus(cluster.self().name(), cluster.isMember(), joining == null ? null : joining.name(),
+        cluster.nodes().stream().map(ClusterNode::name).toList(), flights, bookings, cluster.pointerCount());
+  }
+
+  /**
+   * Moves up to {@code count} flights to {@code target}, preferring flights
+   * whose home is the target, {@value #PARALLEL_MOVES} at a time. A failed
+   * move leaves its flight here; after a few failures in a row the remaining
+   * moves are given up.
+   *
+   * @throws IllegalArgumentException if the target is this node
+   */
+  public MoveReport moveFlights(ClusterNode target, int count) {
+    if (cluster.isSelf(target)) {
+      throw new IllegalArgumentException("Flights cannot move to the node holding them");
+    }
+    long start = System.nanoTime();
+    Queue<Flight> candidates = local.flights().findAll().stream()
+        .filter(flight -> !cluster.isHidden(flight.getId()))
+        .sorted(Comparator.comparing((Flight flight) -> !cluster.owner(flight.getId()).name().equals(target.name())))
+        .collect(Collectors.toCollection(ConcurrentLinkedQueue::new));
+    AtomicInteger started = new AtomicInteger();
+    AtomicInteger flights = new AtomicInteger();
+    AtomicInteger bookings = new AtomicInteger();
+    AtomicInteger failed = new AtomicInteger();
+    AtomicInteger failedInRow = new AtomicInteger();
+    Runnable mover = () -> {
+      while (failedInRow.get() < MAX_FAILURES && started.getAndIncrement() < count) {
+        Flight flight = candidates.poll();
+        if (flight == null) {
+          return;
+        }
+        try {
+          bookings.addAndGet(migrate(flight.getId(), target));
+          flights.incrementAndGet();
+          failedInRow.set(0);
+        } catch (IOException | RuntimeException e) {
+          LOGGER.log(Level.WARNING, "Cannot move flight " + flight.getId() + " to node " + target.name(), e);
+          failed.incrementAndGet();
+          failedInRow.incrementAndGet();
+          started.decrementAndGet();
+        }
+      }
+    };
+    List<Thread> movers = new ArrayList<>();
+    for (int i = 0; i < PARALLEL_MOVES; i++) {
+      movers.add(Thread.ofPlatform().name("flight-mover-" + i).start(mover));
+    }
+    for (Thread thread : movers) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        movers.forEach(Thread::interrupt);
+        break;
+      }
+    }
+    return new MoveReport(cluster.self().name(), target.name(), flights.get(), bookings.get(), failed.get(),
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /**
+   * Moves one flight and its bookings to {@code target}.
+   *
+   * @return the number of bookings moved
+   * @throws IllegalArgumentException if the flight is not held here or the
+   *                                  target is this node
+   * @throws IllegalStateException    if a node is joining or the flight is
+   *                                  already moving
+   * @throws IOException              if the target fails, or a quota of the
+   *                                  flight's seats cannot be taken back; the
+   *                                  flight then stays here
+   */
+  public int migrate(String flightId, ClusterNode target) throws IOException {
+    if (cluster.isSelf(target)) {
+      throw new IllegalArgumentException("Flights cannot move to the node holding them");
+    }
+    if (cluster.joining() != null) {
+      throw new IllegalStateException("Flights cannot move while node " + cluster.joining().name() + " joins");
+    }
+    if (local.flights().findById(flightId) == null || cluster.isHidden(flightId)) {
+      throw new IllegalArgumentException("Flight " + flightId + " is not held by node " + cluster.self().name());
+    }
+    if (!capture.start(flightId)) {
+      throw new IllegalStateException("Flight " + flightId + " is already moving");
+    }
+    String path = "/cluster/migrations/" + URLEncoder.encode(flightId, StandardCharsets.UTF_8);
+    List<String> keys = new ArrayList<>();
+    boolean blocked = false;
+    boolean committed = false;
+    try {
+      escrow.reclaim(flightId);
+      List<Booking> bookings = local.bookings().findByFlightId(flightId);
+      // A small flight is sent whole while blocked, saving the copy's round trip
+      Set<String> changed = null;
+      if (bookings.size() > FINAL_BATCH) {
+        nodes.post(target, path + "/copy", new MigrationBatch(local.flights().findById(flightId), bookings),
+            Void.class);
+        changed = capture.drain(flightId);
+        for (int round = 1; round < MAX_COPY_ROUNDS && changed.size() > FINAL_BATCH; round++) {
+          nodes.post(target, path + "/copy", batch(flightId, changed), Void.class);
+          changed = capture.drain(flightId);
+        }
+      }
+
+      blocked = true;
+      if (!cluster.gates().block(flightId, cluster.timeout())) {
+        throw new IOException("Requests for flight " + flightId + " did not finish in time");
+      }
+      MigrationBatch last;
+      if (changed == null) {
+        last = new MigrationBatch(local.flights().findById(flightId), local.bookings().findByFlightId(flightId));
+      } else {
+        Set<String> ids = new HashSet<>(changed);
+        ids.addAll(capture.drain(flightId));
+        last = batch(flightId, ids);
+      }
+      nodes.post(target, path + "/commit", last, Void.class);
+      committed = true;
+      escrow.forget(flightId);
+
+      keys.add(flightId);
+      local.bookings().findByFlightId(flightId).forEach(booking -> keys.add(booking.getId()));
+      cluster.pointTo(keys, target);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      abort(target, path);
+      escrow.reopen(flightId);
+      throw new InterruptedIOException("Interrupted moving flight " + flightId);
+    } catch (IOException | RuntimeException e) {
+      if (!committed) {
+        abort(target, path);
+        escrow.reopen(flightId);
+      }
+      throw e;
+    } finally {
+      capture.stop(flightId);
+      if (blocked) {
+        cluster.gates().release(flightId);
+      }
+    }
+    notifyHomes(keys, target);
+    return keys.size() - 1;
+  }
+
+  private MigrationBatch batch(String flightId, Collection<String> bookingIds) {
+    List<Booking> bookings = new ArrayList<>(bookingIds.size());
+    for (String id : bookingIds) {
+      Booking booking = local.bookings().findById(id);
+      if (booking != null) {
+        bookings.add(booking);
+      }
+    }
+    return new MigrationBatch(local.flights().findById(flightId), bookings);
+  }
+
+  private void abort(ClusterNode target, String path) {
+    try {
+      nodes.post(target, path + "/abort", null, Void.class);
+    } catch (IOException | RuntimeException e) {
+      // The target keeps an invisible copy, overwritten if the flight is sent again
+      LOGGER.log(Level.WARNING, "Cannot abort " + path + " on node " + target.name(), e);
+    }
+  }
+
+  /**
+   * Tells the home nodes of {@code keys}, in the background, that they are
+   * held by {@code holder}.
+   */
+  private void notifyHomes(List<String> keys, ClusterNode holder) {
+    Map<ClusterNode, List<String>> byHome = new LinkedHashMap<>();
+    for (String key : keys) {
+      ClusterNode home = cluster.owner(key);
+      if (!cluster.isSelf(home) && !home.name().equals(holder.name())) {
+        byHome.computeIfAbsent(home, node -> new ArrayList<>()).add(key);
+      }
+    }
+    byHome.forEach((home, homed) -> notifier.execute(() -> {
+      try {
+        sendPointers(home, holder, homed);
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Cannot update pointers on node " + home.name()
+            + "; requests reach the keys through node " + cluster.self().name(), e);
+      }
+    }));
+  }
+
+  private void sendPointers(ClusterNode node, ClusterNode holder, List<String> keys) throws IOException {
+    for (int from = 0; from < keys.size(); from += POINTER_CHUNK) {
+      List<String> chunk = keys.subList(from, Math.min(keys.size(), from + POINTER_CHUNK));
+      nodes.post(node, "/cluster/pointers", new PointerUpdate(holder.name(), List.copyOf(chunk)), Void.class);
+    }
+  }
+
+  /**
+   * Stores a batch sent by the source of a migration. The flight stays
+   * hidden until the commit, which also makes this node the holder of the
+   * flight and its bookings.
+   */
+  public void receive(MigrationBatch batch, boolean commit) {
+    String flightId = batch.flight().getId();
+    cluster.receiving(flightId);
+    local.flights().save(batch.flight());
+    for (Booking booking : batch.bookings()) {
+      local.bookings().save(booking);
+    }
+    if (commit) {
+      cluster.adopt(keysOf(flightId));
+      cluster.received(flightId);
+    }
+  }
+
+  /**
+   * Drops a migration the source gave up: the copy stays hidden behind
+   * pointers to the source.
+   */
+  public void abortReceive(String flightId, ClusterNode source) {
+    if (cluster.isIncoming(flightId)) {
+      cluster.pointTo(keysOf(flightId), source);
+      cluster.received(flightId);
+    }
+  }
+
+  private List<String> keysOf(String flightId) {
+    List<String> keys = new ArrayList<>();
+    keys.add(flightId);
+    local.bookings().findByFlightId(flightId).forEach(booking -> keys.add(booking.getId()));
+    return keys;
+  }
+
+  /**
+   * Records pointers sent by another node. Keys served here are skipped: the
+   * update is older than the move that brought them here.
+   */
+  public void pointersReceived(PointerUpdate update) {
+    List<String> keys = update.ids().stream().filter(key -> !servesHere(key)).toList();
+    cluster.pointTo(keys, cluster.node(update.node()));
+  }
+
+  private boolean servesHere(String key) {
+    return !cluster.isHidden(key) && (local.flights().findById(key) != null || local.bookings().findById(key) != null);
+  }
+
+  /**
+   * First phase of a join: stops creating ids that the new ring would home
+   * elsewhere and tells the joining node which of the keys held here it
+   * will be home for.
+   *
+   * @throws IllegalStateException if another node is joining
+   * @throws IOException           if the joining node cannot be told
+   */
+  public void prepareJoin(ClusterNode node) throws IOException {
+    cluster.prepareJoin(node);
+    if (!cluster.isSelf(node)) {
+      sendHomedAt(node);
+    }
+  }
+
+  /**
+   * Second phase of a join: tells the joining node about keys created since
+   * the first phase and switches to the new ring.
+   *
+   * @throws IllegalStateException if the node is not joining
+   * @throws IOException           if the joining node cannot be told
+   */
+  public void commitJoin(ClusterNode node) throws IOException {
+    if (!cluster.isSelf(node)) {
+      sendHomedAt(node);
+    }
+    cluster.commitJoin(node);
+  }
+
+  public void abortJoin(ClusterNode node) {
+    cluster.abortJoin(node);
+  }
+
+  private void sendHomedAt(ClusterNode node) throws IOException {
+    List<String> keys = new ArrayList<>();
+    for (Rocket rocket : local.rockets().findAll()) {
+      addIfHomedAt(keys, rocket.getId(), node);
+    }
+    for (Flight flight : local.flights().findAll()) {
+      if (!cluster.isHidden(flight.getId())) {
+        addIfHomedAt(keys, flight.getId(), node);
+        for (Booking booking : local.bookings().findByFlightId(flight.getId())) {
+          addIfHomedAt(keys, booking.getId(), node);
+        }
+      }
+    }
+    for (String id : escrow.unsettledIds()) {
+      addIfHomedAt(keys, id, node);
+    }
+    sendPointers(node, cluster.self(), keys);
+  }
+
+  private void addIfHomedAt(List<String> keys, String key, ClusterNode node) {
+    if (!cluster.isHidden(key) && cluster.pendingOwner(key).name().equals(node.name())) {
+      keys.add(key);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent hashing of keys onto nodes. Each node is placed at
+ * {@code virtualNodes} points of a 64-bit ring, and a key belongs to the node
+ * at the first point at or after the key's hash. Adding or removing a node
+ * only moves the keys between its points and their predecessors.
+ */
+final class HashRing {
+
+  private final long[] points;
+  private final ClusterNode[] owners;
+
+  HashRing(List<ClusterNode> nodes, int virtualNodes) {
+    if (nodes.isEmpty() || virtualNodes < 1) {
+      throw new IllegalArgumentException("A hash ring needs nodes and at least one point per node");
+    }
+    int size = nodes.size() * virtualNodes;
+    long[][] placed = new long[size][];
+    int next = 0;
+    for (int n = 0; n < nodes.size(); n++) {
+      for (int v = 0; v < virtualNodes; v++) {
+        placed[next++] = new long[] { hash(nodes.get(n).name() + "#" + v), n };
+      }
+    }
+    Arrays.sort(placed, (a, b) -> Long.compare(a[0], b[0]));
+    points = new long[size];
+    owners = new ClusterNode[size];
+    for (int i = 0; i < size; i++) {
+      points[i] = placed[i][0];
+      owners[i] = nodes.get((int) placed[i][1]);
+    }
+  }
+
+  /**
+   * Returns the node owning {@code key}.
+   */
+  ClusterNode owner(String key) {
+    int index = Arrays.binarySearch(points, hash(key));
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return owners[index == points.length ? 0 : index];
+  }
+
+  /**
+   * 64-bit FNV-1a over the UTF-8 bytes, followed by the MurmurHash3 finalizer
+   * so that similar keys spread over the whole ring.
+   */
+  static long hash(String key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
@@ -0,0 +1,125 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A k-way merge of the time-ordered listings of several nodes: flights by
+ * launch, or bookings by creation.
+ * <p>
+ * The merge holds one item per node and always returns the earliest, then
+ * waits for that node's next item, so items are returned as soon as every
+ * node has produced the ones before them; no listing is read in full first.
+ * Nodes that fail or miss their deadline before their first item are left
+ * out and reported by {@link #unavailable()}. An item listed by two nodes,
+ * such as a booking being handed over from a seat quota, is returned once.
+ */
+public final class MergedListing implements AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(MergedListing.class.getName());
+
+  private static final Comparator<Head> ORDER = Comparator.comparing((Head head) -> head.item().time())
+      .thenComparing(head -> head.item().id());
+
+  /**
+   * A listing rejected by a node, e.g. because of an invalid query: the same
+   * query is invalid on every node, so its answer is returned as is.
+   */
+  public record Rejection(int status, byte[] body) {
+  }
+
+  private record Head(ShardStream shard, ShardStream.Item item) {
+  }
+
+  private final List<ShardStream> shards;
+  private final PriorityQueue<Head> heads = new PriorityQueue<>(ORDER);
+  private final List<String> unavailable = new ArrayList<>();
+  private Rejection rejection;
+  private String lastId;
+
+  /**
+   * Waits for the first item of every shard.
+   */
+  MergedListing(List<ShardStream> shards) {
+    this.shards = shards;
+    for (ShardStream shard : shards) {
+      try {
+        ShardStream.Item first = shard.next();
+        if (first != null) {
+          heads.add(new Head(shard, first));
+        }
+      } catch (IOException e) {
+        if (shard.rejectedStatus() > 0) {
+          if (rejection == null) {
+            rejection = new Rejection(shard.rejectedStatus(), shard.rejectedBody());
+          }
+        } else {
+          LOGGER.log(Level.WARNING, "Listing without node " + shard.node().name(), e);
+          unavailable.add(shard.node().name());
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the names of the nodes whose items are missing.
+   */
+  public List<String> unavailable() {
+    return unavailable;
+  }
+
+  /**
+   * Returns whether no node could be listed.
+   */
+  public boolean isEmptyCluster() {
+    return unavailable.size() == shards.size();
+  }
+
+  /**
+   * Returns the rejection of the query, or null if the nodes accepted it.
+   */
+  public Rejection rejection() {
+    return rejection;
+  }
+
+  /**
+   * Returns the JSON of the next item in order, or null at the end.
+   *
+   * @throws UncheckedIOException if a node fails after the listing started
+   */
+  public byte[] next() {
+    while (true) {
+      Head head = heads.poll();
+      if (head == null) {
+        return null;
+      }
+      try {
+        ShardStream.Item following = head.shard().next();
+        if (following != null) {
+          heads.add(new Head(head.shard(), following));
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Node " + head.shard().node().name() + " failed during the listing", e);
+      }
+      // Copies of an item have the same sort key, so they come out one after another
+      if (head.item().id().isEmpty() || !head.item().id().equals(lastId)) {
+        lastId = head.item().id();
+        return head.item().json();
+      }
+    }
+  }
+
+  /**
+   * Stops reading the listings that have not ended.
+   */
+  @Override
+  public void close() {
+    shards.forEach(ShardStream::cancel);
+  }
+}
@@ -0,0 +1,14 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+
+/**
+ * A flight and some of its bookings sent to the node it is moving to: all of
+ * them in the first batch, then the bookings saved since the previous batch.
+ * Entities are sent whole, so applying a batch twice does no harm.
+ */
+public record MigrationBatch(Flight flight, List<Booking> bookings) {
+}
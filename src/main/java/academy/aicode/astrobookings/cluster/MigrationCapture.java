@@ -0,0 +1,51 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which bookings of a migrating flight are saved while the flight is
+ * being copied, so that they can be sent to the new holder afterwards.
+ * Changes are recorded after they are stored, so a batch built from the
+ * recorded ids reads the latest version of each booking.
+ */
+final class MigrationCapture {
+
+  private final Map<String, Set<String>> changed = new ConcurrentHashMap<>();
+
+  /**
+   * Starts recording the bookings of a flight.
+   *
+   * @return false if they are already being recorded
+   */
+  boolean start(String flightId) {
+    return changed.putIfAbsent(flightId, new HashSet<>()) == null;
+  }
+
+  void stop(String flightId) {
+    changed.remove(flightId);
+  }
+
+  /**
+   * Records a saved booking if its flight is migrating.
+   */
+  void bookingSaved(String flightId, String bookingId) {
+    if (flightId != null && !changed.isEmpty()) {
+      changed.computeIfPresent(flightId, (k, ids) -> {
+        ids.add(bookingId);
+        return ids;
+      });
+    }
+  }
+
+  /**
+   * Returns the bookings saved since the previous call and starts recording
+   * anew.
+   */
+  Set<String> drain(String flightId) {
+    Set<String> drained = changed.replace(flightId, new HashSet<>());
+    return drained == null ? Set.of() : drained;
+  }
+}
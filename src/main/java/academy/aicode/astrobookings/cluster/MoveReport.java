@@ -0,0 +1,12 @@
+package academy.aicode.astrobookings.cluster;
+
+/**
+ * Outcome of moving flights from one node to another.
+ *
+ * @param flights  flights moved
+ * @param bookings bookings moved with them
+ * @param failed   flights that stayed on {@code from} because their move failed
+ * @param millis   time spent moving
+ */
+public record MoveReport(String from, String to, int flights, int bookings, int failed, long millis) {
+}
@@ -0,0 +1,8 @@
+package academy.aicode.astrobookings.cluster;
+
+/**
+ * Asks a node to move {@code count} of its flights to the node called
+ * {@code to}.
+ */
+public record MoveRequest(String to, int count) {
+}
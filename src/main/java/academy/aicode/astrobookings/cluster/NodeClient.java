@@ -0,0 +1,68 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * JSON calls to the `/cluster` endpoints of other nodes.
+ */
+final class NodeClient {
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  private final Cluster cluster;
+
+  NodeClient(Cluster cluster) {
+    this.cluster = cluster;
+  }
+
+  <T> T get(ClusterNode node, String path, Class<T> type) throws IOException {
+    return send(node, path, "GET", null, type, cluster.timeout());
+  }
+
+  <T> T post(ClusterNode node, String path, Object body, Class<T> type) throws IOException {
+    return send(node, path, "POST", body, type, cluster.timeout());
+  }
+
+  /**
+   * Posts without a request timeout, for calls that run as long as the work
+   * they start.
+   */
+  <T> T postUntimed(ClusterNode node, String path, Object body, Class<T> type) throws IOException {
+    return send(node, path, "POST", body, type, null);
+  }
+
+  private <T> T send(ClusterNode node, String path, String method, Object body, Class<T> type, Duration timeout)
+      throws IOException {
+    HttpRequest.Builder request = cluster.sign(HttpRequest.newBuilder(node.uri().resolve(path)))
+        .header("Content-Type", "application/json")
+        .method(method, body == null
+            ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+    if (timeout != null) {
+      request.timeout(timeout);
+    }
+    HttpResponse<byte[]> response;
+    try {
+      response = cluster.client().send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted calling node " + node.name());
+    }
+    if (response.statusCode() / 100 != 2) {
+      throw new IOException("Node " + node.name() + " answered " + response.statusCode() + " to " + path + ": "
+          + new String(response.body(), StandardCharsets.UTF_8));
+    }
+    return type == Void.class || response.body().length == 0 ? null : objectMapper.readValue(response.body(), type);
+  }
+}
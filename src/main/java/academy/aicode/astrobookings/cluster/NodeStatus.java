@@ -0,0 +1,18 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.util.List;
+
+/**
+ * What a node holds and knows about the cluster.
+ *
+ * @param name     the node
+ * @param member   whether it has joined
+ * @param joining  the node whose join is in progress, or null
+ * @param nodes    the members it knows
+ * @param flights  flights it holds
+ * @param bookings bookings of those flights
+ * @param pointers keys it points to other nodes for
+ */
+public record NodeStatus(String name, boolean member, String joining, List<String> nodes, int flights,
+    int bookings, int pointers) {
+}
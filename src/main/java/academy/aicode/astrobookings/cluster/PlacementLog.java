@@ -0,0 +1,141 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Append-only text file with the placement changes of one node, so that a
+ * restarted node still knows the members that joined and where the keys it
+ * handed over went. One change per line, forced to disk before a call returns:
+ * `N name uri` (member joined), `P key node` (key held by node) and `A key`
+ * (key held here again). Replaying the file in order restores the state.
+ */
+final class PlacementLog {
+
+  private final Path file;
+  private final FileChannel channel;
+  private final Object writeLock = new Object();
+  private final Object syncLock = new Object();
+  /** Bytes appended, guarded by {@link #writeLock}. */
+  private long written;
+  /** Bytes forced to disk, guarded by {@link #syncLock}. */
+  private long durable;
+
+  private PlacementLog(Path file, FileChannel channel) {
+    this.file = file;
+    this.channel = channel;
+  }
+
+  /**
+   * Opens the log, creating it and its directory if needed.
+   *
+   * @throws UncheckedIOException if the file cannot be opened
+   */
+  static PlacementLog open(Path file) {
+    try {
+      Files.createDirectories(file.getParent());
+      return new PlacementLog(file, FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open placement log " + file, e);
+    }
+  }
+
+  /**
+   * Applies every change in the file to {@code cluster}. A torn last line,
+   * left by a crash while appending, is ignored.
+   *
+   * @throws UncheckedIOException if the file cannot be read
+   */
+  void replay(Cluster cluster) {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read placement log " + file, e);
+    }
+    for (String line : lines) {
+      String[] fields = line.split(" ");
+      if (fields.length == 3 && "N".equals(fields[0])) {
+        cluster.addMember(new ClusterNode(fields[1], URI.create(fields[2])));
+      } else if (fields.length == 3 && "P".equals(fields[0])) {
+        cluster.restore(fields[1], fields[2]);
+      } else if (fields.length == 2 && "A".equals(fields[0])) {
+        cluster.restore(fields[1], null);
+      }
+    }
+    cluster.resolvePointers();
+  }
+
+  void member(ClusterNode node) {
+    append("N " + node.name() + " " + node.uri() + "\n");
+  }
+
+  void pointTo(Collection<String> keys, String holder) {
+    StringBuilder lines = new StringBuilder();
+    for (String key : keys) {
+      lines.append("P ").append(key).append(' ').append(holder).append('\n');
+    }
+    append(lines.toString());
+  }
+
+  void adopt(Collection<String> keys) {
+    StringBuilder lines = new StringBuilder();
+    for (String key : keys) {
+      lines.append("A ").append(key).append('\n');
+    }
+    append(lines.toString());
+  }
+
+  /**
+   * Appends and forces the lines. Appends waiting for a force that covers
+   * them share it, so concurrent migrations pay for one force together.
+   */
+  private void append(String lines) {
+    ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+    long end;
+    synchronized (writeLock) {
+      try {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot write placement log " + file, e);
+      }
+      written += buffer.limit();
+      end = written;
+    }
+    synchronized (syncLock) {
+      if (durable >= end) {
+        return;
+      }
+      long upTo;
+      synchronized (writeLock) {
+        upTo = written;
+      }
+      try {
+        channel.force(false);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot write placement log " + file, e);
+      }
+      durable = upTo;
+    }
+  }
+
+  void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot close placement log " + file, e);
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.util.List;
+
+/**
+ * Keys held by {@code node}, sent to the home node of the keys.
+ */
+public record PointerUpdate(String node, List<String> ids) {
+}
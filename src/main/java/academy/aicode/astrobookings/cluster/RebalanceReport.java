@@ -0,0 +1,12 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a rebalancing: flights per node before and after, each move, and
+ * the migration throughput over the whole run.
+ */
+public record RebalanceReport(Map<String, Integer> before, Map<String, Integer> after, List<MoveReport> moves,
+    int flights, int bookings, long millis, double flightsPerSecond, double bookingsPerSecond) {
+}
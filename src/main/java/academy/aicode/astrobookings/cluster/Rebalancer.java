@@ -0,0 +1,163 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Coordinates changes involving every node, from whichever node receives
+ * them: joining a node and spreading flights evenly.
+ */
+public final class Rebalancer {
+
+  private final Cluster cluster;
+  private final NodeClient nodes;
+
+  public Rebalancer(Cluster cluster) {
+    this.cluster = cluster;
+    this.nodes = new NodeClient(cluster);
+  }
+
+  /**
+   * Joins {@code node}, which must be running with the full node list and
+   * `astrobookings.cluster.joining=true`. First every node, the new one
+   * included, prepares the join, then every node commits it; if a node fails
+   * to prepare, the join is aborted everywhere. The new node holds no
+   * flights until a {@link #rebalance()}.
+   *
+   * @return the members after the join
+   * @throws IllegalStateException if a join is already in progress
+   * @throws IOException           if a node fails; after a failed commit the
+   *                               join has to be retried
+   */
+  public List<String> join(ClusterNode node) throws IOException {
+    if (cluster.nodes().stream().anyMatch(member -> member.name().equals(node.name()))) {
+      throw new IllegalStateException("Node " + node.name() + " is already a member");
+    }
+    List<ClusterNode> everyone = new ArrayList<>(cluster.nodes());
+    everyone.add(node);
+    List<ClusterNode> prepared = new ArrayList<>();
+    try {
+      for (ClusterNode member : everyone) {
+        nodes.postUntimed(member, "/cluster/join/prepare", node, Void.class);
+        prepared.add(member);
+      }
+    } catch (IOException | RuntimeException e) {
+      for (ClusterNode member : prepared) {
+        try {
+          nodes.post(member, "/cluster/join/abort", node, Void.class);
+        } catch (IOException | RuntimeException abortFailure) {
+          e.addSuppressed(abortFailure);
+        }
+      }
+      throw e;
+    }
+    for (ClusterNode member : everyone) {
+      nodes.postUntimed(member, "/cluster/join/commit", node, Void.class);
+    }
+    return cluster.nodes().stream().map(ClusterNode::name).toList();
+  }
+
+  /**
+   * Moves flights from the nodes holding the most to those holding the
+   * fewest until every node holds the average, give or take one. Each node
+   * giving flights away moves them one at a time, in parallel with the
+   * other such nodes.
+   *
+   * @return the moves made and their throughput
+   * @throws IllegalStateException if a join is in progress
+   * @throws IOException           if a node cannot be reached
+   */
+  public RebalanceReport rebalance() throws IOException {
+    if (cluster.joining() != null) {
+      throw new IllegalStateException("Cannot rebalance while node " + cluster.joining().name() + " joins");
+    }
+    Map<String, Integer> before = flightCounts();
+    long start = System.nanoTime();
+    Map<String, List<MoveRequest>> plan = plan(before);
+
+    List<MoveReport> moves = new ArrayList<>();
+    if (!plan.isEmpty()) {
+      ExecutorService pool = Executors.newFixedThreadPool(plan.size());
+      try {
+        List<Future<List<MoveReport>>> sources = new ArrayList<>();
+        plan.forEach((source, requests) -> sources.add(pool.submit(() -> {
+          List<MoveReport> reports = new ArrayList<>();
+          for (MoveRequest request : requests) {
+            reports.add(nodes.postUntimed(cluster.node(source), "/cluster/moves", request, MoveReport.class));
+          }
+          return reports;
+        })));
+        for (Future<List<MoveReport>> source : sources) {
+          moves.addAll(source.get());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while rebalancing", e);
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+      } finally {
+        pool.shutdownNow();
+      }
+    }
+    long millis = (System.nanoTime() - start) / 1_000_000;
+
+    int flights = moves.stream().mapToInt(MoveReport::flights).sum();
+    int bookings = moves.stream().mapToInt(MoveReport::bookings).sum();
+    double seconds = Math.max(millis, 1) / 1000.0;
+    return new RebalanceReport(before, flightCounts(), moves, flights, bookings, millis, flights / seconds,
+        bookings / seconds);
+  }
+
+  private Map<String, Integer> flightCounts() throws IOException {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    for (ClusterNode node : cluster.nodes()) {
+      counts.put(node.name(), nodes.get(node, "/cluster", NodeStatus.class).flights());
+    }
+    return counts;
+  }
+
+  /**
+   * Pairs nodes above their share with nodes below it, largest first.
+   *
+   * @return the moves each giving node has to make
+   */
+  static Map<String, List<MoveRequest>> plan(Map<String, Integer> counts) {
+    List<String> byCount = new ArrayList<>(counts.keySet());
+    byCount.sort(Comparator.comparing((String name) -> counts.get(name)).reversed().thenComparing(name -> name));
+    int total = counts.values().stream().mapToInt(Integer::intValue).sum();
+    Map<String, Integer> surplus = new LinkedHashMap<>();
+    Map<String, Integer> deficit = new LinkedHashMap<>();
+    for (int i = 0; i < byCount.size(); i++) {
+      String name = byCount.get(i);
+      int share = total / byCount.size() + (i < total % byCount.size() ? 1 : 0);
+      int difference = counts.get(name) - share;
+      if (difference > 0) {
+        surplus.put(name, difference);
+      } else if (difference < 0) {
+        deficit.put(name, -difference);
+      }
+    }
+
+    Map<String, List<MoveRequest>> plan = new LinkedHashMap<>();
+    for (Map.Entry<String, Integer> giver : surplus.entrySet()) {
+      int left = giver.getValue();
+      for (Map.Entry<String, Integer> taker : deficit.entrySet()) {
+        int count = Math.min(left, taker.getValue());
+        if (count > 0) {
+          plan.computeIfAbsent(giver.getKey(), name -> new ArrayList<>()).add(new MoveRequest(taker.getKey(), count));
+          taker.setValue(taker.getValue() - count);
+          left -= count;
+        }
+      }
+    }
+    return plan;
+  }
+}
@@ -0,0 +1,107 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Lists the flights, or a passenger's bookings, of every node. The listing
+ * query is sent to all nodes in parallel and their ordered answers are merged
+ * while they arrive ({@link MergedListing}). Each node has
+ * {@link Cluster#timeout()} to send its first item, and as long again for each
+ * following one; a node that takes longer is left out or ends the listing.
+ */
+public final class ScatterGather {
+
+  /** Response header with the offset of a node's next page of bookings. */
+  private static final String NEXT_OFFSET_HEADER = "X-Next-Offset";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final ExecutorService readers = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "shard-listing-reader");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final Cluster cluster;
+
+  public ScatterGather(Cluster cluster) {
+    this.cluster = cluster;
+  }
+
+  /**
+   * Sends `GET /flights?{rawQuery}` to every node, this one included, and
+   * waits for each node's first flight or failure.
+   *
+   * @param rawQuery the listing query, still URL-encoded, or null
+   */
+  public MergedListing listFlights(String rawQuery) {
+    long timeout = cluster.timeout().toNanos();
+    long deadline = System.nanoTime() + timeout;
+    List<ShardStream> shards = new ArrayList<>();
+    for (ClusterNode node : cluster.nodes()) {
+      ShardStream shard = new ShardStream(node, deadline, timeout);
+      String target = "/flights" + (rawQuery == null ? "" : "?" + rawQuery);
+      HttpRequest request = cluster.sign(HttpRequest.newBuilder(node.uri().resolve(target)))
+          .timeout(cluster.timeout())
+          .GET()
+          .build();
+      cluster.client().sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+          .whenComplete((response, error) -> {
+            if (error != null) {
+              readers.execute(() -> shard.fail(error));
+            } else {
+              readers.execute(() -> shard.read(response, objectMapper));
+            }
+          });
+      shards.add(shard);
+    }
+    return new MergedListing(shards);
+  }
+
+  /**
+   * Sends `GET /bookings?passengerDocument={document}` to every node, this
+   * one included, and waits for each node's first booking or failure. Each
+   * node is read {@code pageSize} bookings at a time, oldest first; its next
+   * page is asked for once the merge has taken the previous one.
+   *
+   * @param rawPassengerDocument the passenger document, still URL-encoded
+   * @param pageSize             bookings per page, at most what a node serves
+   */
+  public MergedListing listPassengerBookings(String rawPassengerDocument, int pageSize) {
+    long timeout = cluster.timeout().toNanos();
+    long deadline = System.nanoTime() + timeout;
+    String query = "/bookings?passengerDocument=" + rawPassengerDocument + "&limit=" + pageSize + "&offset=";
+    List<ShardStream> shards = new ArrayList<>();
+    for (ClusterNode node : cluster.nodes()) {
+      ShardStream shard = new ShardStream(node, "createdAt", deadline, timeout);
+      readers.execute(() -> {
+        try {
+          String offset = "0";
+          while (offset != null) {
+            HttpRequest request = cluster.sign(HttpRequest.newBuilder(node.uri().resolve(query + offset)))
+                .timeout(cluster.timeout())
+                .GET()
+                .build();
+            HttpResponse<InputStream> response = cluster.client().send(request,
+                HttpResponse.BodyHandlers.ofInputStream());
+            if (!shard.readPage(response, objectMapper)) {
+              return;
+            }
+            offset = response.headers().firstValue(NEXT_OFFSET_HEADER).orElse(null);
+          }
+          shard.end();
+        } catch (Exception e) {
+          shard.fail(e);
+        }
+      });
+      shards.add(shard);
+    }
+    return new MergedListing(shards);
+  }
+}
@@ -0,0 +1,720 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Seat quotas, which let a node sell seats of a flight held by another node
+ * without a call to that node for every booking.
+ * <p>
+ * The node holding a flight keeps its {@link SeatLedger}: every seat not yet
+ * booked is free there or held by another node. Bookings made there take
+ * free seats with a compare-and-set. A node receiving a booking for a flight
+ * held elsewhere asks for a quota of {@code quota} seats once
+ * ({@link #acquire}), sells from it with a lock-free poll ({@link SeatLease})
+ * and stores the bookings itself. Every {@value #SETTLE_MILLIS} ms it reports
+ * to the flight's node and hands over the bookings sold since, which then
+ * live with their flight again; a quota unused for {@value #IDLE_MILLIS} ms is
+ * given back. A node that runs out asks for another quota; the flight's node,
+ * once out of free seats, recalls the unsold seats of the other quotas before
+ * it refuses. Seats only ever move between the ledger and the quotas, and
+ * reports carry a growing sequence so that a late one is ignored, so the
+ * flight is not oversold while its nodes can reach each other.
+ * <p>
+ * A quota is a lease of {@value #LEASE_MILLIS} ms, renewed by each grant and
+ * report; a quota with unsold seats reports again once less than half of
+ * it is left. Its holder sells only while the lease lasts, so a node cut off
+ * from the flight's node soon stops selling, and gives its unsold seats back
+ * with its next report. The flight's node never takes them back on its own:
+ * they stay held until their holder reports.
+ * <p>
+ * Ledgers, quotas and the last sequence reserved are kept in an
+ * {@link EscrowLog}, so a restarted node goes on from that sequence. A node
+ * that stops keeps its seats until it restarts and reports them. Before a
+ * flight moves, every quota of it is given back with its bookings
+ * ({@link #reclaim}); a flight whose quota holder cannot be reached does not
+ * move. Nodes selling from a quota see the flight as its node last described
+ * it, so a cancellation reaches them with their next report.
+ */
+public final class SeatEscrow implements AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(SeatEscrow.class.getName());
+
+  /** Interval between reports of the quotas held here. */
+  static final long SETTLE_MILLIS = 100;
+  /** Time without sales after which a quota gives its unsold seats back. */
+  static final long IDLE_MILLIS = 2000;
+  /** Time after a refused request during which no more seats are asked for. */
+  private static final long REFUSED_MILLIS = 1000;
+  /** Bookings handed over per report. */
+  private static final int REPORT_BATCH = 500;
+  /** Time a quota is held for after the grant or report that last renewed it. */
+  static final long LEASE_MILLIS = 10_000;
+  /** Sequences reserved with each line written to the log. */
+  private static final long SEQUENCE_BLOCK = 100_000;
+
+  private final Cluster cluster;
+  private final StorageBackend local;
+  private final RocketRepository rockets;
+  private final MigrationCapture capture;
+  private final int quota;
+  private final EscrowLog log;
+  private final NodeClient nodes;
+  private final Map<String, SeatLedger> ledgers = new ConcurrentHashMap<>();
+  /** Holdings read back from the log, for ledgers not opened since. */
+  private final Map<String, Map<String, SeatLedger.Holding>> restored = new ConcurrentHashMap<>();
+  private final Map<String, String> restoredLeases = new LinkedHashMap<>();
+  private final Map<String, SeatLease> leases = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  /** Sequences up to this one may have been used before; logged before use. */
+  private volatile long reservedSequence;
+  private final ScheduledExecutorService settler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "seat-escrow");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * @param rockets rockets of the shard, to find the capacity of flights
+   * @param quota   seats per quota, or 0 to sell no seats of flights held
+   *                elsewhere
+   * @param log     where ledgers and quotas are kept, or null
+   */
+  SeatEscrow(Cluster cluster, StorageBackend local, RocketRepository rockets, MigrationCapture capture, int quota,
+      EscrowLog log) {
+    this.cluster = cluster;
+    this.local = local;
+    this.rockets = rockets;
+    this.capture = capture;
+    this.quota = quota;
+    this.log = log;
+    this.nodes = new NodeClient(cluster);
+    if (log != null) {
+      log.replay(this);
+    }
+    // The clock only matters without a log, or with one written before sequences were logged
+    sequence.set(Math.max(reservedSequence, System.currentTimeMillis() * 1000));
+    restoredLeases.forEach((flightId, node) -> {
+      List<String> unsettled = local.bookings().findByFlightId(flightId).stream().map(Booking::getId)
+          .filter(id -> !cluster.isHidden(id)).toList();
+      leases.put(flightId, new SeatLease(flightId, cluster.node(node), unsettled));
+    });
+    restoredLeases.clear();
+    if (quota > 0 || !leases.isEmpty()) {
+      settler.scheduleWithFixedDelay(this::settle, SETTLE_MILLIS, SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Restores what {@code node} holds of a flight held here; a null node
+   * forgets the flight.
+   */
+  void restoreHolding(String flightId, String node, SeatLedger.Holding holding) {
+    if (node == null) {
+      restored.remove(flightId);
+    } else {
+      restored.computeIfAbsent(flightId, id -> new HashMap<>()).put(node, holding);
+    }
+  }
+
+  /**
+   * Restores the last sequence reserved before a restart.
+   */
+  void restoreSequence(long reserved) {
+    reservedSequence = Math.max(reservedSequence, reserved);
+  }
+
+  /**
+   * Restores a quota this node holds of a flight held by {@code node}; a
+   * null node forgets it.
+   */
+  void restoreLease(String flightId, String node) {
+    if (node == null) {
+      restoredLeases.remove(flightId);
+    } else {
+      restoredLeases.put(flightId, node);
+    }
+  }
+
+  // Selling
+
+  /**
+   * Makes sure this node holds unsold seats of a flight held by another
+   * node, asking that node for a quota if needed.
+   *
+   * @return false if quotas are off or no seat could be had, in which case
+   *         the booking is for the flight's node to make
+   */
+  public boolean acquire(String flightId) {
+    if (quota == 0 || !cluster.isMember()) {
+      return false;
+    }
+    SeatLease lease = lease(flightId, cluster.route(flightId, false));
+    if (lease.canSell()) {
+      return true;
+    }
+    if (lease.refusedWithin(TimeUnit.MILLISECONDS.toNanos(REFUSED_MILLIS))) {
+      return false;
+    }
+    refill(lease, true);
+    return lease.canSell();
+  }
+
+  /**
+   * Takes seats of a flight: from this node's quota if the flight is held
+   * elsewhere, from the ledger otherwise.
+   *
+   * @see academy.aicode.astrobookings.persistence.BookingRepository#takeSeats
+   */
+  int[] takeSeats(String flightId, int capacity, int seats) {
+    SeatLease lease = sellingLease(flightId);
+    if (lease != null) {
+      int[] numbers = lease.take(seats);
+      if (numbers.length < seats) {
+        // Nothing is held while waiting for the flight's node, or a release could wait for this sale
+        for (int number : numbers) {
+          lease.giveBack(number);
+        }
+        refill(lease, true);
+        numbers = lease.take(seats);
+      }
+      if (!lease.canSell() && quota > 0) {
+        settler.execute(() -> refill(lease, false));
+      }
+      return numbers;
+    }
+    SeatLedger ledger = ledger(flightId, capacity);
+    int[] numbers = ledger.take(seats);
+    if (numbers.length < seats && recall(flightId, ledger, null)) {
+      int[] more = ledger.take(seats - numbers.length);
+      int taken = numbers.length;
+      numbers = Arrays.copyOf(numbers, taken + more.length);
+      System.arraycopy(more, 0, numbers, taken, more.length);
+    }
+    return numbers;
+  }
+
+  void returnSeat(String flightId, int number) {
+    SeatLease lease = sellingLease(flightId);
+    if (lease != null) {
+      lease.giveBack(number);
+      return;
+    }
+    SeatLedger ledger = ledgers.get(flightId);
+    if (ledger != null) {
+      ledger.giveBack();
+    }
+  }
+
+  /**
+   * Returns the quota this node sells a flight's seats from, or null when
+   * the flight's seats are not sold from a quota here.
+   */
+  SeatLease sellingLease(String flightId) {
+    SeatLease lease = flightId == null ? null : leases.get(flightId);
+    return lease == null || servedFlight(flightId) != null ? null : lease;
+  }
+
+  /**
+   * Returns the flight as described to the quota held here, or null.
+   */
+  Flight leasedFlight(String flightId) {
+    SeatLease lease = leases.get(flightId);
+    return lease == null ? null : lease.flight();
+  }
+
+  /**
+   * Returns whether a booking was sold here from a quota and not yet handed
+   * over.
+   */
+  boolean isUnsettled(String bookingId, String flightId) {
+    SeatLease lease = flightId == null ? null : leases.get(flightId);
+    return lease != null && lease.isUnsettled(bookingId);
+  }
+
+  /**
+   * Returns the bookings sold here from quotas and not yet handed over.
+   */
+  List<String> unsettledIds() {
+    List<String> ids = new ArrayList<>();
+    for (SeatLease lease : leases.values()) {
+      ids.addAll(lease.sold(Integer.MAX_VALUE));
+    }
+    return ids;
+  }
+
+  /**
+   * Returns the bookings of a flight held here that other nodes have sold
+   * and not yet handed over.
+   */
+  int sellingElsewhere(String flightId) {
+    SeatLedger ledger = ledgers.get(flightId);
+    return ledger == null ? 0 : ledger.selling();
+  }
+
+  private SeatLease lease(String flightId, ClusterNode node) {
+    return leases.computeIfAbsent(flightId, id -> {
+      if (log != null) {
+        log.leased(id, node.name());
+      }
+      return new SeatLease(id, node, null);
+    });
+  }
+
+  /**
+   * Asks the flight's node for a quota, unless seats are left to sell; the
+   * unsold seats of an ended lease are given back first. Without
+   * {@code wait} it gives up if another call about the quota is under way.
+   */
+  private void refill(SeatLease lease, boolean wait) {
+    ReentrantLock calls = lease.calls();
+    if (wait) {
+      calls.lock();
+    } else if (!calls.tryLock()) {
+      return;
+    }
+    try {
+      if (lease.canSell() || lease.isClosed()
+          || (!wait && lease.refusedWithin(TimeUnit.MILLISECONDS.toNanos(REFUSED_MILLIS)))) {
+        return;
+      }
+      if (lease.hasUnsold()) {
+        report(lease, true);
+      }
+      long sentAt = System.nanoTime();
+      SeatGrant grant = askForSeats(lease);
+      if (grant.flight() == null && grant.holder() != null && lease.held() == 0) {
+        // The flight moved before this quota got any seat
+        lease.moveTo(cluster.node(grant.holder()));
+        if (log != null) {
+          log.leased(lease.flightId(), grant.holder());
+        }
+        sentAt = System.nanoTime();
+        grant = askForSeats(lease);
+      }
+      lease.granted(grant, sentAt);
+    } catch (IOException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Cannot get seats of flight " + lease.flightId() + " from node "
+          + lease.node().name(), e);
+    } finally {
+      calls.unlock();
+    }
+  }
+
+  private SeatGrant askForSeats(SeatLease lease) throws IOException {
+    return nodes.post(lease.node(), path(lease.flightId(), "grant"),
+        new SeatRequest(cluster.self().name(), nextSequence(), quota), SeatGrant.class);
+  }
+
+  /**
+   * Returns the sequence of a new call, growing across restarts: the log
+   * reserves a block of them before any is used.
+   */
+  private long nextSequence() {
+    long next = sequence.incrementAndGet();
+    if (log != null && next > reservedSequence) {
+      reserveSequences(next);
+    }
+    return next;
+  }
+
+  private synchronized void reserveSequences(long next) {
+    if (next > reservedSequence) {
+      log.sequence(next + SEQUENCE_BLOCK);
+      reservedSequence = next + SEQUENCE_BLOCK;
+    }
+  }
+
+  /**
+   * Reports every quota with bookings to hand over or a lease to renew, gives
+   * back quotas left unused or whose lease ended, and forgets empty ones.
+   */
+  private void settle() {
+    long idle = TimeUnit.MILLISECONDS.toNanos(IDLE_MILLIS);
+    long renew = TimeUnit.MILLISECONDS.toNanos(LEASE_MILLIS / 2);
+    for (SeatLease lease : leases.values()) {
+      if (!lease.calls().tryLock()) {
+        continue;
+      }
+      try {
+        boolean unused = lease.idleFor(idle);
+        boolean renewing = lease.hasUnsold() && lease.endsWithin(renew);
+        if (lease.hasSold() || lease.isRestored() || renewing || (unused && lease.hasUnsold())) {
+          report(lease, unused || !lease.isCurrent());
+        }
+        if (unused && lease.held() == 0 && lease.taking() == 0) {
+          forgetLease(lease);
+        }
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Cannot report seats of flight " + lease.flightId() + " to node "
+            + lease.node().name(), e);
+      } finally {
+        lease.calls().unlock();
+      }
+    }
+  }
+
+  /**
+   * Hands the bookings sold to the flight's node and tells it what the quota
+   * still holds; with {@code giveBack} the unsold seats go back too. The
+   * caller holds the quota's calls lock.
+   */
+  private void report(SeatLease lease, boolean giveBack) throws IOException {
+    List<String> ids = lease.sold(REPORT_BATCH);
+    List<Booking> bookings = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      Booking booking = local.bookings().findById(id);
+      if (booking != null) {
+        bookings.add(booking);
+      }
+    }
+    List<Integer> returned = giveBack ? lease.drain() : List.of();
+    int seats = lease.held() - ids.size() - returned.size();
+    int selling = Math.max(0, seats - lease.unsoldCount());
+    SeatGrant answer;
+    long sentAt = System.nanoTime();
+    try {
+      answer = nodes.post(lease.node(), path(lease.flightId(), "report"),
+          new SeatReport(cluster.self().name(), nextSequence(), seats, selling, bookings),
+          SeatGrant.class);
+    } catch (IOException | RuntimeException e) {
+      lease.restore(returned);
+      throw e;
+    }
+    if (answer.flight() == null && answer.holder() != null) {
+      // The flight moved while this node was down; the next report goes to its new node
+      lease.restore(returned);
+      lease.moveTo(cluster.node(answer.holder()));
+      if (log != null) {
+        log.leased(lease.flightId(), answer.holder());
+      }
+      return;
+    }
+    if (!ids.isEmpty()) {
+      cluster.pointTo(ids, lease.node());
+      notifyHomes(ids, lease.node());
+    }
+    lease.settled(ids, returned.size());
+    lease.renewed(sentAt);
+    lease.described(answer);
+  }
+
+  /**
+   * Tells the home nodes of bookings handed over, other than this node, who
+   * holds them now; they are homed elsewhere when a node joined since they
+   * were sold.
+   */
+  private void notifyHomes(List<String> ids, ClusterNode holder) {
+    Map<ClusterNode, List<String>> byHome = new LinkedHashMap<>();
+    for (String id : ids) {
+      ClusterNode home = cluster.owner(id);
+      if (!cluster.isSelf(home) && !home.name().equals(holder.name())) {
+        byHome.computeIfAbsent(home, node -> new ArrayList<>()).add(id);
+      }
+    }
+    byHome.forEach((home, homed) -> {
+      try {
+        nodes.post(home, "/cluster/pointers", new PointerUpdate(holder.name(), homed), Void.class);
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Cannot update pointers on node " + home.name(), e);
+      }
+    });
+  }
+
+  private void forgetLease(SeatLease lease) {
+    lease.close();
+    leases.remove(lease.flightId(), lease);
+    if (log != null) {
+      log.released(lease.flightId());
+    }
+  }
+
+  /**
+   * Gives back the unsold seats of a quota, when the flight's node runs out.
+   * A quota busy asking for seats itself is left alone.
+   *
+   * @throws IOException if the flight's node cannot be told
+   */
+  public void recall(String flightId, ClusterNode caller) throws IOException {
+    SeatLease lease = lease(flightId, caller);
+    if (!lease.calls().tryLock()) {
+      return;
+    }
+    try {
+      report(lease, true);
+    } finally {
+      lease.calls().unlock();
+    }
+  }
+
+  /**
+   * Gives a quota up with its bookings, because the flight is moving: stops
+   * selling, waits for the sales under way and hands everything over.
+   *
+   * @throws IOException if the sales do not finish in time or the flight's
+   *                     node cannot be told; the quota is kept
+   */
+  public void release(String flightId, ClusterNode caller) throws IOException {
+    SeatLease lease = lease(flightId, caller);
+    lease.setClosing(true);
+    boolean released = false;
+    long timeout = cluster.timeout().toNanos();
+    try {
+      if (!lease.calls().tryLock(timeout, TimeUnit.NANOSECONDS)) {
+        throw new IOException("Seats of flight " + flightId + " are busy on node " + cluster.self().name());
+      }
+      try {
+        long deadline = System.nanoTime() + timeout;
+        while (lease.taking() > 0) {
+          if (System.nanoTime() > deadline) {
+            throw new IOException("Bookings of flight " + flightId + " are still being made on node "
+                + cluster.self().name());
+          }
+          Thread.sleep(1);
+        }
+        do {
+          report(lease, true);
+        } while (lease.hasSold());
+        forgetLease(lease);
+        released = true;
+      } finally {
+        lease.calls().unlock();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted releasing seats of flight " + flightId);
+    } finally {
+      if (!released) {
+        lease.setClosing(false);
+      }
+    }
+  }
+
+  // Granting
+
+  /**
+   * Grants seats of a flight held here to another node, recalling unsold
+   * seats from the other quotas when none are free.
+   *
+   * @return the seats granted, none if the flight cannot be booked; without
+   *         a flight if it is held elsewhere
+   * @throws IllegalArgumentException if the request is invalid
+   * @throws IllegalStateException    if it arrived after a later call of the
+   *                                  same node
+   */
+  public SeatGrant grant(String flightId, SeatRequest request) {
+    if (request == null || request.node() == null || request.seats() < 1) {
+      throw new IllegalArgumentException("A seat request needs a node and a number of seats");
+    }
+    cluster.node(request.node());
+    Flight flight = servedFlight(flightId);
+    if (flight == null) {
+      ClusterNode holder = cluster.route(flightId, false);
+      return new SeatGrant(0, 0, null, 0, 0, cluster.isSelf(holder) ? null : holder.name());
+    }
+    SeatLedger ledger = ledger(flight);
+    if (ledger == null) {
+      return new SeatGrant(0, 0, flight, 0, local.bookings().countByFlightId(flightId), null);
+    }
+    int[] numbers = new int[0];
+    if (isBookable(flight)) {
+      numbers = ledger.grant(request.node(), request.sequence(), request.seats(), log);
+      if (numbers.length == 0 && recall(flightId, ledger, request.node())) {
+        numbers = ledger.grant(request.node(), request.sequence(), request.seats(), log);
+      }
+    }
+    return answer(flight, ledger, numbers);
+  }
+
+  /**
+   * Applies a node's report on a flight held here: stores the bookings it
+   * hands over, which are held here from then on, and what it still holds.
+   * A report on a flight held elsewhere is answered with its holder.
+   *
+   * @throws IllegalArgumentException if the report is invalid or the flight
+   *                                  is not held here
+   * @throws IllegalStateException    if it arrived after a later call of the
+   *                                  same node
+   */
+  public SeatGrant report(String flightId, SeatReport report) {
+    if (report == null || report.node() == null || report.bookings() == null || report.selling() < 0
+        || report.seats() < report.selling()) {
+      throw new IllegalArgumentException("A seat report needs a node, its seats and its bookings");
+    }
+    for (Booking booking : report.bookings()) {
+      if (booking.getId() == null || !flightId.equals(booking.getFlightId())) {
+        throw new IllegalArgumentException("Bookings reported must have an id and belong to flight " + flightId);
+      }
+    }
+    cluster.node(report.node());
+    Flight flight = servedFlight(flightId);
+    ClusterNode holder = cluster.route(flightId, false);
+    if (flight == null && !cluster.isSelf(holder)) {
+      return new SeatGrant(0, 0, null, 0, 0, holder.name());
+    }
+    SeatLedger ledger = flight == null ? null : ledger(flight);
+    if (ledger == null) {
+      throw new IllegalArgumentException("Flight " + flightId + " is not held by node " + cluster.self().name());
+    }
+    synchronized (ledger) {
+      ledger.requireLater(report.node(), report.sequence());
+      int stored = 0;
+      List<String> ids = new ArrayList<>(report.bookings().size());
+      for (Booking booking : report.bookings()) {
+        if (local.bookings().findById(booking.getId()) == null) {
+          local.bookings().save(booking);
+          capture.bookingSaved(flightId, booking.getId());
+          stored++;
+        }
+        ids.add(booking.getId());
+      }
+      if (!ids.isEmpty()) {
+        cluster.adopt(ids);
+      }
+      ledger.report(report.node(), report.sequence(), report.seats(), report.selling(), stored, log);
+    }
+    return answer(flight, ledger, new int[0]);
+  }
+
+  /**
+   * Asks the nodes holding unsold seats of a flight, other than
+   * {@code except}, to give them back.
+   *
+   * @return whether any node was asked
+   */
+  private boolean recall(String flightId, SeatLedger ledger, String except) {
+    List<String> holders = ledger.holdersOfUnsold(except);
+    for (String holder : holders) {
+      try {
+        nodes.post(cluster.node(holder), path(flightId, "recall"), null, Void.class);
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Cannot recall seats of flight " + flightId + " from node " + holder, e);
+      }
+    }
+    return !holders.isEmpty();
+  }
+
+  /**
+   * Takes back every quota of a flight held here before it moves, and stops
+   * granting new ones.
+   *
+   * @throws IOException if a node holding seats cannot give them back; the
+   *                     flight must then stay, and {@link #reopen} be called
+   */
+  void reclaim(String flightId) throws IOException {
+    SeatLedger ledger = ledgers.get(flightId);
+    if (ledger == null && restored.containsKey(flightId)) {
+      Flight flight = servedFlight(flightId);
+      ledger = flight == null ? null : ledger(flight);
+    }
+    if (ledger == null) {
+      return;
+    }
+    ledger.close();
+    for (String holder : ledger.holders()) {
+      nodes.post(cluster.node(holder), path(flightId, "release"), null, Void.class);
+    }
+    List<String> holders = ledger.holders();
+    if (!holders.isEmpty()) {
+      throw new IOException("Seats of flight " + flightId + " are still held by nodes " + holders);
+    }
+  }
+
+  /**
+   * Grants quotas of a flight again after a move that failed.
+   */
+  void reopen(String flightId) {
+    SeatLedger ledger = ledgers.get(flightId);
+    if (ledger != null) {
+      ledger.reopen();
+    }
+  }
+
+  /**
+   * Drops the ledger of a flight that moved away.
+   */
+  void forget(String flightId) {
+    SeatLedger ledger = ledgers.remove(flightId);
+    boolean restoredOnly = restored.remove(flightId) != null;
+    if ((ledger != null || restoredOnly) && log != null) {
+      log.forgotten(flightId);
+    }
+  }
+
+  private SeatGrant answer(Flight flight, SeatLedger ledger, int[] numbers) {
+    return new SeatGrant(numbers.length, numbers.length == 0 ? 0 : numbers[0], flight, ledger.capacity(),
+        local.bookings().countByFlightId(flight.getId()) + ledger.selling(), null);
+  }
+
+  private static boolean isBookable(Flight flight) {
+    FlightState state = flight.getState();
+    return state != FlightState.CANCELLED && state != FlightState.SOLD_OUT && state != FlightState.DONE;
+  }
+
+  /**
+   * Returns the ledger of a flight held here, or null if its rocket gives it
+   * no valid capacity.
+   */
+  private SeatLedger ledger(Flight flight) {
+    SeatLedger ledger = ledgers.get(flight.getId());
+    if (ledger != null) {
+      return ledger;
+    }
+    Rocket rocket = flight.getRocketId() == null ? null : rockets.findById(flight.getRocketId());
+    if (rocket == null || rocket.getCapacity() == null || rocket.getCapacity() < 1) {
+      return null;
+    }
+    return ledger(flight.getId(), rocket.getCapacity());
+  }
+
+  private SeatLedger ledger(String flightId, int capacity) {
+    return ledgers.computeIfAbsent(flightId, id -> {
+      Map<String, SeatLedger.Holding> holdings = restored.remove(id);
+      return new SeatLedger(id, capacity, local.bookings().countByFlightId(id),
+          holdings == null ? new HashMap<>() : holdings);
+    });
+  }
+
+  private Flight servedFlight(String flightId) {
+    return cluster.isHidden(flightId) ? null : local.flights().findById(flightId);
+  }
+
+  private static String path(String flightId, String step) {
+    return "/cluster/escrow/" + URLEncoder.encode(flightId, StandardCharsets.UTF_8) + "/" + step;
+  }
+
+  /**
+   * Stops reporting; quotas held here stay held until the node restarts or
+   * their lease ends.
+   */
+  @Override
+  public void close() {
+    settler.shutdownNow();
+    if (log != null) {
+      log.close();
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package academy.aicode.astrobookings.cluster;
+
+import academy.aicode.astrobookings.persistence.models.Flight;
+
+/**
+ * The answer of the node holding a flight to a {@link SeatRequest} or a
+ * {@link SeatReport}.
+ *
+ * @param seats       seats granted, numbered from {@code firstNumber}
+ * @param firstNumber the number on the flight of the first seat granted
+ * @param flight      the flight as its node has it, or null if it is held
+ *                    elsewhere
+ * @param capacity    the seats on the flight
+ * @param booked      the flight's bookings, counting those sold from quotas
+ * @param holder      the node holding the flight when it is not the node
+ *                    asked, if known
+ */
+public record SeatGrant(int seats, int firstNumber, Flight flight, int capacity, int booked, String holder) {
+}
@@ -0,0 +1,303 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import academy.aicode.astrobookings.persistence.models.Flight;
+
+/**
+ * The quota of a flight's seats this node holds while the flight is held by
+ * another node. Selling a seat polls its number from a lock-free queue; the
+ * bookings sold stay here until they are handed over to the flight's node.
+ * <p>
+ * {@link #held()} counts the seats of the quota wherever they are: unsold,
+ * being sold, or sold and not yet handed over. Selling moves seats between
+ * those without changing it, so a report built from it is consistent while
+ * sales go on. Calls to the flight's node are made one at a time, holding
+ * {@link #calls()}.
+ * <p>
+ * The quota is a lease of {@value SeatEscrow#LEASE_MILLIS} ms from the time
+ * the last grant or report acknowledged was sent, and seats are sold only
+ * while it lasts: cut off from the flight's node, this node stops selling
+ * rather than sell on a flight it no longer hears about. The seats stay
+ * this node's until it reports them.
+ */
+final class SeatLease {
+
+  private final String flightId;
+  private final Queue<Integer> unsold = new ConcurrentLinkedQueue<>();
+  private final Set<String> sold = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger held = new AtomicInteger();
+  /** Seats taken and neither saved nor given back. */
+  private final AtomicInteger taking = new AtomicInteger();
+  private final ReentrantLock calls = new ReentrantLock();
+
+  private volatile ClusterNode node;
+  private volatile Flight flight;
+  private volatile int booked;
+  private volatile long lastUsed = System.nanoTime();
+  private volatile long refusedAt;
+  /** When this node stops selling; nothing is sold before the first grant. */
+  private volatile long sellUntil = System.nanoTime();
+  private volatile boolean closing;
+  private volatile boolean closed;
+  /** Whether the flight's node may count seats this node lost in a restart. */
+  private volatile boolean restored;
+
+  /**
+   * @param node         the node holding the flight
+   * @param unsettledIds bookings sold before a restart and not yet handed
+   *                     over, or null for a new quota
+   */
+  SeatLease(String flightId, ClusterNode node, Collection<String> unsettledIds) {
+    this.flightId = flightId;
+    this.node = node;
+    if (unsettledIds != null) {
+      sold.addAll(unsettledIds);
+      held.set(sold.size());
+      restored = true;
+    }
+  }
+
+  String flightId() {
+    return flightId;
+  }
+
+  ClusterNode node() {
+    return node;
+  }
+
+  void moveTo(ClusterNode holder) {
+    node = holder;
+  }
+
+  /**
+   * Returns the flight as its node last described it, or null before the
+   * first answer.
+   */
+  Flight flight() {
+    return flight;
+  }
+
+  int booked() {
+    return booked;
+  }
+
+  ReentrantLock calls() {
+    return calls;
+  }
+
+  /**
+   * Takes up to {@code seats} unsold seats.
+   *
+   * @return their numbers
+   * @throws IllegalArgumentException if the quota is being given up because
+   *                                  the flight moves
+   */
+  int[] take(int seats) {
+    // Counted before polling, so that a release waiting for sales in progress sees this one
+    taking.addAndGet(seats);
+    if (closing || closed) {
+      taking.addAndGet(-seats);
+      throw new IllegalArgumentException("Flight " + flightId + " is moving to another node");
+    }
+    if (!isCurrent()) {
+      taking.addAndGet(-seats);
+      return new int[0];
+    }
+    int[] numbers = new int[seats];
+    int taken = 0;
+    Integer number;
+    while (taken < seats && (number = unsold.poll()) != null) {
+      numbers[taken++] = number;
+    }
+    taking.addAndGet(taken - seats);
+    lastUsed = System.nanoTime();
+    return taken == seats ? numbers : Arrays.copyOf(numbers, taken);
+  }
+
+  /**
+   * Puts back a seat taken with {@link #take} whose booking was not saved.
+   */
+  void giveBack(int number) {
+    unsold.offer(number);
+    taking.decrementAndGet();
+  }
+
+  /**
+   * Records the booking saved on a seat taken with {@link #take}.
+   */
+  void saved(String bookingId) {
+    sold.add(bookingId);
+    taking.decrementAndGet();
+  }
+
+  boolean isUnsettled(String bookingId) {
+    return sold.contains(bookingId);
+  }
+
+  boolean hasUnsold() {
+    return !unsold.isEmpty();
+  }
+
+  /**
+   * Returns whether seats can be sold now: there are unsold ones and the
+   * lease has not run out.
+   */
+  boolean canSell() {
+    return isCurrent() && !unsold.isEmpty();
+  }
+
+  /**
+   * Returns whether the lease still lets this node sell.
+   */
+  boolean isCurrent() {
+    return System.nanoTime() - sellUntil < 0;
+  }
+
+  /**
+   * Returns whether this node stops selling within {@code nanos}.
+   */
+  boolean endsWithin(long nanos) {
+    return sellUntil - System.nanoTime() < nanos;
+  }
+
+  /**
+   * Extends the lease after the flight's node acknowledged a call sent at
+   * {@code sentAt}.
+   */
+  void renewed(long sentAt) {
+    sellUntil = sentAt + TimeUnit.MILLISECONDS.toNanos(SeatEscrow.LEASE_MILLIS);
+  }
+
+  boolean hasSold() {
+    return !sold.isEmpty();
+  }
+
+  /**
+   * Returns whether the quota was read back after a restart and has not been
+   * reported since; the flight's node still counts the seats unsold then.
+   */
+  boolean isRestored() {
+    return restored;
+  }
+
+  int held() {
+    return held.get();
+  }
+
+  int unsoldCount() {
+    return unsold.size();
+  }
+
+  int taking() {
+    return taking.get();
+  }
+
+  /**
+   * Returns up to {@code max} bookings sold and not yet handed over.
+   */
+  List<String> sold(int max) {
+    List<String> ids = new ArrayList<>(Math.min(max, sold.size()));
+    for (String id : sold) {
+      if (ids.size() == max) {
+        break;
+      }
+      ids.add(id);
+    }
+    return ids;
+  }
+
+  /**
+   * Removes every unsold seat, to give them back.
+   *
+   * @return their numbers
+   */
+  List<Integer> drain() {
+    List<Integer> numbers = new ArrayList<>();
+    Integer number;
+    while ((number = unsold.poll()) != null) {
+      numbers.add(number);
+    }
+    return numbers;
+  }
+
+  /**
+   * Puts back seats removed with {@link #drain} that could not be given back.
+   */
+  void restore(List<Integer> numbers) {
+    unsold.addAll(numbers);
+  }
+
+  /**
+   * Adds seats granted by the flight's node, numbered from
+   * {@code firstNumber}, for a request sent at {@code sentAt}.
+   */
+  void granted(SeatGrant grant, long sentAt) {
+    if (grant.seats() > 0) {
+      renewed(sentAt);
+    }
+    held.addAndGet(grant.seats());
+    for (int i = 0; i < grant.seats(); i++) {
+      unsold.offer(grant.firstNumber() + i);
+    }
+    refusedAt = grant.seats() == 0 ? System.nanoTime() : 0;
+    described(grant);
+  }
+
+  /**
+   * Records what the flight's node said about the flight.
+   */
+  void described(SeatGrant answer) {
+    if (answer.flight() != null) {
+      flight = answer.flight();
+      booked = answer.booked();
+    }
+  }
+
+  /**
+   * Forgets seats handed over to, or given back to, the flight's node.
+   */
+  void settled(List<String> bookingIds, int returned) {
+    sold.removeAll(bookingIds);
+    held.addAndGet(-bookingIds.size() - returned);
+    restored = false;
+  }
+
+  /**
+   * Returns whether the flight's node refused seats in the last
+   * {@code nanos}.
+   */
+  boolean refusedWithin(long nanos) {
+    long refused = refusedAt;
+    return refused != 0 && System.nanoTime() - refused < nanos;
+  }
+
+  boolean idleFor(long nanos) {
+    return System.nanoTime() - lastUsed > nanos;
+  }
+
+  /**
+   * Stops selling, because the flight is moving.
+   */
+  void setClosing(boolean closing) {
+    this.closing = closing;
+  }
+
+  void close() {
+    closed = true;
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+}
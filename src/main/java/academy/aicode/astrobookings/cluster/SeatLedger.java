@@ -0,0 +1,194 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The seats of one flight on the node holding it: each seat is booked here,
+ * free, or held by another node in a quota. Bookings made here take free
+ * seats with a compare-and-set; quotas are granted from the free seats and
+ * come back when their node reports, under the ledger's lock. A seat is only
+ * ever in one of those places, so the flight is not oversold.
+ * <p>
+ * Only the node holding a quota gives its seats back: a node that cannot be
+ * reached may have sold any of them since its last report, so they stay held
+ * until it reports again, however long that takes.
+ * <p>
+ * Seats are numbered in the order they leave the free seats, which prices
+ * the last seat and the minimum-passengers seat. A seat given back is
+ * numbered again when it is next taken, so after quotas come back two
+ * bookings may share a number.
+ */
+final class SeatLedger {
+
+  /**
+   * What a node holds, as of its latest call.
+   *
+   * @param sequence the sequence of that call
+   * @param seats    seats it holds
+   * @param selling  how many of them it has sold or is selling
+   */
+  record Holding(long sequence, int seats, int selling) {
+  }
+
+  private static final Holding NONE = new Holding(Long.MIN_VALUE, 0, 0);
+
+  private final String flightId;
+  private final int capacity;
+  private final AtomicInteger free;
+  /** Holdings by node, kept once empty for their sequence; guarded by this. */
+  private final Map<String, Holding> holdings;
+  private volatile int selling;
+  private volatile boolean closed;
+
+  /**
+   * @param booked   bookings of the flight stored here
+   * @param holdings what other nodes hold, as read back from the log
+   */
+  SeatLedger(String flightId, int capacity, int booked, Map<String, Holding> holdings) {
+    this.flightId = flightId;
+    this.capacity = capacity;
+    this.holdings = holdings;
+    int held = 0;
+    int sold = 0;
+    for (Holding holding : holdings.values()) {
+      held += holding.seats();
+      sold += holding.selling();
+    }
+    this.free = new AtomicInteger(Math.max(0, capacity - booked - held));
+    this.selling = sold;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * Returns the seats other nodes have sold or are selling.
+   */
+  int selling() {
+    return selling;
+  }
+
+  /**
+   * Takes up to {@code seats} free seats.
+   *
+   * @return their numbers
+   */
+  int[] take(int seats) {
+    while (true) {
+      int available = free.get();
+      int taken = Math.min(seats, available);
+      if (taken <= 0) {
+        return new int[0];
+      }
+      if (free.compareAndSet(available, available - taken)) {
+        int[] numbers = new int[taken];
+        for (int i = 0; i < taken; i++) {
+          numbers[i] = capacity - available + 1 + i;
+        }
+        return numbers;
+      }
+    }
+  }
+
+  /**
+   * Frees a seat taken with {@link #take} whose booking was not saved.
+   */
+  void giveBack() {
+    free.incrementAndGet();
+  }
+
+  /**
+   * Grants {@code node} up to {@code seats} free seats, none while the
+   * flight is moving.
+   *
+   * @return the numbers of the seats granted
+   * @throws IllegalStateException if the node has made a later call already
+   */
+  synchronized int[] grant(String node, long sequence, int seats, EscrowLog log) {
+    Holding holding = holdings.getOrDefault(node, NONE);
+    requireLater(node, sequence, holding);
+    if (closed) {
+      return new int[0];
+    }
+    int[] numbers = take(seats);
+    if (numbers.length > 0) {
+      Holding granted = new Holding(sequence, holding.seats() + numbers.length, holding.selling());
+      try {
+        if (log != null) {
+          log.holding(flightId, node, granted);
+        }
+      } catch (RuntimeException e) {
+        free.addAndGet(numbers.length);
+        throw e;
+      }
+      holdings.put(node, granted);
+    }
+    return numbers;
+  }
+
+  /**
+   * Replaces what {@code node} holds with its report; {@code stored} of the
+   * bookings it handed over were stored here just now.
+   *
+   * @throws IllegalStateException if the node has made a later call already
+   */
+  synchronized void report(String node, long sequence, int seats, int sold, int stored, EscrowLog log) {
+    Holding holding = holdings.getOrDefault(node, NONE);
+    requireLater(node, sequence, holding);
+    Holding reported = new Holding(sequence, seats, sold);
+    if (log != null) {
+      log.holding(flightId, node, reported);
+    }
+    holdings.put(node, reported);
+    free.addAndGet(holding.seats() - seats - stored);
+    selling += sold - holding.selling();
+  }
+
+  /**
+   * Checks that a call is newer than the last one applied, before the
+   * bookings it hands over are stored.
+   *
+   * @throws IllegalStateException if it is not
+   */
+  synchronized void requireLater(String node, long sequence) {
+    requireLater(node, sequence, holdings.getOrDefault(node, NONE));
+  }
+
+  private static void requireLater(String node, long sequence, Holding holding) {
+    if (sequence <= holding.sequence()) {
+      throw new IllegalStateException("Node " + node + " has sent a later seat call already");
+    }
+  }
+
+  /**
+   * Returns the nodes holding seats.
+   */
+  synchronized List<String> holders() {
+    return holdings.entrySet().stream().filter(entry -> entry.getValue().seats() > 0).map(Map.Entry::getKey)
+        .toList();
+  }
+
+  /**
+   * Returns the nodes other than {@code except} holding seats they have not
+   * sold.
+   */
+  synchronized List<String> holdersOfUnsold(String except) {
+    return holdings.entrySet().stream()
+        .filter(entry -> !entry.getKey().equals(except) && entry.getValue().seats() > entry.getValue().selling())
+        .map(Map.Entry::getKey).toList();
+  }
+
+  /**
+   * Stops granting seats, while the flight moves.
+   */
+  synchronized void close() {
+    closed = true;
+  }
+
+  synchronized void reopen() {
+    closed = false;
+  }
+}
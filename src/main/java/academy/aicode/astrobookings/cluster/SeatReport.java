@@ -0,0 +1,22 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * What a node holds of a flight's seats, sent to the node holding the
+ * flight. It replaces the previous report rather than adding to it, so a
+ * report sent twice does no harm.
+ *
+ * @param node     the node reporting
+ * @param sequence as in {@link SeatRequest}
+ * @param seats    seats the node still holds once {@code bookings} are
+ *                 handed over: unsold ones and ones sold but not yet handed
+ *                 over
+ * @param selling  how many of {@code seats} are sold or being sold
+ * @param bookings bookings sold from the quota, handed over to the flight's
+ *                 node
+ */
+public record SeatReport(String node, long sequence, int seats, int selling, List<Booking> bookings) {
+}
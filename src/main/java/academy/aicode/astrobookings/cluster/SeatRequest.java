@@ -0,0 +1,12 @@
+package academy.aicode.astrobookings.cluster;
+
+/**
+ * A node asking the node holding a flight for a quota of its seats.
+ *
+ * @param node     the node asking
+ * @param sequence grows with every call the node makes about its quotas, so
+ *                 that a call arriving late is ignored
+ * @param seats    the seats wanted
+ */
+public record SeatRequest(String node, long sequence, int seats) {
+}
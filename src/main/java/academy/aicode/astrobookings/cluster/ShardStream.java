@@ -0,0 +1,209 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The listing of one node, flights or bookings ordered by a time and their id,
+ * parsed from its responses by a reader thread into a bounded queue. A merge
+ * that falls behind holds the reader back instead of buffering the whole
+ * listing. The first item must arrive before the shard's deadline, and each
+ * following one within the timeout of the previous one; likewise the reader
+ * gives up if the merge takes nothing for that long.
+ */
+final class ShardStream {
+
+  /** An item of the listing, with its sort key and its JSON. */
+  record Item(Instant time, String id, byte[] json) {
+  }
+
+  private static final int CAPACITY = 256;
+  private static final long WAKE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+  private static final Item END = new Item(Instant.MAX, "", new byte[0]);
+  private static final Item FAILED = new Item(Instant.MAX, "", new byte[0]);
+
+  private final BlockingQueue<Item> queue = new ArrayBlockingQueue<>(CAPACITY);
+  private final ClusterNode node;
+  private final String timeField;
+  private final long timeoutNanos;
+  private final long firstDeadline;
+  /** Whether the merge has taken the first item; only used by the merge. */
+  private boolean started;
+  private volatile Throwable failure;
+  private volatile int rejectedStatus;
+  private volatile byte[] rejectedBody;
+  private volatile boolean cancelled;
+
+  /**
+   * A flight listing, ordered by `launchDateTime`.
+   *
+   * @param node          the node listed
+   * @param firstDeadline {@link System#nanoTime()} by which the first flight
+   *                      or the end of the listing must arrive
+   * @param timeoutNanos  longest wait for each following flight
+   */
+  ShardStream(ClusterNode node, long firstDeadline, long timeoutNanos) {
+    this(node, "launchDateTime", firstDeadline, timeoutNanos);
+  }
+
+  /**
+   * @param timeField the field of each item the listing is ordered by
+   */
+  ShardStream(ClusterNode node, String timeField, long firstDeadline, long timeoutNanos) {
+    this.node = node;
+    this.timeField = timeField;
+    this.firstDeadline = firstDeadline;
+    this.timeoutNanos = timeoutNanos;
+  }
+
+  ClusterNode node() {
+    return node;
+  }
+
+  /**
+   * Reads a listing response into the queue. Runs on a reader thread until the
+   * listing ends, fails, misses the deadline or is cancelled.
+   */
+  void read(HttpResponse<InputStream> response, ObjectMapper objectMapper) {
+    try {
+      if (readPage(response, objectMapper)) {
+        end();
+      }
+    } catch (Exception e) {
+      fail(e);
+    }
+  }
+
+  /**
+   * Reads one page of the listing into the queue, without ending it; a node
+   * rejecting the listing fails it.
+   *
+   * @return false if the listing was rejected, cancelled or missed its
+   *         deadline
+   * @throws Exception if the response cannot be read
+   */
+  boolean readPage(HttpResponse<InputStream> response, ObjectMapper objectMapper) throws Exception {
+    try (InputStream body = response.body()) {
+      if (response.statusCode() >= 400 && response.statusCode() < 500) {
+        rejectedBody = body.readAllBytes();
+        rejectedStatus = response.statusCode();
+        fail(new IOException("Node " + node.name() + " rejected the listing with " + response.statusCode()));
+        return false;
+      }
+      if (response.statusCode() != 200) {
+        throw new IOException("Node " + node.name() + " answered " + response.statusCode());
+      }
+      try (JsonParser parser = objectMapper.createParser(body)) {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+          throw new IOException("Node " + node.name() + " did not answer a JSON array");
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          JsonNode object = objectMapper.readTree(parser);
+          String time = object.path(timeField).asText(null);
+          Item item = new Item(time == null ? Instant.MAX : Instant.parse(time), object.path("id").asText(""),
+              objectMapper.writeValueAsBytes(object));
+          if (!add(item)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Queues the next item of the listing, waiting while the queue is full.
+   *
+   * @return false if the listing was cancelled or missed its deadline
+   */
+  boolean add(Item item) throws InterruptedException {
+    return put(item);
+  }
+
+  /**
+   * Ends the listing normally.
+   */
+  void end() throws InterruptedException {
+    put(END);
+  }
+
+  /**
+   * Ends the listing with a failure, e.g. when the node cannot be reached.
+   */
+  void fail(Throwable error) {
+    failure = error;
+    try {
+      put(FAILED);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Stops the reader; queued items are dropped.
+   */
+  void cancel() {
+    cancelled = true;
+    queue.clear();
+  }
+
+  private boolean put(Item item) throws InterruptedException {
+    long deadline = System.nanoTime() + timeoutNanos;
+    while (!cancelled) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return false;
+      }
+      if (queue.offer(item, Math.min(remaining, WAKE_NANOS), TimeUnit.NANOSECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the next item, or null once the listing has ended.
+   *
+   * @throws IOException if the listing failed or did not continue in time
+   */
+  Item next() throws IOException {
+    long wait = started ? timeoutNanos : Math.max(0, firstDeadline - System.nanoTime());
+    started = true;
+    Item item;
+    try {
+      item = queue.poll(wait, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for node " + node.name());
+    }
+    if (item == null) {
+      throw new IOException("Node " + node.name() + " did not finish its listing in time");
+    }
+    if (item == FAILED) {
+      throw failure instanceof IOException io ? io : new IOException(failure);
+    }
+    return item == END ? null : item;
+  }
+
+  /**
+   * Returns the 4xx status the node rejected the listing with, or 0.
+   */
+  int rejectedStatus() {
+    return rejectedStatus;
+  }
+
+  byte[] rejectedBody() {
+    return rejectedBody;
+  }
+}
@@ -0,0 +1,144 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.DocumentIndex;
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Bookings of one shard. Bookings are created on their flight's holder, and
+ * new ones get an id homed on this node too, so a booking can be found by id
+ * on the same node as its flight. Bookings of flights that have moved to
+ * another node are hidden.
+ * <p>
+ * A booking is only saved inside the gate of its flight ({@link FlightGates}),
+ * entered here for saves that do not come from a request for that flight,
+ * such as batches, so a migration of the flight waits for the save and
+ * sends it along.
+ * <p>
+ * Bookings of a flight held elsewhere may also be sold here from a quota of
+ * its seats ({@link SeatEscrow}); they are saved without the gate and stay
+ * visible here until they are handed over to the flight's node.
+ */
+class ShardedBookingRepository implements BookingRepository {
+
+  private final Cluster cluster;
+  private final BookingRepository local;
+  private final MigrationCapture capture;
+  private final SeatEscrow escrow;
+
+  ShardedBookingRepository(Cluster cluster, BookingRepository local, MigrationCapture capture, SeatEscrow escrow) {
+    this.cluster = cluster;
+    this.local = local;
+    this.capture = capture;
+    this.escrow = escrow;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the flight has moved to another node
+   */
+  @Override
+  public Booking save(Booking booking) {
+    if (booking.getId() == null) {
+      booking.setId(cluster.newLocalId());
+    }
+    String flightId = booking.getFlightId();
+    SeatLease lease = escrow.sellingLease(flightId);
+    if (lease != null) {
+      Booking saved = local.save(booking);
+      lease.saved(saved.getId());
+      return saved;
+    }
+    FlightGates gates = cluster.gates();
+    if (flightId == null || gates.hasEntered(flightId)) {
+      return saveAndCapture(booking);
+    }
+    try {
+      while (!gates.enter(flightId, cluster.timeout())) {
+        if (cluster.isHidden(flightId)) {
+          throw moved(flightId);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw moved(flightId);
+    }
+    try {
+      if (cluster.isHidden(flightId)) {
+        throw moved(flightId);
+      }
+      return saveAndCapture(booking);
+    } finally {
+      gates.exit(flightId);
+    }
+  }
+
+  private Booking saveAndCapture(Booking booking) {
+    Booking saved = local.save(booking);
+    capture.bookingSaved(saved.getFlightId(), saved.getId());
+    return saved;
+  }
+
+  private static IllegalArgumentException moved(String flightId) {
+    return new IllegalArgumentException("Flight " + flightId + " has moved to another node");
+  }
+
+  /**
+   * Takes seats from the flight's ledger, or from the quota held here when
+   * the flight is held elsewhere.
+   */
+  @Override
+  public int[] takeSeats(String flightId, int capacity, int seats) {
+    return escrow.takeSeats(flightId, capacity, seats);
+  }
+
+  @Override
+  public void returnSeat(String flightId, int number) {
+    escrow.returnSeat(flightId, number);
+  }
+
+  @Override
+  public Booking findById(String id) {
+    Booking booking = local.findById(id);
+    return booking == null || isVisible(booking) ? booking : null;
+  }
+
+  private boolean isVisible(Booking booking) {
+    if (escrow.isUnsettled(booking.getId(), booking.getFlightId())) {
+      return true;
+    }
+    return !cluster.isHidden(booking.getId()) && !cluster.isHidden(booking.getFlightId());
+  }
+
+  @Override
+  public List<Booking> findByFlightId(String flightId) {
+    return cluster.isHidden(flightId) ? List.of() : local.findByFlightId(flightId);
+  }
+
+  @Override
+  public int countByFlightId(String flightId) {
+    SeatLease lease = escrow.sellingLease(flightId);
+    if (lease != null) {
+      return lease.booked();
+    }
+    return cluster.isHidden(flightId) ? 0 : local.countByFlightId(flightId) + escrow.sellingElsewhere(flightId);
+  }
+
+  /**
+   * Returns a page of the passenger's bookings held on this node; the
+   * sharding filter merges the pages of every node (see
+   * {@link ScatterGather#listPassengerBookings}).
+   */
+  @Override
+  public List<Booking> findByPassengerDocument(String passengerDocument, int offset, int limit) {
+    List<Booking> visible = new ArrayList<>();
+    for (Booking booking : local.findByPassengerDocument(passengerDocument, 0, Integer.MAX_VALUE)) {
+      if (isVisible(booking)) {
+        visible.add(booking);
+      }
+    }
+    return DocumentIndex.page(visible, offset, limit);
+  }
+}
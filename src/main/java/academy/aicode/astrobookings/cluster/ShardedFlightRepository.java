@@ -0,0 +1,88 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.time.Instant;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+/**
+ * Flights of one shard. New flights get an id homed on this node; flights
+ * that have moved to another node, or are still being received from one, are
+ * hidden. A flight held elsewhere whose seats are sold here from a quota is
+ * found as its node last described it ({@link SeatEscrow}).
+ */
+class ShardedFlightRepository implements FlightRepository {
+
+  private final Cluster cluster;
+  private final FlightRepository local;
+  private final SeatEscrow escrow;
+
+  ShardedFlightRepository(Cluster cluster, FlightRepository local, SeatEscrow escrow) {
+    this.cluster = cluster;
+    this.local = local;
+    this.escrow = escrow;
+  }
+
+  @Override
+  public Flight save(Flight flight) {
+    if (flight.getId() == null) {
+      flight.setId(cluster.newLocalId());
+    }
+    return local.save(flight);
+  }
+
+  @Override
+  public void saveAll(List<Flight> batch) {
+    for (Flight flight : batch) {
+      if (flight.getId() == null) {
+        flight.setId(cluster.newLocalId());
+      }
+    }
+    local.saveAll(batch);
+  }
+
+  @Override
+  public void updateState(Flight flight, FlightState state) {
+    if (flight == escrow.leasedFlight(flight.getId())) {
+      // Only the flight's node stores its state; it sends it with its next answer
+      flight.setState(state);
+      return;
+    }
+    local.updateState(flight, state);
+  }
+
+  @Override
+  public Flight findById(String id) {
+    Flight flight = cluster.isHidden(id) ? null : local.findById(id);
+    return flight == null ? escrow.leasedFlight(id) : flight;
+  }
+
+  @Override
+  public List<Flight> findAll() {
+    return visible(local.findAll());
+  }
+
+  @Override
+  public List<Flight> findByState(FlightState state) {
+    return visible(local.findByState(state));
+  }
+
+  @Override
+  public List<Flight> findLaunchingAfter(Instant instant) {
+    return visible(local.findLaunchingAfter(instant));
+  }
+
+  @Override
+  public List<Flight> findLaunchingBetween(Instant from, Instant to) {
+    return visible(local.findLaunchingBetween(from, to));
+  }
+
+  private List<Flight> visible(List<Flight> flights) {
+    if (cluster.pointerCount() == 0 && !cluster.hasIncoming()) {
+      return flights;
+    }
+    return flights.stream().filter(flight -> !cluster.isHidden(flight.getId())).toList();
+  }
+}
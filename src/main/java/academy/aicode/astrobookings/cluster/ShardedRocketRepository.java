@@ -0,0 +1,120 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Cohetes de un shard. Los nuevos reciben un id de este nodo; los de otros
+ * nodos se piden a su propietario cuando un vuelo o una reserva los necesita
+ * y se guardan en una caché aparte, que no aparece en {@link #findAll()}. Las
+ * entradas caducan a los `astrobookings.cluster.rocketCacheMillis` (por
+ * defecto 1000), de modo que un cambio de capacidad en el propietario se ve
+ * en los demás nodos como mucho tras ese tiempo.
+ */
+class ShardedRocketRepository implements RocketRepository {
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  private final Map<String, Cached> remote = new ConcurrentHashMap<>();
+  private final long cacheNanos = Long.getLong("astrobookings.cluster.rocketCacheMillis", 1000) * 1_000_000L;
+  private final Cluster cluster;
+  private final RocketRepository local;
+
+  private record Cached(Rocket rocket, long fetchedAt) {
+  }
+
+  ShardedRocketRepository(Cluster cluster, RocketRepository local) {
+    this.cluster = cluster;
+    this.local = local;
+  }
+
+  @Override
+  public Rocket save(Rocket rocket) {
+    if (rocket.getId() == null) {
+      rocket.setId(cluster.newLocalId());
+    }
+    return local.save(rocket);
+  }
+
+  @Override
+  public void saveAll(List<Rocket> batch) {
+    for (Rocket rocket : batch) {
+      if (rocket.getId() == null) {
+        rocket.setId(cluster.newLocalId());
+      }
+    }
+    local.saveAll(batch);
+  }
+
+  /**
+   * Devuelve solo los cohetes de este nodo.
+   */
+  @Override
+  public List<Rocket> findAll() {
+    return local.findAll();
+  }
+
+  /**
+   * Busca el cohete en este nodo o, si no está aquí, en el nodo al que se
+   * encamina su id (tras una incorporación, su nodo de origen puede ser otro
+   * que el que lo guarda).
+   *
+   * @throws UncheckedIOException si ese nodo no responde
+   */
+  @Override
+  public Rocket findById(String id) {
+    Rocket own = local.findById(id);
+    if (own != null || id == null || cluster.isSelf(cluster.route(id, false))) {
+      return own;
+    }
+    Cached cached = remote.get(id);
+    if (cached != null && System.nanoTime() - cached.fetchedAt() < cacheNanos) {
+      return cached.rocket();
+    }
+    Rocket fetched = fetch(id);
+    if (fetched == null) {
+      remote.remove(id);
+    } else {
+      remote.put(id, new Cached(fetched, System.nanoTime()));
+    }
+    return fetched;
+  }
+
+  private Rocket fetch(String id) {
+    ClusterNode owner = cluster.route(id, false);
+    HttpRequest request = cluster
+        .sign(HttpRequest.newBuilder(owner.uri().resolve("/rockets/" + URLEncoder.encode(id, StandardCharsets.UTF_8))))
+        .timeout(cluster.timeout())
+        .GET()
+        .build();
+    try {
+      HttpResponse<byte[]> response = cluster.client().send(request, HttpResponse.BodyHandlers.ofByteArray());
+      if (response.statusCode() == 404) {
+        return null;
+      }
+      if (response.statusCode() != 200) {
+        throw new IOException("Node " + owner.name() + " answered " + response.statusCode());
+      }
+      return objectMapper.readValue(response.body(), Rocket.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read rocket " + id + " from node " + owner.name(), e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UncheckedIOException("Interrupted reading rocket " + id + " from node " + owner.name(),
+          new IOException(e));
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package academy.aicode.astrobookings.cluster;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.ReadView;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+
+/**
+ * Storage of one shard: the entities this node holds in a {@link Cluster},
+ * kept in any local backend.
+ * <p>
+ * New entities get ids homed on this node, and rockets held by other nodes
+ * are fetched from them when a flight or booking needs them. Requests for
+ * other data are forwarded before they reach the services, so the
+ * repositories never see another node's flights or bookings; copies of
+ * flights that moved away stay in the local backend but are hidden. Flights
+ * are moved by the {@link #migrator()}, which works on the local backend
+ * directly. Seats of flights held elsewhere can be sold here from quotas
+ * kept by the {@link #escrow()}.
+ */
+public class ShardedStorageBackend implements StorageBackend {
+
+  private final StorageBackend local;
+  private final RocketRepository rockets;
+  private final FlightRepository flights;
+  private final BookingRepository bookings;
+  private final FlightMigrator migrator;
+  private final SeatEscrow escrow;
+
+  public ShardedStorageBackend(Cluster cluster, StorageBackend local) {
+    this(cluster, local, 0, null);
+  }
+
+  /**
+   * @param escrowSeats seats per quota of a flight held elsewhere, or 0 to
+   *                    forward every booking to its flight's node
+   * @param escrowLog   file keeping the quotas, or null to keep them in
+   *                    memory only
+   */
+  public ShardedStorageBackend(Cluster cluster, StorageBackend local, int escrowSeats, Path escrowLog) {
+    if (escrowSeats < 0) {
+      throw new IllegalArgumentException("Escrow seats cannot be negative");
+    }
+    MigrationCapture capture = new MigrationCapture();
+    this.local = local;
+    this.rockets = new ShardedRocketRepository(cluster, local.rockets());
+    this.escrow = new SeatEscrow(cluster, local, rockets, capture, escrowSeats,
+        escrowLog == null ? null : EscrowLog.open(escrowLog));
+    this.flights = new ShardedFlightRepository(cluster, local.flights(), escrow);
+    this.bookings = new ShardedBookingRepository(cluster, local.bookings(), capture, escrow);
+    this.migrator = new FlightMigrator(cluster, local, capture, escrow);
+  }
+
+  public FlightMigrator migrator() {
+    return migrator;
+  }
+
+  public SeatEscrow escrow() {
+    return escrow;
+  }
+
+  @Override
+  public String name() {
+    return local.name();
+  }
+
+  @Override
+  public RocketRepository rockets() {
+    return rockets;
+  }
+
+  @Override
+  public FlightRepository flights() {
+    return flights;
+  }
+
+  @Override
+  public BookingRepository bookings() {
+    return bookings;
+  }
+
+  @Override
+  public long logOffset() {
+    return local.logOffset();
+  }
+
+  @Override
+  public boolean awaitLogOffset(long offset, Duration timeout) {
+    return local.awaitLogOffset(offset, timeout);
+  }
+
+  @Override
+  public ReadView beginRead() {
+    return local.beginRead();
+  }
+
+  @Override
+  public void close() {
+    escrow.close();
+    local.close();
+  }
+}
@@ -1,37 +1,22 @@
 package academy.aicode.astrobookings.persistence;
 
-import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 import academy.aicode.astrobookings.persistence.models.Booking;
 
 /**
- * In-memory repository for {@link Booking} instances.
+ * Storage for {@link Booking} instances. Implementations are provided by a
+ * {@link StorageBackend}.
  */
-public class BookingRepository {
-
-  private static final Map<String, Booking> bookings = new ConcurrentHashMap<>();
+public interface BookingRepository {
 
   /**
-   * Saves the booking in memory, generating an id if needed.
+   * Saves the booking, generating an id and creation time if needed.
    *
    * @param booking the booking to save
    * @return the saved booking
    */
-  public Booking save(Booking booking) {
-    if (booking.getId() == null) {
-      booking.setId(UUID.randomUUID().toString());
-    }
-    if (booking.getCreatedAt() == null) {
-      booking.setCreatedAt(Instant.now());
-    }
-    bookings.put(booking.getId(), booking);
-    return booking;
-  }
+  Booking save(Booking booking);
 
   /**
    * Finds a booking by id.
@@ -39,9 +24,7 @@ public class BookingRepository {
    * @param id the booking id
    * @return the booking or null
    */
-  public Booking findById(String id) {
-    return bookings.get(id);
-  }
+  Booking findById(String id);
 
   /**
    * Returns all bookings for a given flight id.
@@ -49,15 +32,7 @@ public class BookingRepository {
    * @param flightId the flight id
    * @return list of bookings for the flight
    */
-  public List<Booking> findByFlightId(String flightId) {
-    List<Booking> out = new ArrayList<>();
-    for (Booking booking : bookings.values()) {
-      if (flightId.equals(booking.getFlightId())) {
-        out.add(booking);
-      }
-    }
-    return out;
-  }
+  List<Booking> findByFlightId(String flightId);
 
   /**
    * Counts bookings for a given flight id.
@@ -65,13 +40,47 @@ public class BookingRepository {
    * @param flightId the flight id
    * @return the count
    */
-  public int countByFlightId(String flightId) {
-    int count = 0;
-    for (Booking booking : bookings.values()) {
-      if (flightId.equals(booking.getFlightId())) {
-        count++;
-      }
+  int countByFlightId(String flightId);
+
+  /**
+   * Returns a page of the bookings of a passenger, oldest first
+   * ({@link DocumentIndex#ORDER}).
+   *
+   * @param passengerDocument the passenger document
+   * @param offset            how many bookings to skip
+   * @param limit             the most bookings to return
+   * @return the bookings of the passenger in the page
+   */
+  List<Booking> findByPassengerDocument(String passengerDocument, int offset, int limit);
+
+  /**
+   * Takes up to {@code seats} of the {@code capacity} seats of a flight for
+   * bookings about to be saved. The default counts the flight's bookings, so
+   * two callers taking seats of the same flight at once may get the same
+   * ones.
+   *
+   * @param flightId the flight id
+   * @param capacity the seats on the flight
+   * @param seats    the seats wanted
+   * @return the number on the flight, from 1, of each seat taken; fewer than
+   *         {@code seats} when the flight has no more
+   */
+  default int[] takeSeats(String flightId, int capacity, int seats) {
+    int booked = countByFlightId(flightId);
+    int[] numbers = new int[Math.max(0, Math.min(seats, capacity - booked))];
+    for (int i = 0; i < numbers.length; i++) {
+      numbers[i] = booked + 1 + i;
     }
-    return count;
+    return numbers;
+  }
+
+  /**
+   * Gives back a seat taken with {@link #takeSeats} whose booking was not
+   * saved.
+   *
+   * @param flightId the flight id
+   * @param number   the number of the seat
+   */
+  default void returnSeat(String flightId, int number) {
   }
 }
@@ -0,0 +1,140 @@
+package academy.aicode.astrobookings.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Index from passenger documents to the int keys (array slots, record or row
+ * numbers) of their bookings, for {@link BookingRepository#findByPassengerDocument}.
+ * <p>
+ * Documents are not stored: each is reduced to a 64-bit hash ({@link #hash}),
+ * or to a code its backend already assigns, and the keys are kept in an
+ * open-addressing table of primitive arrays. Two documents may share a hash,
+ * so callers check the document of each booking found. Keys stay in the
+ * order they were added, except that removing one moves the last into its
+ * place. Synchronized; reads copy the keys out.
+ */
+public final class DocumentIndex {
+
+  /**
+   * Order of {@link BookingRepository#findByPassengerDocument} results:
+   * oldest first, by creation time and then id.
+   */
+  public static final Comparator<Booking> ORDER = Comparator
+      .comparing(Booking::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparing(Booking::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+  private static final int[] NONE = new int[0];
+
+  private long[] hashes = new long[1024];
+  /** Keys per slot, with their count first; null for a free slot. */
+  private int[][] keys = new int[1024][];
+  private int used;
+
+  /**
+   * Returns the 64-bit FNV-1a hash of a document's characters.
+   */
+  public static long hash(String document) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < document.length(); i++) {
+      hash = (hash ^ document.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  /**
+   * Adds {@code key} under {@code hash}, unless it is there already.
+   */
+  public synchronized void add(long hash, int key) {
+    int slot = slot(hash);
+    int[] list = keys[slot];
+    if (list == null) {
+      list = new int[4];
+      hashes[slot] = hash;
+      used++;
+    } else {
+      for (int i = 1; i <= list[0]; i++) {
+        if (list[i] == key) {
+          return;
+        }
+      }
+      if (list[0] + 1 == list.length) {
+        list = Arrays.copyOf(list, list.length * 2);
+      }
+    }
+    list[++list[0]] = key;
+    keys[slot] = list;
+    if (used * 4 > hashes.length * 3) {
+      grow();
+    }
+  }
+
+  /**
+   * Removes {@code key} from {@code hash}, if it is there. The slot is kept,
+   * empty, for the next booking of that document.
+   */
+  public synchronized void remove(long hash, int key) {
+    int[] list = keys[slot(hash)];
+    if (list == null) {
+      return;
+    }
+    for (int i = 1; i <= list[0]; i++) {
+      if (list[i] == key) {
+        list[i] = list[list[0]--];
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the keys under {@code hash}.
+   */
+  public synchronized int[] keys(long hash) {
+    int[] list = keys[slot(hash)];
+    return list == null ? NONE : Arrays.copyOfRange(list, 1, list[0] + 1);
+  }
+
+  /**
+   * Sorts the bookings of a document in {@link #ORDER} and returns a page of
+   * them.
+   *
+   * @param bookings the bookings of one document, in any order
+   * @param offset   how many to skip
+   * @param limit    the most to return
+   */
+  public static List<Booking> page(List<Booking> bookings, int offset, int limit) {
+    bookings.sort(ORDER);
+    int from = Math.min(offset, bookings.size());
+    return new ArrayList<>(bookings.subList(from, from + Math.min(limit, bookings.size() - from)));
+  }
+
+  /**
+   * Returns the slot holding {@code hash}, or the free slot where it goes.
+   */
+  private int slot(long hash) {
+    int mask = hashes.length - 1;
+    int slot = (int) (hash ^ (hash >>> 32)) & mask;
+    while (keys[slot] != null && hashes[slot] != hash) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void grow() {
+    long[] oldHashes = hashes;
+    int[][] oldKeys = keys;
+    hashes = new long[oldHashes.length * 2];
+    keys = new int[oldKeys.length * 2][];
+    for (int i = 0; i < oldHashes.length; i++) {
+      if (oldKeys[i] != null) {
+        int slot = slot(oldHashes[i]);
+        hashes[slot] = oldHashes[i];
+        keys[slot] = oldKeys[i];
+      }
+    }
+  }
+}
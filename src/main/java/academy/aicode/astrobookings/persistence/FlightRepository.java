@@ -1,33 +1,41 @@
 package academy.aicode.astrobookings.persistence;
 
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
 
 /**
- * In-memory repository for {@link Flight} instances.
+ * Storage for {@link Flight} instances. Implementations are provided by a
+ * {@link StorageBackend}; state changes must go through {@link #updateState}
+ * or {@link #save} so that backends can keep their state index in sync.
  */
-public class FlightRepository {
-
-  private static final Map<String, Flight> flights = new ConcurrentHashMap<>();
+public interface FlightRepository {
 
   /**
-   * Saves the flight in memory, generating an id if needed.
+   * Saves the flight, generating an id if needed.
    *
    * @param flight the flight to save
    * @return the saved flight
    */
-  public Flight save(Flight flight) {
-    if (flight.getId() == null) {
-      flight.setId(UUID.randomUUID().toString());
-    }
-    flights.put(flight.getId(), flight);
-    return flight;
-  }
+  Flight save(Flight flight);
+
+  /**
+   * Saves a batch of flights, generating ids where needed.
+   *
+   * @param batch the flights to save
+   */
+  void saveAll(List<Flight> batch);
+
+  /**
+   * Changes the state of a flight. Flights that are not stored are only
+   * updated, not stored.
+   *
+   * @param flight the flight to update
+   * @param state  the new state
+   */
+  void updateState(Flight flight, FlightState state);
 
   /**
    * Finds a flight by id.
@@ -35,14 +43,38 @@ public class FlightRepository {
    * @param id the flight id
    * @return the flight or null
    */
-  public Flight findById(String id) {
-    return flights.get(id);
-  }
+  Flight findById(String id);
 
   /**
    * Returns all flights currently stored.
    */
-  public List<Flight> findAll() {
-    return new ArrayList<>(flights.values());
-  }
+  List<Flight> findAll();
+
+  /**
+   * Returns the flights currently stored under the given state, in no
+   * particular order.
+   *
+   * @param state the state
+   * @return flights in that state
+   */
+  List<Flight> findByState(FlightState state);
+
+  /**
+   * Returns the flights launching strictly after the given instant, ordered by
+   * launch time.
+   *
+   * @param instant the lower bound (exclusive)
+   * @return flights launching after {@code instant}
+   */
+  List<Flight> findLaunchingAfter(Instant instant);
+
+  /**
+   * Returns the flights launching within {@code [from, to)}, ordered by launch
+   * time.
+   *
+   * @param from the lower bound (inclusive)
+   * @param to   the upper bound (exclusive), or null for no upper bound
+   * @return flights launching in the window
+   */
+  List<Flight> findLaunchingBetween(Instant from, Instant to);
 }
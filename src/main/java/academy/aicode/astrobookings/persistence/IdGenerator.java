@@ -0,0 +1,14 @@
+package academy.aicode.astrobookings.persistence;
+
+/**
+ * Source of ids for new rockets, flights and bookings. Implementations are
+ * registered in {@link IdGenerators} and must be safe to call from any thread.
+ */
+@FunctionalInterface
+public interface IdGenerator {
+
+  /**
+   * Returns a new id in the standard UUID string form.
+   */
+  String nextId();
+}
@@ -0,0 +1,102 @@
+package academy.aicode.astrobookings.persistence;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the available id generators and holder of the one in use.
+ * <p>
+ * The generator is chosen at startup with the `astrobookings.idGenerator`
+ * system property: `uuid7` (default, {@link TimeOrderedIdGenerator}) or
+ * `random` ({@link UUID#randomUUID()}, which draws from a shared
+ * {@code SecureRandom}). Repositories ask {@link #current()} for each new id.
+ */
+public final class IdGenerators {
+
+  /**
+   * System property naming the generator to use.
+   */
+  public static final String PROPERTY = "astrobookings.idGenerator";
+
+  /**
+   * Generator used when the property is not set.
+   */
+  public static final String DEFAULT = TimeOrderedIdGenerator.NAME;
+
+  /**
+   * Name of the generator based on {@link UUID#randomUUID()}.
+   */
+  public static final String RANDOM = "random";
+
+  private static final Map<String, Supplier<IdGenerator>> factories = new LinkedHashMap<>();
+
+  static {
+    factories.put(TimeOrderedIdGenerator.NAME, TimeOrderedIdGenerator::new);
+    factories.put(RANDOM, () -> () -> UUID.randomUUID().toString());
+  }
+
+  private static volatile IdGenerator current;
+
+  private IdGenerators() {
+  }
+
+  /**
+   * Returns the names of all registered generators, in registration order.
+   */
+  public static List<String> names() {
+    return new ArrayList<>(factories.keySet());
+  }
+
+  /**
+   * Creates an instance of the named generator.
+   *
+   * @param name the generator name
+   * @return the new generator
+   * @throws IllegalArgumentException if no generator has that name
+   */
+  public static IdGenerator create(String name) {
+    Supplier<IdGenerator> factory = factories.get(name);
+    if (factory == null) {
+      throw new IllegalArgumentException("Unknown id generator: " + name + " (available: " + names() + ")");
+    }
+    return factory.get();
+  }
+
+  /**
+   * Returns the generator in use, creating the one named by the system
+   * property on first access.
+   */
+  public static IdGenerator current() {
+    IdGenerator generator = current;
+    if (generator == null) {
+      synchronized (IdGenerators.class) {
+        generator = current;
+        if (generator == null) {
+          generator = create(System.getProperty(PROPERTY, DEFAULT));
+          current = generator;
+        }
+      }
+    }
+    return generator;
+  }
+
+  /**
+   * Replaces the generator in use.
+   *
+   * @param generator the generator to use
+   */
+  public static void use(IdGenerator generator) {
+    current = generator;
+  }
+
+  /**
+   * Returns a new id from the generator in use.
+   */
+  public static String nextId() {
+    return current().nextId();
+  }
+}
@@ -0,0 +1,14 @@
+package academy.aicode.astrobookings.persistence;
+
+/**
+ * Reads of one thread pinned to the data committed when the view began, until
+ * it is closed. Obtained from {@link StorageBackend#beginRead()}.
+ */
+public interface ReadView extends AutoCloseable {
+
+  /**
+   * Ends the view; later reads of the thread see the latest data again.
+   */
+  @Override
+  void close();
+}
@@ -1,43 +1,37 @@
 package academy.aicode.astrobookings.persistence;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.List;
 
 import academy.aicode.astrobookings.persistence.models.Rocket;
 
 /**
- * Repositorio sencillo en memoria para almacenar instancias de {@link Rocket}.
- * Genera un id automático cuando el objeto no tiene `id`.
+ * Almacenamiento de instancias de {@link Rocket}. Cada backend de
+ * {@link StorageBackend} aporta su propia implementación.
  */
-public class RocketRepository {
-  private static final Map<String, Rocket> rockets = new HashMap<>();
+public interface RocketRepository {
 
   /**
-   * Guarda el cohete en memoria. Si `rocket.id` es null, se genera uno nuevo.
-   * 
+   * Guarda el cohete. Si `rocket.id` es null, se genera uno nuevo.
+   *
    * @param rocket instancia a guardar
    * @return la instancia guardada (con `id` asignado si fue necesario)
    */
-  public Rocket save(Rocket rocket) {
-    if (rocket.getId() == null) {
-      rocket.setId(UUID.randomUUID().toString());
-    }
-    rockets.put(rocket.getId(), rocket);
-    return rocket;
-  }
+  Rocket save(Rocket rocket);
+
+  /**
+   * Guarda un lote de cohetes, generando `id` para los que no lo tengan.
+   *
+   * @param batch cohetes a guardar
+   */
+  void saveAll(List<Rocket> batch);
 
   /**
    * Devuelve todos los cohetes almacenados.
    */
-  public java.util.List<Rocket> findAll() {
-    return new java.util.ArrayList<>(rockets.values());
-  }
+  List<Rocket> findAll();
 
   /**
-   * Busca un Rocket por su id. Devuelve null si no existe.
+   * Busca un Rocket por su id. Devuelve null si no existe o si el id es null.
    */
-  public Rocket findById(String id) {
-    return rockets.get(id);
-  }
-}
\ No newline at end of file
+  Rocket findById(String id);
+}
@@ -0,0 +1,60 @@
+package academy.aicode.astrobookings.persistence;
+
+import java.time.Duration;
+
+/**
+ * A storage engine providing the three repositories. Each backend instance
+ * holds its own independent data.
+ */
+public interface StorageBackend extends AutoCloseable {
+
+  /**
+   * Returns the name the backend is registered under in
+   * {@link StorageBackends}.
+   */
+  String name();
+
+  RocketRepository rockets();
+
+  FlightRepository flights();
+
+  BookingRepository bookings();
+
+  /**
+   * Returns the offset of the latest change in the backend's replication log,
+   * or -1 for backends without one. A client passes the offset seen after a
+   * write to a replica to read its own writes.
+   */
+  default long logOffset() {
+    return -1;
+  }
+
+  /**
+   * Waits up to {@code timeout} until the change at {@code offset} has been
+   * applied. The default does not wait.
+   *
+   * @return whether {@link #logOffset()} reached {@code offset}
+   */
+  default boolean awaitLogOffset(long offset, Duration timeout) {
+    return logOffset() >= offset;
+  }
+
+  /**
+   * Pins the reads of the current thread to the data committed now, so that
+   * every read until the view is closed sees the same moment while writers go
+   * on. Views do not nest: a view begun while the thread holds one reuses it.
+   * The default pins nothing; reads see the latest data.
+   */
+  default ReadView beginRead() {
+    return () -> {
+    };
+  }
+
+  /**
+   * Releases files and threads held by the backend, making pending writes
+   * durable. The default does nothing.
+   */
+  @Override
+  default void close() {
+  }
+}
@@ -0,0 +1,124 @@
+package academy.aicode.astrobookings.persistence;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import academy.aicode.astrobookings.persistence.columnar.ColumnarStorageBackend;
+import academy.aicode.astrobookings.persistence.jdbc.JdbcStorageBackend;
+import academy.aicode.astrobookings.persistence.journal.JournalStorageBackend;
+import academy.aicode.astrobookings.persistence.journal.RaftStorageBackend;
+import academy.aicode.astrobookings.persistence.mapped.MappedStorageBackend;
+import academy.aicode.astrobookings.persistence.memory.InMemoryStorageBackend;
+import academy.aicode.astrobookings.persistence.mvcc.MvccStorageBackend;
+
+/**
+ * Registry of the available storage backends and holder of the one in use.
+ * <p>
+ * The backend is chosen at startup with the `astrobookings.storage` system
+ * property (default `memory`); durable backends keep their files in a
+ * subdirectory of `astrobookings.dataDir` (default `data`). Services pick
+ * their repositories from {@link #current()} when they are constructed, so a
+ * backend must be selected with {@link #use} before any service is created.
+ */
+public final class StorageBackends {
+
+  /**
+   * System property naming the backend to use.
+   */
+  public static final String PROPERTY = "astrobookings.storage";
+
+  /**
+   * Backend used when the property is not set.
+   */
+  public static final String DEFAULT = InMemoryStorageBackend.NAME;
+
+  /**
+   * System property naming the directory where durable backends keep their
+   * files.
+   */
+  public static final String DATA_DIR_PROPERTY = "astrobookings.dataDir";
+
+  private static final Map<String, Function<Path, StorageBackend>> factories = new LinkedHashMap<>();
+
+  static {
+    factories.put(InMemoryStorageBackend.NAME, dataDir -> new InMemoryStorageBackend());
+    factories.put(JournalStorageBackend.NAME, JournalStorageBackend::open);
+    factories.put(MappedStorageBackend.NAME, MappedStorageBackend::open);
+    factories.put(ColumnarStorageBackend.NAME, dataDir -> new ColumnarStorageBackend());
+    factories.put(JdbcStorageBackend.NAME, JdbcStorageBackend::open);
+    factories.put(RaftStorageBackend.NAME, RaftStorageBackend::open);
+    factories.put(MvccStorageBackend.NAME, dataDir -> new MvccStorageBackend());
+  }
+
+  private static volatile StorageBackend current;
+
+  private StorageBackends() {
+  }
+
+  /**
+   * Returns the names of all registered backends, in registration order.
+   */
+  public static List<String> names() {
+    return new ArrayList<>(factories.keySet());
+  }
+
+  /**
+   * Creates an instance of the named backend using the configured data
+   * directory.
+   *
+   * @param name the backend name
+   * @return the new backend
+   * @throws IllegalArgumentException if no backend has that name
+   */
+  public static StorageBackend create(String name) {
+    return create(name, Path.of(System.getProperty(DATA_DIR_PROPERTY, "data")));
+  }
+
+  /**
+   * Creates an instance of the named backend keeping its files under
+   * {@code dataDir}. Instances on different directories are independent.
+   *
+   * @param name    the backend name
+   * @param dataDir the data directory
+   * @return the new backend
+   * @throws IllegalArgumentException if no backend has that name
+   */
+  public static StorageBackend create(String name, Path dataDir) {
+    Function<Path, StorageBackend> factory = factories.get(name);
+    if (factory == null) {
+      throw new IllegalArgumentException("Unknown storage backend: " + name + " (available: " + names() + ")");
+    }
+    return factory.apply(dataDir);
+  }
+
+  /**
+   * Returns the backend in use, creating the one named by the system property
+   * on first access.
+   */
+  public static StorageBackend current() {
+    StorageBackend backend = current;
+    if (backend == null) {
+      synchronized (StorageBackends.class) {
+        backend = current;
+        if (backend == null) {
+          backend = create(System.getProperty(PROPERTY, DEFAULT));
+          current = backend;
+        }
+      }
+    }
+    return backend;
+  }
+
+  /**
+   * Replaces the backend in use. Services created afterwards use the new one.
+   *
+   * @param backend the backend to use
+   */
+  public static void use(StorageBackend backend) {
+    current = backend;
+  }
+}
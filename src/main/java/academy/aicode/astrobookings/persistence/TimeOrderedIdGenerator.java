@@ -0,0 +1,57 @@
+package academy.aicode.astrobookings.persistence;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * UUID version 7 generator (RFC 9562): a 48-bit Unix millisecond timestamp, a
+ * 12-bit per-thread sequence and 62 random bits. Ids sort by creation time
+ * when compared as strings, so they keep locality in ordered indexes.
+ * <p>
+ * Each thread keeps its own last timestamp and sequence and draws randomness
+ * from {@link ThreadLocalRandom}, so no lock or shared state is touched. The
+ * sequence starts at a random value in its lower half every millisecond; when
+ * it runs out the thread moves on to the next millisecond, which keeps each
+ * thread's ids strictly increasing even if the clock goes backwards. Ids from
+ * different threads in the same millisecond are told apart by the random
+ * bits. The random bits are not suitable as secrets.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+  public static final String NAME = "uuid7";
+
+  private static final int SEQUENCE_BITS = 12;
+  private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+
+  private final ThreadLocal<long[]> state = ThreadLocal.withInitial(() -> new long[] { -1, 0 });
+
+  @Override
+  public String nextId() {
+    return nextUuid().toString();
+  }
+
+  /**
+   * Returns the next id as a {@link UUID}.
+   */
+  public UUID nextUuid() {
+    long[] last = state.get();
+    long millis = System.currentTimeMillis();
+    long sequence;
+    if (millis > last[0]) {
+      sequence = ThreadLocalRandom.current().nextInt(1 << (SEQUENCE_BITS - 1));
+    } else {
+      millis = last[0];
+      sequence = last[1] + 1;
+      if (sequence > MAX_SEQUENCE) {
+        millis++;
+        sequence = ThreadLocalRandom.current().nextInt(1 << (SEQUENCE_BITS - 1));
+      }
+    }
+    last[0] = millis;
+    last[1] = sequence;
+
+    long mostSignificant = (millis & 0xFFFF_FFFF_FFFFL) << 16 | 0x7000L | sequence;
+    long leastSignificant = ThreadLocalRandom.current().nextLong() >>> 2 | 0x8000_0000_0000_0000L;
+    return new UUID(mostSignificant, leastSignificant);
+  }
+}
@@ -0,0 +1,80 @@
+package academy.aicode.astrobookings.persistence.columnar;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed-width primitive column stored off-heap in direct buffers of
+ * {@link #ROWS_PER_CHUNK} rows, allocated as rows are added.
+ * <p>
+ * Not thread-safe; {@link ColumnarBookingRepository} guards it with its lock.
+ */
+final class Column {
+
+  static final int ROWS_PER_CHUNK = 1 << 16;
+
+  private final int width;
+  private final List<ByteBuffer> chunks = new ArrayList<>();
+
+  /**
+   * @param width bytes per value: 1, 4 or 8
+   */
+  Column(int width) {
+    this.width = width;
+  }
+
+  /**
+   * Allocates chunks so that {@code row} can be written.
+   */
+  void ensure(int row) {
+    while (chunks.size() <= row / ROWS_PER_CHUNK) {
+      chunks.add(ByteBuffer.allocateDirect(width * ROWS_PER_CHUNK).order(ByteOrder.nativeOrder()));
+    }
+  }
+
+  /**
+   * Returns the chunk holding {@code row}; values start at
+   * {@code (row % ROWS_PER_CHUNK) * width}.
+   */
+  ByteBuffer chunk(int row) {
+    return chunks.get(row / ROWS_PER_CHUNK);
+  }
+
+  long offHeapBytes() {
+    return (long) chunks.size() * width * ROWS_PER_CHUNK;
+  }
+
+  byte getByte(int row) {
+    return chunk(row).get(row % ROWS_PER_CHUNK);
+  }
+
+  void putByte(int row, byte value) {
+    chunk(row).put(row % ROWS_PER_CHUNK, value);
+  }
+
+  int getInt(int row) {
+    return chunk(row).getInt((row % ROWS_PER_CHUNK) * Integer.BYTES);
+  }
+
+  void putInt(int row, int value) {
+    chunk(row).putInt((row % ROWS_PER_CHUNK) * Integer.BYTES, value);
+  }
+
+  long getLong(int row) {
+    return chunk(row).getLong((row % ROWS_PER_CHUNK) * Long.BYTES);
+  }
+
+  void putLong(int row, long value) {
+    chunk(row).putLong((row % ROWS_PER_CHUNK) * Long.BYTES, value);
+  }
+
+  double getDouble(int row) {
+    return chunk(row).getDouble((row % ROWS_PER_CHUNK) * Double.BYTES);
+  }
+
+  void putDouble(int row, double value) {
+    chunk(row).putDouble((row % ROWS_PER_CHUNK) * Double.BYTES, value);
+  }
+}
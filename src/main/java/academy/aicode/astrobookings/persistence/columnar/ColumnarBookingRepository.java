@@ -0,0 +1,401 @@
+package academy.aicode.astrobookings.persistence.columnar;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.DocumentIndex;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.VersionStamps;
+
+/**
+ * Booking repository holding bookings off-heap in primitive columns, for
+ * volumes that would not fit comfortably as {@link Booking} objects.
+ * <p>
+ * Each booking is a row across direct-buffer {@link Column}s: flight key,
+ * final price, discount, creation time (epoch nanoseconds) and the
+ * {@link Dictionary} codes of its id, passenger name and passenger document.
+ * Flight keys are dense codes of a flight id dictionary, so flights and
+ * repeated names or documents are stored once. The rows of a flight are
+ * chained through a `next` column, oldest first. The live rows of each
+ * passenger are indexed by the code of their document ({@link DocumentIndex}).
+ * <p>
+ * Storage is append-only: saving an existing id appends a new row and marks
+ * the old one deleted, and rows are never reclaimed. {@link Booking} objects
+ * are built on each read, all with the version of their row, from a block
+ * reserved when the repository is created ({@link VersionStamps#reserve});
+ * {@link #scan} and {@link #scanFlight} read the primitive columns without
+ * building them. Contents are lost when the process
+ * stops, like the `memory` backend.
+ */
+public class ColumnarBookingRepository implements BookingRepository {
+
+  /**
+   * Receives the primitive columns of one booking during a scan.
+   */
+  @FunctionalInterface
+  public interface RowVisitor {
+
+    /**
+     * @param flightKey            the flight key, see
+     *                             {@link ColumnarBookingRepository#flightKey}
+     * @param finalPrice           the final price, or NaN if not set
+     * @param discountPercent      the discount percent, or -1 if not set
+     * @param createdAtEpochNanos  the creation time in nanoseconds since the
+     *                             epoch
+     */
+    void visit(int flightKey, double finalPrice, int discountPercent, long createdAtEpochNanos);
+  }
+
+  private static final int NONE = -1;
+  private static final byte DELETED = 1;
+  private static final byte HAS_PRICE = 1 << 1;
+  private static final byte HAS_DISCOUNT = 1 << 2;
+
+  private final Column flags = new Column(1);
+  private final Column flightKeys = new Column(Integer.BYTES);
+  private final Column prices = new Column(Double.BYTES);
+  private final Column discounts = new Column(Integer.BYTES);
+  private final Column createdAts = new Column(Long.BYTES);
+  private final Column idCodes = new Column(Integer.BYTES);
+  private final Column nameCodes = new Column(Integer.BYTES);
+  private final Column documentCodes = new Column(Integer.BYTES);
+  private final Column next = new Column(Integer.BYTES);
+  private final Column rowsById = new Column(Integer.BYTES);
+
+  private final Dictionary ids = new Dictionary();
+  private final Dictionary flights = new Dictionary();
+  private final Dictionary strings = new Dictionary();
+  private final DocumentIndex rowsByDocument = new DocumentIndex();
+  /** Version of row 0; row {@code n} has {@code firstVersion + n}. */
+  private final long firstVersion = VersionStamps.reserve(Integer.MAX_VALUE);
+
+  private int[] heads = new int[64];
+  private int[] tails = new int[64];
+  private int[] counts = new int[64];
+  private int rows;
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Creates an empty repository.
+   */
+  public ColumnarBookingRepository() {
+    Arrays.fill(heads, NONE);
+  }
+
+  /**
+   * Saves the booking, generating an id and creation time if needed. Saving an
+   * existing id replaces the stored booking.
+   *
+   * @param booking the booking to save
+   * @return the saved booking
+   * @throws IllegalArgumentException if the creation time is outside the
+   *                                  years 1678-2261 or a string is too long
+   */
+  @Override
+  public Booking save(Booking booking) {
+    if (booking.getId() == null) {
+      booking.setId(IdGenerators.nextId());
+    }
+    if (booking.getCreatedAt() == null) {
+      booking.setCreatedAt(Instant.now());
+    }
+    long createdAt = epochNanos(booking.getCreatedAt());
+
+    lock.writeLock().lock();
+    try {
+      int row = rows;
+      for (Column column : new Column[] { flags, flightKeys, prices, discounts, createdAts, idCodes, nameCodes,
+          documentCodes, next }) {
+        column.ensure(row);
+      }
+      int nameCode = booking.getPassengerName() == null ? NONE : strings.code(booking.getPassengerName());
+      int documentCode = booking.getPassengerDocument() == null ? NONE
+          : strings.code(booking.getPassengerDocument());
+      int flightKey = booking.getFlightId() == null ? NONE : registerFlight(flights.code(booking.getFlightId()));
+      int knownIds = ids.size();
+      int idCode = ids.code(booking.getId());
+
+      byte rowFlags = 0;
+      if (booking.getFinalPrice() != null) {
+        prices.putDouble(row, booking.getFinalPrice());
+        rowFlags |= HAS_PRICE;
+      }
+      if (booking.getDiscountPercent() != null) {
+        discounts.putInt(row, booking.getDiscountPercent());
+        rowFlags |= HAS_DISCOUNT;
+      }
+      flags.putByte(row, rowFlags);
+      flightKeys.putInt(row, flightKey);
+      createdAts.putLong(row, createdAt);
+      idCodes.putInt(row, idCode);
+      nameCodes.putInt(row, nameCode);
+      documentCodes.putInt(row, documentCode);
+      next.putInt(row, NONE);
+      rows++;
+
+      if (idCode < knownIds) {
+        int previous = rowsById.getInt(idCode);
+        flags.putByte(previous, (byte) (flags.getByte(previous) | DELETED));
+        int previousFlight = flightKeys.getInt(previous);
+        if (previousFlight != NONE) {
+          counts[previousFlight]--;
+        }
+        int previousDocument = documentCodes.getInt(previous);
+        if (previousDocument != NONE) {
+          rowsByDocument.remove(previousDocument, previous);
+        }
+      }
+      if (documentCode != NONE) {
+        rowsByDocument.add(documentCode, row);
+      }
+      rowsById.ensure(idCode);
+      rowsById.putInt(idCode, row);
+      if (flightKey != NONE) {
+        if (heads[flightKey] == NONE) {
+          heads[flightKey] = row;
+        } else {
+          next.putInt(tails[flightKey], row);
+        }
+        tails[flightKey] = row;
+        counts[flightKey]++;
+      }
+      return booking;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds a booking by id.
+   *
+   * @param id the booking id
+   * @return a booking built from the stored row, or null
+   */
+  @Override
+  public Booking findById(String id) {
+    lock.readLock().lock();
+    try {
+      int idCode = ids.find(id);
+      return idCode < 0 ? null : read(rowsById.getInt(idCode));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns all bookings for a given flight id, oldest first.
+   *
+   * @param flightId the flight id
+   * @return list of bookings for the flight
+   */
+  @Override
+  public List<Booking> findByFlightId(String flightId) {
+    lock.readLock().lock();
+    try {
+      int flightKey = flights.find(flightId);
+      if (flightKey < 0) {
+        return new ArrayList<>();
+      }
+      List<Booking> found = new ArrayList<>(counts[flightKey]);
+      for (int row = heads[flightKey]; row != NONE; row = next.getInt(row)) {
+        if ((flags.getByte(row) & DELETED) == 0) {
+          found.add(read(row));
+        }
+      }
+      return found;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Counts bookings for a given flight id.
+   *
+   * @param flightId the flight id
+   * @return the count
+   */
+  @Override
+  public int countByFlightId(String flightId) {
+    lock.readLock().lock();
+    try {
+      int flightKey = flights.find(flightId);
+      return flightKey < 0 ? 0 : counts[flightKey];
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns a page of the bookings of a passenger, oldest first.
+   *
+   * @param passengerDocument the passenger document
+   * @param offset            how many bookings to skip
+   * @param limit             the most bookings to return
+   * @return bookings built from the stored rows in the page
+   */
+  @Override
+  public List<Booking> findByPassengerDocument(String passengerDocument, int offset, int limit) {
+    lock.readLock().lock();
+    try {
+      int documentCode = strings.find(passengerDocument);
+      List<Booking> found = new ArrayList<>();
+      if (documentCode >= 0) {
+        for (int row : rowsByDocument.keys(documentCode)) {
+          found.add(read(row));
+        }
+      }
+      return DocumentIndex.page(found, offset, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the key identifying {@code flightId} in scans, or -1 if it has no
+   * bookings.
+   *
+   * @param flightId the flight id
+   * @return the flight key or -1
+   */
+  public int flightKey(String flightId) {
+    lock.readLock().lock();
+    try {
+      return flights.find(flightId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the flight id for a key passed to a {@link RowVisitor}.
+   *
+   * @param flightKey the flight key
+   * @return the flight id
+   */
+  public String flightId(int flightKey) {
+    lock.readLock().lock();
+    try {
+      return flights.get(flightKey);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Visits every live booking in insertion order, reading the columns chunk by
+   * chunk. Writes wait until the scan ends.
+   *
+   * @param visitor receives each booking's columns
+   */
+  public void scan(RowVisitor visitor) {
+    lock.readLock().lock();
+    try {
+      for (int start = 0; start < rows; start += Column.ROWS_PER_CHUNK) {
+        ByteBuffer flagChunk = flags.chunk(start);
+        ByteBuffer flightChunk = flightKeys.chunk(start);
+        ByteBuffer priceChunk = prices.chunk(start);
+        ByteBuffer discountChunk = discounts.chunk(start);
+        ByteBuffer createdChunk = createdAts.chunk(start);
+        int end = Math.min(rows - start, Column.ROWS_PER_CHUNK);
+        for (int i = 0; i < end; i++) {
+          byte rowFlags = flagChunk.get(i);
+          if ((rowFlags & DELETED) == 0) {
+            visitor.visit(flightChunk.getInt(i * Integer.BYTES),
+                (rowFlags & HAS_PRICE) != 0 ? priceChunk.getDouble(i * Double.BYTES) : Double.NaN,
+                (rowFlags & HAS_DISCOUNT) != 0 ? discountChunk.getInt(i * Integer.BYTES) : -1,
+                createdChunk.getLong(i * Long.BYTES));
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Visits the live bookings of one flight, oldest first.
+   *
+   * @param flightId the flight id
+   * @param visitor  receives each booking's columns
+   */
+  public void scanFlight(String flightId, RowVisitor visitor) {
+    lock.readLock().lock();
+    try {
+      int flightKey = flights.find(flightId);
+      if (flightKey < 0) {
+        return;
+      }
+      for (int row = heads[flightKey]; row != NONE; row = next.getInt(row)) {
+        byte rowFlags = flags.getByte(row);
+        if ((rowFlags & DELETED) == 0) {
+          visitor.visit(flightKey,
+              (rowFlags & HAS_PRICE) != 0 ? prices.getDouble(row) : Double.NaN,
+              (rowFlags & HAS_DISCOUNT) != 0 ? discounts.getInt(row) : -1,
+              createdAts.getLong(row));
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the off-heap memory allocated for columns and dictionaries.
+   */
+  public long offHeapBytes() {
+    lock.readLock().lock();
+    try {
+      long total = ids.offHeapBytes() + flights.offHeapBytes() + strings.offHeapBytes();
+      for (Column column : new Column[] { flags, flightKeys, prices, discounts, createdAts, idCodes, nameCodes,
+          documentCodes, next, rowsById }) {
+        total += column.offHeapBytes();
+      }
+      return total;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private int registerFlight(int code) {
+    if (code >= heads.length) {
+      int length = heads.length * 2;
+      heads = Arrays.copyOf(heads, length);
+      tails = Arrays.copyOf(tails, length);
+      counts = Arrays.copyOf(counts, length);
+      Arrays.fill(heads, length / 2, length, NONE);
+    }
+    return code;
+  }
+
+  private Booking read(int row) {
+    byte rowFlags = flags.getByte(row);
+    int flightKey = flightKeys.getInt(row);
+    int nameCode = nameCodes.getInt(row);
+    int documentCode = documentCodes.getInt(row);
+    long createdAt = createdAts.getLong(row);
+    return new Booking(
+        ids.get(idCodes.getInt(row)),
+        flightKey == NONE ? null : flights.get(flightKey),
+        nameCode == NONE ? null : strings.get(nameCode),
+        documentCode == NONE ? null : strings.get(documentCode),
+        (rowFlags & HAS_PRICE) != 0 ? prices.getDouble(row) : null,
+        (rowFlags & HAS_DISCOUNT) != 0 ? discounts.getInt(row) : null,
+        Instant.ofEpochSecond(Math.floorDiv(createdAt, 1_000_000_000L), Math.floorMod(createdAt, 1_000_000_000L)),
+        firstVersion + row);
+  }
+
+  private static long epochNanos(Instant instant) {
+    try {
+      return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("createdAt is out of range: " + instant);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package academy.aicode.astrobookings.persistence.columnar;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+import academy.aicode.astrobookings.persistence.memory.InMemoryFlightRepository;
+import academy.aicode.astrobookings.persistence.memory.InMemoryRocketRepository;
+
+/**
+ * Backend for large booking volumes kept in memory: bookings live off-heap in
+ * a {@link ColumnarBookingRepository}, rockets and flights in the in-memory
+ * repositories. Everything is lost when the process stops.
+ */
+public class ColumnarStorageBackend implements StorageBackend {
+
+  public static final String NAME = "columnar";
+
+  private final RocketRepository rockets = new InMemoryRocketRepository();
+  private final FlightRepository flights = new InMemoryFlightRepository();
+  private final ColumnarBookingRepository bookings = new ColumnarBookingRepository();
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public RocketRepository rockets() {
+    return rockets;
+  }
+
+  @Override
+  public FlightRepository flights() {
+    return flights;
+  }
+
+  /**
+   * Returns the columnar booking repository, which also offers column scans.
+   */
+  @Override
+  public ColumnarBookingRepository bookings() {
+    return bookings;
+  }
+}
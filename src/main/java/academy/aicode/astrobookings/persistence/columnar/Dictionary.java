@@ -0,0 +1,159 @@
+package academy.aicode.astrobookings.persistence.columnar;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Off-heap string dictionary assigning dense int codes in insertion order.
+ * <p>
+ * Each distinct string is stored once as length-prefixed UTF-8 in direct byte
+ * chunks; a {@link Column} maps codes to offsets, and an open-addressing hash
+ * table in a direct buffer (hash and code + 1 per slot) maps strings back to
+ * codes, comparing the stored bytes without decoding them.
+ * <p>
+ * Not thread-safe; {@link ColumnarBookingRepository} guards it with its lock.
+ */
+final class Dictionary {
+
+  private static final int BYTES_PER_CHUNK = 1 << 20;
+  private static final int SLOT_BYTES = 2 * Integer.BYTES;
+
+  private final List<ByteBuffer> bytes = new ArrayList<>();
+  private final Column offsets = new Column(Long.BYTES);
+  private long nextOffset;
+  private ByteBuffer table = allocateTable(1024);
+  private int slots = 1024;
+  private int size;
+
+  /**
+   * Returns the code of {@code value}, or -1 if it is not in the dictionary.
+   */
+  int find(String value) {
+    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+    int hash = hash(encoded);
+    for (int slot = hash & (slots - 1);; slot = (slot + 1) & (slots - 1)) {
+      int code = table.getInt(slot * SLOT_BYTES + Integer.BYTES) - 1;
+      if (code < 0) {
+        return -1;
+      }
+      if (table.getInt(slot * SLOT_BYTES) == hash && equalsStored(code, encoded)) {
+        return code;
+      }
+    }
+  }
+
+  /**
+   * Returns the code of {@code value}, adding it if needed.
+   *
+   * @throws IllegalArgumentException if the value does not fit in a chunk
+   */
+  int code(String value) {
+    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+    int hash = hash(encoded);
+    int slot = hash & (slots - 1);
+    for (;; slot = (slot + 1) & (slots - 1)) {
+      int code = table.getInt(slot * SLOT_BYTES + Integer.BYTES) - 1;
+      if (code < 0) {
+        break;
+      }
+      if (table.getInt(slot * SLOT_BYTES) == hash && equalsStored(code, encoded)) {
+        return code;
+      }
+    }
+
+    int code = size;
+    offsets.ensure(code);
+    offsets.putLong(code, append(encoded));
+    table.putInt(slot * SLOT_BYTES, hash);
+    table.putInt(slot * SLOT_BYTES + Integer.BYTES, code + 1);
+    size++;
+    if (size * 2 > slots) {
+      grow();
+    }
+    return code;
+  }
+
+  /**
+   * Returns the string for {@code code}.
+   */
+  String get(int code) {
+    long offset = offsets.getLong(code);
+    ByteBuffer chunk = bytes.get((int) (offset / BYTES_PER_CHUNK));
+    int position = (int) (offset % BYTES_PER_CHUNK);
+    byte[] value = new byte[chunk.getInt(position)];
+    chunk.get(position + Integer.BYTES, value);
+    return new String(value, StandardCharsets.UTF_8);
+  }
+
+  int size() {
+    return size;
+  }
+
+  long offHeapBytes() {
+    return (long) bytes.size() * BYTES_PER_CHUNK + offsets.offHeapBytes() + (long) slots * SLOT_BYTES;
+  }
+
+  private long append(byte[] encoded) {
+    int length = Integer.BYTES + encoded.length;
+    if (length > BYTES_PER_CHUNK) {
+      throw new IllegalArgumentException("String of " + encoded.length + " bytes is too long to store");
+    }
+    long offset = nextOffset;
+    if (offset % BYTES_PER_CHUNK + length > BYTES_PER_CHUNK) {
+      offset = (offset / BYTES_PER_CHUNK + 1) * BYTES_PER_CHUNK;
+    }
+    while (bytes.size() <= offset / BYTES_PER_CHUNK) {
+      bytes.add(ByteBuffer.allocateDirect(BYTES_PER_CHUNK).order(ByteOrder.nativeOrder()));
+    }
+    ByteBuffer chunk = bytes.get((int) (offset / BYTES_PER_CHUNK));
+    int position = (int) (offset % BYTES_PER_CHUNK);
+    chunk.putInt(position, encoded.length);
+    chunk.put(position + Integer.BYTES, encoded);
+    nextOffset = offset + length;
+    return offset;
+  }
+
+  private boolean equalsStored(int code, byte[] encoded) {
+    long offset = offsets.getLong(code);
+    ByteBuffer chunk = bytes.get((int) (offset / BYTES_PER_CHUNK));
+    int position = (int) (offset % BYTES_PER_CHUNK);
+    if (chunk.getInt(position) != encoded.length) {
+      return false;
+    }
+    return chunk.slice(position + Integer.BYTES, encoded.length).equals(ByteBuffer.wrap(encoded));
+  }
+
+  private void grow() {
+    ByteBuffer old = table;
+    int oldSlots = slots;
+    slots = oldSlots * 2;
+    table = allocateTable(slots);
+    for (int i = 0; i < oldSlots; i++) {
+      int code = old.getInt(i * SLOT_BYTES + Integer.BYTES);
+      if (code != 0) {
+        int hash = old.getInt(i * SLOT_BYTES);
+        int slot = hash & (slots - 1);
+        while (table.getInt(slot * SLOT_BYTES + Integer.BYTES) != 0) {
+          slot = (slot + 1) & (slots - 1);
+        }
+        table.putInt(slot * SLOT_BYTES, hash);
+        table.putInt(slot * SLOT_BYTES + Integer.BYTES, code);
+      }
+    }
+  }
+
+  private static ByteBuffer allocateTable(int slots) {
+    return ByteBuffer.allocateDirect(slots * SLOT_BYTES).order(ByteOrder.nativeOrder());
+  }
+
+  private static int hash(byte[] encoded) {
+    int hash = 1;
+    for (byte b : encoded) {
+      hash = 31 * hash + b;
+    }
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,64 @@
+package academy.aicode.astrobookings.persistence.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Null-aware conversions between entity fields and SQL columns. Instants are
+ * stored as `TIMESTAMP(9) WITH TIME ZONE` in UTC.
+ */
+final class Columns {
+
+  private Columns() {
+  }
+
+  static void setInteger(PreparedStatement statement, int index, Integer value) throws SQLException {
+    if (value == null) {
+      statement.setNull(index, Types.INTEGER);
+    } else {
+      statement.setInt(index, value);
+    }
+  }
+
+  static void setDouble(PreparedStatement statement, int index, Double value) throws SQLException {
+    if (value == null) {
+      statement.setNull(index, Types.DOUBLE);
+    } else {
+      statement.setDouble(index, value);
+    }
+  }
+
+  static void setInstant(PreparedStatement statement, int index, Instant value) throws SQLException {
+    statement.setObject(index, value == null ? null : value.atOffset(ZoneOffset.UTC),
+        Types.TIMESTAMP_WITH_TIMEZONE);
+  }
+
+  static void setEnum(PreparedStatement statement, int index, Enum<?> value) throws SQLException {
+    statement.setString(index, value == null ? null : value.name());
+  }
+
+  static Integer getInteger(ResultSet rows, String column) throws SQLException {
+    int value = rows.getInt(column);
+    return rows.wasNull() ? null : value;
+  }
+
+  static Double getDouble(ResultSet rows, String column) throws SQLException {
+    double value = rows.getDouble(column);
+    return rows.wasNull() ? null : value;
+  }
+
+  static Instant getInstant(ResultSet rows, String column) throws SQLException {
+    OffsetDateTime value = rows.getObject(column, OffsetDateTime.class);
+    return value == null ? null : value.toInstant();
+  }
+
+  static <E extends Enum<E>> E getEnum(ResultSet rows, String column, Class<E> type) throws SQLException {
+    String value = rows.getString(column);
+    return value == null ? null : Enum.valueOf(type, value);
+  }
+}
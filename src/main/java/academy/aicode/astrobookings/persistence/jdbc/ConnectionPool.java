@@ -0,0 +1,164 @@
+package academy.aicode.astrobookings.persistence.jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Fixed-size pool of JDBC connections, each with its own cache of prepared
+ * statements keyed by SQL text, so a statement is parsed once per connection.
+ * Connections are opened lazily up to the pool size; callers wait when all are
+ * in use.
+ */
+final class ConnectionPool implements AutoCloseable {
+
+  /**
+   * Work done with a borrowed connection.
+   */
+  @FunctionalInterface
+  interface Work<T> {
+    T run(PooledConnection connection) throws SQLException;
+  }
+
+  /**
+   * A pooled connection and its statement cache.
+   */
+  static final class PooledConnection {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    private PooledConnection(Connection connection) {
+      this.connection = connection;
+    }
+
+    /**
+     * Returns the cached prepared statement for {@code sql}, preparing it on
+     * first use. Parameters left from a previous use are cleared.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+      PreparedStatement statement = statements.get(sql);
+      if (statement == null) {
+        statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+      } else {
+        statement.clearParameters();
+      }
+      return statement;
+    }
+
+    Connection connection() {
+      return connection;
+    }
+  }
+
+  private final String url;
+  private final BlockingQueue<PooledConnection> idle;
+  private final List<PooledConnection> all = new ArrayList<>();
+  private final int size;
+  private boolean closed;
+
+  ConnectionPool(String url, int size) {
+    this.url = url;
+    this.size = size;
+    this.idle = new ArrayBlockingQueue<>(size);
+  }
+
+  /**
+   * Runs {@code work} with a connection in auto-commit mode.
+   *
+   * @throws DataAccessException if the work fails
+   */
+  <T> T call(String description, Work<T> work) {
+    PooledConnection connection = borrow();
+    try {
+      return work.run(connection);
+    } catch (SQLException e) {
+      throw new DataAccessException(description, e);
+    } finally {
+      idle.add(connection);
+    }
+  }
+
+  /**
+   * Runs {@code work} in a transaction, committed if it returns normally and
+   * rolled back otherwise.
+   *
+   * @throws DataAccessException if the work or the commit fails
+   */
+  <T> T transaction(String description, Work<T> work) {
+    return call(description, connection -> {
+      Connection jdbc = connection.connection();
+      jdbc.setAutoCommit(false);
+      try {
+        T result = work.run(connection);
+        jdbc.commit();
+        return result;
+      } catch (SQLException | RuntimeException e) {
+        jdbc.rollback();
+        throw e;
+      } finally {
+        jdbc.setAutoCommit(true);
+      }
+    });
+  }
+
+  private PooledConnection borrow() {
+    PooledConnection connection = idle.poll();
+    if (connection != null) {
+      return connection;
+    }
+    synchronized (this) {
+      if (closed) {
+        throw new IllegalStateException("Connection pool is closed");
+      }
+      if (all.size() < size) {
+        try {
+          connection = new PooledConnection(DriverManager.getConnection(url));
+        } catch (SQLException e) {
+          throw new DataAccessException("Cannot connect to " + url, e);
+        }
+        all.add(connection);
+        return connection;
+      }
+    }
+    try {
+      return idle.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a connection", e);
+    }
+  }
+
+  /**
+   * Closes every connection, waiting for borrowed ones to be returned.
+   */
+  @Override
+  public void close() {
+    List<PooledConnection> toClose;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      toClose = new ArrayList<>(all);
+    }
+    for (int i = 0; i < toClose.size(); i++) {
+      try {
+        PooledConnection connection = idle.take();
+        connection.connection().close();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (SQLException e) {
+        // Closing anyway; the database flushes on its own close.
+      }
+    }
+  }
+}
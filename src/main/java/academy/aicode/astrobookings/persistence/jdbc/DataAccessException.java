@@ -0,0 +1,17 @@
+package academy.aicode.astrobookings.persistence.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Unchecked wrapper for a {@link SQLException} raised by a JDBC repository.
+ */
+public class DataAccessException extends RuntimeException {
+
+  /**
+   * @param message what was being done
+   * @param cause   the database error
+   */
+  public DataAccessException(String message, SQLException cause) {
+    super(message + ": " + cause.getMessage(), cause);
+  }
+}
@@ -0,0 +1,154 @@
+package academy.aicode.astrobookings.persistence.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * JDBC repository for {@link Booking} instances in the `bookings` table.
+ * Per-flight listings and counts are served by the index on `flight_id`, and
+ * per-passenger pages by the one on `passenger_document`.
+ * Every read builds new instances, with the version of their row
+ * ({@link RowVersions}).
+ */
+class JdbcBookingRepository implements BookingRepository {
+
+  private static final String MERGE = "MERGE INTO bookings (id, flight_id, passenger_name, passenger_document, "
+      + "final_price, discount_percent, created_at) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+  private static final String SELECT = "SELECT id, flight_id, passenger_name, passenger_document, final_price, "
+      + "discount_percent, created_at FROM bookings";
+  private static final String BY_DOCUMENT = SELECT
+      + " WHERE passenger_document = ? ORDER BY created_at, id LIMIT ? OFFSET ?";
+  private static final String COUNT_BY_FLIGHT = "SELECT COUNT(*) FROM bookings WHERE flight_id = ?";
+
+  private final ConnectionPool pool;
+
+  JdbcBookingRepository(ConnectionPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Saves (inserts or replaces) the booking, generating an id and creation
+   * time if needed.
+   *
+   * @param booking the booking to save
+   * @return the saved booking
+   */
+  @Override
+  public Booking save(Booking booking) {
+    if (booking.getId() == null) {
+      booking.setId(IdGenerators.nextId());
+    }
+    if (booking.getCreatedAt() == null) {
+      booking.setCreatedAt(Instant.now());
+    }
+    return pool.call("Cannot save booking " + booking.getId(), connection -> {
+      PreparedStatement statement = connection.prepare(MERGE);
+      statement.setString(1, booking.getId());
+      statement.setString(2, booking.getFlightId());
+      statement.setString(3, booking.getPassengerName());
+      statement.setString(4, booking.getPassengerDocument());
+      Columns.setDouble(statement, 5, booking.getFinalPrice());
+      Columns.setInteger(statement, 6, booking.getDiscountPercent());
+      Columns.setInstant(statement, 7, booking.getCreatedAt());
+      statement.executeUpdate();
+      return booking;
+    });
+  }
+
+  /**
+   * Finds a booking by id.
+   *
+   * @param id the booking id
+   * @return the booking or null
+   */
+  @Override
+  public Booking findById(String id) {
+    return pool.call("Cannot find booking " + id, connection -> {
+      PreparedStatement statement = connection.prepare(SELECT + " WHERE id = ?");
+      statement.setString(1, id);
+      List<Booking> found = read(statement);
+      return found.isEmpty() ? null : found.get(0);
+    });
+  }
+
+  /**
+   * Returns all bookings for a given flight id.
+   *
+   * @param flightId the flight id
+   * @return list of bookings for the flight
+   */
+  @Override
+  public List<Booking> findByFlightId(String flightId) {
+    return pool.call("Cannot list bookings of flight " + flightId, connection -> {
+      PreparedStatement statement = connection.prepare(SELECT + " WHERE flight_id = ?");
+      statement.setString(1, flightId);
+      return read(statement);
+    });
+  }
+
+  /**
+   * Counts bookings for a given flight id.
+   *
+   * @param flightId the flight id
+   * @return the count
+   */
+  @Override
+  public int countByFlightId(String flightId) {
+    return pool.call("Cannot count bookings of flight " + flightId, connection -> {
+      PreparedStatement statement = connection.prepare(COUNT_BY_FLIGHT);
+      statement.setString(1, flightId);
+      try (ResultSet rows = statement.executeQuery()) {
+        rows.next();
+        return rows.getInt(1);
+      }
+    });
+  }
+
+  /**
+   * Returns a page of the bookings of a passenger, oldest first.
+   *
+   * @param passengerDocument the passenger document
+   * @param offset            how many bookings to skip
+   * @param limit             the most bookings to return
+   * @return the bookings of the passenger in the page
+   */
+  @Override
+  public List<Booking> findByPassengerDocument(String passengerDocument, int offset, int limit) {
+    return pool.call("Cannot list bookings of passenger " + passengerDocument, connection -> {
+      PreparedStatement statement = connection.prepare(BY_DOCUMENT);
+      statement.setString(1, passengerDocument);
+      statement.setInt(2, limit);
+      statement.setInt(3, offset);
+      return read(statement);
+    });
+  }
+
+  private static List<Booking> read(PreparedStatement statement) throws SQLException {
+    List<Booking> bookings = new ArrayList<>();
+    try (ResultSet rows = statement.executeQuery()) {
+      while (rows.next()) {
+        String id = rows.getString("id");
+        String flightId = rows.getString("flight_id");
+        String passengerName = rows.getString("passenger_name");
+        String passengerDocument = rows.getString("passenger_document");
+        Double finalPrice = Columns.getDouble(rows, "final_price");
+        Integer discountPercent = Columns.getInteger(rows, "discount_percent");
+        Instant createdAt = Columns.getInstant(rows, "created_at");
+        long hash = RowVersions.mix(RowVersions.mix(RowVersions.START, id), flightId);
+        hash = RowVersions.mix(RowVersions.mix(hash, passengerName), passengerDocument);
+        hash = RowVersions.mix(RowVersions.mix(RowVersions.mix(hash, finalPrice), discountPercent), createdAt);
+        bookings.add(new Booking(id, flightId, passengerName, passengerDocument, finalPrice, discountPercent,
+            createdAt, RowVersions.of(hash)));
+      }
+    }
+    return bookings;
+  }
+}
@@ -0,0 +1,204 @@
+package academy.aicode.astrobookings.persistence.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+/**
+ * JDBC repository for {@link Flight} instances in the `flights` table.
+ * Launch-window queries use the index on `(launch_date_time, id)` and
+ * state-filtered listings the index on `state`. Every read builds new
+ * instances, with the version of their row ({@link RowVersions}).
+ */
+class JdbcFlightRepository implements FlightRepository {
+
+  private static final String MERGE = "MERGE INTO flights (id, rocket_id, launch_date_time, base_price, "
+      + "minimum_passengers, state) KEY (id) VALUES (?, ?, ?, ?, ?, ?)";
+  private static final String SELECT = "SELECT id, rocket_id, launch_date_time, base_price, minimum_passengers, "
+      + "state FROM flights";
+  private static final String UPDATE_STATE = "UPDATE flights SET state = ? WHERE id = ?";
+  private static final String BY_LAUNCH = " ORDER BY launch_date_time, id";
+
+  private final ConnectionPool pool;
+
+  JdbcFlightRepository(ConnectionPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Saves (inserts or replaces) the flight, generating an id if needed.
+   *
+   * @param flight the flight to save
+   * @return the saved flight
+   */
+  @Override
+  public Flight save(Flight flight) {
+    saveAll(List.of(flight));
+    return flight;
+  }
+
+  /**
+   * Saves a batch of flights as one JDBC batch in a single transaction,
+   * generating ids where needed.
+   *
+   * @param batch the flights to save
+   */
+  @Override
+  public void saveAll(List<Flight> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    for (Flight flight : batch) {
+      if (flight.getId() == null) {
+        flight.setId(IdGenerators.nextId());
+      }
+    }
+    pool.transaction("Cannot save flights", connection -> {
+      PreparedStatement statement = connection.prepare(MERGE);
+      for (Flight flight : batch) {
+        statement.setString(1, flight.getId());
+        statement.setString(2, flight.getRocketId());
+        Columns.setInstant(statement, 3, flight.getLaunchDateTime());
+        Columns.setDouble(statement, 4, flight.getBasePrice());
+        Columns.setInteger(statement, 5, flight.getMinimumPassengers());
+        Columns.setEnum(statement, 6, flight.getState());
+        statement.addBatch();
+      }
+      return statement.executeBatch();
+    });
+  }
+
+  /**
+   * Stores the new state of a flight and sets it on {@code flight}. Both steps
+   * happen under the flight's monitor, so concurrent transitions of the same
+   * instance leave the row matching the instance. Flights that are not stored
+   * are only updated.
+   *
+   * @param flight the flight to update
+   * @param state  the new state
+   */
+  @Override
+  public void updateState(Flight flight, FlightState state) {
+    synchronized (flight) {
+      if (flight.getId() != null) {
+        pool.call("Cannot update state of flight " + flight.getId(), connection -> {
+          PreparedStatement statement = connection.prepare(UPDATE_STATE);
+          Columns.setEnum(statement, 1, state);
+          statement.setString(2, flight.getId());
+          return statement.executeUpdate();
+        });
+      }
+      flight.setState(state);
+    }
+  }
+
+  /**
+   * Finds a flight by id.
+   *
+   * @param id the flight id
+   * @return the flight or null
+   */
+  @Override
+  public Flight findById(String id) {
+    return pool.call("Cannot find flight " + id, connection -> {
+      PreparedStatement statement = connection.prepare(SELECT + " WHERE id = ?");
+      statement.setString(1, id);
+      List<Flight> found = read(statement);
+      return found.isEmpty() ? null : found.get(0);
+    });
+  }
+
+  /**
+   * Returns all flights currently stored.
+   */
+  @Override
+  public List<Flight> findAll() {
+    return pool.call("Cannot list flights", connection -> read(connection.prepare(SELECT)));
+  }
+
+  /**
+   * Returns the flights in the given state, in no particular order.
+   *
+   * @param state the state
+   * @return flights in that state
+   */
+  @Override
+  public List<Flight> findByState(FlightState state) {
+    return pool.call("Cannot list flights in state " + state, connection -> {
+      PreparedStatement statement = connection.prepare(SELECT + " WHERE state = ?");
+      Columns.setEnum(statement, 1, state);
+      return read(statement);
+    });
+  }
+
+  /**
+   * Returns the flights launching strictly after the given instant, ordered by
+   * launch time.
+   *
+   * @param instant the lower bound (exclusive)
+   * @return flights launching after {@code instant}
+   */
+  @Override
+  public List<Flight> findLaunchingAfter(Instant instant) {
+    return pool.call("Cannot list flights launching after " + instant, connection -> {
+      PreparedStatement statement = connection.prepare(SELECT + " WHERE launch_date_time > ?" + BY_LAUNCH);
+      Columns.setInstant(statement, 1, instant);
+      return read(statement);
+    });
+  }
+
+  /**
+   * Returns the flights launching within {@code [from, to)}, ordered by launch
+   * time.
+   *
+   * @param from the lower bound (inclusive)
+   * @param to   the upper bound (exclusive), or null for no upper bound
+   * @return flights launching in the window
+   */
+  @Override
+  public List<Flight> findLaunchingBetween(Instant from, Instant to) {
+    if (to != null && !from.isBefore(to)) {
+      return new ArrayList<>();
+    }
+    return pool.call("Cannot list flights launching from " + from, connection -> {
+      PreparedStatement statement;
+      if (to == null) {
+        statement = connection.prepare(SELECT + " WHERE launch_date_time >= ?" + BY_LAUNCH);
+      } else {
+        statement = connection.prepare(
+            SELECT + " WHERE launch_date_time >= ? AND launch_date_time < ?" + BY_LAUNCH);
+        Columns.setInstant(statement, 2, to);
+      }
+      Columns.setInstant(statement, 1, from);
+      return read(statement);
+    });
+  }
+
+  private static List<Flight> read(PreparedStatement statement) throws SQLException {
+    List<Flight> flights = new ArrayList<>();
+    try (ResultSet rows = statement.executeQuery()) {
+      while (rows.next()) {
+        String id = rows.getString("id");
+        String rocketId = rows.getString("rocket_id");
+        Instant launchDateTime = Columns.getInstant(rows, "launch_date_time");
+        Double basePrice = Columns.getDouble(rows, "base_price");
+        Integer minimumPassengers = Columns.getInteger(rows, "minimum_passengers");
+        FlightState state = Columns.getEnum(rows, "state", FlightState.class);
+        long hash = RowVersions.mix(RowVersions.mix(RowVersions.START, id), rocketId);
+        hash = RowVersions.mix(RowVersions.mix(hash, launchDateTime), basePrice);
+        hash = RowVersions.mix(RowVersions.mix(hash, minimumPassengers), state);
+        flights.add(new Flight(id, rocketId, launchDateTime, basePrice, minimumPassengers, state,
+            RowVersions.of(hash)));
+      }
+    }
+    return flights;
+  }
+}
@@ -0,0 +1,108 @@
+package academy.aicode.astrobookings.persistence.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.models.Range;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Repositorio JDBC de {@link Rocket}: cada lectura devuelve una instancia nueva
+ * construida desde la tabla `rockets`, con la versión de su fila
+ * ({@link RowVersions}).
+ */
+class JdbcRocketRepository implements RocketRepository {
+
+  private static final String MERGE = "MERGE INTO rockets (id, name, capacity, rocket_range, speed) KEY (id) "
+      + "VALUES (?, ?, ?, ?, ?)";
+  private static final String SELECT = "SELECT id, name, capacity, rocket_range, speed FROM rockets";
+
+  private final ConnectionPool pool;
+
+  JdbcRocketRepository(ConnectionPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Guarda (inserta o reemplaza) el cohete, generando `id` si no lo tiene.
+   */
+  @Override
+  public Rocket save(Rocket rocket) {
+    saveAll(List.of(rocket));
+    return rocket;
+  }
+
+  /**
+   * Guarda un lote de cohetes con una única sentencia por lotes dentro de una
+   * transacción.
+   */
+  @Override
+  public void saveAll(List<Rocket> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    for (Rocket rocket : batch) {
+      if (rocket.getId() == null) {
+        rocket.setId(IdGenerators.nextId());
+      }
+    }
+    pool.transaction("Cannot save rockets", connection -> {
+      PreparedStatement statement = connection.prepare(MERGE);
+      for (Rocket rocket : batch) {
+        statement.setString(1, rocket.getId());
+        statement.setString(2, rocket.getName());
+        Columns.setInteger(statement, 3, rocket.getCapacity());
+        Columns.setEnum(statement, 4, rocket.getRange());
+        Columns.setDouble(statement, 5, rocket.getSpeed());
+        statement.addBatch();
+      }
+      return statement.executeBatch();
+    });
+  }
+
+  /**
+   * Devuelve todos los cohetes almacenados.
+   */
+  @Override
+  public List<Rocket> findAll() {
+    return pool.call("Cannot list rockets", connection -> read(connection.prepare(SELECT)));
+  }
+
+  /**
+   * Busca un cohete por su id. Devuelve null si no existe.
+   */
+  @Override
+  public Rocket findById(String id) {
+    if (id == null) {
+      return null;
+    }
+    return pool.call("Cannot find rocket " + id, connection -> {
+      PreparedStatement statement = connection.prepare(SELECT + " WHERE id = ?");
+      statement.setString(1, id);
+      List<Rocket> found = read(statement);
+      return found.isEmpty() ? null : found.get(0);
+    });
+  }
+
+  private static List<Rocket> read(PreparedStatement statement) throws SQLException {
+    List<Rocket> rockets = new ArrayList<>();
+    try (ResultSet rows = statement.executeQuery()) {
+      while (rows.next()) {
+        String id = rows.getString("id");
+        String name = rows.getString("name");
+        Integer capacity = Columns.getInteger(rows, "capacity");
+        Range range = Columns.getEnum(rows, "rocket_range", Range.class);
+        Double speed = Columns.getDouble(rows, "speed");
+        long hash = RowVersions.mix(RowVersions.mix(RowVersions.mix(RowVersions.START, id), name), capacity);
+        hash = RowVersions.mix(RowVersions.mix(hash, range), speed);
+        rockets.add(new Rocket(id, name, capacity, range, speed, RowVersions.of(hash)));
+      }
+    }
+    return rockets;
+  }
+}
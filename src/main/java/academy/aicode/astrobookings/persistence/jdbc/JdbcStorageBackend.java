@@ -0,0 +1,116 @@
+package academy.aicode.astrobookings.persistence.jdbc;
+
+import java.nio.file.Path;
+import java.sql.Statement;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+
+/**
+ * Backend storing everything in a relational database through JDBC. By default
+ * it is an embedded H2 database under `&lt;dataDir&gt;/jdbc`; the
+ * `astrobookings.jdbc.url` system property points it at any other database
+ * accepting the same SQL. Connections come from a small pool
+ * (`astrobookings.jdbc.poolSize`, default 8) that caches prepared statements
+ * per connection.
+ */
+public class JdbcStorageBackend implements StorageBackend {
+
+  public static final String NAME = "jdbc";
+
+  private static final String[] SCHEMA = {
+      "CREATE TABLE IF NOT EXISTS rockets (id VARCHAR(64) PRIMARY KEY, name VARCHAR(255), capacity INT, "
+          + "rocket_range VARCHAR(16), speed DOUBLE PRECISION)",
+      "CREATE TABLE IF NOT EXISTS flights (id VARCHAR(64) PRIMARY KEY, rocket_id VARCHAR(64), "
+          + "launch_date_time TIMESTAMP(9) WITH TIME ZONE, base_price DOUBLE PRECISION, minimum_passengers INT, "
+          + "state VARCHAR(16))",
+      "CREATE TABLE IF NOT EXISTS bookings (id VARCHAR(64) PRIMARY KEY, flight_id VARCHAR(64), "
+          + "passenger_name VARCHAR(255), passenger_document VARCHAR(255), final_price DOUBLE PRECISION, "
+          + "discount_percent INT, created_at TIMESTAMP(9) WITH TIME ZONE)",
+      "CREATE INDEX IF NOT EXISTS flights_launch ON flights (launch_date_time, id)",
+      "CREATE INDEX IF NOT EXISTS flights_state ON flights (state)",
+      "CREATE INDEX IF NOT EXISTS bookings_flight ON bookings (flight_id)",
+      "CREATE INDEX IF NOT EXISTS bookings_document ON bookings (passenger_document, created_at, id)" };
+
+  private final ConnectionPool pool;
+  private final RocketRepository rockets;
+  private final FlightRepository flights;
+  private final BookingRepository bookings;
+
+  private JdbcStorageBackend(ConnectionPool pool) {
+    this.pool = pool;
+    this.rockets = new JdbcRocketRepository(pool);
+    this.flights = new JdbcFlightRepository(pool);
+    this.bookings = new JdbcBookingRepository(pool);
+  }
+
+  /**
+   * Opens the backend, creating the schema if it does not exist yet.
+   *
+   * @param url      the JDBC url
+   * @param poolSize the maximum number of open connections
+   * @return the backend
+   * @throws DataAccessException if the database cannot be opened
+   */
+  public static JdbcStorageBackend open(String url, int poolSize) {
+    ConnectionPool pool = new ConnectionPool(url, poolSize);
+    try {
+      pool.call("Cannot create schema in " + url, connection -> {
+        try (Statement statement = connection.connection().createStatement()) {
+          for (String ddl : SCHEMA) {
+            statement.execute(ddl);
+          }
+        }
+        return null;
+      });
+    } catch (RuntimeException e) {
+      pool.close();
+      throw e;
+    }
+    return new JdbcStorageBackend(pool);
+  }
+
+  /**
+   * Opens the backend configured from system properties, by default an
+   * embedded database under {@code dataDir}/jdbc.
+   *
+   * @param dataDir the data directory
+   * @return the backend
+   * @throws DataAccessException if the database cannot be opened
+   */
+  public static JdbcStorageBackend open(Path dataDir) {
+    String url = System.getProperty("astrobookings.jdbc.url",
+        "jdbc:h2:file:" + dataDir.resolve(NAME).resolve("astrobookings").toAbsolutePath());
+    return open(url, Integer.getInteger("astrobookings.jdbc.poolSize", 8));
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public RocketRepository rockets() {
+    return rockets;
+  }
+
+  @Override
+  public FlightRepository flights() {
+    return flights;
+  }
+
+  @Override
+  public BookingRepository bookings() {
+    return bookings;
+  }
+
+  /**
+   * Closes every pooled connection, waiting for those in use.
+   */
+  @Override
+  public void close() {
+    pool.close();
+  }
+}
@@ -0,0 +1,70 @@
+package academy.aicode.astrobookings.persistence.jdbc;
+
+import java.time.Instant;
+
+/**
+ * Versions of entities read over JDBC, derived from the columns of their row
+ * with a 64-bit FNV-1a hash, so reads of an unchanged row share one. MERGE
+ * can replace a row in place, so there is no stable row number to use; a
+ * content hash follows the replacement without a schema change. Versions are
+ * negative, apart from the stamps
+ * {@link academy.aicode.astrobookings.persistence.models.VersionStamps} hands
+ * out.
+ * <p>
+ * Start from {@link #START}, add every column with {@code mix} and pass the
+ * result to {@link #of}.
+ */
+final class RowVersions {
+
+  static final long START = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private RowVersions() {
+  }
+
+  /**
+   * Adds a string column; null differs from every string.
+   */
+  static long mix(long hash, String value) {
+    if (value == null) {
+      return mix(hash, -1L);
+    }
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+    }
+    return mix(hash, value.length());
+  }
+
+  static long mix(long hash, Integer value) {
+    return mix(hash, value == null ? 0 : value.longValue() + 1);
+  }
+
+  static long mix(long hash, Double value) {
+    return mix(hash, value == null ? 0 : Double.doubleToLongBits(value) + 1);
+  }
+
+  static long mix(long hash, Instant value) {
+    return mix(mix(hash, value == null ? 0 : value.getEpochSecond() + 1), value == null ? 0 : value.getNano());
+  }
+
+  static long mix(long hash, Enum<?> value) {
+    return mix(hash, value == null ? null : value.name());
+  }
+
+  /**
+   * Adds a numeric column.
+   */
+  static long mix(long hash, long value) {
+    for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+      hash = (hash ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the version of a row from the hash of its columns.
+   */
+  static long of(long hash) {
+    return hash | Long.MIN_VALUE;
+  }
+}
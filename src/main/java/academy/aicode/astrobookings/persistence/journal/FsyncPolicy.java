@@ -0,0 +1,43 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.util.Locale;
+
+/**
+ * When journal writes are forced to disk, and whether a write waits for it.
+ */
+public enum FsyncPolicy {
+
+  /**
+   * Every write waits until it has been forced to disk. Writers that arrive
+   * while a force is in progress share the next one.
+   */
+  ALWAYS,
+
+  /**
+   * Group commit: a background thread forces the journal once per time window,
+   * or earlier when the pending bytes reach the size window; writers wait for
+   * the force that covers their record.
+   */
+  GROUP,
+
+  /**
+   * Writes return as soon as they reach the OS; a background thread forces the
+   * journal once per time window. A crash can lose the last window of writes.
+   */
+  ASYNC;
+
+  /**
+   * Parses a policy name, case-insensitively.
+   *
+   * @param value the policy name
+   * @return the policy
+   * @throws IllegalArgumentException if the name is unknown
+   */
+  public static FsyncPolicy parse(String value) {
+    try {
+      return valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException | NullPointerException e) {
+      throw new IllegalArgumentException("Unknown fsync policy: " + value + " (expected always, group or async)");
+    }
+  }
+}
@@ -0,0 +1,533 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal split into numbered segment files
+ * (`segment-&lt;seq&gt;.log`) in one directory.
+ * <p>
+ * Each record is framed as {@code [int length][int crc32][byte type][payload]};
+ * the CRC covers the type and the payload. On open, the segments from a given
+ * sequence onwards are replayed in order. A torn or corrupt record at the end
+ * of the last segment is dropped and the file truncated there; corruption in
+ * an earlier segment fails the open, since those segments were forced before
+ * the next one was started.
+ * <p>
+ * A write is appended and applied to memory under one lock, so the journal
+ * order always matches the order in which changes became visible, and then
+ * waits for durability according to the {@link FsyncPolicy}.
+ * <p>
+ * Records are numbered with consecutive offsets. Each segment this process
+ * writes to starts its records with a mark holding the offset before them, so
+ * replay finds the offset of the last record; a reopened journal continues
+ * after it, or from the wall clock (milliseconds shifted left by 20 bits) if
+ * that is later. Offsets therefore keep growing across restarts even if the
+ * clock steps back, and journals without marks still start from the clock.
+ */
+public class Journal implements RecordLog, AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(Journal.class.getName());
+
+  /**
+   * Size of the record header: length, checksum and type.
+   */
+  static final int HEADER_BYTES = 9;
+
+  /**
+   * Largest payload accepted; longer lengths on replay are treated as
+   * corruption.
+   */
+  static final int MAX_PAYLOAD_BYTES = 16 * 1024 * 1024;
+
+  /**
+   * Type of the offset marks; they are not passed to the replay handler.
+   */
+  static final byte OFFSET_MARK = 0;
+
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  /**
+   * Receives each valid record during replay.
+   */
+  @FunctionalInterface
+  public interface RecordHandler {
+    void apply(byte type, byte[] payload) throws IOException;
+  }
+
+  /**
+   * Receives the records of each append, in journal order, while the journal
+   * is still locked; it must not block.
+   */
+  @FunctionalInterface
+  public interface AppendListener {
+    void appended(long firstOffset, byte type, List<byte[]> payloads);
+  }
+
+  private final Path directory;
+  private final FsyncPolicy policy;
+  private final long windowMillis;
+  private final long windowBytes;
+  private final Object writeLock = new Object();
+  private final Object syncLock = new Object();
+  private final Object progress = new Object();
+  private final Thread flusher;
+
+  private volatile FileChannel channel;
+  private volatile long segment;
+  private volatile long written;
+  private volatile long durable;
+  private volatile boolean closed;
+  private volatile IOException failure;
+  private volatile long offset;
+  /** Whether the next append must write an offset mark first. */
+  private boolean markPending = true;
+  private AppendListener listener;
+
+  /**
+   * Opens (or creates) the journal in {@code directory} and replays the
+   * segments numbered {@code fromSegment} or higher.
+   *
+   * @param directory    the journal directory
+   * @param fromSegment  first segment to replay; older ones are covered by a
+   *                     snapshot
+   * @param policy       the fsync policy
+   * @param windowMillis group commit / background flush interval
+   * @param windowBytes  pending bytes that trigger an early group commit
+   * @param replay       receives every valid record, in order
+   * @throws IOException if a segment cannot be opened, is corrupt before the
+   *                     last one, or a record cannot be applied
+   */
+  public Journal(Path directory, long fromSegment, FsyncPolicy policy, long windowMillis, long windowBytes,
+      RecordHandler replay) throws IOException {
+    this(directory, fromSegment, policy, windowMillis, windowBytes, replay, System::currentTimeMillis);
+  }
+
+  Journal(Path directory, long fromSegment, FsyncPolicy policy, long windowMillis, long windowBytes,
+      RecordHandler replay, LongSupplier clock) throws IOException {
+    this.directory = directory;
+    this.policy = policy;
+    this.windowMillis = Math.max(1, windowMillis);
+    this.windowBytes = Math.max(1, windowBytes);
+
+    Files.createDirectories(directory);
+    List<Long> segments = listSegments(directory).stream().filter(seq -> seq >= fromSegment).toList();
+    long records = 0;
+    long end = 0;
+    long replayedOffset = -1;
+    for (int i = 0; i < segments.size(); i++) {
+      long[] replayed = replaySegment(segmentPath(segments.get(i)), i == segments.size() - 1, replay);
+      records += replayed[0];
+      end = replayed[1];
+      if (replayed[2] >= 0) {
+        replayedOffset = replayed[2];
+      }
+    }
+    offset = Math.max(replayedOffset, clock.getAsLong() << 20);
+    LOGGER.log(Level.INFO, "Journal replayed: {0} records from {1} segments",
+        new Object[] { records, segments.size() });
+
+    segment = segments.isEmpty() ? fromSegment : segments.get(segments.size() - 1);
+    channel = openSegment(segment);
+    channel.position(end);
+    written = end;
+    durable = end;
+
+    if (policy == FsyncPolicy.ALWAYS) {
+      flusher = null;
+    } else {
+      flusher = new Thread(this::flushLoop, "journal-flusher");
+      flusher.setDaemon(true);
+      flusher.start();
+    }
+  }
+
+  /**
+   * Returns the sequence numbers of the segments in {@code directory}, in
+   * ascending order.
+   */
+  static List<Long> listSegments(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+          .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+              name.length() - SEGMENT_SUFFIX.length())))
+          .sorted()
+          .toList();
+    }
+  }
+
+  static Path segmentPath(Path directory, long seq) {
+    return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, seq, SEGMENT_SUFFIX));
+  }
+
+  private Path segmentPath(long seq) {
+    return segmentPath(directory, seq);
+  }
+
+  private FileChannel openSegment(long seq) throws IOException {
+    return FileChannel.open(segmentPath(seq), StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  /**
+   * Replays one segment and returns {@code {records, valid length, offset of
+   * the last record}}, the offset being -1 if the segment has no mark.
+   */
+  private static long[] replaySegment(Path file, boolean last, RecordHandler handler) throws IOException {
+    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long size = in.size();
+      long[] replayed = replay(Channels.newInputStream(in), size, handler);
+      long end = replayed[1];
+      if (end < size) {
+        String message = "Journal segment " + file.getFileName() + " is corrupt at offset " + end;
+        if (!last) {
+          throw new IOException(message);
+        }
+        LOGGER.log(Level.WARNING, "{0}, dropping {1} bytes", new Object[] { message, size - end });
+        in.truncate(end);
+        in.force(false);
+      }
+      return replayed;
+    }
+  }
+
+  private static long[] replay(InputStream raw, long size, RecordHandler handler) throws IOException {
+    InputStream in = new BufferedInputStream(raw, 1 << 16);
+    byte[] header = new byte[HEADER_BYTES];
+    long records = 0;
+    long offset = 0;
+    long recordOffset = -1;
+    while (offset < size) {
+      if (in.readNBytes(header, 0, HEADER_BYTES) < HEADER_BYTES) {
+        break;
+      }
+      ByteBuffer fields = ByteBuffer.wrap(header);
+      int length = fields.getInt();
+      int checksum = fields.getInt();
+      byte type = fields.get();
+      if (length < 0 || length > MAX_PAYLOAD_BYTES || offset + HEADER_BYTES + length > size) {
+        break;
+      }
+      byte[] payload = in.readNBytes(length);
+      if (payload.length < length || checksum(type, payload) != checksum) {
+        break;
+      }
+      if (type == OFFSET_MARK) {
+        recordOffset = ByteBuffer.wrap(payload).getLong();
+      } else {
+        handler.apply(type, payload);
+        records++;
+        if (recordOffset >= 0) {
+          recordOffset++;
+        }
+      }
+      offset += HEADER_BYTES + length;
+    }
+    return new long[] { records, offset, recordOffset };
+  }
+
+  /**
+   * Appends one record per payload, runs {@code apply} while the journal is
+   * still locked, and then waits for durability as the policy requires.
+   *
+   * @param type     the record type, interpreted by the replay handler
+   * @param payloads the record payloads, written contiguously
+   * @param apply    the in-memory change matching the records
+   * @throws UncheckedIOException  if the journal cannot be written or forced
+   * @throws IllegalStateException if the journal is closed
+   */
+  @Override
+  public void append(byte type, List<byte[]> payloads, Runnable apply) {
+    ByteBuffer buffer = encode(type, payloads);
+    long end;
+    synchronized (writeLock) {
+      checkWritable();
+      try {
+        if (markPending) {
+          write(mark());
+          markPending = false;
+        }
+        write(buffer);
+      } catch (IOException e) {
+        throw fail(e);
+      }
+      end = written;
+      apply.run();
+      long first = offset + 1;
+      offset += payloads.size();
+      if (listener != null) {
+        listener.appended(first, type, payloads);
+      }
+    }
+
+    switch (policy) {
+      case ALWAYS -> force(end);
+      case GROUP -> {
+        wakeFlusherIfWindowFull();
+        awaitDurable(end);
+      }
+      case ASYNC -> wakeFlusherIfWindowFull();
+    }
+  }
+
+  /**
+   * Forces the current segment and starts a new one. Every change applied
+   * before this call is in an older segment; every later change goes to the
+   * new one.
+   *
+   * @return the sequence number of the new segment
+   * @throws UncheckedIOException  if the segment cannot be forced or created
+   * @throws IllegalStateException if the journal is closed
+   */
+  public long rotate() {
+    synchronized (writeLock) {
+      checkWritable();
+      synchronized (syncLock) {
+        try {
+          FileChannel next = openSegment(segment + 1);
+          channel.force(false);
+          channel.close();
+          channel = next;
+          segment++;
+          // Marked at once: older segments may be deleted before the next append
+          write(mark());
+          markPending = false;
+          durable = written;
+        } catch (IOException e) {
+          throw fail(e);
+        }
+      }
+    }
+    synchronized (progress) {
+      progress.notifyAll();
+    }
+    return segment;
+  }
+
+  /**
+   * Deletes the segments numbered below {@code seq}.
+   *
+   * @param seq first segment to keep
+   * @throws IOException if a segment cannot be deleted
+   */
+  public void deleteSegmentsBefore(long seq) throws IOException {
+    for (long old : listSegments(directory)) {
+      if (old < seq && old < segment) {
+        Files.deleteIfExists(segmentPath(old));
+      }
+    }
+  }
+
+  private void write(ByteBuffer buffer) throws IOException {
+    int bytes = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    written += bytes;
+  }
+
+  /**
+   * Returns the mark of the current offset.
+   */
+  private ByteBuffer mark() {
+    return encode(OFFSET_MARK, List.of(ByteBuffer.allocate(Long.BYTES).putLong(offset).array()));
+  }
+
+  private static ByteBuffer encode(byte type, List<byte[]> payloads) {
+    int size = 0;
+    for (byte[] payload : payloads) {
+      if (payload.length > MAX_PAYLOAD_BYTES) {
+        throw new IllegalArgumentException("journal record exceeds " + MAX_PAYLOAD_BYTES + " bytes");
+      }
+      size += HEADER_BYTES + payload.length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    for (byte[] payload : payloads) {
+      buffer.putInt(payload.length).putInt(checksum(type, payload)).put(type).put(payload);
+    }
+    return buffer.flip();
+  }
+
+  static int checksum(byte type, byte[] payload) {
+    CRC32 crc = new CRC32();
+    crc.update(type);
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private void force(long target) {
+    synchronized (syncLock) {
+      if (durable >= target) {
+        return;
+      }
+      long upTo = written;
+      try {
+        channel.force(false);
+      } catch (IOException e) {
+        throw fail(e);
+      }
+      durable = upTo;
+    }
+    synchronized (progress) {
+      progress.notifyAll();
+    }
+  }
+
+  private void awaitDurable(long target) {
+    synchronized (progress) {
+      while (durable < target) {
+        if (failure != null) {
+          throw new UncheckedIOException("journal failed", failure);
+        }
+        try {
+          progress.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new UncheckedIOException(new InterruptedIOException("interrupted waiting for journal fsync"));
+        }
+      }
+    }
+  }
+
+  private void wakeFlusherIfWindowFull() {
+    if (written - durable >= windowBytes) {
+      synchronized (progress) {
+        progress.notifyAll();
+      }
+    }
+  }
+
+  private void flushLoop() {
+    while (true) {
+      synchronized (progress) {
+        if (!closed && written - durable < windowBytes) {
+          try {
+            progress.wait(windowMillis);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      }
+      if (closed) {
+        return;
+      }
+      if (written > durable) {
+        try {
+          force(written);
+        } catch (UncheckedIOException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void checkWritable() {
+    if (closed) {
+      throw new IllegalStateException("journal is closed");
+    }
+    if (failure != null) {
+      throw new UncheckedIOException("journal failed", failure);
+    }
+  }
+
+  private UncheckedIOException fail(IOException e) {
+    failure = e;
+    LOGGER.log(Level.SEVERE, "Journal write failed; further writes are rejected", e);
+    synchronized (progress) {
+      progress.notifyAll();
+    }
+    return new UncheckedIOException("journal write failed", e);
+  }
+
+  /**
+   * Returns the number of bytes appended since the journal was opened plus the
+   * valid length of the segment it resumed, including records not yet forced.
+   */
+  public long size() {
+    return written;
+  }
+
+  /**
+   * Returns the offset of the latest record appended.
+   */
+  public long offset() {
+    return offset;
+  }
+
+  /**
+   * Registers the listener told about every later append, replacing any
+   * previous one, and returns the offset of the latest record appended before
+   * it. Passing null removes it.
+   *
+   * @param listener the listener, or null
+   * @return the offset the listener starts after
+   */
+  public long listen(AppendListener listener) {
+    synchronized (writeLock) {
+      this.listener = listener;
+      return offset;
+    }
+  }
+
+  /**
+   * Returns the sequence number of the segment currently appended to.
+   */
+  public long currentSegment() {
+    return segment;
+  }
+
+  /**
+   * Forces pending records to disk and closes the file. Writers still waiting
+   * for a group commit are released.
+   */
+  @Override
+  public void close() {
+    synchronized (writeLock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    synchronized (progress) {
+      progress.notifyAll();
+    }
+    if (flusher != null) {
+      try {
+        flusher.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    try {
+      if (failure == null) {
+        force(written);
+      }
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Error closing journal", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+/**
+ * Encodes journal payloads as JSON. Unknown properties are ignored so that a
+ * journal written by a newer version can still be replayed.
+ */
+final class JournalCodec {
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  byte[] encode(Object entity) {
+    try {
+      return objectMapper.writeValueAsBytes(entity);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Encodes the flight as it will be once {@code state} is applied, without
+   * changing it yet.
+   */
+  byte[] encode(Flight flight, FlightState state) {
+    ObjectNode node = objectMapper.valueToTree(flight);
+    node.put("state", state == null ? null : state.name());
+    return encode(node);
+  }
+
+  <T> T decode(byte[] payload, Class<T> type) throws IOException {
+    return objectMapper.readValue(payload, type);
+  }
+}
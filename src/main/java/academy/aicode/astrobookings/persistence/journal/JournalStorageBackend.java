@@ -0,0 +1,265 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+
+/**
+ * Durable backend: data is served from the in-memory repositories, and every
+ * write is recorded in a write-ahead {@link Journal}.
+ * <p>
+ * {@link #snapshot()} starts a new journal segment, writes every entity to a
+ * {@link SnapshotFile} and then deletes the older segments and snapshots.
+ * Entities are read while traffic continues, so a snapshot may already contain
+ * changes journaled in the new segment; since every record carries the whole
+ * entity, replaying the tail over it still ends in the latest state. Startup
+ * loads the latest snapshot and replays only the segments after it.
+ * <p>
+ * Configured with the system properties `astrobookings.journal.fsync`
+ * (`always`, `group` or `async`; default `group`),
+ * `astrobookings.journal.windowMillis` (default 2),
+ * `astrobookings.journal.windowBytes` (default 262144) and
+ * `astrobookings.journal.snapshotMinutes` (default 10; 0 disables periodic
+ * snapshots). When `astrobookings.replication.port` is set, the journal is
+ * also shipped to {@link ReplicaStorageBackend}s through a
+ * {@link ReplicationServer} keeping the latest
+ * `astrobookings.replication.backlog` records (default 100000).
+ */
+public class JournalStorageBackend implements StorageBackend {
+
+  private static final Logger LOGGER = Logger.getLogger(JournalStorageBackend.class.getName());
+
+  public static final String NAME = "journal";
+
+  static final byte ROCKET = 1;
+  static final byte FLIGHT = 2;
+  static final byte BOOKING = 3;
+
+  private static final String LEGACY_JOURNAL = "journal.log";
+
+  private final Path directory;
+  private final MemoryState memory = new MemoryState();
+  private final JournalCodec codec = new JournalCodec();
+  private final Journal journal;
+  private final RocketRepository rockets;
+  private final FlightRepository flights;
+  private final BookingRepository bookings;
+
+  private ScheduledExecutorService snapshots;
+  private ReplicationServer replication;
+  private long journalSizeAtSnapshot;
+
+  /**
+   * Opens the journal in {@code directory}, loading the latest snapshot and
+   * replaying the journal segments written after it.
+   *
+   * @param directory    directory holding the journal segments and snapshots
+   * @param policy       the fsync policy
+   * @param windowMillis group commit / background flush interval
+   * @param windowBytes  pending bytes that trigger an early group commit
+   * @throws IOException if the snapshot or journal cannot be read
+   */
+  public JournalStorageBackend(Path directory, FsyncPolicy policy, long windowMillis, long windowBytes)
+      throws IOException {
+    this.directory = directory;
+    Files.createDirectories(directory);
+    migrateLegacyJournal();
+
+    long fromSegment = 0;
+    List<Long> snapshotSegments = SnapshotFile.list(directory);
+    if (!snapshotSegments.isEmpty()) {
+      fromSegment = snapshotSegments.get(snapshotSegments.size() - 1);
+      SnapshotFile.Contents contents = SnapshotFile.read(directory, fromSegment);
+      memory.load(contents);
+      LOGGER.log(Level.INFO, "Snapshot loaded: {0} rockets, {1} flights, {2} bookings",
+          new Object[] { contents.rockets().size(), contents.flights().size(), contents.bookings().size() });
+    }
+
+    this.journal = new Journal(directory, fromSegment, policy, windowMillis, windowBytes,
+        (type, payload) -> memory.apply(codec, type, payload));
+    this.journalSizeAtSnapshot = journal.size();
+    this.rockets = new JournaledRocketRepository(memory.rockets, journal, codec);
+    this.flights = new JournaledFlightRepository(memory.flights, journal, codec);
+    this.bookings = new JournaledBookingRepository(memory.bookings, journal, codec);
+  }
+
+  /**
+   * Journals written before segments existed are a single `journal.log`; it
+   * becomes segment 0.
+   */
+  private void migrateLegacyJournal() throws IOException {
+    Path legacy = directory.resolve(LEGACY_JOURNAL);
+    if (Files.exists(legacy) && Journal.listSegments(directory).isEmpty()) {
+      Files.move(legacy, Journal.segmentPath(directory, 0));
+    }
+  }
+
+  /**
+   * Opens the backend under {@code dataDir}/journal, configured from system
+   * properties, and schedules periodic snapshots.
+   *
+   * @param dataDir the data directory
+   * @return the backend
+   * @throws UncheckedIOException if the snapshot or journal cannot be read
+   */
+  public static JournalStorageBackend open(Path dataDir) {
+    try {
+      JournalStorageBackend backend = new JournalStorageBackend(dataDir.resolve(NAME),
+          FsyncPolicy.parse(System.getProperty("astrobookings.journal.fsync", "group")),
+          Long.getLong("astrobookings.journal.windowMillis", 2),
+          Long.getLong("astrobookings.journal.windowBytes", 256 * 1024));
+      long minutes = Long.getLong("astrobookings.journal.snapshotMinutes", 10);
+      if (minutes > 0) {
+        backend.scheduleSnapshots(Duration.ofMinutes(minutes));
+      }
+      startReplicationIfConfigured(backend);
+      return backend;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open journal in " + dataDir, e);
+    }
+  }
+
+  private static void startReplicationIfConfigured(JournalStorageBackend backend) {
+    Integer port = Integer.getInteger("astrobookings.replication.port");
+    if (port == null) {
+      return;
+    }
+    try {
+      backend.startReplication(port, Integer.getInteger("astrobookings.replication.backlog", 100_000));
+    } catch (IOException e) {
+      backend.close();
+      throw new UncheckedIOException("Cannot ship journal on port " + port, e);
+    }
+  }
+
+  /**
+   * Starts shipping the journal to replicas on {@code port}; 0 picks a free
+   * port.
+   *
+   * @param port    the TCP port
+   * @param backlog number of recent records kept for replicas that reconnect
+   * @return the server, closed together with this backend
+   * @throws IOException           if the port cannot be bound
+   * @throws IllegalStateException if replication is already started
+   */
+  public synchronized ReplicationServer startReplication(int port, int backlog) throws IOException {
+    if (replication != null) {
+      throw new IllegalStateException("replication already started");
+    }
+    replication = new ReplicationServer(this, port, backlog);
+    return replication;
+  }
+
+  Journal journal() {
+    return journal;
+  }
+
+  MemoryState memory() {
+    return memory;
+  }
+
+  /**
+   * Takes a snapshot every {@code interval}, skipping intervals without
+   * writes.
+   *
+   * @param interval time between snapshots
+   */
+  public synchronized void scheduleSnapshots(Duration interval) {
+    if (snapshots != null) {
+      snapshots.shutdownNow();
+    }
+    snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "journal-snapshot");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long millis = interval.toMillis();
+    snapshots.scheduleWithFixedDelay(() -> {
+      try {
+        if (journal.size() != journalSizeAtSnapshot) {
+          snapshot();
+        }
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Periodic snapshot failed", e);
+      }
+    }, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Writes a snapshot of all data while writes continue, then deletes the
+   * journal segments and snapshots it makes obsolete.
+   *
+   * @return the first journal segment not covered by the snapshot
+   * @throws IOException if the snapshot cannot be written
+   */
+  public synchronized long snapshot() throws IOException {
+    long start = System.nanoTime();
+    long segment = journal.rotate();
+    long size = SnapshotFile.write(directory, segment, memory.rockets.findAll(), memory.flights.findAll(),
+        memory.bookings.findAll());
+    SnapshotFile.deleteOlderThan(directory, segment);
+    journal.deleteSegmentsBefore(segment);
+    journalSizeAtSnapshot = journal.size();
+    LOGGER.log(Level.INFO, "Snapshot {0} written: {1} bytes in {2} ms",
+        new Object[] { segment, size, (System.nanoTime() - start) / 1_000_000 });
+    return segment;
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public RocketRepository rockets() {
+    return rockets;
+  }
+
+  @Override
+  public FlightRepository flights() {
+    return flights;
+  }
+
+  @Override
+  public BookingRepository bookings() {
+    return bookings;
+  }
+
+  /**
+   * Returns the offset of the latest journaled change.
+   */
+  @Override
+  public long logOffset() {
+    return journal.offset();
+  }
+
+  /**
+   * Stops periodic snapshots and replication, forces pending journal records
+   * to disk and closes the journal.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (snapshots != null) {
+        snapshots.shutdownNow();
+      }
+      if (replication != null) {
+        replication.close();
+      }
+    }
+    journal.close();
+  }
+}
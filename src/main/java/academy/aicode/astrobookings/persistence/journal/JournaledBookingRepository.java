@@ -0,0 +1,121 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Journals every booking write before applying it to the in-memory
+ * repository; reads go straight to memory.
+ * <p>
+ * Seats are taken atomically: {@link #takeSeats} counts, besides the saved
+ * bookings, the seats taken for bookings whose write is still waiting for
+ * the log (a quorum, with raft), and a new booking gives its seat back in the
+ * same step that applies it.
+ */
+class JournaledBookingRepository implements BookingRepository {
+
+  private final BookingRepository delegate;
+  private final RecordLog journal;
+  private final JournalCodec codec;
+  /** Seats taken per flight for bookings not yet applied; guards itself. */
+  private final Map<String, Integer> taken = new HashMap<>();
+
+  JournaledBookingRepository(BookingRepository delegate, RecordLog journal, JournalCodec codec) {
+    this.delegate = delegate;
+    this.journal = journal;
+    this.codec = codec;
+  }
+
+  @Override
+  public Booking save(Booking booking) {
+    boolean isNew = booking.getId() == null;
+    if (isNew) {
+      booking.setId(IdGenerators.nextId());
+    }
+    if (booking.getCreatedAt() == null) {
+      booking.setCreatedAt(Instant.now());
+    }
+    boolean holdsSeat = isNew && holdsSeat(booking.getFlightId());
+    AtomicBoolean unapplied = new AtomicBoolean(true);
+    try {
+      journal.append(JournalStorageBackend.BOOKING, List.of(codec.encode(booking)), () -> {
+        synchronized (taken) {
+          delegate.save(booking);
+          if (unapplied.compareAndSet(true, false) && holdsSeat) {
+            release(booking.getFlightId(), 1);
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      // The caller gives the seat back. A write applied before failing
+      // already gave it back, so it is taken again for the caller to return;
+      // a write still to be applied leaves it to the booking count.
+      if (!unapplied.compareAndSet(true, false) && holdsSeat) {
+        synchronized (taken) {
+          taken.merge(booking.getFlightId(), 1, Integer::sum);
+        }
+      }
+      throw e;
+    }
+    return booking;
+  }
+
+  @Override
+  public Booking findById(String id) {
+    return delegate.findById(id);
+  }
+
+  @Override
+  public List<Booking> findByFlightId(String flightId) {
+    return delegate.findByFlightId(flightId);
+  }
+
+  @Override
+  public int countByFlightId(String flightId) {
+    return delegate.countByFlightId(flightId);
+  }
+
+  @Override
+  public List<Booking> findByPassengerDocument(String passengerDocument, int offset, int limit) {
+    return delegate.findByPassengerDocument(passengerDocument, offset, limit);
+  }
+
+  @Override
+  public int[] takeSeats(String flightId, int capacity, int seats) {
+    synchronized (taken) {
+      int booked = delegate.countByFlightId(flightId) + taken.getOrDefault(flightId, 0);
+      int[] numbers = new int[Math.max(0, Math.min(seats, capacity - booked))];
+      for (int i = 0; i < numbers.length; i++) {
+        numbers[i] = booked + 1 + i;
+      }
+      if (numbers.length > 0) {
+        taken.merge(flightId, numbers.length, Integer::sum);
+      }
+      return numbers;
+    }
+  }
+
+  @Override
+  public void returnSeat(String flightId, int number) {
+    synchronized (taken) {
+      release(flightId, 1);
+    }
+  }
+
+  private boolean holdsSeat(String flightId) {
+    synchronized (taken) {
+      return taken.containsKey(flightId);
+    }
+  }
+
+  private void release(String flightId, int seats) {
+    taken.computeIfPresent(flightId, (key, count) -> count > seats ? count - seats : null);
+  }
+}
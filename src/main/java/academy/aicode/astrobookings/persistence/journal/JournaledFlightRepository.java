@@ -0,0 +1,83 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+/**
+ * Journals every flight write, including state transitions, before applying
+ * it to the in-memory repository; reads go straight to memory.
+ */
+class JournaledFlightRepository implements FlightRepository {
+
+  private final FlightRepository delegate;
+  private final RecordLog journal;
+  private final JournalCodec codec;
+
+  JournaledFlightRepository(FlightRepository delegate, RecordLog journal, JournalCodec codec) {
+    this.delegate = delegate;
+    this.journal = journal;
+    this.codec = codec;
+  }
+
+  @Override
+  public Flight save(Flight flight) {
+    saveAll(List.of(flight));
+    return flight;
+  }
+
+  @Override
+  public void saveAll(List<Flight> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<byte[]> payloads = new ArrayList<>(batch.size());
+    for (Flight flight : batch) {
+      if (flight.getId() == null) {
+        flight.setId(IdGenerators.nextId());
+      }
+      payloads.add(codec.encode(flight));
+    }
+    journal.append(JournalStorageBackend.FLIGHT, payloads, () -> delegate.saveAll(batch));
+  }
+
+  @Override
+  public void updateState(Flight flight, FlightState state) {
+    if (flight.getId() == null || delegate.findById(flight.getId()) != flight) {
+      delegate.updateState(flight, state);
+      return;
+    }
+    journal.append(JournalStorageBackend.FLIGHT, List.of(codec.encode(flight, state)),
+        () -> delegate.updateState(flight, state));
+  }
+
+  @Override
+  public Flight findById(String id) {
+    return delegate.findById(id);
+  }
+
+  @Override
+  public List<Flight> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public List<Flight> findByState(FlightState state) {
+    return delegate.findByState(state);
+  }
+
+  @Override
+  public List<Flight> findLaunchingAfter(Instant instant) {
+    return delegate.findLaunchingAfter(instant);
+  }
+
+  @Override
+  public List<Flight> findLaunchingBetween(Instant from, Instant to) {
+    return delegate.findLaunchingBetween(from, to);
+  }
+}
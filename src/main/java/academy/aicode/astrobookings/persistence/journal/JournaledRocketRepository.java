@@ -0,0 +1,56 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Registra cada escritura de cohetes en el journal antes de aplicarla al
+ * repositorio en memoria; las lecturas van directamente a memoria.
+ */
+class JournaledRocketRepository implements RocketRepository {
+
+  private final RocketRepository delegate;
+  private final RecordLog journal;
+  private final JournalCodec codec;
+
+  JournaledRocketRepository(RocketRepository delegate, RecordLog journal, JournalCodec codec) {
+    this.delegate = delegate;
+    this.journal = journal;
+    this.codec = codec;
+  }
+
+  @Override
+  public Rocket save(Rocket rocket) {
+    saveAll(List.of(rocket));
+    return rocket;
+  }
+
+  @Override
+  public void saveAll(List<Rocket> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<byte[]> payloads = new ArrayList<>(batch.size());
+    for (Rocket rocket : batch) {
+      if (rocket.getId() == null) {
+        rocket.setId(IdGenerators.nextId());
+      }
+      payloads.add(codec.encode(rocket));
+    }
+    journal.append(JournalStorageBackend.ROCKET, payloads, () -> delegate.saveAll(batch));
+  }
+
+  @Override
+  public List<Rocket> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public Rocket findById(String id) {
+    return delegate.findById(id);
+  }
+}
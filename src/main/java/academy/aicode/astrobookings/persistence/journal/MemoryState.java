@@ -0,0 +1,48 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.IOException;
+
+import academy.aicode.astrobookings.persistence.memory.InMemoryBookingRepository;
+import academy.aicode.astrobookings.persistence.memory.InMemoryFlightRepository;
+import academy.aicode.astrobookings.persistence.memory.InMemoryRocketRepository;
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * The in-memory repositories that serve a journal backend or a replica, and
+ * the application of journal records to them.
+ */
+final class MemoryState {
+
+  final InMemoryRocketRepository rockets = new InMemoryRocketRepository();
+  final InMemoryFlightRepository flights = new InMemoryFlightRepository();
+  final InMemoryBookingRepository bookings = new InMemoryBookingRepository();
+
+  /**
+   * Loads the entities of a snapshot.
+   */
+  void load(SnapshotFile.Contents contents) {
+    rockets.saveAll(contents.rockets());
+    flights.saveAll(contents.flights());
+    for (Booking booking : contents.bookings()) {
+      bookings.save(booking);
+    }
+  }
+
+  /**
+   * Applies one journal record: every record carries a whole entity, which
+   * replaces the stored one.
+   *
+   * @throws IOException if the record type is unknown or the payload cannot be
+   *                     decoded
+   */
+  void apply(JournalCodec codec, byte type, byte[] payload) throws IOException {
+    switch (type) {
+      case JournalStorageBackend.ROCKET -> rockets.save(codec.decode(payload, Rocket.class));
+      case JournalStorageBackend.FLIGHT -> flights.save(codec.decode(payload, Flight.class));
+      case JournalStorageBackend.BOOKING -> bookings.save(codec.decode(payload, Booking.class));
+      default -> throw new IOException("Unknown journal record type " + type);
+    }
+  }
+}
@@ -0,0 +1,357 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * The replicated log of one {@link RaftNode}, in `raft.log`, and its term and
+ * vote, in `raft-state`.
+ * <p>
+ * Entries are numbered from 1 and framed as
+ * {@code [int length][int crc32][long term][byte type][int count]} followed by
+ * {@code [int length][payload]} per payload; the CRC covers everything after
+ * it. On open a torn or corrupt entry at the end is dropped and the file
+ * truncated there, as in the last {@link Journal} segment. Every entry is also
+ * kept in memory, since followers that fall behind are sent entries from any
+ * index and a restarted node re-applies the whole log once it learns what is
+ * committed.
+ * <p>
+ * Appends only write; {@link #force(long)} makes them durable with group
+ * commit, so writers arriving while another one forces share the next fsync.
+ * A follower may {@link #truncateFrom(long) truncate} entries a new leader
+ * does not have; those were never committed.
+ * <p>
+ * Callers serialize appends and truncation; reads are safe from any thread.
+ */
+final class RaftLog implements AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(RaftLog.class.getName());
+
+  /**
+   * Type of the entry a new leader appends to commit the entries of earlier
+   * terms; it carries no payload.
+   */
+  static final byte NO_OP = 0;
+
+  private static final int HEADER_BYTES = 8;
+  private static final String LOG_FILE = "raft.log";
+  private static final String STATE_FILE = "raft-state";
+
+  /**
+   * One log entry: a journal record type and its payloads, tagged with the
+   * term of the leader that created it.
+   */
+  record Entry(long term, byte type, List<byte[]> payloads) {
+  }
+
+  private final Path directory;
+  private final FileChannel channel;
+  private final Object syncLock = new Object();
+  private final List<Entry> entries = new ArrayList<>();
+
+  private long[] ends = new long[1024];
+  private volatile long lastIndex;
+  private volatile long durableIndex;
+  private long term;
+  private String votedFor;
+
+  /**
+   * Opens (or creates) the log in {@code directory}.
+   *
+   * @throws IOException if the files cannot be read
+   */
+  RaftLog(Path directory) throws IOException {
+    this.directory = directory;
+    Files.createDirectories(directory);
+    readState();
+    this.channel = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    long size = channel.size();
+    long end = replay(Channels.newInputStream(channel.position(0)), size);
+    if (end < size) {
+      LOGGER.log(Level.WARNING, "Raft log is corrupt at offset {0}, dropping {1} bytes",
+          new Object[] { end, size - end });
+      channel.truncate(end);
+      channel.force(false);
+    }
+    channel.position(end);
+    durableIndex = lastIndex;
+    LOGGER.log(Level.INFO, "Raft log opened: {0} entries, term {1}", new Object[] { lastIndex, term });
+  }
+
+  private long replay(InputStream raw, long size) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16));
+    long offset = 0;
+    while (offset + HEADER_BYTES <= size) {
+      int length = in.readInt();
+      int checksum = in.readInt();
+      if (length < 0 || length > Journal.MAX_PAYLOAD_BYTES || offset + HEADER_BYTES + length > size) {
+        break;
+      }
+      byte[] body = in.readNBytes(length);
+      if (body.length < length || checksum(body) != checksum) {
+        break;
+      }
+      offset += HEADER_BYTES + length;
+      add(decode(body), offset);
+    }
+    return offset;
+  }
+
+  private void readState() throws IOException {
+    Path file = directory.resolve(STATE_FILE);
+    if (!Files.exists(file)) {
+      return;
+    }
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+      term = in.readLong();
+      votedFor = in.readBoolean() ? in.readUTF() : null;
+    }
+  }
+
+  /**
+   * Durably records the current term and the vote cast in it, replacing the
+   * previous ones atomically.
+   */
+  void saveState(long term, String votedFor) {
+    Path file = directory.resolve(STATE_FILE);
+    Path temp = directory.resolve(STATE_FILE + ".tmp");
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeLong(term);
+      out.writeBoolean(votedFor != null);
+      if (votedFor != null) {
+        out.writeUTF(votedFor);
+      }
+      try (FileChannel state = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+          StandardOpenOption.TRUNCATE_EXISTING)) {
+        state.write(ByteBuffer.wrap(bytes.toByteArray()));
+        state.force(false);
+      }
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot save the raft term", e);
+    }
+    this.term = term;
+    this.votedFor = votedFor;
+  }
+
+  long term() {
+    return term;
+  }
+
+  String votedFor() {
+    return votedFor;
+  }
+
+  long lastIndex() {
+    return lastIndex;
+  }
+
+  /**
+   * Returns the index of the latest entry known to be on disk.
+   */
+  long durableIndex() {
+    return durableIndex;
+  }
+
+  /**
+   * Returns the term of the entry at {@code index}, or 0 for index 0.
+   */
+  synchronized long termAt(long index) {
+    return index == 0 ? 0 : entries.get((int) (index - 1)).term();
+  }
+
+  long lastTerm() {
+    return termAt(lastIndex);
+  }
+
+  synchronized Entry entry(long index) {
+    return entries.get((int) (index - 1));
+  }
+
+  /**
+   * Returns up to {@code max} entries starting at {@code from}.
+   */
+  synchronized List<Entry> entries(long from, int max) {
+    int start = (int) (from - 1);
+    int end = (int) Math.min(entries.size(), start + (long) max);
+    return start >= end ? List.of() : new ArrayList<>(entries.subList(start, end));
+  }
+
+  /**
+   * Writes {@code entry} after the last one, without forcing it.
+   *
+   * @return the index of the entry
+   */
+  long append(Entry entry) {
+    return append(List.of(entry));
+  }
+
+  /**
+   * Writes {@code batch} after the last entry, without forcing it.
+   *
+   * @return the index of the last entry written
+   */
+  long append(List<Entry> batch) {
+    if (batch.isEmpty()) {
+      return lastIndex;
+    }
+    List<byte[]> bodies = new ArrayList<>(batch.size());
+    int size = 0;
+    for (Entry entry : batch) {
+      byte[] body = encode(entry);
+      if (body.length > Journal.MAX_PAYLOAD_BYTES) {
+        throw new IllegalArgumentException("raft entry exceeds " + Journal.MAX_PAYLOAD_BYTES + " bytes");
+      }
+      bodies.add(body);
+      size += HEADER_BYTES + body.length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    for (byte[] body : bodies) {
+      buffer.putInt(body.length).putInt(checksum(body)).put(body);
+    }
+    buffer.flip();
+    try {
+      long end = channel.position();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      synchronized (this) {
+        for (int i = 0; i < batch.size(); i++) {
+          end += HEADER_BYTES + bodies.get(i).length;
+          add(batch.get(i), end);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot append to the raft log", e);
+    }
+    return lastIndex;
+  }
+
+  private synchronized void add(Entry entry, long end) {
+    entries.add(entry);
+    if (entries.size() > ends.length) {
+      ends = Arrays.copyOf(ends, ends.length * 2);
+    }
+    ends[entries.size() - 1] = end;
+    lastIndex = entries.size();
+  }
+
+  /**
+   * Removes the entries from {@code index} on, which conflict with the
+   * leader's log.
+   */
+  void truncateFrom(long index) {
+    if (index > lastIndex) {
+      return;
+    }
+    synchronized (syncLock) {
+      long end = index == 1 ? 0 : ends[(int) (index - 2)];
+      try {
+        channel.truncate(end);
+        channel.position(end);
+        channel.force(false);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot truncate the raft log", e);
+      }
+      synchronized (this) {
+        entries.subList((int) (index - 1), entries.size()).clear();
+        lastIndex = entries.size();
+      }
+      durableIndex = Math.min(durableIndex, lastIndex);
+    }
+  }
+
+  /**
+   * Makes every entry up to {@code index} durable; one fsync covers all the
+   * entries written before it starts.
+   */
+  void force(long index) {
+    synchronized (syncLock) {
+      if (durableIndex >= index) {
+        return;
+      }
+      long upTo = lastIndex;
+      try {
+        channel.force(false);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot force the raft log", e);
+      }
+      durableIndex = upTo;
+    }
+  }
+
+  static byte[] encode(Entry entry) {
+    int size = Long.BYTES + 1 + Integer.BYTES;
+    for (byte[] payload : entry.payloads()) {
+      size += Integer.BYTES + payload.length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size).putLong(entry.term()).put(entry.type())
+        .putInt(entry.payloads().size());
+    for (byte[] payload : entry.payloads()) {
+      buffer.putInt(payload.length).put(payload);
+    }
+    return buffer.array();
+  }
+
+  static Entry decode(byte[] body) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(body);
+    try {
+      long term = buffer.getLong();
+      byte type = buffer.get();
+      int count = buffer.getInt();
+      List<byte[]> payloads = new ArrayList<>(Math.min(count, 1024));
+      for (int i = 0; i < count; i++) {
+        byte[] payload = new byte[buffer.getInt()];
+        buffer.get(payload);
+        payloads.add(payload);
+      }
+      return new Entry(term, type, payloads);
+    } catch (RuntimeException e) {
+      throw new IOException("Malformed raft entry", e);
+    }
+  }
+
+  private static int checksum(byte[] body) {
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    return (int) crc.getValue();
+  }
+
+  /**
+   * Forces and closes the log file.
+   */
+  @Override
+  public void close() {
+    synchronized (syncLock) {
+      try {
+        if (channel.isOpen()) {
+          channel.force(false);
+          channel.close();
+        }
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Error closing the raft log", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,728 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One member of a Raft group replicating journal records: a write is applied
+ * and acknowledged only once a majority of the nodes have it on disk, so any
+ * majority that survives still has every acknowledged write.
+ * <p>
+ * A follower that hears nothing from a leader for a randomized election
+ * timeout becomes a candidate and asks the others for their votes; a node
+ * votes once per term, and only for a candidate whose log is at least as up
+ * to date as its own, so a new leader holds every committed entry. The
+ * leader sends each follower the entries it is missing from one thread per
+ * follower, up to {@link RaftProtocol#MAX_BATCH} per call, with empty calls as
+ * heartbeats. Entries written while a call is in flight go out together in
+ * the next one, and the leader's own fsyncs are shared the same way, so
+ * concurrent writers are batched at every step.
+ * <p>
+ * An entry is committed once it is durable on a majority and belongs to the
+ * leader's term (earlier entries commit with it), and committed entries are
+ * applied in log order by one thread. On the leader a write applies its own
+ * change, the same one a {@link Journal} would apply; on the other nodes, and
+ * for entries the leader inherited, the record is decoded into memory. A new
+ * leader first appends a {@link RaftLog#NO_OP} entry and accepts writes only
+ * once it has applied it: until then its memory may lack writes acknowledged
+ * by the previous leader, and checks such as the seats left on a flight would
+ * read a stale count.
+ */
+final class RaftNode implements RecordLog, AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(RaftNode.class.getName());
+
+  enum Role {
+    FOLLOWER, CANDIDATE, LEADER
+  }
+
+  /**
+   * Applies a committed entry that no local write is waiting for.
+   */
+  @FunctionalInterface
+  interface Applier {
+    void apply(RaftLog.Entry entry) throws IOException;
+  }
+
+  /**
+   * A local write waiting for its entry to be applied.
+   */
+  private record Proposal(long term, Runnable apply, CompletableFuture<Void> done) {
+  }
+
+  private final String self;
+  private final List<RaftPeer> peers = new ArrayList<>();
+  private final RaftLog log;
+  private final Applier applier;
+  private final long electionMillis;
+  private final long heartbeatMillis;
+  private final long writeTimeoutMillis;
+  private final ServerSocket server;
+  private final Map<Long, Proposal> proposals = new ConcurrentHashMap<>();
+  private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+  private final ExecutorService votes;
+  private final List<Thread> threads = new ArrayList<>();
+
+  // Guarded by this
+  private Role role = Role.FOLLOWER;
+  private String leader;
+  private long commitIndex;
+  private long readyIndex = Long.MAX_VALUE;
+  private long electionDeadline;
+  private final Map<String, Long> nextIndex = new HashMap<>();
+  private final Map<String, Long> matchIndex = new HashMap<>();
+  private final Map<String, Long> lastContact = new HashMap<>();
+
+  private volatile long term;
+  private volatile long appliedIndex;
+  private volatile boolean isolated;
+  private volatile boolean closed;
+
+  /**
+   * Listens on the port of {@code self} and starts as a follower; a node
+   * without peers elects itself straight away.
+   *
+   * @param nodes     every node of the group and its address, this one included
+   * @param self      the name of this node
+   * @param log       the log of this node
+   * @param applier   applies committed entries no local write is waiting for
+   * @param election  the shortest election timeout; each one is drawn between
+   *                  it and twice it
+   * @param heartbeat the interval between heartbeats, well below
+   *                  {@code election}
+   * @param write     how long a write waits to be committed
+   * @throws IOException if the port cannot be bound
+   */
+  RaftNode(Map<String, InetSocketAddress> nodes, String self, RaftLog log, Applier applier, Duration election,
+      Duration heartbeat, Duration write) throws IOException {
+    if (!nodes.containsKey(self)) {
+      throw new IllegalArgumentException("Raft node " + self + " is not among " + nodes.keySet());
+    }
+    this.self = self;
+    this.log = log;
+    this.applier = applier;
+    this.electionMillis = Math.max(1, election.toMillis());
+    this.heartbeatMillis = Math.max(1, heartbeat.toMillis());
+    this.writeTimeoutMillis = Math.max(1, write.toMillis());
+    this.term = log.term();
+    nodes.forEach((name, address) -> {
+      if (!name.equals(self)) {
+        peers.add(new RaftPeer(name, address, (int) Math.max(2 * electionMillis, 100)));
+      }
+    });
+    this.server = new ServerSocket();
+    server.bind(new InetSocketAddress(nodes.get(self).getPort()));
+    this.votes = Executors.newFixedThreadPool(Math.max(1, peers.size()), runnable -> {
+      Thread thread = new Thread(runnable, "raft-vote-" + self);
+      thread.setDaemon(true);
+      return thread;
+    });
+    synchronized (this) {
+      resetElectionDeadline();
+      if (peers.isEmpty()) {
+        electionDeadline = 0;
+      }
+    }
+    start("raft-acceptor-" + self, this::acceptLoop);
+    start("raft-applier-" + self, this::applyLoop);
+    start("raft-election-" + self, this::electionLoop);
+    LOGGER.log(Level.INFO, "Raft node {0} listening on port {1} with peers {2}",
+        new Object[] { self, port(), peers.stream().map(RaftPeer::name).toList() });
+  }
+
+  private void start(String name, Runnable loop) {
+    Thread thread = new Thread(loop, name);
+    thread.setDaemon(true);
+    thread.start();
+    synchronized (threads) {
+      threads.removeIf(started -> !started.isAlive());
+      threads.add(thread);
+    }
+  }
+
+  int port() {
+    return server.getLocalPort();
+  }
+
+  synchronized Role role() {
+    return role;
+  }
+
+  long term() {
+    return term;
+  }
+
+  /**
+   * Returns the name of the leader this node last heard from, or null.
+   */
+  synchronized String leader() {
+    return leader;
+  }
+
+  /**
+   * Returns whether this node is the leader and accepts writes.
+   */
+  synchronized boolean isLeader() {
+    return !closed && role == Role.LEADER && appliedIndex >= readyIndex;
+  }
+
+  /**
+   * Returns the index of the last entry applied to memory.
+   */
+  long appliedIndex() {
+    return appliedIndex;
+  }
+
+  /**
+   * Waits up to {@code timeout} until the entry at {@code index} is applied.
+   */
+  synchronized boolean awaitApplied(long index, Duration timeout) {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    while (appliedIndex < index && !closed) {
+      long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (left <= 0) {
+        return false;
+      }
+      try {
+        wait(left);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return appliedIndex >= index;
+  }
+
+  /**
+   * Replicates one entry with the payloads and returns once it has been
+   * committed and {@code apply} has run.
+   *
+   * @throws IllegalStateException if this node is not the leader
+   * @throws UncheckedIOException  if the entry is not committed in time or
+   *                               leadership is lost first; a write that
+   *                               timed out may still be applied later
+   */
+  @Override
+  public void append(byte type, List<byte[]> payloads, Runnable apply) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(writeTimeoutMillis);
+    CompletableFuture<Void> done = new CompletableFuture<>();
+    long index;
+    synchronized (this) {
+      while (role == Role.LEADER && appliedIndex < readyIndex && !closed && System.nanoTime() < deadline) {
+        try {
+          wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      if (closed || role != Role.LEADER || appliedIndex < readyIndex) {
+        throw new IllegalStateException(notLeaderMessage());
+      }
+      index = log.append(new RaftLog.Entry(term, type, payloads));
+      proposals.put(index, new Proposal(term, apply, done));
+      notifyAll();
+    }
+    log.force(index);
+    synchronized (this) {
+      advanceCommit();
+    }
+    try {
+      done.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      throw new UncheckedIOException(new IOException(
+          "Write " + index + " not committed within " + writeTimeoutMillis + " ms; it may still be applied"));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+      throw new UncheckedIOException(new IOException(e.getCause()));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UncheckedIOException(new IOException("Interrupted waiting for write " + index));
+    }
+  }
+
+  private String notLeaderMessage() {
+    return leader == null || leader.equals(self) ? "No raft leader is available yet; retry"
+        : "Not the raft leader; send writes to " + leader;
+  }
+
+  // --- Elections --------------------------------------------------------
+
+  private void resetElectionDeadline() {
+    electionDeadline = System.currentTimeMillis() + electionMillis
+        + ThreadLocalRandom.current().nextLong(electionMillis + 1);
+  }
+
+  private void electionLoop() {
+    long tick = Math.max(1, Math.min(10, electionMillis / 10));
+    while (!closed) {
+      RaftProtocol.VoteRequest request = null;
+      synchronized (this) {
+        if (role == Role.LEADER && !hearsFromMajority()) {
+          LOGGER.log(Level.WARNING, "Leader {0} lost contact with a majority", self);
+          stepDown(term);
+        }
+        if (role != Role.LEADER && !isolated && System.currentTimeMillis() >= electionDeadline) {
+          term++;
+          role = Role.CANDIDATE;
+          leader = null;
+          log.saveState(term, self);
+          resetElectionDeadline();
+          request = new RaftProtocol.VoteRequest(term, self, log.lastIndex(), log.lastTerm());
+          LOGGER.log(Level.FINE, "Node {0} starts an election for term {1}", new Object[] { self, term });
+          if (peers.isEmpty()) {
+            becomeLeader();
+          }
+        }
+      }
+      if (request != null && !peers.isEmpty()) {
+        requestVotes(request);
+      }
+      try {
+        Thread.sleep(tick);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private void requestVotes(RaftProtocol.VoteRequest request) {
+    AtomicInteger granted = new AtomicInteger(1);
+    for (RaftPeer peer : peers) {
+      votes.execute(() -> {
+        RaftProtocol.VoteResponse response;
+        try {
+          if (isolated) {
+            return;
+          }
+          response = peer.call(request);
+        } catch (IOException e) {
+          return;
+        }
+        synchronized (this) {
+          if (response.term() > term) {
+            stepDown(response.term());
+          } else if (response.granted() && role == Role.CANDIDATE && term == request.term()
+              && granted.incrementAndGet() > (peers.size() + 1) / 2) {
+            becomeLeader();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns whether a majority, this leader included, answered within an
+   * election timeout. A leader cut off from it steps down rather than keep
+   * accepting writes it cannot commit.
+   */
+  private boolean hearsFromMajority() {
+    long since = System.currentTimeMillis() - 2 * electionMillis;
+    long reachable = 1 + lastContact.values().stream().filter(contact -> contact >= since).count();
+    return reachable > (peers.size() + 1) / 2;
+  }
+
+  private RaftProtocol.VoteResponse handleVote(RaftProtocol.VoteRequest request) {
+    synchronized (this) {
+      if (request.term() > term) {
+        stepDown(request.term());
+      }
+      boolean upToDate = request.lastLogTerm() > log.lastTerm()
+          || request.lastLogTerm() == log.lastTerm() && request.lastLogIndex() >= log.lastIndex();
+      String votedFor = log.votedFor();
+      boolean grant = request.term() == term && upToDate
+          && (votedFor == null || votedFor.equals(request.candidate()));
+      if (grant) {
+        log.saveState(term, request.candidate());
+        resetElectionDeadline();
+      }
+      return new RaftProtocol.VoteResponse(term, grant);
+    }
+  }
+
+  private void stepDown(long newTerm) {
+    if (newTerm > term) {
+      term = newTerm;
+      log.saveState(newTerm, null);
+    }
+    if (role != Role.FOLLOWER) {
+      LOGGER.log(Level.INFO, "Node {0} steps down in term {1}", new Object[] { self, term });
+    }
+    role = Role.FOLLOWER;
+    readyIndex = Long.MAX_VALUE;
+    resetElectionDeadline();
+    notifyAll();
+  }
+
+  private void becomeLeader() {
+    role = Role.LEADER;
+    leader = self;
+    long first = log.lastIndex() + 1;
+    long now = System.currentTimeMillis();
+    for (RaftPeer peer : peers) {
+      nextIndex.put(peer.name(), first);
+      matchIndex.put(peer.name(), 0L);
+      lastContact.put(peer.name(), now);
+    }
+    readyIndex = log.append(new RaftLog.Entry(term, RaftLog.NO_OP, List.of()));
+    log.force(readyIndex);
+    LOGGER.log(Level.INFO, "Node {0} is the leader of term {1}", new Object[] { self, term });
+    long leaderTerm = term;
+    for (RaftPeer peer : peers) {
+      start("raft-replicator-" + self + "-" + peer.name(), () -> replicate(peer, leaderTerm));
+    }
+    advanceCommit();
+    notifyAll();
+  }
+
+  // --- Replication ------------------------------------------------------
+
+  /**
+   * Sends {@code peer} the entries it lacks, or a heartbeat, for as long as
+   * this node leads {@code leaderTerm}.
+   */
+  private void replicate(RaftPeer peer, long leaderTerm) {
+    long lastSent = 0;
+    while (true) {
+      RaftProtocol.AppendRequest request;
+      synchronized (this) {
+        while (leads(leaderTerm) && nextIndex.get(peer.name()) > log.lastIndex()
+            && System.currentTimeMillis() < lastSent + heartbeatMillis) {
+          try {
+            wait(Math.max(1, lastSent + heartbeatMillis - System.currentTimeMillis()));
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        if (!leads(leaderTerm)) {
+          return;
+        }
+        long next = nextIndex.get(peer.name());
+        request = new RaftProtocol.AppendRequest(term, self, next - 1, log.termAt(next - 1),
+            log.entries(next, RaftProtocol.MAX_BATCH), commitIndex);
+      }
+      lastSent = System.currentTimeMillis();
+      RaftProtocol.AppendResponse response;
+      try {
+        if (isolated) {
+          throw new IOException("isolated");
+        }
+        response = peer.call(request);
+      } catch (IOException e) {
+        sleepQuietly(heartbeatMillis);
+        continue;
+      }
+      synchronized (this) {
+        if (response.term() > term) {
+          stepDown(response.term());
+          return;
+        }
+        if (!leads(leaderTerm)) {
+          return;
+        }
+        lastContact.put(peer.name(), System.currentTimeMillis());
+        if (response.success()) {
+          long match = request.prevIndex() + request.entries().size();
+          if (match > matchIndex.get(peer.name())) {
+            matchIndex.put(peer.name(), match);
+            advanceCommit();
+          }
+          nextIndex.put(peer.name(), Math.max(nextIndex.get(peer.name()), match + 1));
+        } else {
+          nextIndex.put(peer.name(), Math.max(1, Math.min(request.prevIndex(), response.matchIndex() + 1)));
+          lastSent = 0;
+        }
+      }
+    }
+  }
+
+  private boolean leads(long leaderTerm) {
+    return !closed && role == Role.LEADER && term == leaderTerm;
+  }
+
+  /**
+   * Commits up to the highest entry of this term that a majority has on disk.
+   */
+  private void advanceCommit() {
+    if (role != Role.LEADER) {
+      return;
+    }
+    long[] matches = new long[peers.size() + 1];
+    matches[0] = log.durableIndex();
+    for (int i = 0; i < peers.size(); i++) {
+      matches[i + 1] = matchIndex.get(peers.get(i).name());
+    }
+    Arrays.sort(matches);
+    long quorum = matches[matches.length - (matches.length / 2 + 1)];
+    if (quorum > commitIndex && log.termAt(quorum) == term) {
+      commitIndex = quorum;
+      notifyAll();
+    }
+  }
+
+  private RaftProtocol.AppendResponse handleAppend(RaftProtocol.AppendRequest request) {
+    synchronized (this) {
+      if (request.term() < term) {
+        return new RaftProtocol.AppendResponse(term, false, log.lastIndex());
+      }
+      if (request.term() > term || role != Role.FOLLOWER) {
+        stepDown(request.term());
+      }
+      leader = request.leader();
+      resetElectionDeadline();
+      if (request.prevIndex() > log.lastIndex()) {
+        return new RaftProtocol.AppendResponse(term, false, log.lastIndex());
+      }
+      if (log.termAt(request.prevIndex()) != request.prevTerm()) {
+        return new RaftProtocol.AppendResponse(term, false, request.prevIndex() - 1);
+      }
+      long index = request.prevIndex();
+      List<RaftLog.Entry> missing = new ArrayList<>();
+      for (RaftLog.Entry entry : request.entries()) {
+        index++;
+        if (!missing.isEmpty() || index > log.lastIndex()) {
+          missing.add(entry);
+        } else if (log.termAt(index) != entry.term()) {
+          log.truncateFrom(index);
+          failProposalsFrom(index);
+          missing.add(entry);
+        }
+      }
+      if (!missing.isEmpty()) {
+        log.append(missing);
+        log.force(index);
+      }
+      long newCommit = Math.min(request.leaderCommit(), index);
+      if (newCommit > commitIndex) {
+        commitIndex = newCommit;
+        notifyAll();
+      }
+      return new RaftProtocol.AppendResponse(term, true, index);
+    }
+  }
+
+  private void failProposalsFrom(long index) {
+    proposals.forEach((proposed, proposal) -> {
+      if (proposed >= index && proposals.remove(proposed, proposal)) {
+        proposal.done().completeExceptionally(lostLeadership(proposed));
+      }
+    });
+  }
+
+  private static UncheckedIOException lostLeadership(long index) {
+    return new UncheckedIOException(new IOException("Leadership lost before write " + index + " was committed"));
+  }
+
+  // --- Applying committed entries ---------------------------------------
+
+  private void applyLoop() {
+    while (true) {
+      long from;
+      List<RaftLog.Entry> batch;
+      synchronized (this) {
+        while (appliedIndex >= commitIndex && !closed) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+        if (closed) {
+          return;
+        }
+        from = appliedIndex + 1;
+        batch = log.entries(from, (int) Math.min(RaftProtocol.MAX_BATCH, commitIndex - appliedIndex));
+      }
+      for (int i = 0; i < batch.size(); i++) {
+        apply(from + i, batch.get(i));
+      }
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Applies one entry and then releases the write waiting for it, so that
+   * the writer already sees its entry in {@link #appliedIndex()}.
+   */
+  private void apply(long index, RaftLog.Entry entry) {
+    Proposal proposal = proposals.remove(index);
+    boolean own = proposal != null && proposal.term() == entry.term();
+    RuntimeException failure = own ? null : proposal == null ? null : lostLeadership(index);
+    try {
+      if (own) {
+        proposal.apply().run();
+      } else if (entry.type() != RaftLog.NO_OP) {
+        applier.apply(entry);
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.log(Level.SEVERE, "Cannot apply raft entry " + index, e);
+      if (own) {
+        failure = e instanceof RuntimeException runtime ? runtime : new UncheckedIOException((IOException) e);
+      }
+    }
+    appliedIndex = index;
+    if (proposal != null) {
+      if (failure == null) {
+        proposal.done().complete(null);
+      } else {
+        proposal.done().completeExceptionally(failure);
+      }
+    }
+  }
+
+  // --- Serving the other nodes ------------------------------------------
+
+  private void acceptLoop() {
+    while (!closed) {
+      try {
+        Socket socket = server.accept();
+        if (isolated) {
+          socket.close();
+          continue;
+        }
+        connections.add(socket);
+        Thread thread = new Thread(() -> serve(socket), "raft-peer-" + self + "-" + socket.getRemoteSocketAddress());
+        thread.setDaemon(true);
+        thread.start();
+      } catch (IOException e) {
+        if (!closed) {
+          LOGGER.log(Level.WARNING, "Cannot accept raft peer", e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (socket) {
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      if (in.readInt() != RaftProtocol.MAGIC) {
+        throw new IOException("unexpected handshake");
+      }
+      while (!closed && !isolated) {
+        byte kind = in.readByte();
+        switch (kind) {
+          case RaftProtocol.REQUEST_VOTE -> RaftProtocol.write(out, handleVote(RaftProtocol.readVoteRequest(in)));
+          case RaftProtocol.APPEND_ENTRIES -> {
+            RaftProtocol.AppendRequest request = RaftProtocol.readAppendRequest(in);
+            if (isolated) {
+              return;
+            }
+            RaftProtocol.write(out, handleAppend(request));
+          }
+          default -> throw new IOException("Unknown raft call " + kind);
+        }
+        out.flush();
+      }
+    } catch (IOException | UncheckedIOException e) {
+      if (!closed) {
+        LOGGER.log(Level.FINE, "Raft peer {0} disconnected: {1}", new Object[] { socket.getRemoteSocketAddress(), e });
+      }
+    } finally {
+      connections.remove(socket);
+    }
+  }
+
+  /**
+   * Cuts this node off from the others, or reconnects it: while isolated it
+   * neither calls nor answers them, as if the network were partitioned.
+   */
+  void isolate(boolean isolated) {
+    this.isolated = isolated;
+    if (isolated) {
+      closeConnections();
+    }
+    synchronized (this) {
+      resetElectionDeadline();
+      notifyAll();
+    }
+  }
+
+  private void closeConnections() {
+    for (Socket socket : connections) {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // Already disconnected.
+      }
+    }
+  }
+
+  private static void sleepQuietly(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Stops taking part in the group, failing the writes still waiting, and
+   * closes the log.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+    }
+    try {
+      server.close();
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Error closing raft socket", e);
+    }
+    closeConnections();
+    votes.shutdownNow();
+    List<Thread> started;
+    synchronized (threads) {
+      started = new ArrayList<>(threads);
+    }
+    for (Thread thread : started) {
+      thread.interrupt();
+    }
+    peers.forEach(RaftPeer::close);
+    for (Thread thread : started) {
+      try {
+        thread.join(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    proposals.forEach((index, proposal) -> proposal.done()
+        .completeExceptionally(new IllegalStateException("raft node is closed")));
+    log.close();
+  }
+}
@@ -0,0 +1,91 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * The connection from a {@link RaftNode} to one other node, opened on first
+ * use and again after any failure. Calls are made one at a time and time out
+ * after {@code timeoutMillis}.
+ */
+final class RaftPeer implements AutoCloseable {
+
+  private final String name;
+  private final InetSocketAddress address;
+  private final int timeoutMillis;
+
+  private Socket socket;
+  private DataInputStream in;
+  private DataOutputStream out;
+
+  RaftPeer(String name, InetSocketAddress address, int timeoutMillis) {
+    this.name = name;
+    this.address = address;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  String name() {
+    return name;
+  }
+
+  synchronized RaftProtocol.VoteResponse call(RaftProtocol.VoteRequest request) throws IOException {
+    try {
+      RaftProtocol.write(connect(), request);
+      out.flush();
+      return RaftProtocol.readVoteResponse(in);
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  synchronized RaftProtocol.AppendResponse call(RaftProtocol.AppendRequest request) throws IOException {
+    try {
+      RaftProtocol.write(connect(), request);
+      out.flush();
+      return RaftProtocol.readAppendResponse(in);
+    } catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private DataOutputStream connect() throws IOException {
+    if (socket == null) {
+      Socket connection = new Socket();
+      try {
+        connection.connect(address, timeoutMillis);
+        connection.setTcpNoDelay(true);
+        connection.setSoTimeout(timeoutMillis);
+        out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream(), 1 << 16));
+        in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+        out.writeInt(RaftProtocol.MAGIC);
+      } catch (IOException e) {
+        connection.close();
+        throw e;
+      }
+      socket = connection;
+    }
+    return out;
+  }
+
+  /**
+   * Drops the connection; the next call opens a new one.
+   */
+  @Override
+  public synchronized void close() {
+    if (socket != null) {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // Already broken.
+      }
+      socket = null;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Calls between {@link RaftNode}s over TCP, written with
+ * {@code DataOutputStream}.
+ * <p>
+ * The caller opens a connection with {@link #MAGIC} and then sends one
+ * request at a time, a kind byte followed by its fields, and reads the answer
+ * before sending the next. Log entries travel in their {@link RaftLog}
+ * encoding.
+ */
+final class RaftProtocol {
+
+  static final int MAGIC = 0x41425246; // "ABRF"
+
+  /** {@link VoteRequest} answered by {@link VoteResponse}. */
+  static final byte REQUEST_VOTE = 1;
+  /** {@link AppendRequest} answered by {@link AppendResponse}. */
+  static final byte APPEND_ENTRIES = 2;
+
+  /**
+   * Most entries sent in one {@link AppendRequest}.
+   */
+  static final int MAX_BATCH = 512;
+
+  record VoteRequest(long term, String candidate, long lastLogIndex, long lastLogTerm) {
+  }
+
+  record VoteResponse(long term, boolean granted) {
+  }
+
+  /**
+   * Entries following {@code prevIndex}, or none for a heartbeat.
+   */
+  record AppendRequest(long term, String leader, long prevIndex, long prevTerm, List<RaftLog.Entry> entries,
+      long leaderCommit) {
+  }
+
+  /**
+   * On success {@code matchIndex} is the last index now matching the leader;
+   * on a mismatch it is a hint of where the follower's log ends.
+   */
+  record AppendResponse(long term, boolean success, long matchIndex) {
+  }
+
+  private RaftProtocol() {
+  }
+
+  static void write(DataOutputStream out, VoteRequest request) throws IOException {
+    out.writeByte(REQUEST_VOTE);
+    out.writeLong(request.term());
+    out.writeUTF(request.candidate());
+    out.writeLong(request.lastLogIndex());
+    out.writeLong(request.lastLogTerm());
+  }
+
+  static VoteRequest readVoteRequest(DataInputStream in) throws IOException {
+    return new VoteRequest(in.readLong(), in.readUTF(), in.readLong(), in.readLong());
+  }
+
+  static void write(DataOutputStream out, VoteResponse response) throws IOException {
+    out.writeLong(response.term());
+    out.writeBoolean(response.granted());
+  }
+
+  static VoteResponse readVoteResponse(DataInputStream in) throws IOException {
+    return new VoteResponse(in.readLong(), in.readBoolean());
+  }
+
+  static void write(DataOutputStream out, AppendRequest request) throws IOException {
+    out.writeByte(APPEND_ENTRIES);
+    out.writeLong(request.term());
+    out.writeUTF(request.leader());
+    out.writeLong(request.prevIndex());
+    out.writeLong(request.prevTerm());
+    out.writeLong(request.leaderCommit());
+    out.writeInt(request.entries().size());
+    for (RaftLog.Entry entry : request.entries()) {
+      byte[] body = RaftLog.encode(entry);
+      out.writeInt(body.length);
+      out.write(body);
+    }
+  }
+
+  static AppendRequest readAppendRequest(DataInputStream in) throws IOException {
+    long term = in.readLong();
+    String leader = in.readUTF();
+    long prevIndex = in.readLong();
+    long prevTerm = in.readLong();
+    long leaderCommit = in.readLong();
+    int count = in.readInt();
+    if (count < 0 || count > MAX_BATCH) {
+      throw new IOException("Unexpected entry count " + count);
+    }
+    List<RaftLog.Entry> entries = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int length = in.readInt();
+      if (length < 0 || length > Journal.MAX_PAYLOAD_BYTES) {
+        throw new IOException("Unexpected entry length " + length);
+      }
+      entries.add(RaftLog.decode(in.readNBytes(length)));
+    }
+    return new AppendRequest(term, leader, prevIndex, prevTerm, entries, leaderCommit);
+  }
+
+  static void write(DataOutputStream out, AppendResponse response) throws IOException {
+    out.writeLong(response.term());
+    out.writeBoolean(response.success());
+    out.writeLong(response.matchIndex());
+  }
+
+  static AppendResponse readAppendResponse(DataInputStream in) throws IOException {
+    return new AppendResponse(in.readLong(), in.readBoolean(), in.readLong());
+  }
+}
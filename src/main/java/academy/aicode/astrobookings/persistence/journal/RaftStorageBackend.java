@@ -0,0 +1,223 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+
+/**
+ * Highly available backend: a group of nodes, typically three or five,
+ * replicates every rocket, flight and booking write through a
+ * {@link RaftNode}, and each node serves reads from its own memory.
+ * <p>
+ * Only the elected leader accepts writes, and acknowledges one only after a
+ * majority has it on disk, so losing any minority of the nodes, the leader
+ * included, loses no acknowledged booking; the survivors elect a new leader
+ * that holds them all and accepts writes once it has applied them, which
+ * keeps it from selling seats already sold. The leader also counts the
+ * seats of bookings still waiting for a majority as taken, so concurrent
+ * bookings never get the same seat. Writes on another node throw
+ * {@link IllegalStateException} naming the leader. Reads on the leader see
+ * every acknowledged write; reads on the others may lag, and a client reads
+ * its own writes there by waiting for the {@link #logOffset()} returned with
+ * them.
+ * <p>
+ * The repositories and the journal records are those of
+ * {@link JournalStorageBackend}. The log is not compacted: it keeps every
+ * write since the group was formed and a restarted node re-applies it all.
+ * <p>
+ * Configured with the system properties `astrobookings.raft.nodes` (the
+ * group, as `name=host:port,...` with each node's raft port),
+ * `astrobookings.raft.self` (this node's name),
+ * `astrobookings.raft.electionMillis` (default 300),
+ * `astrobookings.raft.heartbeatMillis` (default 50) and
+ * `astrobookings.raft.writeTimeoutMillis` (default 5000). Without
+ * `astrobookings.raft.nodes` the backend is a group of one on
+ * `astrobookings.raft.port` (default any free port).
+ */
+public class RaftStorageBackend implements StorageBackend {
+
+  public static final String NAME = "raft";
+
+  private final MemoryState memory = new MemoryState();
+  private final JournalCodec codec = new JournalCodec();
+  private final RaftNode node;
+  private final RocketRepository rockets;
+  private final FlightRepository flights;
+  private final BookingRepository bookings;
+
+  /**
+   * Opens the log in {@code directory} and joins the group.
+   *
+   * @param directory directory holding this node's log
+   * @param nodes     every node of the group and its raft address, this one
+   *                  included
+   * @param self      the name of this node
+   * @param election  the shortest election timeout
+   * @param heartbeat the interval between the leader's heartbeats
+   * @param write     how long a write waits for a majority
+   * @throws IOException if the log cannot be read or the port bound
+   */
+  public RaftStorageBackend(Path directory, Map<String, InetSocketAddress> nodes, String self, Duration election,
+      Duration heartbeat, Duration write) throws IOException {
+    RaftLog log = new RaftLog(directory);
+    try {
+      this.node = new RaftNode(nodes, self, log, this::apply, election, heartbeat, write);
+    } catch (IOException | RuntimeException e) {
+      log.close();
+      throw e;
+    }
+    this.rockets = new JournaledRocketRepository(memory.rockets, node, codec);
+    this.flights = new JournaledFlightRepository(memory.flights, node, codec);
+    this.bookings = new JournaledBookingRepository(memory.bookings, node, codec);
+  }
+
+  /**
+   * Opens the backend under {@code dataDir}/raft, configured from system
+   * properties.
+   *
+   * @param dataDir the data directory
+   * @return the backend
+   * @throws IllegalArgumentException if the group is misconfigured
+   * @throws UncheckedIOException     if the log cannot be read or the port
+   *                                  bound
+   */
+  public static RaftStorageBackend open(Path dataDir) {
+    String group = System.getProperty("astrobookings.raft.nodes");
+    Map<String, InetSocketAddress> nodes;
+    String self;
+    if (group == null || group.isBlank()) {
+      self = "local";
+      nodes = Map.of(self, new InetSocketAddress("localhost", Integer.getInteger("astrobookings.raft.port", 0)));
+    } else {
+      nodes = parseNodes(group);
+      self = System.getProperty("astrobookings.raft.self");
+      if (self == null) {
+        throw new IllegalArgumentException("astrobookings.raft.self must name this node");
+      }
+    }
+    try {
+      return new RaftStorageBackend(dataDir.resolve(NAME), nodes, self,
+          Duration.ofMillis(Long.getLong("astrobookings.raft.electionMillis", 300)),
+          Duration.ofMillis(Long.getLong("astrobookings.raft.heartbeatMillis", 50)),
+          Duration.ofMillis(Long.getLong("astrobookings.raft.writeTimeoutMillis", 5000)));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open raft log in " + dataDir, e);
+    }
+  }
+
+  /**
+   * Parses `name=host:port,name=host:port,...`.
+   *
+   * @throws IllegalArgumentException if an entry is malformed
+   */
+  static Map<String, InetSocketAddress> parseNodes(String group) {
+    Map<String, InetSocketAddress> nodes = new LinkedHashMap<>();
+    for (String entry : group.split(",")) {
+      int equals = entry.indexOf('=');
+      int colon = entry.lastIndexOf(':');
+      if (equals <= 0 || colon <= equals + 1 || colon == entry.length() - 1) {
+        throw new IllegalArgumentException("Raft node must be name=host:port, was " + entry);
+      }
+      try {
+        nodes.put(entry.substring(0, equals).trim(), new InetSocketAddress(entry.substring(equals + 1, colon).trim(),
+            Integer.parseInt(entry.substring(colon + 1).trim())));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Raft node must be name=host:port, was " + entry);
+      }
+    }
+    return nodes;
+  }
+
+  private void apply(RaftLog.Entry entry) throws IOException {
+    for (byte[] payload : entry.payloads()) {
+      memory.apply(codec, entry.type(), payload);
+    }
+  }
+
+  /**
+   * Returns whether this node is the leader and accepts writes.
+   */
+  public boolean isLeader() {
+    return node.isLeader();
+  }
+
+  /**
+   * Returns the name of the leader this node last heard from, or null while
+   * there is none.
+   */
+  public String leader() {
+    return node.leader();
+  }
+
+  /**
+   * Returns the current term, which grows with every election.
+   */
+  public long term() {
+    return node.term();
+  }
+
+  /**
+   * Returns the port the other nodes reach this one on.
+   */
+  public int port() {
+    return node.port();
+  }
+
+  /**
+   * Cuts this node off from the rest of the group, or reconnects it; for
+   * failure tests.
+   */
+  void isolate(boolean isolated) {
+    node.isolate(isolated);
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public RocketRepository rockets() {
+    return rockets;
+  }
+
+  @Override
+  public FlightRepository flights() {
+    return flights;
+  }
+
+  @Override
+  public BookingRepository bookings() {
+    return bookings;
+  }
+
+  /**
+   * Returns the index of the latest log entry applied on this node.
+   */
+  @Override
+  public long logOffset() {
+    return node.appliedIndex();
+  }
+
+  @Override
+  public boolean awaitLogOffset(long offset, Duration timeout) {
+    return node.awaitApplied(offset, timeout);
+  }
+
+  /**
+   * Leaves the group and closes the log; writes still waiting fail.
+   */
+  @Override
+  public void close() {
+    node.close();
+  }
+}
@@ -0,0 +1,20 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.util.List;
+
+/**
+ * Where the journaled repositories record their writes: a local
+ * {@link Journal}, or a {@link RaftNode} replicating them to a quorum.
+ */
+interface RecordLog {
+
+  /**
+   * Records the payloads and applies {@code apply} in record order, returning
+   * once the records are as durable as the log promises.
+   *
+   * @param type     the record type
+   * @param payloads one record per entity
+   * @param apply    the in-memory change matching the records
+   */
+  void append(byte type, List<byte[]> payloads, Runnable apply);
+}
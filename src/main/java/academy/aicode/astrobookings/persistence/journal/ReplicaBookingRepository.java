@@ -0,0 +1,45 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Booking reads of a replica, served by its current in-memory state. Saves are
+ * rejected since they only come from the primary.
+ */
+class ReplicaBookingRepository implements BookingRepository {
+
+  private final Supplier<MemoryState> state;
+
+  ReplicaBookingRepository(Supplier<MemoryState> state) {
+    this.state = state;
+  }
+
+  @Override
+  public Booking save(Booking booking) {
+    throw new UnsupportedOperationException(ReplicaStorageBackend.READ_ONLY);
+  }
+
+  @Override
+  public Booking findById(String id) {
+    return state.get().bookings.findById(id);
+  }
+
+  @Override
+  public List<Booking> findByFlightId(String flightId) {
+    return state.get().bookings.findByFlightId(flightId);
+  }
+
+  @Override
+  public int countByFlightId(String flightId) {
+    return state.get().bookings.countByFlightId(flightId);
+  }
+
+  @Override
+  public List<Booking> findByPassengerDocument(String passengerDocument, int offset, int limit) {
+    return state.get().bookings.findByPassengerDocument(passengerDocument, offset, limit);
+  }
+}
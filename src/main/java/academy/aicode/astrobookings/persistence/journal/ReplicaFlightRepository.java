@@ -0,0 +1,64 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+/**
+ * Flight reads of a replica, served by its current in-memory state. Saves are
+ * rejected since they only come from the primary; state transitions made while
+ * reading are applied locally, and the primary's own record for the same
+ * transition replaces them when it arrives.
+ */
+class ReplicaFlightRepository implements FlightRepository {
+
+  private final Supplier<MemoryState> state;
+
+  ReplicaFlightRepository(Supplier<MemoryState> state) {
+    this.state = state;
+  }
+
+  @Override
+  public Flight save(Flight flight) {
+    throw new UnsupportedOperationException(ReplicaStorageBackend.READ_ONLY);
+  }
+
+  @Override
+  public void saveAll(List<Flight> batch) {
+    throw new UnsupportedOperationException(ReplicaStorageBackend.READ_ONLY);
+  }
+
+  @Override
+  public void updateState(Flight flight, FlightState state) {
+    this.state.get().flights.updateState(flight, state);
+  }
+
+  @Override
+  public Flight findById(String id) {
+    return state.get().flights.findById(id);
+  }
+
+  @Override
+  public List<Flight> findAll() {
+    return state.get().flights.findAll();
+  }
+
+  @Override
+  public List<Flight> findByState(FlightState state) {
+    return this.state.get().flights.findByState(state);
+  }
+
+  @Override
+  public List<Flight> findLaunchingAfter(Instant instant) {
+    return state.get().flights.findLaunchingAfter(instant);
+  }
+
+  @Override
+  public List<Flight> findLaunchingBetween(Instant from, Instant to) {
+    return state.get().flights.findLaunchingBetween(from, to);
+  }
+}
@@ -0,0 +1,40 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Lecturas de cohetes de una réplica, servidas por su estado actual en
+ * memoria. Las escrituras se rechazan: solo llegan desde el primario.
+ */
+class ReplicaRocketRepository implements RocketRepository {
+
+  private final Supplier<MemoryState> state;
+
+  ReplicaRocketRepository(Supplier<MemoryState> state) {
+    this.state = state;
+  }
+
+  @Override
+  public Rocket save(Rocket rocket) {
+    throw new UnsupportedOperationException(ReplicaStorageBackend.READ_ONLY);
+  }
+
+  @Override
+  public void saveAll(List<Rocket> batch) {
+    throw new UnsupportedOperationException(ReplicaStorageBackend.READ_ONLY);
+  }
+
+  @Override
+  public List<Rocket> findAll() {
+    return state.get().rockets.findAll();
+  }
+
+  @Override
+  public Rocket findById(String id) {
+    return state.get().rockets.findById(id);
+  }
+}
@@ -0,0 +1,294 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+
+/**
+ * Read-only backend following a primary's journal over TCP (see
+ * {@link ReplicationServer}) and serving reads from memory.
+ * <p>
+ * A background thread applies the records in journal order and reconnects
+ * after losing the primary, resuming from the last applied offset. When the
+ * primary sends a full copy instead, it is built into a new state and swapped
+ * in once complete, so reads keep seeing the previous state meanwhile. Writes
+ * through the repositories throw {@link UnsupportedOperationException}.
+ * <p>
+ * Lag is reported both in records ({@link #lagRecords()}) and in time
+ * ({@link #lagMillis()}, which compares the primary's clock with the local
+ * one).
+ */
+public class ReplicaStorageBackend implements StorageBackend {
+
+  private static final Logger LOGGER = Logger.getLogger(ReplicaStorageBackend.class.getName());
+
+  public static final String NAME = "replica";
+
+  static final String READ_ONLY = "Replicas are read-only; write to the primary";
+
+  private final InetSocketAddress primary;
+  private final long retryMillis;
+  private final JournalCodec codec = new JournalCodec();
+  private final Object progress = new Object();
+  private final RocketRepository rockets = new ReplicaRocketRepository(this::state);
+  private final FlightRepository flights = new ReplicaFlightRepository(this::state);
+  private final BookingRepository bookings = new ReplicaBookingRepository(this::state);
+  private final Thread follower;
+
+  private volatile MemoryState state = new MemoryState();
+  private volatile long applied = -1;
+  private volatile long primaryOffset = -1;
+  private volatile long lagMillis = -1;
+  private volatile long lastContactMillis;
+  private volatile boolean connected;
+  private volatile boolean closed;
+  private volatile Socket socket;
+
+  /**
+   * Starts following the primary at {@code primary}.
+   *
+   * @param primary address of the primary's replication port
+   * @param retry   wait between connection attempts
+   */
+  public ReplicaStorageBackend(InetSocketAddress primary, Duration retry) {
+    this.primary = primary;
+    this.retryMillis = Math.max(1, retry.toMillis());
+    this.follower = new Thread(this::followLoop, "replica-follower");
+    follower.setDaemon(true);
+    follower.start();
+  }
+
+  /**
+   * Starts following the primary at {@code host:port}, retrying every
+   * `astrobookings.replication.retryMillis` (default 1000).
+   *
+   * @param address the primary's replication address, as `host:port`
+   * @return the backend
+   * @throws IllegalArgumentException if the address has no port
+   */
+  public static ReplicaStorageBackend connect(String address) {
+    int colon = address.lastIndexOf(':');
+    if (colon <= 0 || colon == address.length() - 1) {
+      throw new IllegalArgumentException("Primary address must be host:port, was " + address);
+    }
+    int port;
+    try {
+      port = Integer.parseInt(address.substring(colon + 1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Primary address must be host:port, was " + address);
+    }
+    return new ReplicaStorageBackend(new InetSocketAddress(address.substring(0, colon), port),
+        Duration.ofMillis(Long.getLong("astrobookings.replication.retryMillis", 1000)));
+  }
+
+  private MemoryState state() {
+    return state;
+  }
+
+  private void followLoop() {
+    while (!closed) {
+      try (Socket connection = new Socket()) {
+        socket = connection;
+        connection.connect(primary);
+        connection.setTcpNoDelay(true);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        out.writeInt(ReplicationProtocol.MAGIC);
+        out.writeLong(applied);
+        out.flush();
+        connected = true;
+        lastContactMillis = System.currentTimeMillis();
+        LOGGER.log(Level.INFO, "Following primary {0} after offset {1}", new Object[] { primary, applied });
+        receive(new DataInputStream(new BufferedInputStream(connection.getInputStream(), 1 << 16)));
+      } catch (IOException e) {
+        if (!closed) {
+          LOGGER.log(Level.INFO, "Lost primary {0}: {1}", new Object[] { primary, e });
+        }
+      } finally {
+        connected = false;
+      }
+      try {
+        Thread.sleep(retryMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+    }
+  }
+
+  private void receive(DataInputStream in) throws IOException {
+    MemoryState copy = null;
+    while (true) {
+      byte frame = in.readByte();
+      lastContactMillis = System.currentTimeMillis();
+      switch (frame) {
+        case ReplicationProtocol.COPY_BEGIN -> copy = new MemoryState();
+        case ReplicationProtocol.ENTITY -> {
+          if (copy == null) {
+            throw new IOException("Entity received outside a copy");
+          }
+          byte type = in.readByte();
+          copy.apply(codec, type, readPayload(in));
+        }
+        case ReplicationProtocol.COPY_END -> {
+          if (copy == null) {
+            throw new IOException("Copy ended without starting");
+          }
+          long offset = in.readLong();
+          state = copy;
+          copy = null;
+          applied = offset;
+          signal();
+          LOGGER.log(Level.INFO, "Copied the primary''s state up to offset {0}", offset);
+        }
+        case ReplicationProtocol.RECORD -> {
+          long offset = in.readLong();
+          long appendedAtMillis = in.readLong();
+          byte type = in.readByte();
+          byte[] payload = readPayload(in);
+          if (offset != applied + 1) {
+            throw new IOException("Expected offset " + (applied + 1) + " but received " + offset);
+          }
+          state.apply(codec, type, payload);
+          applied = offset;
+          lagMillis = Math.max(0, System.currentTimeMillis() - appendedAtMillis);
+        }
+        case ReplicationProtocol.HEARTBEAT -> {
+          primaryOffset = in.readLong();
+          if (applied >= primaryOffset) {
+            lagMillis = 0;
+          }
+          signal();
+        }
+        default -> throw new IOException("Unknown replication frame " + frame);
+      }
+    }
+  }
+
+  private static byte[] readPayload(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > Journal.MAX_PAYLOAD_BYTES) {
+      throw new IOException("Invalid payload length " + length);
+    }
+    byte[] payload = new byte[length];
+    in.readFully(payload);
+    return payload;
+  }
+
+  private void signal() {
+    synchronized (progress) {
+      progress.notifyAll();
+    }
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public RocketRepository rockets() {
+    return rockets;
+  }
+
+  @Override
+  public FlightRepository flights() {
+    return flights;
+  }
+
+  @Override
+  public BookingRepository bookings() {
+    return bookings;
+  }
+
+  /**
+   * Returns the offset of the latest change applied, or -1 before the first
+   * copy from the primary.
+   */
+  @Override
+  public long logOffset() {
+    return applied;
+  }
+
+  /**
+   * Waits until the change at {@code offset} has been applied or the timeout
+   * expires.
+   */
+  @Override
+  public boolean awaitLogOffset(long offset, Duration timeout) {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    synchronized (progress) {
+      while (applied < offset) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        try {
+          progress.wait(Math.max(1, remaining / 1_000_000));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether the replica is connected to the primary.
+   */
+  public boolean isConnected() {
+    return connected;
+  }
+
+  /**
+   * Returns how many records the primary had appended, as of its latest
+   * heartbeat, that are not applied here yet, or -1 before the first
+   * heartbeat.
+   */
+  public long lagRecords() {
+    long latest = primaryOffset;
+    return latest < 0 || applied < 0 ? -1 : Math.max(0, latest - applied);
+  }
+
+  /**
+   * Returns how long ago, by the primary's clock, the latest applied record
+   * was appended, or 0 when the primary's latest heartbeat found nothing
+   * pending. While disconnected it is the time since the primary was last
+   * heard from; -1 before the first connection.
+   */
+  public long lagMillis() {
+    if (!connected) {
+      long contact = lastContactMillis;
+      return contact == 0 ? -1 : System.currentTimeMillis() - contact;
+    }
+    return lagMillis;
+  }
+
+  /**
+   * Stops following the primary.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    follower.interrupt();
+    Socket connection = socket;
+    if (connection != null) {
+      try {
+        connection.close();
+      } catch (IOException e) {
+        // Already disconnected.
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The most recent journal records kept in memory for shipping to replicas, in
+ * a ring of fixed capacity. A replica that falls further behind than the ring
+ * holds has to copy the whole state again.
+ */
+final class ReplicationLog {
+
+  /**
+   * One record with its offset and the primary's wall-clock time when it was
+   * appended.
+   */
+  record Entry(long offset, long appendedAtMillis, byte type, byte[] payload) {
+  }
+
+  private final Entry[] ring;
+  private long start;
+  private long last;
+
+  /**
+   * Creates an empty log; {@link #startAfter} must be called before it is
+   * read.
+   *
+   * @param capacity number of records retained
+   */
+  ReplicationLog(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.ring = new Entry[capacity];
+  }
+
+  /**
+   * Sets the offset of the latest record before the log was attached to the
+   * journal. Records appended in between are kept.
+   */
+  synchronized void startAfter(long offset) {
+    start = offset;
+    last = Math.max(last, offset);
+  }
+
+  /**
+   * Adds consecutive records starting at {@code firstOffset}; used as the
+   * journal's {@link Journal.AppendListener}.
+   */
+  synchronized void append(long firstOffset, byte type, List<byte[]> payloads) {
+    long now = System.currentTimeMillis();
+    long offset = firstOffset;
+    for (byte[] payload : payloads) {
+      ring[slot(offset)] = new Entry(offset, now, type, payload);
+      offset++;
+    }
+    last = offset - 1;
+    notifyAll();
+  }
+
+  /**
+   * Returns the offset of the latest record.
+   */
+  synchronized long last() {
+    return last;
+  }
+
+  /**
+   * Returns whether every record after {@code offset} is still retained.
+   */
+  synchronized boolean retainsAfter(long offset) {
+    return offset <= last && offset >= Math.max(start, last - ring.length);
+  }
+
+  /**
+   * Returns up to {@code max} records after {@code offset}, waiting up to
+   * {@code waitMillis} for one to be appended; the list is empty if none was.
+   *
+   * @return the records, or null if some record after {@code offset} is no
+   *         longer retained
+   * @throws InterruptedException if interrupted while waiting
+   */
+  synchronized List<Entry> read(long offset, int max, long waitMillis) throws InterruptedException {
+    if (last <= offset) {
+      wait(waitMillis);
+    }
+    if (!retainsAfter(offset)) {
+      return null;
+    }
+    long upTo = Math.min(last, offset + max);
+    List<Entry> entries = new ArrayList<>((int) (upTo - offset));
+    for (long next = offset + 1; next <= upTo; next++) {
+      entries.add(ring[slot(next)]);
+    }
+    return entries;
+  }
+
+  private int slot(long offset) {
+    return (int) Math.floorMod(offset, (long) ring.length);
+  }
+}
@@ -0,0 +1,35 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+/**
+ * Frames exchanged between a primary's {@link ReplicationServer} and a
+ * {@link ReplicaStorageBackend} over one TCP connection, written with
+ * {@code DataOutputStream}.
+ * <p>
+ * The replica opens with {@link #MAGIC} and the offset it has applied (or -1).
+ * The primary answers with a full copy ({@link #COPY_BEGIN}, {@link #ENTITY}
+ * frames, {@link #COPY_END} with the offset the copy covers) when that offset
+ * is no longer in its {@link ReplicationLog}, and then streams {@link #RECORD}
+ * frames, each batch followed by a {@link #HEARTBEAT}. Heartbeats are also
+ * sent every {@link #HEARTBEAT_MILLIS} while idle.
+ */
+final class ReplicationProtocol {
+
+  static final int MAGIC = 0x41425231; // "ABR1"
+
+  /** No body; the replica starts building a new state. */
+  static final byte COPY_BEGIN = 1;
+  /** {@code byte type, int length, payload}: one entity of the copy. */
+  static final byte ENTITY = 2;
+  /** {@code long offset}: the copy is complete and covers up to the offset. */
+  static final byte COPY_END = 3;
+  /** {@code long offset, long appendedAtMillis, byte type, int length, payload}. */
+  static final byte RECORD = 4;
+  /** {@code long primaryOffset}: the primary's latest offset. */
+  static final byte HEARTBEAT = 5;
+
+  static final long HEARTBEAT_MILLIS = 200;
+  static final int MAX_BATCH = 1024;
+
+  private ReplicationProtocol() {
+  }
+}
@@ -0,0 +1,191 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Ships the journal of a primary {@link JournalStorageBackend} to
+ * {@link ReplicaStorageBackend}s over TCP, with one thread per replica.
+ * <p>
+ * The latest records are kept in a {@link ReplicationLog}. A replica that
+ * reconnects while its offset is still there resumes from it; otherwise it
+ * first receives a copy of every entity, read while writes continue, followed
+ * by the records appended since the copy started. Every record carries a whole
+ * entity, so applying them over the copy ends in the primary's state, as with
+ * snapshots.
+ */
+public class ReplicationServer implements AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(ReplicationServer.class.getName());
+
+  private final MemoryState memory;
+  private final Journal journal;
+  private final JournalCodec codec = new JournalCodec();
+  private final ReplicationLog log;
+  private final ServerSocket server;
+  private final Set<Socket> replicas = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed;
+
+  /**
+   * Starts shipping the journal of {@code primary} on {@code port} (0 picks a
+   * free port).
+   *
+   * @param primary the backend whose journal is shipped
+   * @param port    the TCP port
+   * @param backlog number of recent records kept for replicas that reconnect
+   * @throws IOException if the port cannot be bound
+   */
+  ReplicationServer(JournalStorageBackend primary, int port, int backlog) throws IOException {
+    this.memory = primary.memory();
+    this.journal = primary.journal();
+    this.log = new ReplicationLog(backlog);
+    this.server = new ServerSocket();
+    server.bind(new InetSocketAddress(port));
+    log.startAfter(journal.listen(log::append));
+    Thread acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+    acceptor.setDaemon(true);
+    acceptor.start();
+    LOGGER.log(Level.INFO, "Shipping journal to replicas on port {0}", port());
+  }
+
+  /**
+   * Returns the port replicas connect to.
+   */
+  public int port() {
+    return server.getLocalPort();
+  }
+
+  /**
+   * Returns the number of replicas currently connected.
+   */
+  public int replicaCount() {
+    return replicas.size();
+  }
+
+  private void acceptLoop() {
+    while (!closed) {
+      try {
+        Socket socket = server.accept();
+        replicas.add(socket);
+        Thread thread = new Thread(() -> serve(socket), "replication-" + socket.getRemoteSocketAddress());
+        thread.setDaemon(true);
+        thread.start();
+      } catch (IOException e) {
+        if (!closed) {
+          LOGGER.log(Level.WARNING, "Cannot accept replica", e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    Object peer = socket.getRemoteSocketAddress();
+    try (socket) {
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+      if (in.readInt() != ReplicationProtocol.MAGIC) {
+        throw new IOException("unexpected handshake");
+      }
+      long offset = in.readLong();
+      if (log.retainsAfter(offset)) {
+        LOGGER.log(Level.INFO, "Replica {0} resumed after offset {1}", new Object[] { peer, offset });
+      } else {
+        offset = copy(out);
+        LOGGER.log(Level.INFO, "Replica {0} copied the state up to offset {1}", new Object[] { peer, offset });
+      }
+      while (!closed) {
+        List<ReplicationLog.Entry> entries = log.read(offset, ReplicationProtocol.MAX_BATCH,
+            ReplicationProtocol.HEARTBEAT_MILLIS);
+        if (entries == null) {
+          LOGGER.log(Level.WARNING, "Replica {0} fell behind the replication log; disconnecting it", peer);
+          return;
+        }
+        for (ReplicationLog.Entry entry : entries) {
+          out.writeByte(ReplicationProtocol.RECORD);
+          out.writeLong(entry.offset());
+          out.writeLong(entry.appendedAtMillis());
+          out.writeByte(entry.type());
+          out.writeInt(entry.payload().length);
+          out.write(entry.payload());
+          offset = entry.offset();
+        }
+        out.writeByte(ReplicationProtocol.HEARTBEAT);
+        out.writeLong(log.last());
+        out.flush();
+      }
+    } catch (IOException e) {
+      if (!closed) {
+        LOGGER.log(Level.INFO, "Replica {0} disconnected: {1}", new Object[] { peer, e });
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      replicas.remove(socket);
+    }
+  }
+
+  /**
+   * Sends every entity and returns the offset the copy covers: every record up
+   * to it was applied to memory before the entities were read.
+   */
+  private long copy(DataOutputStream out) throws IOException {
+    long offset = log.last();
+    out.writeByte(ReplicationProtocol.COPY_BEGIN);
+    for (Rocket rocket : memory.rockets.findAll()) {
+      writeEntity(out, JournalStorageBackend.ROCKET, codec.encode(rocket));
+    }
+    for (Flight flight : memory.flights.findAll()) {
+      writeEntity(out, JournalStorageBackend.FLIGHT, codec.encode(flight));
+    }
+    for (Booking booking : memory.bookings.findAll()) {
+      writeEntity(out, JournalStorageBackend.BOOKING, codec.encode(booking));
+    }
+    out.writeByte(ReplicationProtocol.COPY_END);
+    out.writeLong(offset);
+    return offset;
+  }
+
+  private static void writeEntity(DataOutputStream out, byte type, byte[] payload) throws IOException {
+    out.writeByte(ReplicationProtocol.ENTITY);
+    out.writeByte(type);
+    out.writeInt(payload.length);
+    out.write(payload);
+  }
+
+  /**
+   * Stops accepting replicas and disconnects the connected ones.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    journal.listen(null);
+    try {
+      server.close();
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Error closing replication socket", e);
+    }
+    for (Socket socket : replicas) {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // Already disconnected.
+      }
+    }
+  }
+}
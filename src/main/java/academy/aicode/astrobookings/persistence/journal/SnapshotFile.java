@@ -0,0 +1,282 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+import academy.aicode.astrobookings.persistence.models.Range;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Binary snapshot of all rockets, flights and bookings, named
+ * `snapshot-&lt;seq&gt;.bin` after the first journal segment it does not
+ * cover.
+ * <p>
+ * Layout: magic, format version and segment sequence, then each entity kind
+ * as a count followed by its entities field by field, and a trailing CRC32 of
+ * everything before it. Nullable fields are prefixed with a presence flag;
+ * strings are length-prefixed UTF-8 and enums are stored by name.
+ */
+final class SnapshotFile {
+
+  private static final int MAGIC = 0x41425350; // "ABSP"
+  private static final int FORMAT_VERSION = 1;
+  private static final String PREFIX = "snapshot-";
+  private static final String SUFFIX = ".bin";
+  private static final int MAX_STRING_BYTES = 1 << 20;
+
+  /**
+   * Contents of a loaded snapshot.
+   */
+  record Contents(long segment, List<Rocket> rockets, List<Flight> flights, List<Booking> bookings) {
+  }
+
+  private SnapshotFile() {
+  }
+
+  /**
+   * Returns the sequence numbers of the snapshots in {@code directory}, in
+   * ascending order.
+   */
+  static List<Long> list(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(path -> path.getFileName().toString())
+          .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+          .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+          .sorted()
+          .toList();
+    }
+  }
+
+  static Path path(Path directory, long segment) {
+    return directory.resolve(String.format("%s%020d%s", PREFIX, segment, SUFFIX));
+  }
+
+  /**
+   * Writes a snapshot to a temporary file, forces it and renames it into
+   * place, so a crash leaves either no snapshot or a complete one.
+   *
+   * @return the size of the snapshot in bytes
+   */
+  static long write(Path directory, long segment, List<Rocket> rockets, List<Flight> flights,
+      List<Booking> bookings) throws IOException {
+    Path target = path(directory, segment);
+    Path temp = directory.resolve(target.getFileName() + ".tmp");
+    try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+      CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+      DataOutputStream out = new DataOutputStream(checked);
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(segment);
+
+      out.writeInt(rockets.size());
+      for (Rocket rocket : rockets) {
+        writeString(out, rocket.getId());
+        writeString(out, rocket.getName());
+        writeInteger(out, rocket.getCapacity());
+        writeString(out, rocket.getRange() == null ? null : rocket.getRange().name());
+        writeDouble(out, rocket.getSpeed());
+      }
+      out.writeInt(flights.size());
+      for (Flight flight : flights) {
+        writeString(out, flight.getId());
+        writeString(out, flight.getRocketId());
+        writeInstant(out, flight.getLaunchDateTime());
+        writeDouble(out, flight.getBasePrice());
+        writeInteger(out, flight.getMinimumPassengers());
+        writeString(out, flight.getState() == null ? null : flight.getState().name());
+      }
+      out.writeInt(bookings.size());
+      for (Booking booking : bookings) {
+        writeString(out, booking.getId());
+        writeString(out, booking.getFlightId());
+        writeString(out, booking.getPassengerName());
+        writeString(out, booking.getPassengerDocument());
+        writeDouble(out, booking.getFinalPrice());
+        writeInteger(out, booking.getDiscountPercent());
+        writeInstant(out, booking.getCreatedAt());
+      }
+      out.writeLong(checked.getChecksum().getValue());
+      out.flush();
+      file.getFD().sync();
+    }
+    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    syncDirectory(directory);
+    return Files.size(target);
+  }
+
+  /**
+   * Reads the snapshot for {@code segment}.
+   *
+   * @throws IOException if the file is missing, truncated or fails its
+   *                     checksum
+   */
+  static Contents read(Path directory, long segment) throws IOException {
+    Path file = path(directory, segment);
+    try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+      CheckedInputStream checked = new CheckedInputStream(raw, new CRC32());
+      DataInputStream in = new DataInputStream(checked);
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || in.readLong() != segment) {
+        throw new IOException("Not a snapshot for segment " + segment + ": " + file);
+      }
+
+      int rocketCount = readCount(in);
+      List<Rocket> rockets = new ArrayList<>(rocketCount);
+      for (int i = 0; i < rocketCount; i++) {
+        Rocket rocket = new Rocket();
+        rocket.setId(readString(in));
+        rocket.setName(readString(in));
+        rocket.setCapacity(readInteger(in));
+        String range = readString(in);
+        rocket.setRange(range == null ? null : Range.valueOf(range));
+        rocket.setSpeed(readDouble(in));
+        rockets.add(rocket);
+      }
+      int flightCount = readCount(in);
+      List<Flight> flights = new ArrayList<>(flightCount);
+      for (int i = 0; i < flightCount; i++) {
+        Flight flight = new Flight();
+        flight.setId(readString(in));
+        flight.setRocketId(readString(in));
+        flight.setLaunchDateTime(readInstant(in));
+        flight.setBasePrice(readDouble(in));
+        flight.setMinimumPassengers(readInteger(in));
+        String state = readString(in);
+        flight.setState(state == null ? null : FlightState.valueOf(state));
+        flights.add(flight);
+      }
+      int bookingCount = readCount(in);
+      List<Booking> bookings = new ArrayList<>(bookingCount);
+      for (int i = 0; i < bookingCount; i++) {
+        Booking booking = new Booking();
+        booking.setId(readString(in));
+        booking.setFlightId(readString(in));
+        booking.setPassengerName(readString(in));
+        booking.setPassengerDocument(readString(in));
+        booking.setFinalPrice(readDouble(in));
+        booking.setDiscountPercent(readInteger(in));
+        booking.setCreatedAt(readInstant(in));
+        bookings.add(booking);
+      }
+
+      long expected = checked.getChecksum().getValue();
+      if (in.readLong() != expected) {
+        throw new IOException("Snapshot checksum mismatch: " + file);
+      }
+      return new Contents(segment, rockets, flights, bookings);
+    } catch (EOFException | IllegalArgumentException e) {
+      throw new IOException("Snapshot is truncated or corrupt: " + file, e);
+    }
+  }
+
+  /**
+   * Deletes snapshots older than {@code segment} and leftover temporary files.
+   */
+  static void deleteOlderThan(Path directory, long segment) throws IOException {
+    for (long old : list(directory)) {
+      if (old < segment) {
+        Files.deleteIfExists(path(directory, old));
+      }
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path temp : files.filter(p -> p.getFileName().toString().endsWith(SUFFIX + ".tmp")).toList()) {
+        Files.deleteIfExists(temp);
+      }
+    }
+  }
+
+  private static void syncDirectory(Path directory) {
+    try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+      dir.force(true);
+    } catch (IOException e) {
+      // Not supported on every platform; the rename is still atomic.
+    }
+  }
+
+  private static int readCount(DataInputStream in) throws IOException {
+    int count = in.readInt();
+    if (count < 0) {
+      throw new IOException("Negative entity count in snapshot");
+    }
+    return count;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    if (length > MAX_STRING_BYTES) {
+      throw new IOException("String length " + length + " exceeds snapshot limit");
+    }
+    return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+  }
+
+  private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeInt(value);
+    }
+  }
+
+  private static Integer readInteger(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readInt() : null;
+  }
+
+  private static void writeDouble(DataOutputStream out, Double value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeDouble(value);
+    }
+  }
+
+  private static Double readDouble(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readDouble() : null;
+  }
+
+  private static void writeInstant(DataOutputStream out, Instant value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value.getEpochSecond());
+      out.writeInt(value.getNano());
+    }
+  }
+
+  private static Instant readInstant(DataInputStream in) throws IOException {
+    return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+  }
+}
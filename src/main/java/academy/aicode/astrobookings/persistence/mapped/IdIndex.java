@@ -0,0 +1,95 @@
+package academy.aicode.astrobookings.persistence.mapped;
+
+import java.util.function.IntFunction;
+
+/**
+ * Open-addressing hash index from booking id to record number, held in two
+ * primitive arrays. Ids are not kept on the heap: a probe whose hash matches
+ * reads the id back from the mapped record to confirm it.
+ * <p>
+ * Not thread-safe; {@link MappedBookingRepository} guards it with its lock.
+ */
+final class IdIndex {
+
+  private static final int EMPTY = 0;
+
+  private final IntFunction<String> idOfRecord;
+  private int[] hashes = new int[1024];
+  private int[] records = new int[1024];
+  private int size;
+
+  /**
+   * @param idOfRecord reads the id stored in a record
+   */
+  IdIndex(IntFunction<String> idOfRecord) {
+    this.idOfRecord = idOfRecord;
+  }
+
+  /**
+   * Returns the record holding {@code id}, or -1.
+   */
+  int get(String id) {
+    int hash = id.hashCode();
+    int mask = records.length - 1;
+    for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+      if (records[slot] == EMPTY) {
+        return -1;
+      }
+      if (hashes[slot] == hash && id.equals(idOfRecord.apply(records[slot] - 1))) {
+        return records[slot] - 1;
+      }
+    }
+  }
+
+  /**
+   * Maps {@code id} to {@code record}, replacing any previous mapping.
+   *
+   * @return the previous record for the id, or -1
+   */
+  int put(String id, int record) {
+    if ((size + 1) * 2 > records.length) {
+      grow();
+    }
+    int hash = id.hashCode();
+    int mask = records.length - 1;
+    for (int slot = spread(hash) & mask;; slot = (slot + 1) & mask) {
+      if (records[slot] == EMPTY) {
+        hashes[slot] = hash;
+        records[slot] = record + 1;
+        size++;
+        return -1;
+      }
+      if (hashes[slot] == hash && id.equals(idOfRecord.apply(records[slot] - 1))) {
+        int previous = records[slot] - 1;
+        records[slot] = record + 1;
+        return previous;
+      }
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  private void grow() {
+    int[] oldHashes = hashes;
+    int[] oldRecords = records;
+    hashes = new int[oldRecords.length * 2];
+    records = new int[oldRecords.length * 2];
+    int mask = records.length - 1;
+    for (int i = 0; i < oldRecords.length; i++) {
+      if (oldRecords[i] != EMPTY) {
+        int slot = spread(oldHashes[i]) & mask;
+        while (records[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        hashes[slot] = oldHashes[i];
+        records[slot] = oldRecords[i];
+      }
+    }
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -0,0 +1,85 @@
+package academy.aicode.astrobookings.persistence.mapped;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A growable area made of fixed-size segment files `&lt;prefix&gt;-&lt;n&gt;.seg`,
+ * each mapped into memory whole. Offsets into the area are longs; segment
+ * {@code n} covers offsets {@code [n * segmentBytes, (n + 1) * segmentBytes)}.
+ * <p>
+ * Not thread-safe for growth; callers serialize {@link #segment} calls that
+ * may map a new file.
+ */
+final class MappedArea {
+
+  private final Path directory;
+  private final String prefix;
+  private final int segmentBytes;
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+  /**
+   * Maps the existing segment files of the area, in order.
+   */
+  MappedArea(Path directory, String prefix, int segmentBytes) throws IOException {
+    this.directory = directory;
+    this.prefix = prefix;
+    this.segmentBytes = segmentBytes;
+    while (Files.exists(path(segments.size()))) {
+      segments.add(map(segments.size()));
+    }
+  }
+
+  int segmentBytes() {
+    return segmentBytes;
+  }
+
+  int segmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Returns segment {@code index}, creating and mapping the next file when
+   * {@code index} is one past the last segment.
+   */
+  ByteBuffer segment(int index) throws IOException {
+    if (index == segments.size()) {
+      segments.add(map(index));
+    }
+    return segments.get(index);
+  }
+
+  /**
+   * Returns an existing segment without growing the area.
+   */
+  ByteBuffer existingSegment(int index) {
+    return segments.get(index);
+  }
+
+  /**
+   * Writes the dirty pages of every segment to disk.
+   */
+  void force() {
+    for (MappedByteBuffer segment : segments) {
+      segment.force();
+    }
+  }
+
+  private MappedByteBuffer map(int index) throws IOException {
+    try (FileChannel channel = FileChannel.open(path(index), StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    }
+  }
+
+  private Path path(int index) {
+    return directory.resolve(String.format("%s-%06d.seg", prefix, index));
+  }
+}
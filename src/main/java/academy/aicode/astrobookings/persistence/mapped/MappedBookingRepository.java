@@ -0,0 +1,442 @@
+package academy.aicode.astrobookings.persistence.mapped;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.DocumentIndex;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.VersionStamps;
+
+/**
+ * Booking repository stored in memory-mapped files instead of the Java heap.
+ * <p>
+ * Each booking is a fixed 64-byte record in the `records-*.seg` files: price,
+ * discount and creation time as primitives, and the id, passenger name,
+ * passenger document and flight id as offsets into the `strings-*.seg` side
+ * area, where strings are stored once as length-prefixed UTF-8. A flight id
+ * is written once and shared by all its bookings. Only primitive indexes stay
+ * on the heap: id to record number ({@link IdIndex}), flight id to its
+ * record numbers, and passenger document hash to its record numbers
+ * ({@link DocumentIndex}). {@link Booking} objects are built on each read;
+ * records are never rewritten, so each carries a stamp taken from a block
+ * reserved when the repository opens ({@link VersionStamps#reserve}) and
+ * every read of a record returns the same version.
+ * <p>
+ * A record is committed by writing its flags last. Saving an existing id
+ * appends a new record and marks the old one superseded, so a crash never
+ * leaves a half-overwritten booking; superseded records and their strings are
+ * not reclaimed. Reopening the directory scans the records to rebuild the
+ * indexes. Writes reach the page cache immediately and are forced to disk on
+ * {@link #close()}: they survive a process crash, but a power loss may lose
+ * the most recent ones.
+ */
+public class MappedBookingRepository implements BookingRepository, AutoCloseable {
+
+  static final int RECORD_BYTES = 64;
+
+  private static final int FLAGS = 0;
+  private static final int DISCOUNT = 4;
+  private static final int FLIGHT = 8;
+  private static final int CREATED_SECONDS = 16;
+  private static final int CREATED_NANOS = 24;
+  private static final int PRICE = 32;
+  private static final int ID = 40;
+  private static final int PASSENGER_NAME = 48;
+  private static final int PASSENGER_DOCUMENT = 56;
+
+  private static final int COMMITTED = 1;
+  private static final int HAS_PRICE = 1 << 1;
+  private static final int HAS_DISCOUNT = 1 << 2;
+  private static final int HAS_CREATED = 1 << 3;
+  private static final int SUPERSEDED = 1 << 4;
+
+  private static final long NULL = -1;
+
+  private final int recordsPerSegment;
+  private final MappedArea records;
+  private final MappedArea strings;
+  private final IdIndex ids = new IdIndex(this::readId);
+  private final Map<String, FlightBookings> byFlightId = new HashMap<>();
+  private final Map<Long, FlightBookings> byFlightRef = new HashMap<>();
+  private final DocumentIndex byDocument = new DocumentIndex();
+  /** Version of record 0; record {@code n} has {@code firstVersion + n}. */
+  private final long firstVersion = VersionStamps.reserve(Integer.MAX_VALUE);
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  private int nextRecord;
+  private long nextString;
+  private boolean closed;
+
+  /**
+   * Record numbers of the live bookings of one flight.
+   */
+  private static final class FlightBookings {
+    private final String flightId;
+    private final long ref;
+    private int[] records = new int[8];
+    private int size;
+
+    private FlightBookings(String flightId, long ref) {
+      this.flightId = flightId;
+      this.ref = ref;
+    }
+
+    private void add(int record) {
+      if (size == records.length) {
+        records = Arrays.copyOf(records, size * 2);
+      }
+      records[size++] = record;
+    }
+
+    private void remove(int record) {
+      for (int i = 0; i < size; i++) {
+        if (records[i] == record) {
+          records[i] = records[--size];
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Opens (or creates) the repository in {@code directory} with 64K records
+   * (4 MB) per record segment and 16 MB string segments.
+   *
+   * @param directory the directory holding the segment files
+   * @throws IOException if the segments cannot be mapped
+   */
+  public MappedBookingRepository(Path directory) throws IOException {
+    this(directory, 1 << 16, 16 << 20);
+  }
+
+  MappedBookingRepository(Path directory, int recordsPerSegment, int stringSegmentBytes) throws IOException {
+    Files.createDirectories(directory);
+    this.recordsPerSegment = recordsPerSegment;
+    this.records = new MappedArea(directory, "records", recordsPerSegment * RECORD_BYTES);
+    this.strings = new MappedArea(directory, "strings", stringSegmentBytes);
+    recover();
+  }
+
+  /**
+   * Rebuilds the indexes and write positions from the committed records. If a
+   * crash left an id committed twice, the later record wins.
+   */
+  private void recover() throws IOException {
+    long stringEnd = 0;
+    int capacity = records.segmentCount() * recordsPerSegment;
+    int record = 0;
+    for (; record < capacity; record++) {
+      ByteBuffer segment = recordSegment(record);
+      int base = recordOffset(record);
+      int flags = segment.getInt(base + FLAGS);
+      if ((flags & COMMITTED) == 0) {
+        break;
+      }
+      for (int field : new int[] { FLIGHT, ID, PASSENGER_NAME, PASSENGER_DOCUMENT }) {
+        stringEnd = Math.max(stringEnd, stringEnd(segment.getLong(base + field)));
+      }
+      if ((flags & SUPERSEDED) == 0) {
+        index(record, readId(record), segment.getLong(base + FLIGHT));
+      }
+    }
+    nextRecord = record;
+    nextString = stringEnd;
+  }
+
+  /**
+   * Saves the booking, generating an id and creation time if needed. Saving an
+   * existing id replaces the stored booking.
+   *
+   * @param booking the booking to save
+   * @return the saved booking
+   * @throws IllegalArgumentException if a string field does not fit in a
+   *                                  string segment
+   * @throws IllegalStateException    if the repository is closed
+   */
+  @Override
+  public Booking save(Booking booking) {
+    if (booking.getId() == null) {
+      booking.setId(IdGenerators.nextId());
+    }
+    if (booking.getCreatedAt() == null) {
+      booking.setCreatedAt(Instant.now());
+    }
+
+    lock.writeLock().lock();
+    try {
+      requireOpen();
+      int record = nextRecord;
+      ByteBuffer segment = records.segment(record / recordsPerSegment);
+      int base = recordOffset(record);
+      long flightRef = internFlight(booking.getFlightId());
+
+      int flags = COMMITTED;
+      segment.putLong(base + FLIGHT, flightRef);
+      segment.putLong(base + ID, writeString(booking.getId()));
+      segment.putLong(base + PASSENGER_NAME, writeString(booking.getPassengerName()));
+      segment.putLong(base + PASSENGER_DOCUMENT, writeString(booking.getPassengerDocument()));
+      if (booking.getFinalPrice() != null) {
+        segment.putDouble(base + PRICE, booking.getFinalPrice());
+        flags |= HAS_PRICE;
+      }
+      if (booking.getDiscountPercent() != null) {
+        segment.putInt(base + DISCOUNT, booking.getDiscountPercent());
+        flags |= HAS_DISCOUNT;
+      }
+      segment.putLong(base + CREATED_SECONDS, booking.getCreatedAt().getEpochSecond());
+      segment.putInt(base + CREATED_NANOS, booking.getCreatedAt().getNano());
+      flags |= HAS_CREATED;
+      segment.putInt(base + FLAGS, flags);
+      nextRecord++;
+
+      index(record, booking.getId(), flightRef);
+      return booking;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot grow booking segments", e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds a booking by id.
+   *
+   * @param id the booking id
+   * @return a booking built from the stored record, or null
+   */
+  @Override
+  public Booking findById(String id) {
+    lock.readLock().lock();
+    try {
+      requireOpen();
+      int record = ids.get(id);
+      return record < 0 ? null : read(record);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns all bookings for a given flight id.
+   *
+   * @param flightId the flight id
+   * @return list of bookings for the flight
+   */
+  @Override
+  public List<Booking> findByFlightId(String flightId) {
+    lock.readLock().lock();
+    try {
+      requireOpen();
+      FlightBookings flight = byFlightId.get(flightId);
+      if (flight == null) {
+        return new ArrayList<>();
+      }
+      List<Booking> found = new ArrayList<>(flight.size);
+      for (int i = 0; i < flight.size; i++) {
+        found.add(read(flight.records[i]));
+      }
+      return found;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Counts bookings for a given flight id.
+   *
+   * @param flightId the flight id
+   * @return the count
+   */
+  @Override
+  public int countByFlightId(String flightId) {
+    lock.readLock().lock();
+    try {
+      requireOpen();
+      FlightBookings flight = byFlightId.get(flightId);
+      return flight == null ? 0 : flight.size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Returns a page of the bookings of a passenger, oldest first.
+   *
+   * @param passengerDocument the passenger document
+   * @param offset            how many bookings to skip
+   * @param limit             the most bookings to return
+   * @return bookings built from the stored records in the page
+   */
+  @Override
+  public List<Booking> findByPassengerDocument(String passengerDocument, int offset, int limit) {
+    lock.readLock().lock();
+    try {
+      requireOpen();
+      List<Booking> found = new ArrayList<>();
+      for (int record : byDocument.keys(DocumentIndex.hash(passengerDocument))) {
+        Booking booking = read(record);
+        if (passengerDocument.equals(booking.getPassengerDocument())) {
+          found.add(booking);
+        }
+      }
+      return DocumentIndex.page(found, offset, limit);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Forces the segments to disk and rejects further use.
+   */
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      if (!closed) {
+        closed = true;
+        records.force();
+        strings.force();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void index(int record, String id, long flightRef) {
+    int previous = ids.put(id, record);
+    if (previous >= 0) {
+      ByteBuffer segment = recordSegment(previous);
+      int base = recordOffset(previous);
+      segment.putInt(base + FLAGS, segment.getInt(base + FLAGS) | SUPERSEDED);
+      FlightBookings oldFlight = byFlightRef.get(segment.getLong(base + FLIGHT));
+      if (oldFlight != null) {
+        oldFlight.remove(previous);
+      }
+      long oldDocument = segment.getLong(base + PASSENGER_DOCUMENT);
+      if (oldDocument != NULL) {
+        byDocument.remove(DocumentIndex.hash(readString(oldDocument)), previous);
+      }
+    }
+    long document = recordSegment(record).getLong(recordOffset(record) + PASSENGER_DOCUMENT);
+    if (document != NULL) {
+      byDocument.add(DocumentIndex.hash(readString(document)), record);
+    }
+    if (flightRef != NULL) {
+      FlightBookings flight = byFlightRef.get(flightRef);
+      if (flight == null) {
+        flight = new FlightBookings(readString(flightRef), flightRef);
+        byFlightRef.put(flightRef, flight);
+        byFlightId.putIfAbsent(flight.flightId, flight);
+      }
+      flight.add(record);
+    }
+  }
+
+  private long internFlight(String flightId) throws IOException {
+    if (flightId == null) {
+      return NULL;
+    }
+    FlightBookings flight = byFlightId.get(flightId);
+    if (flight != null) {
+      return flight.ref;
+    }
+    long ref = writeString(flightId);
+    flight = new FlightBookings(flightId, ref);
+    byFlightId.put(flightId, flight);
+    byFlightRef.put(ref, flight);
+    return ref;
+  }
+
+  private Booking read(int record) {
+    ByteBuffer segment = recordSegment(record);
+    int base = recordOffset(record);
+    int flags = segment.getInt(base + FLAGS);
+    long flightRef = segment.getLong(base + FLIGHT);
+    FlightBookings flight = flightRef == NULL ? null : byFlightRef.get(flightRef);
+    return new Booking(
+        readString(segment.getLong(base + ID)),
+        flight == null ? readString(flightRef) : flight.flightId,
+        readString(segment.getLong(base + PASSENGER_NAME)),
+        readString(segment.getLong(base + PASSENGER_DOCUMENT)),
+        (flags & HAS_PRICE) != 0 ? segment.getDouble(base + PRICE) : null,
+        (flags & HAS_DISCOUNT) != 0 ? segment.getInt(base + DISCOUNT) : null,
+        (flags & HAS_CREATED) != 0
+            ? Instant.ofEpochSecond(segment.getLong(base + CREATED_SECONDS), segment.getInt(base + CREATED_NANOS))
+            : null,
+        firstVersion + record);
+  }
+
+  private String readId(int record) {
+    return readString(recordSegment(record).getLong(recordOffset(record) + ID));
+  }
+
+  private long writeString(String value) throws IOException {
+    if (value == null) {
+      return NULL;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    int size = Integer.BYTES + bytes.length;
+    int segmentBytes = strings.segmentBytes();
+    if (size > segmentBytes) {
+      throw new IllegalArgumentException("String of " + bytes.length + " bytes does not fit in a booking segment");
+    }
+    long offset = nextString;
+    if (offset % segmentBytes + size > segmentBytes) {
+      offset = (offset / segmentBytes + 1) * segmentBytes;
+    }
+    ByteBuffer segment = strings.segment((int) (offset / segmentBytes));
+    int position = (int) (offset % segmentBytes);
+    segment.putInt(position, bytes.length);
+    segment.put(position + Integer.BYTES, bytes);
+    nextString = offset + size;
+    return offset;
+  }
+
+  private String readString(long ref) {
+    if (ref == NULL) {
+      return null;
+    }
+    int segmentBytes = strings.segmentBytes();
+    ByteBuffer segment = strings.existingSegment((int) (ref / segmentBytes));
+    int position = (int) (ref % segmentBytes);
+    byte[] bytes = new byte[segment.getInt(position)];
+    segment.get(position + Integer.BYTES, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private long stringEnd(long ref) {
+    if (ref == NULL) {
+      return 0;
+    }
+    int segmentBytes = strings.segmentBytes();
+    return ref + Integer.BYTES + strings.existingSegment((int) (ref / segmentBytes)).getInt((int) (ref % segmentBytes));
+  }
+
+  private ByteBuffer recordSegment(int record) {
+    return records.existingSegment(record / recordsPerSegment);
+  }
+
+  private int recordOffset(int record) {
+    return (record % recordsPerSegment) * RECORD_BYTES;
+  }
+
+  private void requireOpen() {
+    if (closed) {
+      throw new IllegalStateException("Booking segments are closed");
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package academy.aicode.astrobookings.persistence.mapped;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+import academy.aicode.astrobookings.persistence.journal.JournalStorageBackend;
+
+/**
+ * Backend keeping bookings off the heap in a {@link MappedBookingRepository}
+ * under `&lt;dataDir&gt;/mapped/bookings`. Rockets and flights are few and
+ * stay on the heap, made durable by a {@link JournalStorageBackend} under
+ * `&lt;dataDir&gt;/mapped/journal` configured by the same system properties.
+ */
+public class MappedStorageBackend implements StorageBackend {
+
+  public static final String NAME = "mapped";
+
+  private final JournalStorageBackend journal;
+  private final MappedBookingRepository bookings;
+
+  /**
+   * Creates the backend from its two stores; it closes both.
+   *
+   * @param journal  store for rockets and flights
+   * @param bookings store for bookings
+   */
+  public MappedStorageBackend(JournalStorageBackend journal, MappedBookingRepository bookings) {
+    this.journal = journal;
+    this.bookings = bookings;
+  }
+
+  /**
+   * Opens the backend under {@code dataDir}/mapped.
+   *
+   * @param dataDir the data directory
+   * @return the backend
+   * @throws UncheckedIOException if the journal or the booking segments cannot
+   *                              be opened
+   */
+  public static MappedStorageBackend open(Path dataDir) {
+    Path directory = dataDir.resolve(NAME);
+    JournalStorageBackend journal = JournalStorageBackend.open(directory);
+    try {
+      return new MappedStorageBackend(journal, new MappedBookingRepository(directory.resolve("bookings")));
+    } catch (IOException e) {
+      journal.close();
+      throw new UncheckedIOException("Cannot open booking segments in " + directory, e);
+    }
+  }
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public RocketRepository rockets() {
+    return journal.rockets();
+  }
+
+  @Override
+  public FlightRepository flights() {
+    return journal.flights();
+  }
+
+  @Override
+  public BookingRepository bookings() {
+    return bookings;
+  }
+
+  /**
+   * Forces the booking segments and closes the journal.
+   */
+  @Override
+  public void close() {
+    bookings.close();
+    journal.close();
+  }
+}
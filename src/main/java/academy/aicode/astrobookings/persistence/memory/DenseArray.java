@@ -0,0 +1,64 @@
+package academy.aicode.astrobookings.persistence.memory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free map from dense int keys (see {@link SurrogateKeys}) to values,
+ * stored in chunks of {@link #CHUNK} slots allocated on first write. Reads and
+ * writes of existing chunks never lock; only allocating a chunk does.
+ */
+final class DenseArray<T> {
+
+  static final int CHUNK_BITS = 12;
+  static final int CHUNK = 1 << CHUNK_BITS;
+
+  private volatile AtomicReferenceArray<T>[] chunks = newDirectory(16);
+
+  /**
+   * Returns the value for {@code key}, or null.
+   */
+  T get(int key) {
+    AtomicReferenceArray<T>[] current = chunks;
+    int chunk = key >>> CHUNK_BITS;
+    if (chunk >= current.length || current[chunk] == null) {
+      return null;
+    }
+    return current[chunk].get(key & (CHUNK - 1));
+  }
+
+  void set(int key, T value) {
+    chunk(key).set(key & (CHUNK - 1), value);
+  }
+
+  /**
+   * Sets the value for {@code key} and returns the previous one.
+   */
+  T getAndSet(int key, T value) {
+    return chunk(key).getAndSet(key & (CHUNK - 1), value);
+  }
+
+  private AtomicReferenceArray<T> chunk(int key) {
+    int index = key >>> CHUNK_BITS;
+    AtomicReferenceArray<T>[] current = chunks;
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    synchronized (this) {
+      current = chunks;
+      if (index >= current.length) {
+        current = Arrays.copyOf(current, Math.max(current.length * 2, index + 1));
+      }
+      if (current[index] == null) {
+        current[index] = new AtomicReferenceArray<>(CHUNK);
+      }
+      chunks = current;
+      return current[index];
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> AtomicReferenceArray<T>[] newDirectory(int length) {
+    return (AtomicReferenceArray<T>[]) new AtomicReferenceArray<?>[length];
+  }
+}
@@ -0,0 +1,71 @@
+package academy.aicode.astrobookings.persistence.memory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Lock-free set of dense int keys, one bit per key, in chunks of
+ * {@link DenseArray#CHUNK} keys. Iteration visits the keys in ascending order
+ * and may or may not see concurrent changes.
+ */
+final class DenseBitSet {
+
+  private static final int WORDS_PER_CHUNK = DenseArray.CHUNK / Long.SIZE;
+
+  private volatile AtomicLongArray[] chunks = new AtomicLongArray[16];
+
+  void add(int key) {
+    long bit = 1L << key;
+    chunk(key).getAndAccumulate(word(key), bit, (word, mask) -> word | mask);
+  }
+
+  void remove(int key) {
+    long bit = 1L << key;
+    chunk(key).getAndAccumulate(word(key), bit, (word, mask) -> word & ~mask);
+  }
+
+  /**
+   * Calls {@code action} with every key in the set, in ascending order.
+   */
+  void forEach(IntConsumer action) {
+    AtomicLongArray[] current = chunks;
+    for (int c = 0; c < current.length; c++) {
+      AtomicLongArray chunk = current[c];
+      if (chunk == null) {
+        continue;
+      }
+      for (int w = 0; w < WORDS_PER_CHUNK; w++) {
+        long word = chunk.get(w);
+        while (word != 0) {
+          int bit = Long.numberOfTrailingZeros(word);
+          action.accept(c * DenseArray.CHUNK + w * Long.SIZE + bit);
+          word &= word - 1;
+        }
+      }
+    }
+  }
+
+  private static int word(int key) {
+    return (key & (DenseArray.CHUNK - 1)) >>> 6;
+  }
+
+  private AtomicLongArray chunk(int key) {
+    int index = key >>> DenseArray.CHUNK_BITS;
+    AtomicLongArray[] current = chunks;
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    synchronized (this) {
+      current = chunks;
+      if (index >= current.length) {
+        current = Arrays.copyOf(current, Math.max(current.length * 2, index + 1));
+      }
+      if (current[index] == null) {
+        current[index] = new AtomicLongArray(WORDS_PER_CHUNK);
+      }
+      chunks = current;
+      return current[index];
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package academy.aicode.astrobookings.persistence.memory;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free map from dense int keys to int values, zero when never set. Same
+ * chunked layout as {@link DenseArray}, without boxing the values.
+ */
+final class DenseIntArray {
+
+  private volatile AtomicIntegerArray[] chunks = new AtomicIntegerArray[16];
+
+  int get(int key) {
+    AtomicIntegerArray[] current = chunks;
+    int chunk = key >>> DenseArray.CHUNK_BITS;
+    if (chunk >= current.length || current[chunk] == null) {
+      return 0;
+    }
+    return current[chunk].get(key & (DenseArray.CHUNK - 1));
+  }
+
+  /**
+   * Sets the value for {@code key} and returns the previous one.
+   */
+  int getAndSet(int key, int value) {
+    return chunk(key).getAndSet(key & (DenseArray.CHUNK - 1), value);
+  }
+
+  private AtomicIntegerArray chunk(int key) {
+    int index = key >>> DenseArray.CHUNK_BITS;
+    AtomicIntegerArray[] current = chunks;
+    if (index < current.length && current[index] != null) {
+      return current[index];
+    }
+    synchronized (this) {
+      current = chunks;
+      if (index >= current.length) {
+        current = Arrays.copyOf(current, Math.max(current.length * 2, index + 1));
+      }
+      if (current[index] == null) {
+        current[index] = new AtomicIntegerArray(DenseArray.CHUNK);
+      }
+      chunks = current;
+      return current[index];
+    }
+  }
+}
@@ -0,0 +1,225 @@
+package academy.aicode.astrobookings.persistence.memory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.DocumentIndex;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * In-memory repository for {@link Booking} instances.
+ * <p>
+ * Booking and flight ids are translated once to dense int keys
+ * ({@link SurrogateKeys}); bookings are stored in an array by booking key, and
+ * each flight key holds the booking keys of that flight, so per-flight counts
+ * are O(1) and per-flight listings are O(k) in the number of bookings of that
+ * flight, without string-keyed maps per flight. Saved bookings share the
+ * flight id instance held by the key mapping instead of keeping a copy each.
+ * Booking keys are also indexed by passenger document ({@link DocumentIndex}).
+ */
+public class InMemoryBookingRepository implements BookingRepository {
+
+  private final SurrogateKeys bookingKeys = new SurrogateKeys();
+  private final SurrogateKeys flightKeys;
+  private final DenseArray<Booking> bookings = new DenseArray<>();
+  private final DenseIntArray flightOfBooking = new DenseIntArray();
+  private final DenseArray<FlightBookings> bookingsByFlight = new DenseArray<>();
+  private final DocumentIndex bookingsByDocument = new DocumentIndex();
+
+  /**
+   * Booking keys of one flight; {@code size} is read without locking for
+   * counts.
+   */
+  private static final class FlightBookings {
+    private int[] keys = new int[8];
+    private volatile int size;
+
+    private synchronized void add(int key) {
+      if (size == keys.length) {
+        keys = Arrays.copyOf(keys, size * 2);
+      }
+      keys[size] = key;
+      size++;
+    }
+
+    private synchronized void remove(int key) {
+      for (int i = 0; i < size; i++) {
+        if (keys[i] == key) {
+          keys[i] = keys[size - 1];
+          size--;
+          return;
+        }
+      }
+    }
+
+    private synchronized int[] snapshot() {
+      return Arrays.copyOf(keys, size);
+    }
+  }
+
+  /**
+   * Creates a repository with its own flight keys.
+   */
+  public InMemoryBookingRepository() {
+    this(new SurrogateKeys());
+  }
+
+  /**
+   * Creates a repository sharing the flight keys of the flight repository.
+   */
+  InMemoryBookingRepository(SurrogateKeys flightKeys) {
+    this.flightKeys = flightKeys;
+  }
+
+  /**
+   * Saves the booking in memory, generating an id if needed.
+   *
+   * @param booking the booking to save
+   * @return the saved booking
+   */
+  @Override
+  public Booking save(Booking booking) {
+    if (booking.getId() == null) {
+      booking.setId(IdGenerators.nextId());
+    }
+    if (booking.getCreatedAt() == null) {
+      booking.setCreatedAt(Instant.now());
+    }
+
+    int key = bookingKeys.key(booking.getId());
+    // Flight keys are stored plus one so that zero means "no flight".
+    int flight = 0;
+    if (booking.getFlightId() != null) {
+      flight = flightKeys.key(booking.getFlightId()) + 1;
+      String canonical = flightKeys.id(flight - 1);
+      if (booking.getFlightId() != canonical) {
+        booking.setFlightId(canonical);
+      }
+    }
+    Booking replaced = bookings.get(key);
+    bookings.set(key, booking);
+    String document = booking.getPassengerDocument();
+    if (replaced != null && replaced.getPassengerDocument() != null
+        && !replaced.getPassengerDocument().equals(document)) {
+      bookingsByDocument.remove(DocumentIndex.hash(replaced.getPassengerDocument()), key);
+    }
+    if (document != null) {
+      bookingsByDocument.add(DocumentIndex.hash(document), key);
+    }
+    int previous = flightOfBooking.getAndSet(key, flight);
+    if (previous != flight) {
+      if (previous != 0) {
+        bookingsByFlight.get(previous - 1).remove(key);
+      }
+      if (flight != 0) {
+        flightBookings(flight - 1).add(key);
+      }
+    }
+    return booking;
+  }
+
+  private FlightBookings flightBookings(int flightKey) {
+    FlightBookings flight = bookingsByFlight.get(flightKey);
+    if (flight == null) {
+      FlightBookings created = new FlightBookings();
+      synchronized (bookingsByFlight) {
+        flight = bookingsByFlight.get(flightKey);
+        if (flight == null) {
+          bookingsByFlight.set(flightKey, created);
+          flight = created;
+        }
+      }
+    }
+    return flight;
+  }
+
+  /**
+   * Finds a booking by id.
+   *
+   * @param id the booking id
+   * @return the booking or null
+   */
+  @Override
+  public Booking findById(String id) {
+    int key = bookingKeys.find(id);
+    return key < 0 ? null : bookings.get(key);
+  }
+
+  /**
+   * Returns all bookings currently stored. Not part of
+   * {@link BookingRepository}: only meant for storage maintenance such as
+   * snapshots.
+   */
+  public List<Booking> findAll() {
+    int size = bookingKeys.size();
+    List<Booking> all = new ArrayList<>(size);
+    for (int key = 0; key < size; key++) {
+      Booking booking = bookings.get(key);
+      if (booking != null) {
+        all.add(booking);
+      }
+    }
+    return all;
+  }
+
+  /**
+   * Returns all bookings for a given flight id.
+   *
+   * @param flightId the flight id
+   * @return list of bookings for the flight
+   */
+  @Override
+  public List<Booking> findByFlightId(String flightId) {
+    FlightBookings flight = flightBookings(flightId);
+    if (flight == null) {
+      return new ArrayList<>();
+    }
+    int[] keys = flight.snapshot();
+    List<Booking> found = new ArrayList<>(keys.length);
+    for (int key : keys) {
+      found.add(bookings.get(key));
+    }
+    return found;
+  }
+
+  /**
+   * Counts bookings for a given flight id.
+   *
+   * @param flightId the flight id
+   * @return the count
+   */
+  @Override
+  public int countByFlightId(String flightId) {
+    FlightBookings flight = flightBookings(flightId);
+    return flight == null ? 0 : flight.size;
+  }
+
+  /**
+   * Returns a page of the bookings of a passenger, oldest first.
+   *
+   * @param passengerDocument the passenger document
+   * @param offset            how many bookings to skip
+   * @param limit             the most bookings to return
+   * @return the bookings of the passenger in the page
+   */
+  @Override
+  public List<Booking> findByPassengerDocument(String passengerDocument, int offset, int limit) {
+    List<Booking> found = new ArrayList<>();
+    for (int key : bookingsByDocument.keys(DocumentIndex.hash(passengerDocument))) {
+      Booking booking = bookings.get(key);
+      if (booking != null && passengerDocument.equals(booking.getPassengerDocument())) {
+        found.add(booking);
+      }
+    }
+    return DocumentIndex.page(found, offset, limit);
+  }
+
+  private FlightBookings flightBookings(String flightId) {
+    int flightKey = flightKeys.find(flightId);
+    return flightKey < 0 ? null : bookingsByFlight.get(flightKey);
+  }
+}
@@ -0,0 +1,252 @@
+package academy.aicode.astrobookings.persistence.memory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+/**
+ * In-memory repository for {@link Flight} instances.
+ * <p>
+ * Flight ids are translated once to dense int keys ({@link SurrogateKeys},
+ * shared with the booking repository of the same backend); flights are stored
+ * in an array by key. Flights are also kept in a concurrent skip list ordered
+ * by launch time, so "future flights" and launch-window queries read a
+ * sub-range of the index instead of scanning every flight ever stored, and in
+ * a per-state bitset of keys so state-filtered listings only touch flights in
+ * that state. State changes must go through {@link #updateState} (or
+ * {@link #save}) to keep the indexes in sync.
+ */
+public class InMemoryFlightRepository implements FlightRepository {
+
+  private static final int LOCK_STRIPES = 64;
+
+  private final SurrogateKeys keys;
+  private final DenseArray<Flight> flights = new DenseArray<>();
+  private final ConcurrentNavigableMap<LaunchKey, Flight> flightsByLaunch = new ConcurrentSkipListMap<>();
+  private final DenseArray<LaunchKey> launchKeys = new DenseArray<>();
+  private final Map<FlightState, DenseBitSet> flightsByState = new EnumMap<>(FlightState.class);
+  private final DenseArray<FlightState> flightStates = new DenseArray<>();
+  private final Object[] locks = new Object[LOCK_STRIPES];
+
+  /**
+   * Creates a repository with its own flight keys.
+   */
+  public InMemoryFlightRepository() {
+    this(new SurrogateKeys());
+  }
+
+  /**
+   * Creates a repository using {@code keys} for flight ids, so other
+   * repositories of the backend can share them.
+   */
+  InMemoryFlightRepository(SurrogateKeys keys) {
+    this.keys = keys;
+    for (FlightState state : FlightState.values()) {
+      flightsByState.put(state, new DenseBitSet());
+    }
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new Object();
+    }
+  }
+
+  /**
+   * Launch-time index key; the flight key breaks ties between flights
+   * launching at the same instant. Bounds use key -1, below every flight.
+   */
+  private static final class LaunchKey implements Comparable<LaunchKey> {
+    private final Instant launch;
+    private final int key;
+
+    private LaunchKey(Instant launch, int key) {
+      this.launch = launch;
+      this.key = key;
+    }
+
+    @Override
+    public int compareTo(LaunchKey other) {
+      int byLaunch = launch.compareTo(other.launch);
+      return byLaunch != 0 ? byLaunch : Integer.compare(key, other.key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof LaunchKey other && launch.equals(other.launch) && key == other.key;
+    }
+
+    @Override
+    public int hashCode() {
+      return launch.hashCode() * 31 + key;
+    }
+  }
+
+  /**
+   * Saves the flight in memory, generating an id if needed.
+   *
+   * @param flight the flight to save
+   * @return the saved flight
+   */
+  @Override
+  public Flight save(Flight flight) {
+    if (flight.getId() == null) {
+      flight.setId(IdGenerators.nextId());
+    }
+    int key = keys.key(flight.getId());
+    synchronized (lock(key)) {
+      flights.set(key, flight);
+      reindexLaunch(flight, key);
+      reindexState(flight, key, flight.getState());
+    }
+    return flight;
+  }
+
+  /**
+   * Changes the state of a flight and moves it in the per-state index as one
+   * step per flight, so concurrent transitions of the same flight always leave
+   * the index matching the final state. Flights that are not stored are only
+   * updated, not indexed.
+   *
+   * @param flight the flight to update
+   * @param state  the new state
+   */
+  @Override
+  public void updateState(Flight flight, FlightState state) {
+    int key = keys.find(flight.getId());
+    if (key < 0) {
+      flight.setState(state);
+      return;
+    }
+    synchronized (lock(key)) {
+      if (flights.get(key) != flight) {
+        flight.setState(state);
+        return;
+      }
+      reindexState(flight, key, state);
+    }
+  }
+
+  private Object lock(int key) {
+    return locks[key & (LOCK_STRIPES - 1)];
+  }
+
+  private void reindexState(Flight flight, int key, FlightState state) {
+    flight.setState(state);
+    FlightState previous = flightStates.getAndSet(key, state);
+    if (previous != null && previous != state) {
+      flightsByState.get(previous).remove(key);
+    }
+    if (state != null) {
+      flightsByState.get(state).add(key);
+    }
+  }
+
+  private void reindexLaunch(Flight flight, int key) {
+    LaunchKey launchKey = flight.getLaunchDateTime() == null ? null : new LaunchKey(flight.getLaunchDateTime(), key);
+    LaunchKey previous = launchKeys.getAndSet(key, launchKey);
+    if (previous != null) {
+      flightsByLaunch.remove(previous);
+    }
+    if (launchKey != null) {
+      flightsByLaunch.put(launchKey, flight);
+    }
+  }
+
+  /**
+   * Saves a batch of flights, generating ids where needed.
+   *
+   * @param batch the flights to save
+   */
+  @Override
+  public void saveAll(List<Flight> batch) {
+    for (Flight flight : batch) {
+      save(flight);
+    }
+  }
+
+  /**
+   * Finds a flight by id.
+   *
+   * @param id the flight id
+   * @return the flight or null
+   */
+  @Override
+  public Flight findById(String id) {
+    int key = keys.find(id);
+    return key < 0 ? null : flights.get(key);
+  }
+
+  /**
+   * Returns all flights currently stored.
+   */
+  @Override
+  public List<Flight> findAll() {
+    int size = keys.size();
+    List<Flight> all = new ArrayList<>();
+    for (int key = 0; key < size; key++) {
+      Flight flight = flights.get(key);
+      if (flight != null) {
+        all.add(flight);
+      }
+    }
+    return all;
+  }
+
+  /**
+   * Returns the flights currently indexed under the given state, in the order
+   * their ids were first stored.
+   *
+   * @param state the state
+   * @return flights in that state
+   */
+  @Override
+  public List<Flight> findByState(FlightState state) {
+    List<Flight> found = new ArrayList<>();
+    flightsByState.get(state).forEach(key -> {
+      Flight flight = flights.get(key);
+      if (flight != null) {
+        found.add(flight);
+      }
+    });
+    return found;
+  }
+
+  /**
+   * Returns the flights launching strictly after the given instant, ordered by
+   * launch time.
+   *
+   * @param instant the lower bound (exclusive)
+   * @return flights launching after {@code instant}
+   */
+  @Override
+  public List<Flight> findLaunchingAfter(Instant instant) {
+    return new ArrayList<>(flightsByLaunch.tailMap(new LaunchKey(instant.plusNanos(1), -1), true).values());
+  }
+
+  /**
+   * Returns the flights launching within {@code [from, to)}, ordered by launch
+   * time.
+   *
+   * @param from the lower bound (inclusive)
+   * @param to   the upper bound (exclusive), or null for no upper bound
+   * @return flights launching in the window
+   */
+  @Override
+  public List<Flight> findLaunchingBetween(Instant from, Instant to) {
+    LaunchKey fromKey = new LaunchKey(from, -1);
+    if (to == null) {
+      return new ArrayList<>(flightsByLaunch.tailMap(fromKey, true).values());
+    }
+    if (!from.isBefore(to)) {
+      return new ArrayList<>();
+    }
+    return new ArrayList<>(flightsByLaunch.subMap(fromKey, true, new LaunchKey(to, -1), false).values());
+  }
+}
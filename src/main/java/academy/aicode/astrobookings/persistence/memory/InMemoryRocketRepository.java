@@ -0,0 +1,91 @@
+package academy.aicode.astrobookings.persistence.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Repositorio sencillo en memoria para almacenar instancias de {@link Rocket}.
+ * Genera un id automático cuando el objeto no tiene `id`.
+ * <p>
+ * Los cohetes se leen en cada lectura de vuelo y se escriben muy poco, así que
+ * se guardan en un array copy-on-write indexado por la clave interna densa de
+ * cada id ({@link SurrogateKeys}): cada escritura publica una copia nueva y las
+ * lecturas consultan la última copia publicada sin bloqueos.
+ */
+public class InMemoryRocketRepository implements RocketRepository {
+  private final Object writeLock = new Object();
+  private final SurrogateKeys keys = new SurrogateKeys();
+  private volatile Rocket[] rockets = new Rocket[0];
+
+  /**
+   * Guarda el cohete en memoria. Si `rocket.id` es null, se genera uno nuevo.
+   *
+   * @param rocket instancia a guardar
+   * @return la instancia guardada (con `id` asignado si fue necesario)
+   */
+  @Override
+  public Rocket save(Rocket rocket) {
+    saveAll(List.of(rocket));
+    return rocket;
+  }
+
+  /**
+   * Guarda un lote de cohetes, generando `id` para los que no lo tengan. El lote
+   * se publica con una única copia del mapa.
+   *
+   * @param batch cohetes a guardar
+   */
+  @Override
+  public void saveAll(List<Rocket> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    for (Rocket rocket : batch) {
+      if (rocket.getId() == null) {
+        rocket.setId(IdGenerators.nextId());
+      }
+    }
+    synchronized (writeLock) {
+      int[] batchKeys = new int[batch.size()];
+      int length = rockets.length;
+      for (int i = 0; i < batchKeys.length; i++) {
+        batchKeys[i] = keys.key(batch.get(i).getId());
+        length = Math.max(length, batchKeys[i] + 1);
+      }
+      Rocket[] next = Arrays.copyOf(rockets, length);
+      for (int i = 0; i < batchKeys.length; i++) {
+        next[batchKeys[i]] = batch.get(i);
+      }
+      rockets = next;
+    }
+  }
+
+  /**
+   * Devuelve todos los cohetes almacenados.
+   */
+  @Override
+  public List<Rocket> findAll() {
+    List<Rocket> all = new ArrayList<>();
+    for (Rocket rocket : rockets) {
+      if (rocket != null) {
+        all.add(rocket);
+      }
+    }
+    return all;
+  }
+
+  /**
+   * Busca un Rocket por su id. Devuelve null si no existe.
+   */
+  @Override
+  public Rocket findById(String id) {
+    int key = keys.find(id);
+    Rocket[] current = rockets;
+    return key < 0 || key >= current.length ? null : current[key];
+  }
+}
@@ -0,0 +1,41 @@
+package academy.aicode.astrobookings.persistence.memory;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+
+/**
+ * Default backend: everything lives in concurrent Java collections and is lost
+ * when the process stops. The flight and booking repositories share one
+ * mapping from flight ids to internal keys.
+ */
+public class InMemoryStorageBackend implements StorageBackend {
+
+  public static final String NAME = "memory";
+
+  private final RocketRepository rockets = new InMemoryRocketRepository();
+  private final SurrogateKeys flightKeys = new SurrogateKeys();
+  private final FlightRepository flights = new InMemoryFlightRepository(flightKeys);
+  private final BookingRepository bookings = new InMemoryBookingRepository(flightKeys);
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public RocketRepository rockets() {
+    return rockets;
+  }
+
+  @Override
+  public FlightRepository flights() {
+    return flights;
+  }
+
+  @Override
+  public BookingRepository bookings() {
+    return bookings;
+  }
+}
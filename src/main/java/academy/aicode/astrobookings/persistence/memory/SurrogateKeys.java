@@ -0,0 +1,51 @@
+package academy.aicode.astrobookings.persistence.memory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bidirectional mapping between the external string ids of one entity type
+ * and dense internal int keys assigned in first-seen order. Repositories
+ * translate an id once and key their indexes by the int, so those indexes are
+ * arrays and bitsets instead of string-keyed maps. Keys are never reused.
+ */
+final class SurrogateKeys {
+
+  private final Map<String, Integer> keys = new ConcurrentHashMap<>();
+  private final DenseArray<String> ids = new DenseArray<>();
+  private final AtomicInteger next = new AtomicInteger();
+
+  /**
+   * Returns the key of {@code id}, assigning the next one if it has none.
+   */
+  int key(String id) {
+    return keys.computeIfAbsent(id, newId -> {
+      int key = next.getAndIncrement();
+      ids.set(key, newId);
+      return key;
+    });
+  }
+
+  /**
+   * Returns the key of {@code id}, or -1 if it has none.
+   */
+  int find(String id) {
+    Integer key = id == null ? null : keys.get(id);
+    return key == null ? -1 : key;
+  }
+
+  /**
+   * Returns the external id of {@code key}.
+   */
+  String id(int key) {
+    return ids.get(key);
+  }
+
+  /**
+   * Returns the number of keys assigned; every key is below it.
+   */
+  int size() {
+    return next.get();
+  }
+}
@@ -13,6 +13,7 @@ public class Booking {
   private Double finalPrice;
   private Integer discountPercent;
   private Instant createdAt;
+  private volatile long version = VersionStamps.next();
 
   /**
    * Creates an empty booking instance.
@@ -42,6 +43,26 @@ public class Booking {
     this.createdAt = createdAt;
   }
 
+  /**
+   * Creates a booking read from a store that stamps the states it holds
+   * itself (see {@link VersionStamps}), so that every instance read from the
+   * same stored state carries the same stamp.
+   *
+   * @param id                the booking id
+   * @param flightId          the referenced flight id
+   * @param passengerName     the passenger name
+   * @param passengerDocument the passenger document
+   * @param finalPrice        the computed final price
+   * @param discountPercent   the discount percent applied
+   * @param createdAt         the creation timestamp
+   * @param version           the stamp of the stored state
+   */
+  public Booking(String id, String flightId, String passengerName, String passengerDocument, Double finalPrice,
+      Integer discountPercent, Instant createdAt, long version) {
+    this(id, flightId, passengerName, passengerDocument, finalPrice, discountPercent, createdAt);
+    this.version = version;
+  }
+
   /**
    * Returns the booking id.
    */
@@ -54,6 +75,7 @@ public class Booking {
    */
   public void setId(String id) {
     this.id = id;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -68,6 +90,7 @@ public class Booking {
    */
   public void setFlightId(String flightId) {
     this.flightId = flightId;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -82,6 +105,7 @@ public class Booking {
    */
   public void setPassengerName(String passengerName) {
     this.passengerName = passengerName;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -96,6 +120,7 @@ public class Booking {
    */
   public void setPassengerDocument(String passengerDocument) {
     this.passengerDocument = passengerDocument;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -110,6 +135,7 @@ public class Booking {
    */
   public void setFinalPrice(Double finalPrice) {
     this.finalPrice = finalPrice;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -124,6 +150,7 @@ public class Booking {
    */
   public void setDiscountPercent(Integer discountPercent) {
     this.discountPercent = discountPercent;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -138,5 +165,25 @@ public class Booking {
    */
   public void setCreatedAt(Instant createdAt) {
     this.createdAt = createdAt;
+    this.version = VersionStamps.next();
+  }
+
+  /**
+   * Returns a copy of this booking. The copy keeps the version stamp, since it
+   * holds the same state, until either of them changes.
+   */
+  public Booking copy() {
+    Booking copy = new Booking(id, flightId, passengerName, passengerDocument, finalPrice, discountPercent,
+        createdAt);
+    copy.version = version;
+    return copy;
+  }
+
+  /**
+   * Returns a stamp that changes on every mutation of this booking. It is not
+   * part of the JSON representation.
+   */
+  public long version() {
+    return version;
   }
 }
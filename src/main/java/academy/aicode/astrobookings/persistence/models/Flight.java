@@ -12,6 +12,7 @@ public class Flight {
   private Double basePrice;
   private Integer minimumPassengers;
   private FlightState state;
+  private volatile long version = VersionStamps.next();
 
   /**
    * Creates an empty flight instance.
@@ -39,6 +40,25 @@ public class Flight {
     this.state = state;
   }
 
+  /**
+   * Creates a flight read from a store that stamps the states it holds
+   * itself (see {@link VersionStamps}), so that every instance read from the
+   * same stored state carries the same stamp.
+   *
+   * @param id                the flight id
+   * @param rocketId          the rocket id
+   * @param launchDateTime    the launch date/time
+   * @param basePrice         the base price
+   * @param minimumPassengers the minimum passengers
+   * @param state             the current flight state
+   * @param version           the stamp of the stored state
+   */
+  public Flight(String id, String rocketId, Instant launchDateTime, Double basePrice, Integer minimumPassengers,
+      FlightState state, long version) {
+    this(id, rocketId, launchDateTime, basePrice, minimumPassengers, state);
+    this.version = version;
+  }
+
   /**
    * Returns the flight id.
    */
@@ -51,6 +71,7 @@ public class Flight {
    */
   public void setId(String id) {
     this.id = id;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -65,6 +86,7 @@ public class Flight {
    */
   public void setRocketId(String rocketId) {
     this.rocketId = rocketId;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -79,6 +101,7 @@ public class Flight {
    */
   public void setLaunchDateTime(Instant launchDateTime) {
     this.launchDateTime = launchDateTime;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -93,6 +116,7 @@ public class Flight {
    */
   public void setBasePrice(Double basePrice) {
     this.basePrice = basePrice;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -107,6 +131,7 @@ public class Flight {
    */
   public void setMinimumPassengers(Integer minimumPassengers) {
     this.minimumPassengers = minimumPassengers;
+    this.version = VersionStamps.next();
   }
 
   /**
@@ -121,5 +146,24 @@ public class Flight {
    */
   public void setState(FlightState state) {
     this.state = state;
+    this.version = VersionStamps.next();
+  }
+
+  /**
+   * Returns a copy of this flight. The copy keeps the version stamp, since it
+   * holds the same state, until either of them changes.
+   */
+  public Flight copy() {
+    Flight copy = new Flight(id, rocketId, launchDateTime, basePrice, minimumPassengers, state);
+    copy.version = version;
+    return copy;
+  }
+
+  /**
+   * Returns a stamp that changes on every mutation of this flight. It is not
+   * part of the JSON representation.
+   */
+  public long version() {
+    return version;
   }
 }
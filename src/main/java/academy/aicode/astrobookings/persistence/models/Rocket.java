@@ -11,6 +11,7 @@ public class Rocket {
   private Integer capacity;
   private Range range;
   private Double speed;
+  private volatile long version = VersionStamps.next();
 
   public Rocket() {
   }
@@ -23,12 +24,23 @@ public class Rocket {
     this.speed = speed;
   }
 
+  /**
+   * Crea un cohete leído de un almacén que sella él mismo los estados que
+   * guarda (ver {@link VersionStamps}), de modo que todas las instancias leídas
+   * del mismo estado llevan el mismo sello.
+   */
+  public Rocket(String id, String name, Integer capacity, Range range, Double speed, long version) {
+    this(id, name, capacity, range, speed);
+    this.version = version;
+  }
+
   public String getId() {
     return id;
   }
 
   public void setId(String id) {
     this.id = id;
+    this.version = VersionStamps.next();
   }
 
   public String getName() {
@@ -37,6 +49,7 @@ public class Rocket {
 
   public void setName(String name) {
     this.name = name;
+    this.version = VersionStamps.next();
   }
 
   public Integer getCapacity() {
@@ -45,6 +58,7 @@ public class Rocket {
 
   public void setCapacity(Integer capacity) {
     this.capacity = capacity;
+    this.version = VersionStamps.next();
   }
 
   public Range getRange() {
@@ -53,6 +67,7 @@ public class Rocket {
 
   public void setRange(Range range) {
     this.range = range;
+    this.version = VersionStamps.next();
   }
 
   public Double getSpeed() {
@@ -61,5 +76,24 @@ public class Rocket {
 
   public void setSpeed(Double speed) {
     this.speed = speed;
+    this.version = VersionStamps.next();
+  }
+
+  /**
+   * Devuelve una copia de este cohete. La copia conserva el sello de versión,
+   * porque tiene el mismo estado, hasta que cualquiera de los dos cambie.
+   */
+  public Rocket copy() {
+    Rocket copy = new Rocket(id, name, capacity, range, speed);
+    copy.version = version;
+    return copy;
+  }
+
+  /**
+   * Devuelve un sello que cambia con cada modificación de este cohete. No forma
+   * parte de su representación JSON.
+   */
+  public long version() {
+    return version;
   }
-}
\ No newline at end of file
+}
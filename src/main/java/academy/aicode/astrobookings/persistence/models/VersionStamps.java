@@ -0,0 +1,35 @@
+package academy.aicode.astrobookings.persistence.models;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Global source of entity version stamps. Every mutation takes a fresh stamp,
+ * so a stamp identifies one state of one entity instance.
+ * <p>
+ * Stamps handed out here are positive. A store that builds a new instance on
+ * every read may stamp the states it holds itself, so that every instance of
+ * the same stored state carries the same stamp: either from a block it
+ * {@link #reserve}s, or with negative stamps of its own.
+ */
+public final class VersionStamps {
+
+  private static final AtomicLong LAST = new AtomicLong();
+
+  private VersionStamps() {
+  }
+
+  static long next() {
+    return LAST.incrementAndGet();
+  }
+
+  /**
+   * Reserves {@code count} consecutive stamps that no entity will take and
+   * returns the first.
+   *
+   * @param count the stamps to reserve
+   * @return the first stamp of the block
+   */
+  public static long reserve(long count) {
+    return LAST.getAndAdd(count) + 1;
+  }
+}
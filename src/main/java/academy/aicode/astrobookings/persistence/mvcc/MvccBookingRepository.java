@@ -0,0 +1,209 @@
+package academy.aicode.astrobookings.persistence.mvcc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.DocumentIndex;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Multi-version repository for {@link Booking} instances.
+ * <p>
+ * Each booking id holds a {@link VersionChain}, and each flight the chains of
+ * the bookings that were on it in a kept version, plus its current count.
+ * Reads outside a view, and views begun after the flight last changed, take
+ * the count as it is; older views count the versions they see. Each passenger
+ * document hash ({@link DocumentIndex#hash}) holds the chains with a kept
+ * version of that document.
+ */
+class MvccBookingRepository implements BookingRepository {
+
+  private final VersionClock clock;
+  private final Map<String, VersionChain<Booking>> bookings = new ConcurrentHashMap<>();
+  private final Map<String, FlightBookings> bookingsByFlight = new ConcurrentHashMap<>();
+  private final Map<Long, List<VersionChain<Booking>>> bookingsByDocument = new ConcurrentHashMap<>();
+
+  /**
+   * Bookings of one flight. Written under the commit lock: {@code changed} is
+   * set before {@code count}, so a reader that sees a new count also sees the
+   * commit that made it.
+   */
+  private static final class FlightBookings {
+    private final List<VersionChain<Booking>> chains = new CopyOnWriteArrayList<>();
+    private volatile long changed;
+    private volatile int count;
+
+    private void add(VersionChain<Booking> chain, long version) {
+      if (!chains.contains(chain)) {
+        chains.add(chain);
+      }
+      changed = version;
+      count++;
+    }
+
+    private void remove(long version) {
+      changed = version;
+      count--;
+    }
+  }
+
+  MvccBookingRepository(VersionClock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Saves a copy of the booking as its new version, generating an id and
+   * creation time if needed.
+   *
+   * @param booking the booking to save
+   * @return the saved booking
+   */
+  @Override
+  public Booking save(Booking booking) {
+    if (booking.getId() == null) {
+      booking.setId(IdGenerators.nextId());
+    }
+    if (booking.getCreatedAt() == null) {
+      booking.setCreatedAt(Instant.now());
+    }
+    Booking stored = booking.copy();
+    clock.commit(version -> {
+      VersionChain<Booking> chain = bookings.computeIfAbsent(stored.getId(),
+          id -> new VersionChain<>(clock, this::unindex));
+      Booking previous = chain.latest();
+      chain.install(stored, version);
+      String from = previous == null ? null : previous.getFlightId();
+      if (!Objects.equals(from, stored.getFlightId())) {
+        if (from != null) {
+          bookingsByFlight.get(from).remove(version);
+        }
+        if (stored.getFlightId() != null) {
+          bookingsByFlight.computeIfAbsent(stored.getFlightId(), id -> new FlightBookings()).add(chain, version);
+        }
+      }
+      if (stored.getPassengerDocument() != null) {
+        List<VersionChain<Booking>> chains = bookingsByDocument.computeIfAbsent(
+            DocumentIndex.hash(stored.getPassengerDocument()), hash -> new CopyOnWriteArrayList<>());
+        if (!chains.contains(chain)) {
+          chains.add(chain);
+        }
+      }
+    });
+    return booking;
+  }
+
+  /**
+   * Forgets a flight's or a document's chain once no kept version is on that
+   * flight or has that document's hash.
+   */
+  private void unindex(VersionChain<Booking> chain, Booking dropped) {
+    String flightId = dropped.getFlightId();
+    if (flightId != null && !chain.retains(booking -> flightId.equals(booking.getFlightId()))) {
+      bookingsByFlight.get(flightId).chains.remove(chain);
+    }
+    if (dropped.getPassengerDocument() != null) {
+      long hash = DocumentIndex.hash(dropped.getPassengerDocument());
+      if (!chain.retains(booking -> booking.getPassengerDocument() != null
+          && DocumentIndex.hash(booking.getPassengerDocument()) == hash)) {
+        bookingsByDocument.get(hash).remove(chain);
+      }
+    }
+  }
+
+  /**
+   * Finds a booking by id.
+   *
+   * @param id the booking id
+   * @return the booking or null
+   */
+  @Override
+  public Booking findById(String id) {
+    VersionChain<Booking> chain = id == null ? null : bookings.get(id);
+    Booking booking = chain == null ? null : chain.read(clock.readVersion());
+    return booking == null ? null : booking.copy();
+  }
+
+  /**
+   * Returns the bookings of a flight visible to the thread.
+   *
+   * @param flightId the flight id
+   * @return list of bookings for the flight
+   */
+  @Override
+  public List<Booking> findByFlightId(String flightId) {
+    FlightBookings flight = flightId == null ? null : bookingsByFlight.get(flightId);
+    List<Booking> found = new ArrayList<>();
+    if (flight == null) {
+      return found;
+    }
+    long at = clock.readVersion();
+    for (VersionChain<Booking> chain : flight.chains) {
+      Booking booking = chain.read(at);
+      if (booking != null && flightId.equals(booking.getFlightId())) {
+        found.add(booking.copy());
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Counts the bookings of a flight visible to the thread.
+   *
+   * @param flightId the flight id
+   * @return the count
+   */
+  @Override
+  public int countByFlightId(String flightId) {
+    FlightBookings flight = flightId == null ? null : bookingsByFlight.get(flightId);
+    if (flight == null) {
+      return 0;
+    }
+    int count = flight.count;
+    long at = clock.readVersion();
+    if (flight.changed <= at) {
+      return count;
+    }
+    int visible = 0;
+    for (VersionChain<Booking> chain : flight.chains) {
+      Booking booking = chain.read(at);
+      if (booking != null && flightId.equals(booking.getFlightId())) {
+        visible++;
+      }
+    }
+    return visible;
+  }
+
+  /**
+   * Returns a page of the bookings of a passenger visible to the thread,
+   * oldest first.
+   *
+   * @param passengerDocument the passenger document
+   * @param offset            how many bookings to skip
+   * @param limit             the most bookings to return
+   * @return the bookings of the passenger in the page
+   */
+  @Override
+  public List<Booking> findByPassengerDocument(String passengerDocument, int offset, int limit) {
+    List<VersionChain<Booking>> chains = bookingsByDocument.get(DocumentIndex.hash(passengerDocument));
+    List<Booking> found = new ArrayList<>();
+    if (chains != null) {
+      long at = clock.readVersion();
+      for (VersionChain<Booking> chain : chains) {
+        Booking booking = chain.read(at);
+        if (booking != null && passengerDocument.equals(booking.getPassengerDocument())) {
+          found.add(booking);
+        }
+      }
+    }
+    List<Booking> page = DocumentIndex.page(found, offset, limit);
+    page.replaceAll(Booking::copy);
+    return page;
+  }
+}
@@ -0,0 +1,253 @@
+package academy.aicode.astrobookings.persistence.mvcc;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+/**
+ * Multi-version repository for {@link Flight} instances.
+ * <p>
+ * Each flight id holds a {@link VersionChain}; reads return copies of the
+ * version visible to the thread's read view. The launch-time and state
+ * indexes hold an entry for every launch time and state of a kept version,
+ * so a view finds a flight under the values it had then; lookups check the
+ * version they resolve against the entry. Entries go when the last version
+ * with their value is trimmed.
+ */
+class MvccFlightRepository implements FlightRepository {
+
+  private final VersionClock clock;
+  private final Map<String, VersionChain<Flight>> flights = new ConcurrentHashMap<>();
+  /** Ids in the order they were first stored. */
+  private final Queue<String> order = new ConcurrentLinkedQueue<>();
+  private final ConcurrentNavigableMap<LaunchKey, VersionChain<Flight>> flightsByLaunch = new ConcurrentSkipListMap<>();
+  private final Map<FlightState, Set<String>> flightsByState = new EnumMap<>(FlightState.class);
+
+  MvccFlightRepository(VersionClock clock) {
+    this.clock = clock;
+    for (FlightState state : FlightState.values()) {
+      flightsByState.put(state, ConcurrentHashMap.newKeySet());
+    }
+  }
+
+  /**
+   * Launch-time index key; the flight id breaks ties between flights
+   * launching at the same instant. Bounds use the empty id, below every
+   * flight.
+   */
+  private record LaunchKey(Instant launch, String id) implements Comparable<LaunchKey> {
+    @Override
+    public int compareTo(LaunchKey other) {
+      int byLaunch = launch.compareTo(other.launch);
+      return byLaunch != 0 ? byLaunch : id.compareTo(other.id);
+    }
+  }
+
+  /**
+   * Saves a copy of the flight as its new version, generating an id if
+   * needed.
+   *
+   * @param flight the flight to save
+   * @return the saved flight
+   */
+  @Override
+  public Flight save(Flight flight) {
+    saveAll(List.of(flight));
+    return flight;
+  }
+
+  /**
+   * Saves a batch of flights in one commit, generating ids where needed.
+   *
+   * @param batch the flights to save
+   */
+  @Override
+  public void saveAll(List<Flight> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    for (Flight flight : batch) {
+      if (flight.getId() == null) {
+        flight.setId(IdGenerators.nextId());
+      }
+    }
+    clock.commit(version -> {
+      for (Flight flight : batch) {
+        install(chain(flight.getId()), flight.copy(), version);
+      }
+    });
+  }
+
+  /**
+   * Changes the state of a flight as a new version of the stored flight.
+   * Concurrent transitions of the same flight are applied one commit at a
+   * time. A thread whose read view predates the latest commit only updates
+   * its own instance, without taking the commit lock: a state derived from an
+   * old view is not stored over later changes.
+   * Flights that are not stored are only updated, not stored.
+   *
+   * @param flight the flight to update
+   * @param state  the new state
+   */
+  @Override
+  public void updateState(Flight flight, FlightState state) {
+    VersionChain<Flight> chain = flight.getId() == null ? null : flights.get(flight.getId());
+    if (chain == null) {
+      flight.setState(state);
+      return;
+    }
+    flight.setState(state);
+    clock.commitIfCurrent(version -> {
+      Flight next = chain.latest().copy();
+      next.setState(state);
+      install(chain, next, version);
+    });
+  }
+
+  private VersionChain<Flight> chain(String id) {
+    VersionChain<Flight> chain = flights.get(id);
+    if (chain == null) {
+      chain = new VersionChain<>(clock, this::unindex);
+      flights.put(id, chain);
+      order.add(id);
+    }
+    return chain;
+  }
+
+  private void install(VersionChain<Flight> chain, Flight flight, long version) {
+    chain.install(flight, version);
+    if (flight.getLaunchDateTime() != null) {
+      flightsByLaunch.put(new LaunchKey(flight.getLaunchDateTime(), flight.getId()), chain);
+    }
+    if (flight.getState() != null) {
+      flightsByState.get(flight.getState()).add(flight.getId());
+    }
+  }
+
+  /**
+   * Removes the index entries of a trimmed version that no kept version
+   * shares.
+   */
+  private void unindex(VersionChain<Flight> chain, Flight dropped) {
+    Instant launch = dropped.getLaunchDateTime();
+    if (launch != null && !chain.retains(flight -> launch.equals(flight.getLaunchDateTime()))) {
+      flightsByLaunch.remove(new LaunchKey(launch, dropped.getId()));
+    }
+    FlightState state = dropped.getState();
+    if (state != null && !chain.retains(flight -> flight.getState() == state)) {
+      flightsByState.get(state).remove(dropped.getId());
+    }
+  }
+
+  /**
+   * Finds a flight by id.
+   *
+   * @param id the flight id
+   * @return the flight or null
+   */
+  @Override
+  public Flight findById(String id) {
+    VersionChain<Flight> chain = id == null ? null : flights.get(id);
+    Flight flight = chain == null ? null : chain.read(clock.readVersion());
+    return flight == null ? null : flight.copy();
+  }
+
+  /**
+   * Returns all flights visible to the thread, in the order their ids were
+   * first stored.
+   */
+  @Override
+  public List<Flight> findAll() {
+    long at = clock.readVersion();
+    List<Flight> all = new ArrayList<>();
+    for (String id : order) {
+      Flight flight = flights.get(id).read(at);
+      if (flight != null) {
+        all.add(flight.copy());
+      }
+    }
+    return all;
+  }
+
+  /**
+   * Returns the flights visible to the thread in the given state, in no
+   * particular order.
+   *
+   * @param state the state
+   * @return flights in that state
+   */
+  @Override
+  public List<Flight> findByState(FlightState state) {
+    long at = clock.readVersion();
+    List<Flight> found = new ArrayList<>();
+    for (String id : flightsByState.get(state)) {
+      Flight flight = flights.get(id).read(at);
+      if (flight != null && flight.getState() == state) {
+        found.add(flight.copy());
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Returns the flights launching strictly after the given instant, ordered by
+   * launch time.
+   *
+   * @param instant the lower bound (exclusive)
+   * @return flights launching after {@code instant}
+   */
+  @Override
+  public List<Flight> findLaunchingAfter(Instant instant) {
+    return visible(flightsByLaunch.tailMap(new LaunchKey(instant.plusNanos(1), ""), true));
+  }
+
+  /**
+   * Returns the flights launching within {@code [from, to)}, ordered by launch
+   * time.
+   *
+   * @param from the lower bound (inclusive)
+   * @param to   the upper bound (exclusive), or null for no upper bound
+   * @return flights launching in the window
+   */
+  @Override
+  public List<Flight> findLaunchingBetween(Instant from, Instant to) {
+    LaunchKey fromKey = new LaunchKey(from, "");
+    if (to == null) {
+      return visible(flightsByLaunch.tailMap(fromKey, true));
+    }
+    if (!from.isBefore(to)) {
+      return new ArrayList<>();
+    }
+    return visible(flightsByLaunch.subMap(fromKey, true, new LaunchKey(to, ""), false));
+  }
+
+  /**
+   * Resolves a range of the launch index, keeping the entries whose launch
+   * time the visible version has.
+   */
+  private List<Flight> visible(ConcurrentNavigableMap<LaunchKey, VersionChain<Flight>> range) {
+    long at = clock.readVersion();
+    List<Flight> found = new ArrayList<>();
+    for (Map.Entry<LaunchKey, VersionChain<Flight>> entry : range.entrySet()) {
+      Flight flight = entry.getValue().read(at);
+      if (flight != null && Objects.equals(entry.getKey().launch(), flight.getLaunchDateTime())) {
+        found.add(flight.copy());
+      }
+    }
+    return found;
+  }
+}
@@ -0,0 +1,98 @@
+package academy.aicode.astrobookings.persistence.mvcc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import academy.aicode.astrobookings.persistence.IdGenerators;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Repositorio de {@link Rocket} con versiones: cada id guarda su cadena de
+ * versiones ({@link VersionChain}) y las lecturas devuelven copias de la
+ * versión visible para la vista de lectura del hilo.
+ */
+class MvccRocketRepository implements RocketRepository {
+
+  private final VersionClock clock;
+  private final Map<String, VersionChain<Rocket>> rockets = new ConcurrentHashMap<>();
+  /** Ids en el orden en que se guardaron por primera vez. */
+  private final Queue<String> order = new ConcurrentLinkedQueue<>();
+
+  MvccRocketRepository(VersionClock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Guarda una copia del cohete como nueva versión. Si `rocket.id` es null, se
+   * genera uno nuevo.
+   *
+   * @param rocket instancia a guardar
+   * @return la instancia guardada (con `id` asignado si fue necesario)
+   */
+  @Override
+  public Rocket save(Rocket rocket) {
+    saveAll(List.of(rocket));
+    return rocket;
+  }
+
+  /**
+   * Guarda un lote de cohetes en un único commit, generando `id` para los que
+   * no lo tengan.
+   *
+   * @param batch cohetes a guardar
+   */
+  @Override
+  public void saveAll(List<Rocket> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    for (Rocket rocket : batch) {
+      if (rocket.getId() == null) {
+        rocket.setId(IdGenerators.nextId());
+      }
+    }
+    clock.commit(version -> {
+      for (Rocket rocket : batch) {
+        VersionChain<Rocket> chain = rockets.get(rocket.getId());
+        if (chain == null) {
+          chain = new VersionChain<>(clock, (trimmed, dropped) -> {
+          });
+          rockets.put(rocket.getId(), chain);
+          order.add(rocket.getId());
+        }
+        chain.install(rocket.copy(), version);
+      }
+    });
+  }
+
+  /**
+   * Devuelve todos los cohetes visibles para el hilo.
+   */
+  @Override
+  public List<Rocket> findAll() {
+    long at = clock.readVersion();
+    List<Rocket> all = new ArrayList<>();
+    for (String id : order) {
+      Rocket rocket = rockets.get(id).read(at);
+      if (rocket != null) {
+        all.add(rocket.copy());
+      }
+    }
+    return all;
+  }
+
+  /**
+   * Busca un Rocket por su id. Devuelve null si no existe o si el id es null.
+   */
+  @Override
+  public Rocket findById(String id) {
+    VersionChain<Rocket> chain = id == null ? null : rockets.get(id);
+    Rocket rocket = chain == null ? null : chain.read(clock.readVersion());
+    return rocket == null ? null : rocket.copy();
+  }
+}
@@ -0,0 +1,65 @@
+package academy.aicode.astrobookings.persistence.mvcc;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.FlightRepository;
+import academy.aicode.astrobookings.persistence.ReadView;
+import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+
+/**
+ * In-memory backend keeping several versions of each entity, so that a read
+ * view ({@link #beginRead()}) sees every repository as of one commit while
+ * writers go on, without locking readers out. Writes are serialized by one
+ * commit lock shared by the three repositories; versions no open view can see
+ * are trimmed a few at a time by later commits. Like {@code memory}, nothing
+ * survives the process.
+ */
+public class MvccStorageBackend implements StorageBackend {
+
+  public static final String NAME = "mvcc";
+
+  private final VersionClock clock = new VersionClock();
+  private final RocketRepository rockets = new MvccRocketRepository(clock);
+  private final FlightRepository flights = new MvccFlightRepository(clock);
+  private final BookingRepository bookings = new MvccBookingRepository(clock);
+
+  @Override
+  public String name() {
+    return NAME;
+  }
+
+  @Override
+  public RocketRepository rockets() {
+    return rockets;
+  }
+
+  @Override
+  public FlightRepository flights() {
+    return flights;
+  }
+
+  @Override
+  public BookingRepository bookings() {
+    return bookings;
+  }
+
+  @Override
+  public ReadView beginRead() {
+    return clock.begin();
+  }
+
+  /**
+   * Returns how many versions are kept besides the latest of each entity,
+   * waiting for open views to close or for later commits to trim them.
+   */
+  public int retainedVersions() {
+    return clock.retainedVersions();
+  }
+
+  /**
+   * Returns the number of read views open on any thread.
+   */
+  public int openViews() {
+    return clock.openViews();
+  }
+}
@@ -0,0 +1,121 @@
+package academy.aicode.astrobookings.persistence.mvcc;
+
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * The versions of one entity, newest first, each tagged with the commit that
+ * installed it. Versions are installed and trimmed under the commit lock of
+ * the {@link VersionClock}; reads walk the list without locking.
+ *
+ * @param <T> the entity type
+ */
+final class VersionChain<T> {
+
+  private static final class Version<T> {
+    private final long commit;
+    private final T value;
+    /** Cut by trims, so written after publication. */
+    private volatile Version<T> older;
+
+    private Version(long commit, T value, Version<T> older) {
+      this.commit = commit;
+      this.value = value;
+      this.older = older;
+    }
+  }
+
+  private final VersionClock clock;
+  private final BiConsumer<VersionChain<T>, T> dropped;
+  private volatile Version<T> newest;
+  /** Versions besides the newest; written under the commit lock. */
+  private int older;
+
+  /**
+   * @param dropped called, under the commit lock, with every version trimmed,
+   *                so indexes can forget it
+   */
+  VersionChain(VersionClock clock, BiConsumer<VersionChain<T>, T> dropped) {
+    this.clock = clock;
+    this.dropped = dropped;
+  }
+
+  /**
+   * Returns the newest version committed at or before {@code at}, or null if
+   * the entity did not exist then.
+   */
+  T read(long at) {
+    Version<T> version = newest;
+    while (version != null && version.commit > at) {
+      version = version.older;
+    }
+    return version == null ? null : version.value;
+  }
+
+  /**
+   * Returns the newest version, committed or being committed.
+   */
+  T latest() {
+    Version<T> version = newest;
+    return version == null ? null : version.value;
+  }
+
+  /**
+   * Installs {@code value} as the newest version, from commit
+   * {@code commit}. A version installed earlier in the same commit is
+   * replaced, since no reader can see it.
+   */
+  void install(T value, long commit) {
+    Version<T> previous = newest;
+    if (previous != null && previous.commit == commit) {
+      previous = previous.older;
+    } else if (previous != null) {
+      clock.retained(this, older++ == 0);
+    }
+    newest = new Version<>(commit, value, previous);
+  }
+
+  /**
+   * Drops the versions no reader can see any more: those older than the
+   * newest version committed at or before {@code horizon}.
+   *
+   * @return how many were dropped
+   */
+  int trim(long horizon) {
+    Version<T> kept = newest;
+    while (kept != null && kept.commit > horizon) {
+      kept = kept.older;
+    }
+    if (kept == null || kept.older == null) {
+      return 0;
+    }
+    Version<T> drop = kept.older;
+    kept.older = null;
+    int count = 0;
+    for (; drop != null; drop = drop.older) {
+      count++;
+      older--;
+      dropped.accept(this, drop.value);
+    }
+    return count;
+  }
+
+  /**
+   * Returns how many versions are kept besides the newest.
+   */
+  int olderVersions() {
+    return older;
+  }
+
+  /**
+   * Returns whether a version still kept matches {@code filter}.
+   */
+  boolean retains(Predicate<T> filter) {
+    for (Version<T> version = newest; version != null; version = version.older) {
+      if (filter.test(version.value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
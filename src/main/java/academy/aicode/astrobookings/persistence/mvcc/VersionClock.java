@@ -0,0 +1,184 @@
+package academy.aicode.astrobookings.persistence.mvcc;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+
+import academy.aicode.astrobookings.persistence.ReadView;
+
+/**
+ * Commit versions and open read views of one {@link MvccStorageBackend}.
+ * <p>
+ * Writes run one at a time under the commit lock ({@link #commit}): each
+ * installs its versions tagged with the next commit number, and the number is
+ * published only once they are all in place, so a reader at version {@code n}
+ * sees every write up to {@code n} and none after. Readers never take the
+ * commit lock. A read view records the version published when it began; reads
+ * outside a view use the latest one.
+ * <p>
+ * Versions older than the newest one visible to the oldest open view (the
+ * horizon) can be seen by nobody. Chains holding such versions are queued,
+ * and every commit trims a few of them.
+ */
+final class VersionClock {
+
+  /** Queued chains trimmed by each commit. */
+  private static final int TRIMS_PER_COMMIT = 8;
+
+  private final Object commitLock = new Object();
+  private volatile long committed;
+  /** Open views by version, with how many there are; guarded by itself. */
+  private final TreeMap<Long, Integer> views = new TreeMap<>();
+  private final ThreadLocal<View> current = new ThreadLocal<>();
+  /** Chains with versions older than their latest; guarded by the commit lock. */
+  private final Queue<VersionChain<?>> aged = new ArrayDeque<>();
+  /** Written under the commit lock. */
+  private volatile int retained;
+
+  private final class View implements ReadView {
+    private final long version;
+    private int depth = 1;
+
+    private View(long version) {
+      this.version = version;
+    }
+
+    @Override
+    public void close() {
+      if (--depth > 0) {
+        return;
+      }
+      current.remove();
+      synchronized (views) {
+        views.merge(version, -1, (count, minus) -> count + minus == 0 ? null : count + minus);
+      }
+    }
+  }
+
+  /**
+   * Begins a read view on the current thread, or joins the one it holds.
+   */
+  ReadView begin() {
+    View view = current.get();
+    if (view != null) {
+      view.depth++;
+      return view;
+    }
+    synchronized (views) {
+      // Read under the same lock as the horizon, so a trim never drops what this view is about to read
+      view = new View(committed);
+      views.merge(view.version, 1, Integer::sum);
+    }
+    current.set(view);
+    return view;
+  }
+
+  /**
+   * Returns the version the current thread reads at: its view's, or
+   * {@link Long#MAX_VALUE} outside a view, to read the latest versions.
+   */
+  long readVersion() {
+    View view = current.get();
+    return view == null ? Long.MAX_VALUE : view.version;
+  }
+
+  /**
+   * Returns whether the current thread reads from a view that began before
+   * the latest commit, so what it read may be out of date.
+   */
+  boolean readsStale() {
+    View view = current.get();
+    return view != null && view.version < committed;
+  }
+
+  /**
+   * Runs a write with the commit number its versions get, then publishes it
+   * and trims some aged chains.
+   */
+  void commit(LongConsumer write) {
+    synchronized (commitLock) {
+      publish(write);
+    }
+  }
+
+  /**
+   * Commits like {@link #commit} unless the current thread {@link #readsStale()
+   * reads stale}, checked under the commit lock; a stale thread neither waits
+   * for the lock nor publishes a commit.
+   *
+   * @return whether the write ran
+   */
+  boolean commitIfCurrent(LongConsumer write) {
+    if (readsStale()) {
+      return false;
+    }
+    synchronized (commitLock) {
+      if (readsStale()) {
+        return false;
+      }
+      publish(write);
+      return true;
+    }
+  }
+
+  private void publish(LongConsumer write) {
+    long version = committed + 1;
+    write.accept(version);
+    committed = version;
+    trim();
+  }
+
+  /**
+   * Counts a version kept besides the latest of its chain, queueing the chain
+   * when it is the first; called by commits.
+   */
+  void retained(VersionChain<?> chain, boolean first) {
+    retained++;
+    if (first) {
+      aged.add(chain);
+    }
+  }
+
+  private void trim() {
+    if (aged.isEmpty()) {
+      return;
+    }
+    long horizon;
+    synchronized (views) {
+      horizon = views.isEmpty() ? committed : Math.min(committed, views.firstKey());
+    }
+    for (int i = 0; i < TRIMS_PER_COMMIT; i++) {
+      VersionChain<?> chain = aged.poll();
+      if (chain == null) {
+        break;
+      }
+      retained -= chain.trim(horizon);
+      if (chain.olderVersions() > 0) {
+        aged.add(chain);
+      }
+    }
+  }
+
+  /**
+   * Returns the versions kept besides the latest version of each entity, for
+   * open views or until a commit trims them.
+   */
+  int retainedVersions() {
+    return retained;
+  }
+
+  /**
+   * Returns the number of open views.
+   */
+  int openViews() {
+    synchronized (views) {
+      int open = 0;
+      for (Map.Entry<Long, Integer> entry : views.entrySet()) {
+        open += entry.getValue();
+      }
+      return open;
+    }
+  }
+}
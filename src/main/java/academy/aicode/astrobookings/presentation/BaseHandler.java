@@ -1,17 +1,28 @@
 package academy.aicode.astrobookings.presentation;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.core.exc.StreamReadException;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
+import academy.aicode.astrobookings.business.ImportResult;
+import academy.aicode.astrobookings.persistence.StorageBackends;
+import academy.aicode.astrobookings.presentation.dto.ErrorResponse;
+import academy.aicode.astrobookings.presentation.dto.ImportResultResponse;
+
 /**
  * Clase base para handlers HTTP del servidor embebido.
  * Proporciona un `ObjectMapper` configurado y utilidades para enviar respuestas
@@ -19,15 +30,29 @@ import com.sun.net.httpserver.HttpHandler;
  */
 public abstract class BaseHandler implements HttpHandler {
 
+  /**
+   * Número de elementos que se agrupan antes de entregarlos al servicio en una
+   * importación masiva.
+   */
+  protected static final int IMPORT_BATCH_SIZE = 500;
+
   protected final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
       .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
+  protected final JsonFragmentCache fragmentCache = JsonFragmentCache.shared();
+
   /**
-   * Envía una respuesta JSON con el código HTTP indicado.
+   * Envía una respuesta JSON con el código HTTP indicado. Si el backend tiene
+   * log de replicación, incluye su offset actual para que el cliente pueda
+   * leer sus propias escrituras en una réplica.
    */
   protected void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
     byte[] body = response == null ? new byte[0] : response.getBytes(StandardCharsets.UTF_8);
     exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    long logOffset = StorageBackends.current().logOffset();
+    if (logOffset >= 0) {
+      exchange.getResponseHeaders().set(ReplicationFilter.LOG_OFFSET_HEADER, String.valueOf(logOffset));
+    }
     exchange.sendResponseHeaders(statusCode, body.length);
     try (OutputStream os = exchange.getResponseBody()) {
       os.write(body);
@@ -58,4 +83,87 @@ public abstract class BaseHandler implements HttpHandler {
     }
     return params;
   }
-}
\ No newline at end of file
+
+  /**
+   * Parsea una lista de ids separada por comas (`a,b,c`), ignorando espacios y
+   * elementos vacíos. Conserva el orden y los duplicados.
+   */
+  protected List<String> parseIdList(String raw) {
+    List<String> ids = new ArrayList<>();
+    if (raw != null) {
+      for (String part : raw.split(",")) {
+        String id = part.trim();
+        if (!id.isEmpty()) {
+          ids.add(id);
+        }
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Recibe un lote de elementos leídos por {@link #importStream}.
+   */
+  @FunctionalInterface
+  protected interface BatchImporter<T> {
+    void importBatch(List<T> batch, int firstIndex, ImportResult result);
+  }
+
+  /**
+   * Lee en streaming un array JSON o NDJSON y entrega los elementos al
+   * `importer` en lotes de {@link #IMPORT_BATCH_SIZE}, sin cargar el payload
+   * completo en memoria. Un elemento que no se puede mapear se rechaza y la
+   * lectura continúa; un JSON mal formado detiene la importación.
+   */
+  protected <T> ImportResult importStream(InputStream body, Class<T> type, BatchImporter<T> importer)
+      throws IOException {
+    ImportResult result = new ImportResult();
+    List<T> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+    int firstIndex = 0;
+    int index = 0;
+
+    try (MappingIterator<T> items = objectMapper.readerFor(type).readValues(body)) {
+      while (items.hasNextValue()) {
+        try {
+          batch.add(items.nextValue());
+        } catch (DatabindException de) {
+          flushBatch(batch, firstIndex, importer, result);
+          result.reject(index, "Invalid item: " + de.getOriginalMessage());
+          firstIndex = index + 1;
+        }
+        index++;
+
+        if (batch.size() == IMPORT_BATCH_SIZE) {
+          flushBatch(batch, firstIndex, importer, result);
+          firstIndex = index;
+        }
+      }
+    } catch (StreamReadException sre) {
+      result.reject(index, "Malformed JSON: " + sre.getOriginalMessage());
+      result.abort();
+    }
+
+    flushBatch(batch, firstIndex, importer, result);
+    return result;
+  }
+
+  private static <T> void flushBatch(List<T> batch, int firstIndex, BatchImporter<T> importer,
+      ImportResult result) {
+    if (!batch.isEmpty()) {
+      importer.importBatch(batch, firstIndex, result);
+      batch.clear();
+    }
+  }
+
+  /**
+   * Convierte el resultado de una importación en su DTO de respuesta.
+   */
+  protected ImportResultResponse toImportResponse(ImportResult result) {
+    List<ErrorResponse> errors = new ArrayList<>();
+    for (Map.Entry<Integer, String> rejection : result.getRejections().entrySet()) {
+      errors.add(new ErrorResponse("Rejected", "INVALID_INPUT",
+          Map.of("index", String.valueOf(rejection.getKey()), "message", rejection.getValue())));
+    }
+    return new ImportResultResponse(result.getAccepted(), result.getRejected(), result.isCompleted(), errors);
+  }
+}
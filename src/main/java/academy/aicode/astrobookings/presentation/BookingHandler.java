@@ -2,9 +2,11 @@ package academy.aicode.astrobookings.presentation;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -13,24 +15,48 @@ import java.util.logging.Logger;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.sun.net.httpserver.HttpExchange;
 
+import academy.aicode.astrobookings.business.BookingBatchResult;
 import academy.aicode.astrobookings.business.BookingConflictException;
+import academy.aicode.astrobookings.business.BookingPage;
 import academy.aicode.astrobookings.business.BookingService;
 import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.presentation.dto.BookingBatchItemResponse;
+import academy.aicode.astrobookings.presentation.dto.BookingLookupItemResponse;
 import academy.aicode.astrobookings.presentation.dto.BookingResponse;
 import academy.aicode.astrobookings.presentation.dto.CreateBookingRequest;
 import academy.aicode.astrobookings.presentation.dto.ErrorResponse;
 
 /**
  * HTTP handler for the `/bookings` resource.
+ * <p>
+ * `POST /bookings` with an `Idempotency-Key` header runs once per key: retries
+ * get the first response again (see {@link IdempotencyStore}); its counters
+ * are served by {@link MetricsHandler}.
+ * <p>
+ * `GET /bookings?passengerDocument=X&offset=0&limit=50` lists a passenger's
+ * bookings oldest first; when there are more, the {@value #NEXT_OFFSET_HEADER}
+ * header carries the offset of the next page.
  */
 public class BookingHandler extends BaseHandler {
 
   private static final Logger LOGGER = Logger.getLogger(BookingHandler.class.getName());
 
+  /** Response header with the offset of the next page of a listing. */
+  static final String NEXT_OFFSET_HEADER = "X-Next-Offset";
+
   private final BookingService bookingService = new BookingService();
+  private final IdempotencyStore idempotency;
+
+  public BookingHandler() {
+    this(IdempotencyStore.fromProperties());
+  }
+
+  public BookingHandler(IdempotencyStore idempotency) {
+    this.idempotency = idempotency;
+  }
 
   /**
-   * Handles requests for `/bookings` and `/bookings/{id}`.
+   * Handles requests for `/bookings`, `/bookings/batch` and `/bookings/{id}`.
    */
   @Override
   public void handle(HttpExchange exchange) throws IOException {
@@ -46,22 +72,62 @@ public class BookingHandler extends BaseHandler {
   }
 
   private void handlePost(HttpExchange exchange) throws IOException {
+    String relative = getRelativePath(exchange);
+    if ("/batch".equals(relative)) {
+      handleBatchPost(exchange);
+      return;
+    }
+    if (relative != null && !relative.isEmpty() && !"/".equals(relative)) {
+      ErrorResponse er = new ErrorResponse("Invalid path", "INVALID_PATH",
+          Map.of("field", "path", "message", "POST only supports /bookings or /bookings/batch"));
+      sendResponse(exchange, 400, this.objectMapper.writeValueAsString(er));
+      return;
+    }
+
+    String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    String key = exchange.getRequestHeaders().getFirst(IdempotencyStore.HEADER);
+    if (key == null) {
+      IdempotencyStore.Response created = create(body);
+      sendResponse(exchange, created.statusCode(), created.body());
+      return;
+    }
+    if (key.isBlank() || key.length() > IdempotencyStore.MAX_KEY_LENGTH) {
+      ErrorResponse er = new ErrorResponse("Invalid header", "INVALID_HEADER", Map.of("field", IdempotencyStore.HEADER,
+          "message", "Must be 1 to " + IdempotencyStore.MAX_KEY_LENGTH + " characters"));
+      sendResponse(exchange, 400, this.objectMapper.writeValueAsString(er));
+      return;
+    }
+    IdempotencyStore.Outcome outcome;
+    try {
+      outcome = idempotency.execute(key, IdempotencyStore.fingerprint(body), () -> create(body));
+    } catch (IdempotencyStore.KeyReusedException e) {
+      LOGGER.log(Level.INFO, "Idempotency key reused: {0}", e.getMessage());
+      ErrorResponse er = new ErrorResponse("Idempotency key reused", "IDEMPOTENCY_KEY_REUSED",
+          Map.of("field", IdempotencyStore.HEADER, "message", e.getMessage()));
+      sendResponse(exchange, 422, this.objectMapper.writeValueAsString(er));
+      return;
+    } catch (IdempotencyStore.StillRunningException e) {
+      LOGGER.log(Level.INFO, "Idempotency key still running: {0}", e.getMessage());
+      exchange.getResponseHeaders().set("Retry-After", "1");
+      ErrorResponse er = new ErrorResponse("Idempotency key in progress", "IDEMPOTENCY_KEY_IN_PROGRESS",
+          Map.of("field", IdempotencyStore.HEADER, "message", e.getMessage()));
+      sendResponse(exchange, 409, this.objectMapper.writeValueAsString(er));
+      return;
+    }
+    exchange.getResponseHeaders().set(IdempotencyStore.REPLAYED_HEADER, String.valueOf(outcome.replayed()));
+    sendResponse(exchange, outcome.response().statusCode(), outcome.response().body());
+  }
+
+  /**
+   * Creates a booking from a `POST /bookings` body and encodes the response,
+   * errors included, so it can be kept for retries with the same idempotency
+   * key.
+   */
+  private IdempotencyStore.Response create(String body) {
     String response;
     int statusCode;
 
     try {
-      String relative = getRelativePath(exchange);
-      if (relative != null && !relative.isEmpty() && !"/".equals(relative)) {
-        ErrorResponse er = new ErrorResponse("Invalid path", "INVALID_PATH",
-            Map.of("field", "path", "message", "POST only supports /bookings"));
-        response = this.objectMapper.writeValueAsString(er);
-        statusCode = 400;
-        sendResponse(exchange, statusCode, response);
-        return;
-      }
-
-      InputStream is = exchange.getRequestBody();
-      String body = new String(is.readAllBytes(), StandardCharsets.UTF_8);
       if (body == null || body.trim().isEmpty()) {
         throw new IllegalArgumentException("Request body must be provided");
       }
@@ -74,21 +140,74 @@ public class BookingHandler extends BaseHandler {
     } catch (BookingConflictException bce) {
       LOGGER.log(Level.INFO, "Conflict creating booking: {0}", bce.getMessage());
       ErrorResponse er = new ErrorResponse("Conflict", "CONFLICT", Map.of("message", bce.getMessage()));
-      response = this.objectMapper.writeValueAsString(er);
+      response = encode(er);
       statusCode = 409;
     } catch (IllegalArgumentException iae) {
       LOGGER.log(Level.INFO, "Validation failed creating booking: {0}", iae.getMessage());
       ErrorResponse er = new ErrorResponse("Validation failed", "INVALID_INPUT", Map.of("message", iae.getMessage()));
-      response = this.objectMapper.writeValueAsString(er);
+      response = encode(er);
       statusCode = 400;
     } catch (JsonProcessingException jpe) {
       LOGGER.log(Level.INFO, "Invalid JSON in create booking request", jpe);
       ErrorResponse er = new ErrorResponse("Invalid JSON", "INVALID_JSON", Map.of("message", jpe.getMessage()));
-      response = this.objectMapper.writeValueAsString(er);
+      response = encode(er);
       statusCode = 400;
     } catch (Exception e) {
       LOGGER.log(Level.SEVERE, "Failed to create booking", e);
       ErrorResponse er = new ErrorResponse("Server error", "SERVER_ERROR", Map.of("message", e.getMessage()));
+      response = encode(er);
+      statusCode = 500;
+    }
+
+    return new IdempotencyStore.Response(statusCode, response);
+  }
+
+  private String encode(Object value) {
+    try {
+      return this.objectMapper.writeValueAsString(value);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Handles `POST /bookings/batch`: the body is an array of create requests and
+   * the response is an array with one success/error entry per item.
+   */
+  private void handleBatchPost(HttpExchange exchange) throws IOException {
+    String response;
+    int statusCode;
+
+    try {
+      InputStream is = exchange.getRequestBody();
+      String body = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+      if (body == null || body.trim().isEmpty()) {
+        throw new IllegalArgumentException("Request body must be provided");
+      }
+
+      CreateBookingRequest[] requests = this.objectMapper.readValue(body, CreateBookingRequest[].class);
+      List<BookingBatchResult> results = bookingService.createBatch(requests == null ? null : Arrays.asList(requests));
+
+      List<BookingBatchItemResponse> out = new ArrayList<>();
+      for (int i = 0; i < results.size(); i++) {
+        out.add(toItemResponse(i, results.get(i)));
+      }
+
+      response = this.objectMapper.writeValueAsString(out);
+      statusCode = 200;
+    } catch (IllegalArgumentException iae) {
+      LOGGER.log(Level.INFO, "Validation failed creating booking batch: {0}", iae.getMessage());
+      ErrorResponse er = new ErrorResponse("Validation failed", "INVALID_INPUT", Map.of("message", iae.getMessage()));
+      response = this.objectMapper.writeValueAsString(er);
+      statusCode = 400;
+    } catch (JsonProcessingException jpe) {
+      LOGGER.log(Level.INFO, "Invalid JSON in booking batch request", jpe);
+      ErrorResponse er = new ErrorResponse("Invalid JSON", "INVALID_JSON", Map.of("message", jpe.getMessage()));
+      response = this.objectMapper.writeValueAsString(er);
+      statusCode = 400;
+    } catch (Exception e) {
+      LOGGER.log(Level.SEVERE, "Failed to create booking batch", e);
+      ErrorResponse er = new ErrorResponse("Server error", "SERVER_ERROR", Map.of("message", e.getMessage()));
       response = this.objectMapper.writeValueAsString(er);
       statusCode = 500;
     }
@@ -96,6 +215,21 @@ public class BookingHandler extends BaseHandler {
     sendResponse(exchange, statusCode, response);
   }
 
+  private BookingBatchItemResponse toItemResponse(int index, BookingBatchResult result) {
+    if (result.isSuccess()) {
+      return new BookingBatchItemResponse(index, 201, toResponse(result.getBooking()), null);
+    }
+
+    RuntimeException error = result.getError();
+    if (error instanceof BookingConflictException) {
+      ErrorResponse er = new ErrorResponse("Conflict", "CONFLICT", Map.of("message", error.getMessage()));
+      return new BookingBatchItemResponse(index, 409, null, er);
+    }
+
+    ErrorResponse er = new ErrorResponse("Validation failed", "INVALID_INPUT", Map.of("message", error.getMessage()));
+    return new BookingBatchItemResponse(index, 400, null, er);
+  }
+
   private void handleGet(HttpExchange exchange) throws IOException {
     String response;
     int statusCode;
@@ -106,6 +240,15 @@ public class BookingHandler extends BaseHandler {
 
       if (relative == null || relative.isEmpty() || "/".equals(relative)) {
         Map<String, String> params = parseQuery(uri.getQuery());
+        if (params.containsKey("ids")) {
+          handleMultiGet(exchange, parseIdList(params.get("ids")));
+          return;
+        }
+        if (params.containsKey("passengerDocument")) {
+          handlePassengerGet(exchange, params);
+          return;
+        }
+
         String flightId = params.get("flightId");
         if (flightId == null || flightId.trim().isEmpty()) {
           ErrorResponse er = new ErrorResponse("Invalid query", "INVALID_QUERY",
@@ -117,12 +260,12 @@ public class BookingHandler extends BaseHandler {
         }
 
         List<Booking> bookings = bookingService.findByFlightId(flightId.trim());
-        List<BookingResponse> out = new ArrayList<>();
+        List<String> out = new ArrayList<>();
         for (Booking b : bookings) {
-          out.add(toResponse(b));
+          out.add(toJson(b));
         }
 
-        response = this.objectMapper.writeValueAsString(out);
+        response = JsonFragmentCache.toJsonArray(out);
         statusCode = 200;
       } else {
         String id = relative.startsWith("/") ? relative.substring(1) : relative;
@@ -139,7 +282,7 @@ public class BookingHandler extends BaseHandler {
             response = this.objectMapper.writeValueAsString(er);
             statusCode = 404;
           } else {
-            response = this.objectMapper.writeValueAsString(toResponse(booking));
+            response = toJson(booking);
             statusCode = 200;
           }
         }
@@ -165,6 +308,83 @@ public class BookingHandler extends BaseHandler {
     sendResponse(exchange, statusCode, response);
   }
 
+  /**
+   * Handles `GET /bookings?ids=a,b,c`: one entry per requested id, in request
+   * order, with a `NOT_FOUND` error for unknown ids.
+   */
+  private void handleMultiGet(HttpExchange exchange, List<String> ids) throws IOException {
+    String response;
+    int statusCode;
+
+    try {
+      List<Booking> bookings = bookingService.findByIds(ids);
+      List<BookingLookupItemResponse> out = new ArrayList<>();
+      for (int i = 0; i < ids.size(); i++) {
+        Booking booking = bookings.get(i);
+        if (booking == null) {
+          ErrorResponse er = new ErrorResponse("Booking not found", "NOT_FOUND",
+              Map.of("field", "id", "message", "no booking with given id"));
+          out.add(new BookingLookupItemResponse(ids.get(i), 404, null, er));
+        } else {
+          out.add(new BookingLookupItemResponse(ids.get(i), 200, toResponse(booking), null));
+        }
+      }
+
+      response = this.objectMapper.writeValueAsString(out);
+      statusCode = 200;
+    } catch (IllegalArgumentException iae) {
+      ErrorResponse er = new ErrorResponse("Invalid query", "INVALID_QUERY",
+          Map.of("field", "ids", "message", iae.getMessage()));
+      response = this.objectMapper.writeValueAsString(er);
+      statusCode = 400;
+    }
+
+    sendResponse(exchange, statusCode, response);
+  }
+
+  /**
+   * Handles `GET /bookings?passengerDocument=X&offset=0&limit=50`: a page of
+   * the passenger's bookings, oldest first.
+   */
+  private void handlePassengerGet(HttpExchange exchange, Map<String, String> params) throws IOException {
+    String response;
+    int statusCode;
+
+    try {
+      int offset = parsePageParam(params, "offset", 0);
+      int limit = parsePageParam(params, "limit", BookingService.DEFAULT_PAGE_SIZE);
+      BookingPage page = bookingService.findByPassengerDocument(params.get("passengerDocument"), offset, limit);
+      List<String> out = new ArrayList<>();
+      for (Booking b : page.getBookings()) {
+        out.add(toJson(b));
+      }
+      if (page.getNextOffset() != null) {
+        exchange.getResponseHeaders().set(NEXT_OFFSET_HEADER, String.valueOf(page.getNextOffset()));
+      }
+
+      response = JsonFragmentCache.toJsonArray(out);
+      statusCode = 200;
+    } catch (IllegalArgumentException iae) {
+      ErrorResponse er = new ErrorResponse("Invalid query", "INVALID_QUERY", Map.of("message", iae.getMessage()));
+      response = this.objectMapper.writeValueAsString(er);
+      statusCode = 400;
+    }
+
+    sendResponse(exchange, statusCode, response);
+  }
+
+  private static int parsePageParam(Map<String, String> params, String name, int defaultValue) {
+    String value = params.get(name);
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " must be an integer");
+    }
+  }
+
   private String getRelativePath(HttpExchange exchange) {
     URI uri = exchange.getRequestURI();
     String path = uri.getPath();
@@ -192,4 +412,10 @@ public class BookingHandler extends BaseHandler {
     return new BookingResponse(booking.getId(), booking.getFlightId(), booking.getPassengerName(),
         booking.getPassengerDocument(), booking.getFinalPrice(), booking.getDiscountPercent(), booking.getCreatedAt());
   }
+
+  private String toJson(Booking booking) throws JsonProcessingException {
+    long version = booking.version();
+    return fragmentCache.fragment("booking", booking.getId(), version,
+        () -> this.objectMapper.writeValueAsString(toResponse(booking)));
+  }
 }
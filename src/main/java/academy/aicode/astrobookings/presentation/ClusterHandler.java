@@ -0,0 +1,235 @@
+package academy.aicode.astrobookings.presentation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.sun.net.httpserver.HttpExchange;
+
+import academy.aicode.astrobookings.cluster.Cluster;
+import academy.aicode.astrobookings.cluster.ClusterNode;
+import academy.aicode.astrobookings.cluster.FlightMigrator;
+import academy.aicode.astrobookings.cluster.MigrationBatch;
+import academy.aicode.astrobookings.cluster.MoveRequest;
+import academy.aicode.astrobookings.cluster.PointerUpdate;
+import academy.aicode.astrobookings.cluster.Rebalancer;
+import academy.aicode.astrobookings.cluster.SeatEscrow;
+import academy.aicode.astrobookings.cluster.SeatReport;
+import academy.aicode.astrobookings.cluster.SeatRequest;
+import academy.aicode.astrobookings.presentation.dto.ErrorResponse;
+
+/**
+ * HTTP handler for `/cluster`: the state of this node, joining nodes,
+ * rebalancing flights and the calls nodes make to each other for those.
+ * <ul>
+ * <li>`GET /cluster` — what this node holds.</li>
+ * <li>`POST /cluster/nodes` with `{"name", "uri"}` — joins a started node.</li>
+ * <li>`POST /cluster/rebalance` — spreads flights evenly and reports the
+ * migration throughput.</li>
+ * <li>`POST /cluster/moves` with `{"to", "count"}` — moves flights from this
+ * node.</li>
+ * <li>`POST /cluster/join/{prepare|commit|abort}`, `POST /cluster/pointers`
+ * and `POST /cluster/migrations/{flightId}/{copy|commit|abort}` — calls
+ * between nodes; migrations name their source in
+ * {@value Cluster#FORWARDED_HEADER}.</li>
+ * <li>`POST /cluster/escrow/{flightId}/{grant|report|recall|release}` — calls
+ * between nodes about quotas of a flight's seats ({@link SeatEscrow});
+ * recalls and releases name the flight's node in
+ * {@value Cluster#FORWARDED_HEADER}.</li>
+ * </ul>
+ * Calls between nodes are refused with 403 unless they carry the cluster
+ * secret in {@value Cluster#SECRET_HEADER} ({@link Cluster#isPeer}).
+ */
+public class ClusterHandler extends BaseHandler {
+
+  private static final Logger LOGGER = Logger.getLogger(ClusterHandler.class.getName());
+
+  /** Paths under `/cluster` only other nodes may call. */
+  private static final List<String> NODE_CALLS = List.of("join/", "pointers", "migrations/", "escrow/");
+
+  private final Cluster cluster;
+  private final FlightMigrator migrator;
+  private final Rebalancer rebalancer;
+  private final SeatEscrow escrow;
+
+  public ClusterHandler(Cluster cluster, FlightMigrator migrator) {
+    this(cluster, migrator, null);
+  }
+
+  public ClusterHandler(Cluster cluster, FlightMigrator migrator, SeatEscrow escrow) {
+    this.cluster = cluster;
+    this.migrator = migrator;
+    this.rebalancer = new Rebalancer(cluster);
+    this.escrow = escrow;
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    String relative = getRelativePath(exchange);
+    String response = null;
+    int statusCode = 200;
+
+    try {
+      if ("GET".equals(method) && relative.isEmpty()) {
+        response = objectMapper.writeValueAsString(migrator.status());
+      } else if (!"POST".equals(method)) {
+        handleMethodNotAllowed(exchange);
+        return;
+      } else if (NODE_CALLS.stream().anyMatch(relative::startsWith)
+          && !cluster.isPeer(exchange.getRequestHeaders().getFirst(Cluster.SECRET_HEADER))) {
+        statusCode = 403;
+        response = error("Forbidden", "NOT_A_CLUSTER_NODE", "Calls between nodes need the cluster secret");
+      } else if ("nodes".equals(relative)) {
+        ClusterNode node = readNode(exchange);
+        response = objectMapper.writeValueAsString(Map.of("nodes", rebalancer.join(node)));
+      } else if ("rebalance".equals(relative)) {
+        response = objectMapper.writeValueAsString(rebalancer.rebalance());
+      } else if ("moves".equals(relative)) {
+        MoveRequest move = objectMapper.readValue(exchange.getRequestBody(), MoveRequest.class);
+        if (move.to() == null || move.count() < 0) {
+          throw new IllegalArgumentException("A move needs a target node and a count");
+        }
+        response = objectMapper.writeValueAsString(migrator.moveFlights(cluster.node(move.to()), move.count()));
+      } else if (relative.startsWith("join/")) {
+        join(relative.substring("join/".length()), readNode(exchange));
+        statusCode = 204;
+      } else if ("pointers".equals(relative)) {
+        PointerUpdate update = objectMapper.readValue(exchange.getRequestBody(), PointerUpdate.class);
+        if (update.node() == null || update.ids() == null) {
+          throw new IllegalArgumentException("Pointers need a node and ids");
+        }
+        migrator.pointersReceived(update);
+        statusCode = 204;
+      } else if (relative.startsWith("migrations/")) {
+        migration(exchange, relative.substring("migrations/".length()));
+        statusCode = 204;
+      } else if (relative.startsWith("escrow/") && escrow != null) {
+        response = escrow(exchange, relative.substring("escrow/".length()));
+        statusCode = response == null ? 204 : 200;
+      } else {
+        throw new IllegalArgumentException("Unknown cluster path /cluster/" + relative);
+      }
+    } catch (JsonProcessingException jpe) {
+      statusCode = 400;
+      response = error("Invalid JSON", "INVALID_JSON", jpe.getOriginalMessage());
+    } catch (IllegalArgumentException iae) {
+      statusCode = 400;
+      response = error("Validation failed", "INVALID_INPUT", iae.getMessage());
+    } catch (IllegalStateException ise) {
+      statusCode = 409;
+      response = error("Conflict", "CONFLICT", ise.getMessage());
+    } catch (IOException | UncheckedIOException e) {
+      LOGGER.log(Level.WARNING, "Cluster request " + relative + " failed", e);
+      statusCode = 502;
+      response = error("Node unavailable", "NODE_UNAVAILABLE", e.getMessage());
+    }
+
+    if (statusCode == 204) {
+      exchange.sendResponseHeaders(204, -1);
+      exchange.close();
+    } else {
+      sendResponse(exchange, statusCode, response);
+    }
+  }
+
+  private void join(String phase, ClusterNode node) throws IOException {
+    switch (phase) {
+      case "prepare" -> migrator.prepareJoin(node);
+      case "commit" -> migrator.commitJoin(node);
+      case "abort" -> migrator.abortJoin(node);
+      default -> throw new IllegalArgumentException("Unknown join phase " + phase);
+    }
+  }
+
+  private void migration(HttpExchange exchange, String path) throws IOException {
+    int slash = path.lastIndexOf('/');
+    if (slash <= 0) {
+      throw new IllegalArgumentException("Migrations are /cluster/migrations/{flightId}/{copy|commit|abort}");
+    }
+    String flightId = URLDecoder.decode(path.substring(0, slash), StandardCharsets.UTF_8);
+    String step = path.substring(slash + 1);
+    String source = exchange.getRequestHeaders().getFirst(Cluster.FORWARDED_HEADER);
+    if (source == null) {
+      throw new IllegalArgumentException("Migrations must name their source node in " + Cluster.FORWARDED_HEADER);
+    }
+    if ("abort".equals(step)) {
+      migrator.abortReceive(flightId, cluster.node(source));
+      return;
+    }
+    if (!"copy".equals(step) && !"commit".equals(step)) {
+      throw new IllegalArgumentException("Unknown migration step " + step);
+    }
+    MigrationBatch batch = objectMapper.readValue(exchange.getRequestBody(), MigrationBatch.class);
+    if (batch.flight() == null || !flightId.equals(batch.flight().getId()) || batch.bookings() == null) {
+      throw new IllegalArgumentException("Migration batch must hold flight " + flightId + " and its bookings");
+    }
+    migrator.receive(batch, "commit".equals(step));
+  }
+
+  /**
+   * Handles a call about a quota, returning the answer or null when there is
+   * none.
+   */
+  private String escrow(HttpExchange exchange, String path) throws IOException {
+    int slash = path.lastIndexOf('/');
+    if (slash <= 0) {
+      throw new IllegalArgumentException("Seat calls are /cluster/escrow/{flightId}/{grant|report|recall|release}");
+    }
+    String flightId = URLDecoder.decode(path.substring(0, slash), StandardCharsets.UTF_8);
+    String step = path.substring(slash + 1);
+    switch (step) {
+      case "grant" -> {
+        SeatRequest request = objectMapper.readValue(exchange.getRequestBody(), SeatRequest.class);
+        return objectMapper.writeValueAsString(escrow.grant(flightId, request));
+      }
+      case "report" -> {
+        SeatReport report = objectMapper.readValue(exchange.getRequestBody(), SeatReport.class);
+        return objectMapper.writeValueAsString(escrow.report(flightId, report));
+      }
+      case "recall", "release" -> {
+        String caller = exchange.getRequestHeaders().getFirst(Cluster.FORWARDED_HEADER);
+        if (caller == null) {
+          throw new IllegalArgumentException("Seat calls must name the flight's node in " + Cluster.FORWARDED_HEADER);
+        }
+        if ("recall".equals(step)) {
+          escrow.recall(flightId, cluster.node(caller));
+        } else {
+          escrow.release(flightId, cluster.node(caller));
+        }
+        return null;
+      }
+      default -> throw new IllegalArgumentException("Unknown seat call " + step);
+    }
+  }
+
+  private ClusterNode readNode(HttpExchange exchange) throws IOException {
+    ClusterNode node = objectMapper.readValue(exchange.getRequestBody(), ClusterNode.class);
+    if (node.name() == null || node.name().isBlank() || node.uri() == null) {
+      throw new IllegalArgumentException("A node needs a name and a uri");
+    }
+    URI uri = node.uri();
+    if (uri.getHost() == null || !"http".equals(uri.getScheme())) {
+      throw new IllegalArgumentException("Node uri must be http://host:port, was " + uri);
+    }
+    return node;
+  }
+
+  private String error(String message, String code, String detail) throws JsonProcessingException {
+    return objectMapper.writeValueAsString(new ErrorResponse(message, code, Map.of("message", String.valueOf(detail))));
+  }
+
+  private String getRelativePath(HttpExchange exchange) {
+    String path = exchange.getRequestURI().getRawPath();
+    String context = exchange.getHttpContext().getPath();
+    String relative = path.length() > context.length() ? path.substring(context.length()) : "";
+    return relative.startsWith("/") ? relative.substring(1) : relative;
+  }
+}
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -14,10 +16,12 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.sun.net.httpserver.HttpExchange;
 
 import academy.aicode.astrobookings.business.FlightService;
+import academy.aicode.astrobookings.business.ImportResult;
 import academy.aicode.astrobookings.persistence.models.Flight;
 import academy.aicode.astrobookings.persistence.models.FlightState;
 import academy.aicode.astrobookings.presentation.dto.CreateFlightRequest;
 import academy.aicode.astrobookings.presentation.dto.ErrorResponse;
+import academy.aicode.astrobookings.presentation.dto.FlightLookupItemResponse;
 import academy.aicode.astrobookings.presentation.dto.FlightResponse;
 
 /**
@@ -51,6 +55,10 @@ public class FlightHandler extends BaseHandler {
 
     try {
       String relative = getRelativePath(exchange);
+      if ("/import".equals(relative)) {
+        handleImport(exchange);
+        return;
+      }
       if (relative != null && !relative.isEmpty() && !"/".equals(relative)) {
         String trimmed = relative.startsWith("/") ? relative.substring(1) : relative;
         String[] parts = trimmed.split("/");
@@ -66,6 +74,7 @@ public class FlightHandler extends BaseHandler {
           }
 
           Flight cancelled = flightService.cancelById(id);
+          fragmentCache.invalidate("flight", id);
           if (cancelled == null) {
             ErrorResponse er = new ErrorResponse("Flight not found", "NOT_FOUND",
                 Map.of("field", "id", "message", "no flight with given id"));
@@ -82,7 +91,7 @@ public class FlightHandler extends BaseHandler {
         }
 
         ErrorResponse er = new ErrorResponse("Invalid path", "INVALID_PATH",
-            Map.of("field", "path", "message", "POST supports /flights or /flights/{id}/cancel"));
+            Map.of("field", "path", "message", "POST supports /flights, /flights/import or /flights/{id}/cancel"));
         response = this.objectMapper.writeValueAsString(er);
         statusCode = 400;
         sendResponse(exchange, statusCode, response);
@@ -125,6 +134,32 @@ public class FlightHandler extends BaseHandler {
     sendResponse(exchange, statusCode, response);
   }
 
+  /**
+   * Handles `POST /flights/import`: streams a JSON array or NDJSON of create
+   * requests and answers with accepted/rejected counts.
+   */
+  private void handleImport(HttpExchange exchange) throws IOException {
+    String response;
+    int statusCode;
+
+    try {
+      ImportResult result = importStream(exchange.getRequestBody(), CreateFlightRequest.class,
+          flightService::importBatch);
+      LOGGER.log(Level.INFO, "Flight import finished: {0} accepted, {1} rejected",
+          new Object[] { result.getAccepted(), result.getRejected() });
+      response = this.objectMapper.writeValueAsString(toImportResponse(result));
+      statusCode = 200;
+    } catch (Exception e) {
+      LOGGER.log(Level.SEVERE, "Failed to import flights", e);
+      ErrorResponse er = new ErrorResponse("Server error", "SERVER_ERROR",
+          Map.of("message", String.valueOf(e.getMessage())));
+      response = this.objectMapper.writeValueAsString(er);
+      statusCode = 500;
+    }
+
+    sendResponse(exchange, statusCode, response);
+  }
+
   private void handleGet(HttpExchange exchange) throws IOException {
     String response;
     int statusCode;
@@ -135,6 +170,11 @@ public class FlightHandler extends BaseHandler {
 
       if (relative == null || relative.isEmpty() || "/".equals(relative)) {
         Map<String, String> params = parseQuery(uri.getQuery());
+        if (params.containsKey("ids")) {
+          handleMultiGet(exchange, parseIdList(params.get("ids")));
+          return;
+        }
+
         FlightState stateFilter = null;
 
         String stateRaw = params.get("state");
@@ -151,13 +191,27 @@ public class FlightHandler extends BaseHandler {
           }
         }
 
-        List<Flight> flights = flightService.findFutureFlights(stateFilter);
-        List<FlightResponse> out = new ArrayList<>();
+        Instant from;
+        Instant to;
+        try {
+          from = parseInstant(params.get("from"));
+          to = parseInstant(params.get("to"));
+        } catch (DateTimeParseException dtpe) {
+          ErrorResponse er = new ErrorResponse("Invalid launch window", "INVALID_QUERY",
+              Map.of("field", "from/to", "message", "from and to must be ISO-8601 instants"));
+          response = this.objectMapper.writeValueAsString(er);
+          statusCode = 400;
+          sendResponse(exchange, statusCode, response);
+          return;
+        }
+
+        List<Flight> flights = flightService.findFlightsByLaunchWindow(from, to, stateFilter);
+        List<String> out = new ArrayList<>();
         for (Flight f : flights) {
-          out.add(toResponse(f));
+          out.add(toJson(f));
         }
 
-        response = this.objectMapper.writeValueAsString(out);
+        response = JsonFragmentCache.toJsonArray(out);
         statusCode = 200;
       } else {
         String id = relative.startsWith("/") ? relative.substring(1) : relative;
@@ -174,7 +228,7 @@ public class FlightHandler extends BaseHandler {
             response = this.objectMapper.writeValueAsString(er);
             statusCode = 404;
           } else {
-            response = this.objectMapper.writeValueAsString(toResponse(flight));
+            response = toJson(flight);
             statusCode = 200;
           }
         }
@@ -195,6 +249,44 @@ public class FlightHandler extends BaseHandler {
     sendResponse(exchange, statusCode, response);
   }
 
+  /**
+   * Handles `GET /flights?ids=a,b,c`: one entry per requested id, in request
+   * order, with a `NOT_FOUND` error for unknown ids.
+   */
+  private void handleMultiGet(HttpExchange exchange, List<String> ids) throws IOException {
+    String response;
+    int statusCode;
+
+    try {
+      List<Flight> flights = flightService.findByIds(ids);
+      List<FlightLookupItemResponse> out = new ArrayList<>();
+      for (int i = 0; i < ids.size(); i++) {
+        Flight flight = flights.get(i);
+        if (flight == null) {
+          ErrorResponse er = new ErrorResponse("Flight not found", "NOT_FOUND",
+              Map.of("field", "id", "message", "no flight with given id"));
+          out.add(new FlightLookupItemResponse(ids.get(i), 404, null, er));
+        } else {
+          out.add(new FlightLookupItemResponse(ids.get(i), 200, toResponse(flight), null));
+        }
+      }
+
+      response = this.objectMapper.writeValueAsString(out);
+      statusCode = 200;
+    } catch (IllegalArgumentException iae) {
+      ErrorResponse er = new ErrorResponse("Invalid query", "INVALID_QUERY",
+          Map.of("field", "ids", "message", iae.getMessage()));
+      response = this.objectMapper.writeValueAsString(er);
+      statusCode = 400;
+    }
+
+    sendResponse(exchange, statusCode, response);
+  }
+
+  private static Instant parseInstant(String raw) {
+    return raw == null || raw.trim().isEmpty() ? null : Instant.parse(raw.trim());
+  }
+
   private String getRelativePath(HttpExchange exchange) {
     URI uri = exchange.getRequestURI();
     String path = uri.getPath();
@@ -215,4 +307,10 @@ public class FlightHandler extends BaseHandler {
     return new FlightResponse(flight.getId(), flight.getRocketId(), flight.getLaunchDateTime(), flight.getBasePrice(),
         flight.getMinimumPassengers(), flight.getState());
   }
+
+  private String toJson(Flight flight) throws JsonProcessingException {
+    long version = flight.version();
+    return fragmentCache.fragment("flight", flight.getId(), version,
+        () -> this.objectMapper.writeValueAsString(toResponse(flight)));
+  }
 }
@@ -0,0 +1,308 @@
+package academy.aicode.astrobookings.presentation;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Responses of requests sent with an `Idempotency-Key`, so a client retrying
+ * after a timeout gets the response of the first execution instead of running
+ * the request again.
+ * <p>
+ * The first request with a key runs and its response is kept for the TTL;
+ * requests with the same key arriving meanwhile wait for it rather than run,
+ * up to {@code maxWait}, after which they get {@link StillRunningException}.
+ * Responses with a 5xx status are not kept: the next request with the key
+ * runs again. A key sent again with a different body is refused with
+ * {@link KeyReusedException}.
+ * <p>
+ * Kept responses are evicted oldest first once expired, or when there are
+ * more than {@code maxEntries} keys or their bodies exceed {@code maxChars}.
+ * {@link #stats()} reports hits, waits, timeouts and evictions.
+ */
+public class IdempotencyStore {
+
+  /** Request header carrying the key. */
+  public static final String HEADER = "Idempotency-Key";
+  /** Response header telling whether the response was replayed. */
+  public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+  /** Longest key accepted. */
+  public static final int MAX_KEY_LENGTH = 255;
+
+  public static final Duration DEFAULT_TTL = Duration.ofHours(24);
+  public static final int DEFAULT_MAX_ENTRIES = 100_000;
+  public static final long DEFAULT_MAX_CHARS = 32L * 1024 * 1024;
+  public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(5);
+
+  /**
+   * A response to keep and replay.
+   *
+   * @param statusCode the HTTP status
+   * @param body       the encoded body
+   */
+  public record Response(int statusCode, String body) {
+  }
+
+  /**
+   * What a request with a key gets.
+   *
+   * @param response the response to send
+   * @param replayed whether it comes from an earlier execution
+   */
+  public record Outcome(Response response, boolean replayed) {
+  }
+
+  /**
+   * Counters since the store was created.
+   *
+   * @param executions requests that ran
+   * @param replays    requests answered with a kept response, waits included
+   * @param waits      replays that waited for the execution in progress
+   * @param timeouts   requests that gave up waiting for it
+   * @param evictions  responses dropped before their TTL to respect the caps
+   * @param expired    responses dropped at the end of their TTL
+   * @param entries    keys kept or running
+   * @param chars      size of the bodies kept
+   */
+  public record Stats(long executions, long replays, long waits, long timeouts, long evictions, long expired,
+      int entries, long chars) {
+
+    /**
+     * Returns the share of keyed requests answered without running, or 0
+     * before any.
+     */
+    @JsonProperty
+    public double hitRate() {
+      long total = executions + replays;
+      return total == 0 ? 0 : (double) replays / total;
+    }
+  }
+
+  /**
+   * Thrown when a key comes back with a different request.
+   */
+  public static class KeyReusedException extends RuntimeException {
+    public KeyReusedException(String key) {
+      super("Idempotency key " + key + " was used with a different request");
+    }
+  }
+
+  /**
+   * Thrown when the request running with a key does not finish within the
+   * wait allowed; the client should retry later.
+   */
+  public static class StillRunningException extends RuntimeException {
+    public StillRunningException(String key) {
+      super("A request with idempotency key " + key + " is still running");
+    }
+  }
+
+  private static final class Entry {
+    private final String key;
+    private final byte[] fingerprint;
+    /** Completed with the response, or with null when it is not kept. */
+    private final CompletableFuture<Response> response = new CompletableFuture<>();
+    /** Zero while running. */
+    private volatile long expiresAt;
+
+    private Entry(String key, byte[] fingerprint) {
+      this.key = key;
+      this.fingerprint = fingerprint;
+    }
+  }
+
+  private final long ttlNanos;
+  private final int maxEntries;
+  private final long maxChars;
+  private final long maxWaitNanos;
+  private final LongSupplier clock;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  /** Kept entries, oldest first; all share the TTL, so also by expiry. */
+  private final Queue<Entry> kept = new ConcurrentLinkedQueue<>();
+  private final AtomicLong chars = new AtomicLong();
+  private final LongAdder executions = new LongAdder();
+  private final LongAdder replays = new LongAdder();
+  private final LongAdder waits = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+
+  public IdempotencyStore(Duration ttl, int maxEntries, long maxChars) {
+    this(ttl, maxEntries, maxChars, DEFAULT_MAX_WAIT);
+  }
+
+  public IdempotencyStore(Duration ttl, int maxEntries, long maxChars, Duration maxWait) {
+    this(ttl, maxEntries, maxChars, maxWait, System::nanoTime);
+  }
+
+  IdempotencyStore(Duration ttl, int maxEntries, long maxChars, LongSupplier clock) {
+    this(ttl, maxEntries, maxChars, DEFAULT_MAX_WAIT, clock);
+  }
+
+  IdempotencyStore(Duration ttl, int maxEntries, long maxChars, Duration maxWait, LongSupplier clock) {
+    this.ttlNanos = ttl.toNanos();
+    this.maxEntries = maxEntries;
+    this.maxChars = maxChars;
+    this.maxWaitNanos = maxWait.toNanos();
+    this.clock = clock;
+  }
+
+  /**
+   * Creates a store sized by the `astrobookings.idempotency.ttlSeconds`,
+   * `astrobookings.idempotency.maxEntries`,
+   * `astrobookings.idempotency.maxChars` and
+   * `astrobookings.idempotency.maxWaitMillis` system properties.
+   */
+  public static IdempotencyStore fromProperties() {
+    return new IdempotencyStore(
+        Duration.ofSeconds(Long.getLong("astrobookings.idempotency.ttlSeconds", DEFAULT_TTL.toSeconds())),
+        Integer.getInteger("astrobookings.idempotency.maxEntries", DEFAULT_MAX_ENTRIES),
+        Long.getLong("astrobookings.idempotency.maxChars", DEFAULT_MAX_CHARS),
+        Duration.ofMillis(Long.getLong("astrobookings.idempotency.maxWaitMillis", DEFAULT_MAX_WAIT.toMillis())));
+  }
+
+  /**
+   * Returns a digest of a request body, to tell a retry from another request
+   * sent with the same key.
+   */
+  public static byte[] fingerprint(String body) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Runs {@code request} unless a request with {@code key} ran or is running,
+   * in which case its response is returned, waiting for it if needed but no
+   * longer than the store's {@code maxWait} in all.
+   *
+   * @param key         the client's key
+   * @param fingerprint the request's {@link #fingerprint}
+   * @param request     runs the request
+   * @return the response and whether it was replayed
+   * @throws KeyReusedException    if the key was used with another fingerprint
+   * @throws StillRunningException if the request running with the key did not
+   *                               finish in time
+   */
+  public Outcome execute(String key, byte[] fingerprint, Supplier<Response> request) {
+    long deadline = System.nanoTime() + maxWaitNanos;
+    while (true) {
+      Entry entry = new Entry(key, fingerprint);
+      Entry existing = entries.putIfAbsent(key, entry);
+      if (existing == null) {
+        return new Outcome(run(entry, request), false);
+      }
+      long expiresAt = existing.expiresAt;
+      if (expiresAt != 0 && clock.getAsLong() - expiresAt >= 0) {
+        if (entries.remove(key, existing)) {
+          expired.increment();
+        }
+        continue;
+      }
+      if (!Arrays.equals(existing.fingerprint, fingerprint)) {
+        throw new KeyReusedException(key);
+      }
+      if (!existing.response.isDone()) {
+        waits.increment();
+      }
+      Response response = await(existing, deadline);
+      if (response != null) {
+        replays.increment();
+        return new Outcome(response, true);
+      }
+      // The execution waited for was not kept; run it again
+    }
+  }
+
+  /**
+   * Waits until {@code deadline} for the response of a running entry.
+   */
+  private Response await(Entry entry, long deadline) {
+    try {
+      return entry.response.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      timeouts.increment();
+      throw new StillRunningException(entry.key);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new StillRunningException(entry.key);
+    } catch (ExecutionException e) {
+      // Entries are only ever completed normally
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Response run(Entry entry, Supplier<Response> request) {
+    executions.increment();
+    Response response;
+    try {
+      response = request.get();
+    } catch (RuntimeException e) {
+      forget(entry);
+      throw e;
+    }
+    if (response.statusCode() >= 500 || response.body().length() > maxChars) {
+      forget(entry);
+      return response;
+    }
+    entry.expiresAt = clock.getAsLong() + ttlNanos;
+    chars.addAndGet(response.body().length());
+    kept.add(entry);
+    entry.response.complete(response);
+    evict();
+    return response;
+  }
+
+  private void forget(Entry entry) {
+    entries.remove(entry.key, entry);
+    entry.response.complete(null);
+  }
+
+  /**
+   * Drops kept responses from the oldest while they are expired or over the
+   * caps.
+   */
+  private void evict() {
+    long now = clock.getAsLong();
+    Entry oldest;
+    while ((oldest = kept.peek()) != null) {
+      boolean expiredNow = now - oldest.expiresAt >= 0;
+      if (!expiredNow && entries.size() <= maxEntries && chars.get() <= maxChars) {
+        return;
+      }
+      if (!kept.remove(oldest)) {
+        continue;
+      }
+      chars.addAndGet(-oldest.response.join().body().length());
+      if (entries.remove(oldest.key, oldest)) {
+        (expiredNow ? expired : evictions).increment();
+      }
+    }
+  }
+
+  /**
+   * Returns the counters and the current size.
+   */
+  public Stats stats() {
+    return new Stats(executions.sum(), replays.sum(), waits.sum(), timeouts.sum(), evictions.sum(),
+        expired.sum(), entries.size(), chars.get());
+  }
+}
@@ -0,0 +1,212 @@
+package academy.aicode.astrobookings.presentation;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Cache of the JSON encoding of each entity, keyed by entity type and id and
+ * validated by the entity's version stamp. A mutation changes the stamp, so
+ * the next read re-encodes and replaces the stale fragment; writes made
+ * through the handlers also {@link #invalidate} it at once.
+ * <p>
+ * Hits only read a concurrent map and note when the fragment was last used.
+ * The total size of cached fragments is bounded by the budget given to the
+ * instance; once over it, fragments are evicted approximately least recently
+ * used first: a sweep over the map drops the least recently used of every
+ * {@value #SAMPLE} fragments it visits. Fragments left stale by writes made
+ * elsewhere are never used again, so they are the first the sweep finds.
+ * <p>
+ * Handlers share the instance of {@link #shared()}, sized by the
+ * `astrobookings.jsonCache.maxChars` system property.
+ */
+public class JsonFragmentCache {
+
+  /**
+   * Default budget, in characters, for all cached fragments together.
+   */
+  public static final long DEFAULT_MAX_CHARS = 8L * 1024 * 1024;
+
+  /** Fragments compared by each eviction. */
+  static final int SAMPLE = 8;
+
+  private static volatile JsonFragmentCache shared;
+
+  private final long maxChars;
+  private final Map<String, Fragment> fragments = new ConcurrentHashMap<>();
+  private final AtomicLong usedChars = new AtomicLong();
+  /** Advances with every fragment stored; the "time" fragments are used at. */
+  private final AtomicLong tick = new AtomicLong();
+  private final ReentrantLock sweepLock = new ReentrantLock();
+  /** Where the sweep goes on from; guarded by {@link #sweepLock}. */
+  private Iterator<Fragment> sweep;
+
+  /**
+   * Produces the JSON of an entity on a cache miss.
+   */
+  @FunctionalInterface
+  public interface Encoder {
+    String encode() throws JsonProcessingException;
+  }
+
+  private static final class Fragment {
+    private final String key;
+    private final long version;
+    private final String json;
+    private volatile long lastUsed;
+
+    private Fragment(String key, long version, String json, long lastUsed) {
+      this.key = key;
+      this.version = version;
+      this.json = json;
+      this.lastUsed = lastUsed;
+    }
+  }
+
+  /**
+   * Creates a cache sized by the `astrobookings.jsonCache.maxChars` system
+   * property.
+   */
+  public JsonFragmentCache() {
+    this(Long.getLong("astrobookings.jsonCache.maxChars", DEFAULT_MAX_CHARS));
+  }
+
+  /**
+   * @param maxChars budget, in characters, for all cached fragments together
+   */
+  public JsonFragmentCache(long maxChars) {
+    this.maxChars = maxChars;
+  }
+
+  /**
+   * Returns the cache the handlers share, creating it on first use.
+   */
+  public static JsonFragmentCache shared() {
+    JsonFragmentCache cache = shared;
+    if (cache == null) {
+      synchronized (JsonFragmentCache.class) {
+        if (shared == null) {
+          shared = new JsonFragmentCache();
+        }
+        cache = shared;
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Returns the cached JSON for the entity, encoding it when missing or stale.
+   * The version must be read before encoding: a concurrent mutation then only
+   * causes one extra re-encode, never a stale hit.
+   *
+   * @param type    entity type, part of the key
+   * @param id      entity id; entities without id are never cached
+   * @param version the entity version stamp read before encoding
+   * @param encoder produces the JSON on a miss
+   * @return the JSON fragment
+   */
+  public String fragment(String type, String id, long version, Encoder encoder) throws JsonProcessingException {
+    if (id == null) {
+      return encoder.encode();
+    }
+
+    String key = type + ':' + id;
+    Fragment cached = fragments.get(key);
+    if (cached != null && cached.version == version) {
+      long now = tick.get();
+      // Only write when it changes, so hot fragments are not written on every hit
+      if (cached.lastUsed != now) {
+        cached.lastUsed = now;
+      }
+      return cached.json;
+    }
+
+    String json = encoder.encode();
+    if (json.length() > maxChars) {
+      return json;
+    }
+
+    Fragment previous = fragments.put(key, new Fragment(key, version, json, tick.incrementAndGet()));
+    usedChars.addAndGet(json.length() - (previous == null ? 0 : previous.json.length()));
+    if (usedChars.get() > maxChars) {
+      evict();
+    }
+    return json;
+  }
+
+  /**
+   * Drops the fragment of an entity, after a write that made it stale.
+   *
+   * @param type entity type
+   * @param id   entity id
+   */
+  public void invalidate(String type, String id) {
+    if (id == null) {
+      return;
+    }
+    Fragment removed = fragments.remove(type + ':' + id);
+    if (removed != null) {
+      usedChars.addAndGet(-removed.json.length());
+    }
+  }
+
+  /**
+   * Returns the characters held by the cached fragments.
+   */
+  public long usedChars() {
+    return usedChars.get();
+  }
+
+  /**
+   * Sweeps the map until back within budget. One thread sweeps at a time;
+   * others storing meanwhile leave it to that one.
+   */
+  private void evict() {
+    if (!sweepLock.tryLock()) {
+      return;
+    }
+    try {
+      while (usedChars.get() > maxChars) {
+        Fragment oldest = null;
+        for (int i = 0; i < SAMPLE; i++) {
+          if (sweep == null || !sweep.hasNext()) {
+            sweep = fragments.values().iterator();
+            if (!sweep.hasNext()) {
+              return;
+            }
+          }
+          Fragment candidate = sweep.next();
+          if (oldest == null || candidate.lastUsed < oldest.lastUsed) {
+            oldest = candidate;
+          }
+        }
+        if (fragments.remove(oldest.key, oldest)) {
+          usedChars.addAndGet(-oldest.json.length());
+        }
+      }
+    } finally {
+      sweepLock.unlock();
+    }
+  }
+
+  /**
+   * Joins already encoded fragments into a JSON array.
+   *
+   * @param jsonFragments the encoded elements
+   * @return the JSON array
+   */
+  public static String toJsonArray(Iterable<String> jsonFragments) {
+    StringBuilder out = new StringBuilder().append('[');
+    for (String json : jsonFragments) {
+      if (out.length() > 1) {
+        out.append(',');
+      }
+      out.append(json);
+    }
+    return out.append(']').toString();
+  }
+}
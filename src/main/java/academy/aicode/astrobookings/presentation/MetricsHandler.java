@@ -0,0 +1,49 @@
+package academy.aicode.astrobookings.presentation;
+
+import java.io.IOException;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import academy.aicode.astrobookings.presentation.dto.ErrorResponse;
+
+/**
+ * HTTP handler for `/metrics`: counters of this node, kept apart from the
+ * resource paths so their names never clash with ids.
+ * <ul>
+ * <li>`GET /metrics/idempotency` — counters of the {@link IdempotencyStore}
+ * of `POST /bookings`.</li>
+ * </ul>
+ */
+public class MetricsHandler extends BaseHandler {
+
+  private final IdempotencyStore idempotency;
+
+  public MetricsHandler(IdempotencyStore idempotency) {
+    this.idempotency = idempotency;
+  }
+
+  @Override
+  public void handle(HttpExchange exchange) throws IOException {
+    if (!"GET".equals(exchange.getRequestMethod())) {
+      handleMethodNotAllowed(exchange);
+      return;
+    }
+
+    String relative = getRelativePath(exchange);
+    if ("idempotency".equals(relative)) {
+      sendResponse(exchange, 200, objectMapper.writeValueAsString(idempotency.stats()));
+      return;
+    }
+    ErrorResponse er = new ErrorResponse("Metrics not found", "NOT_FOUND",
+        Map.of("field", "path", "message", "no metrics named " + relative));
+    sendResponse(exchange, 404, objectMapper.writeValueAsString(er));
+  }
+
+  private String getRelativePath(HttpExchange exchange) {
+    String path = exchange.getRequestURI().getRawPath();
+    String context = exchange.getHttpContext().getPath();
+    String relative = path.length() > context.length() ? path.substring(context.length()) : "";
+    return relative.startsWith("/") ? relative.substring(1) : relative;
+  }
+}
@@ -0,0 +1,43 @@
+package academy.aicode.astrobookings.presentation;
+
+import java.io.IOException;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import academy.aicode.astrobookings.persistence.ReadView;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+
+/**
+ * Runs every GET inside a read view of the backend
+ * ({@link StorageBackend#beginRead()}), so a listing and the counts and
+ * rockets it is built from all come from the same moment while writes go on.
+ * Backends without versions ignore views.
+ */
+public class ReadViewFilter extends Filter {
+
+  private final StorageBackend backend;
+
+  public ReadViewFilter(StorageBackend backend) {
+    this.backend = backend;
+  }
+
+  @Override
+  public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+    if (!"GET".equals(exchange.getRequestMethod())) {
+      chain.doFilter(exchange);
+      return;
+    }
+    ReadView view = backend.beginRead();
+    try {
+      chain.doFilter(exchange);
+    } finally {
+      view.close();
+    }
+  }
+
+  @Override
+  public String description() {
+    return "Snapshot reads for GET requests";
+  }
+}
@@ -0,0 +1,109 @@
+package academy.aicode.astrobookings.presentation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import academy.aicode.astrobookings.persistence.StorageBackend;
+import academy.aicode.astrobookings.persistence.journal.RaftStorageBackend;
+import academy.aicode.astrobookings.persistence.journal.ReplicaStorageBackend;
+import academy.aicode.astrobookings.presentation.dto.ErrorResponse;
+
+/**
+ * Applies replication to every request before it reaches a handler.
+ * <p>
+ * Responses carry the backend's log offset in {@value #LOG_OFFSET_HEADER} (set
+ * by {@link BaseHandler}). A request with {@value #MIN_LOG_OFFSET_HEADER}
+ * waits until the backend has applied that offset, so a client that sends the
+ * offset returned by its write to a replica reads its own write; if the
+ * offset is not reached in time the answer is 503 with `Retry-After`. On a
+ * replica, only GET is accepted and responses report the replication lag. On
+ * a raft node that is not the leader, other methods are answered with 503
+ * naming the leader, if known, in {@value #RAFT_LEADER_HEADER}.
+ */
+public class ReplicationFilter extends Filter {
+
+  public static final String LOG_OFFSET_HEADER = "X-Log-Offset";
+  public static final String MIN_LOG_OFFSET_HEADER = "X-Min-Log-Offset";
+  public static final String LAG_MILLIS_HEADER = "X-Replication-Lag-Millis";
+  public static final String LAG_RECORDS_HEADER = "X-Replication-Lag-Records";
+  public static final String RAFT_LEADER_HEADER = "X-Raft-Leader";
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final StorageBackend backend;
+  private final Duration readTimeout;
+
+  /**
+   * @param backend     the backend serving the requests
+   * @param readTimeout longest wait for {@value #MIN_LOG_OFFSET_HEADER}
+   */
+  public ReplicationFilter(StorageBackend backend, Duration readTimeout) {
+    this.backend = backend;
+    this.readTimeout = readTimeout;
+  }
+
+  @Override
+  public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+    if (backend instanceof ReplicaStorageBackend replica) {
+      exchange.getResponseHeaders().set(LAG_MILLIS_HEADER, String.valueOf(replica.lagMillis()));
+      exchange.getResponseHeaders().set(LAG_RECORDS_HEADER, String.valueOf(replica.lagRecords()));
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "GET");
+        sendError(exchange, 405, new ErrorResponse("Read-only replica", "READ_ONLY_REPLICA",
+            Map.of("field", "method", "message", "Send writes to the primary")));
+        return;
+      }
+    }
+    if (backend instanceof RaftStorageBackend raft && !"GET".equals(exchange.getRequestMethod())
+        && !raft.isLeader()) {
+      String leader = raft.leader();
+      if (leader != null) {
+        exchange.getResponseHeaders().set(RAFT_LEADER_HEADER, leader);
+      }
+      exchange.getResponseHeaders().set("Retry-After", "1");
+      sendError(exchange, 503, new ErrorResponse("Not the leader", "NOT_LEADER",
+          Map.of("field", "method", "message", leader == null ? "No leader elected yet; retry"
+              : "Send writes to node " + leader)));
+      return;
+    }
+
+    String minOffset = exchange.getRequestHeaders().getFirst(MIN_LOG_OFFSET_HEADER);
+    if (minOffset != null) {
+      long offset;
+      try {
+        offset = Long.parseLong(minOffset.trim());
+      } catch (NumberFormatException e) {
+        sendError(exchange, 400, new ErrorResponse("Invalid header", "INVALID_HEADER",
+            Map.of("field", MIN_LOG_OFFSET_HEADER, "message", "Must be a log offset")));
+        return;
+      }
+      if (!backend.awaitLogOffset(offset, readTimeout)) {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendError(exchange, 503, new ErrorResponse("Log offset not applied yet", "REPLICA_BEHIND",
+            Map.of("field", MIN_LOG_OFFSET_HEADER, "message", "Applied offset is " + backend.logOffset())));
+        return;
+      }
+    }
+    chain.doFilter(exchange);
+  }
+
+  private void sendError(HttpExchange exchange, int statusCode, ErrorResponse error) throws IOException {
+    byte[] body = objectMapper.writeValueAsString(error).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(statusCode, body.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  @Override
+  public String description() {
+    return "Read-your-writes offsets, read-only replicas and raft leaders";
+  }
+}
@@ -13,6 +13,7 @@ import java.util.logging.Logger;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.sun.net.httpserver.HttpExchange;
 
+import academy.aicode.astrobookings.business.ImportResult;
 import academy.aicode.astrobookings.business.RocketService;
 import academy.aicode.astrobookings.persistence.models.Rocket;
 import academy.aicode.astrobookings.presentation.dto.CreateRocketRequest;
@@ -68,20 +69,20 @@ public class RocketHandler extends BaseHandler {
         String nameFilter = params.get("name");
 
         List<Rocket> all = rocketService.findAll();
-        List<RocketResponse> out = new ArrayList<>();
+        List<String> out = new ArrayList<>();
         if (nameFilter == null || nameFilter.trim().isEmpty()) {
           for (Rocket r : all) {
-            out.add(toResponse(r));
+            out.add(toJson(r));
           }
         } else {
           String nf = nameFilter.trim().toLowerCase();
           for (Rocket r : all) {
             if (r.getName() != null && r.getName().toLowerCase().contains(nf)) {
-              out.add(toResponse(r));
+              out.add(toJson(r));
             }
           }
         }
-        response = this.objectMapper.writeValueAsString(out);
+        response = JsonFragmentCache.toJsonArray(out);
         statusCode = 200;
       } else {
         String id = relative.startsWith("/") ? relative.substring(1) : relative;
@@ -98,7 +99,7 @@ public class RocketHandler extends BaseHandler {
             response = this.objectMapper.writeValueAsString(er);
             statusCode = 404;
           } else {
-            response = this.objectMapper.writeValueAsString(toResponse(r));
+            response = toJson(r);
             statusCode = 200;
           }
         }
@@ -127,6 +128,12 @@ public class RocketHandler extends BaseHandler {
     String response;
     int statusCode = 201;
 
+    String path = exchange.getRequestURI().getPath();
+    if (path.equals(exchange.getHttpContext().getPath() + "/import")) {
+      handleImport(exchange);
+      return;
+    }
+
     try {
       InputStream is = exchange.getRequestBody();
       String body = new String(is.readAllBytes(), StandardCharsets.UTF_8);
@@ -155,6 +162,33 @@ public class RocketHandler extends BaseHandler {
     sendResponse(exchange, statusCode, response);
   }
 
+  /**
+   * Maneja `POST /rockets/import`: importa en streaming un array JSON o NDJSON
+   * de peticiones de creación y responde con el recuento de aceptados y
+   * rechazados.
+   */
+  private void handleImport(HttpExchange exchange) throws IOException {
+    String response;
+    int statusCode;
+
+    try {
+      ImportResult result = importStream(exchange.getRequestBody(), CreateRocketRequest.class,
+          rocketService::importBatch);
+      LOGGER.log(Level.INFO, "Rocket import finished: {0} accepted, {1} rejected",
+          new Object[] { result.getAccepted(), result.getRejected() });
+      response = this.objectMapper.writeValueAsString(toImportResponse(result));
+      statusCode = 200;
+    } catch (Exception e) {
+      LOGGER.log(Level.SEVERE, "Failed to import rockets", e);
+      ErrorResponse er = new ErrorResponse("Server error", "SERVER_ERROR",
+          Map.of("message", String.valueOf(e.getMessage())));
+      response = this.objectMapper.writeValueAsString(er);
+      statusCode = 500;
+    }
+
+    sendResponse(exchange, statusCode, response);
+  }
+
   /**
    * Maneja la actualización de un Rocket: `PUT /rockets/{id}`.
    * El body contiene un JSON con los campos a actualizar (name, capacity, speed).
@@ -183,6 +217,7 @@ public class RocketHandler extends BaseHandler {
         Rocket updates = this.objectMapper.readValue(body, Rocket.class);
         try {
           Rocket updated = rocketService.update(id, updates);
+          fragmentCache.invalidate("rocket", id);
           if (updated == null) {
             statusCode = 404;
             response = "{\"error\": \"Rocket not found\"}";
@@ -209,6 +244,12 @@ public class RocketHandler extends BaseHandler {
     return new RocketResponse(r.getId(), r.getName(), r.getCapacity(), r.getRange(), r.getSpeed());
   }
 
+  private String toJson(Rocket r) throws JsonProcessingException {
+    long version = r.version();
+    return fragmentCache.fragment("rocket", r.getId(), version,
+        () -> this.objectMapper.writeValueAsString(toResponse(r)));
+  }
+
   /**
    * Validaciones simples de negocio y entrada.
    * 
@@ -0,0 +1,446 @@
+package academy.aicode.astrobookings.presentation;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import academy.aicode.astrobookings.business.BookingService;
+import academy.aicode.astrobookings.cluster.Cluster;
+import academy.aicode.astrobookings.cluster.ClusterNode;
+import academy.aicode.astrobookings.cluster.FlightGates;
+import academy.aicode.astrobookings.cluster.MergedListing;
+import academy.aicode.astrobookings.cluster.ScatterGather;
+import academy.aicode.astrobookings.cluster.SeatEscrow;
+import academy.aicode.astrobookings.presentation.dto.ErrorResponse;
+
+/**
+ * Sends each request to the node holding the data it addresses.
+ * <p>
+ * The routing key is the id in the path (`/rockets/{id}`, `/flights/{id}`,
+ * `/flights/{id}/cancel`, `/bookings/{id}`), the `flightId` query of
+ * `GET /bookings`, or the `flightId` of the body of `POST /bookings`, so a
+ * booking is created next to its flight. Requests go to the key's home node,
+ * or wherever a pointer says the key moved ({@link Cluster#route}); they are
+ * forwarded with {@value Cluster#FORWARDED_HEADER} listing the nodes passed
+ * through, up to {@value #MAX_HOPS} times, and the holder's response is
+ * copied back. A request naming nodes in that header without the cluster
+ * secret ({@link Cluster#isPeer}) is refused with 403. Requests handled here pass the gate of their key
+ * ({@link FlightGates}): while the flight moves they wait, then go to its new
+ * holder. With a {@link SeatEscrow}, a booking for a flight held elsewhere is
+ * made here instead when this node holds, or can get, a quota of the
+ * flight's seats.
+ * <p>
+ * `GET /flights` listings are sent to every node and their launch-ordered
+ * results are merged into one streamed response ({@link ScatterGather}). Nodes
+ * missing from the result are named in {@value #UNAVAILABLE_SHARDS_HEADER};
+ * a node failing once the response has started ends it without the closing
+ * bracket, so the client gets invalid JSON rather than a silently shorter
+ * list. `GET /bookings?passengerDocument=` pages are merged the same way from
+ * every node's bookings, oldest first, and sent once the page is complete; a
+ * node failing before then fails the request. Multi-id lookups, other
+ * creations, imports and batches stay on the node that received them and
+ * only see its data.
+ */
+public class ShardingFilter extends Filter {
+
+  public static final String UNAVAILABLE_SHARDS_HEADER = "X-Unavailable-Shards";
+
+  private static final Logger LOGGER = Logger.getLogger(ShardingFilter.class.getName());
+
+  /** Request headers the HTTP client sets itself. */
+  private static final Set<String> RESTRICTED_REQUEST_HEADERS = Set.of("connection", "content-length", "expect",
+      "host", "upgrade", "keep-alive", "transfer-encoding");
+  /** Response headers the HTTP server sets itself. */
+  private static final Set<String> RESTRICTED_RESPONSE_HEADERS = Set.of("connection", "content-length", "date",
+      "keep-alive", "transfer-encoding");
+  private static final Set<String> RESERVED_PATHS = Set.of("batch", "import");
+  /**
+   * Forwards after which a request is handled where it is. Following
+   * pointers takes a few hops at most, even when the flight moves back while
+   * the request is under way.
+   */
+  private static final int MAX_HOPS = 8;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Cluster cluster;
+  private final ScatterGather scatterGather;
+  private final SeatEscrow escrow;
+
+  public ShardingFilter(Cluster cluster) {
+    this(cluster, null);
+  }
+
+  /**
+   * @param escrow quotas to sell seats of flights held elsewhere from, or
+   *               null to forward every booking
+   */
+  public ShardingFilter(Cluster cluster, SeatEscrow escrow) {
+    this.cluster = cluster;
+    this.scatterGather = new ScatterGather(cluster);
+    this.escrow = escrow;
+  }
+
+  @Override
+  public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+    String forwardedBy = exchange.getRequestHeaders().getFirst(Cluster.FORWARDED_HEADER);
+    if (forwardedBy != null && !cluster.isPeer(exchange.getRequestHeaders().getFirst(Cluster.SECRET_HEADER))) {
+      sendError(exchange, 403, "Only cluster nodes may forward requests", "NOT_A_CLUSTER_NODE",
+          Cluster.FORWARDED_HEADER + " needs the cluster secret");
+      return;
+    }
+    if (forwardedBy == null && isFlightListing(exchange)) {
+      listEverywhere(exchange);
+      return;
+    }
+    String passengerDocument = forwardedBy == null ? passengerLookup(exchange) : null;
+    if (passengerDocument != null) {
+      lookUpPassengerEverywhere(exchange, passengerDocument);
+      return;
+    }
+    byte[] body = null;
+    String key = pathKey(exchange);
+    if (key == null && "/bookings".equals(exchange.getHttpContext().getPath())) {
+      if ("GET".equals(exchange.getRequestMethod())) {
+        key = queryParam(exchange.getRequestURI().getRawQuery(), "flightId");
+      } else if ("POST".equals(exchange.getRequestMethod()) && isRoot(exchange)) {
+        body = exchange.getRequestBody().readAllBytes();
+        key = bodyFlightId(body);
+      }
+    }
+    if (body != null) {
+      exchange.setStreams(new ByteArrayInputStream(body), null);
+    }
+
+    if (key == null) {
+      if (forwardedBy != null || cluster.isMember() || cluster.nodes().isEmpty()) {
+        chain.doFilter(exchange);
+      } else {
+        // A node still joining cannot create ids, so requests not bound to a key go to a member
+        forward(exchange, cluster.nodes().get(0), forwardedBy);
+      }
+      return;
+    }
+    int hops = forwardedBy == null ? 0 : forwardedBy.split(",").length;
+    FlightGates gates = cluster.gates();
+    while (true) {
+      ClusterNode holder = cluster.route(key, forwardedBy != null);
+      if (!cluster.isSelf(holder) && body != null && forwardedBy == null && escrow != null
+          && escrow.acquire(key)) {
+        // The booking is sold from this node's quota; the flight's gate is not entered
+        chain.doFilter(exchange);
+        return;
+      }
+      if (!cluster.isSelf(holder) && hops < MAX_HOPS) {
+        forward(exchange, holder, forwardedBy);
+        return;
+      }
+      boolean entered;
+      try {
+        entered = gates.enter(key, cluster.timeout());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        sendError(exchange, 503, "Interrupted", "INTERRUPTED", "Request interrupted while the data moved");
+        return;
+      }
+      if (entered) {
+        try {
+          chain.doFilter(exchange);
+        } finally {
+          gates.exit(key);
+        }
+        return;
+      }
+    }
+  }
+
+  private static boolean isFlightListing(HttpExchange exchange) {
+    return "GET".equals(exchange.getRequestMethod()) && "/flights".equals(exchange.getHttpContext().getPath())
+        && isRoot(exchange) && queryParam(exchange.getRequestURI().getRawQuery(), "ids") == null;
+  }
+
+  /**
+   * Returns the document of a `GET /bookings?passengerDocument=` page, still
+   * URL-encoded so that every node decodes it as it would the client's, or
+   * null for other requests.
+   */
+  private static String passengerLookup(HttpExchange exchange) {
+    String rawQuery = exchange.getRequestURI().getRawQuery();
+    if (!"GET".equals(exchange.getRequestMethod()) || !"/bookings".equals(exchange.getHttpContext().getPath())
+        || !isRoot(exchange) || queryParam(rawQuery, "ids") != null
+        || queryParam(rawQuery, "passengerDocument") == null) {
+      return null;
+    }
+    for (String pair : rawQuery.split("&")) {
+      if (pair.startsWith("passengerDocument=")) {
+        return pair.substring("passengerDocument=".length());
+      }
+    }
+    return null;
+  }
+
+  private void lookUpPassengerEverywhere(HttpExchange exchange, String rawPassengerDocument) throws IOException {
+    String rawQuery = exchange.getRequestURI().getRawQuery();
+    int offset;
+    int limit;
+    try {
+      offset = pageParam(rawQuery, "offset", 0);
+      limit = pageParam(rawQuery, "limit", BookingService.DEFAULT_PAGE_SIZE);
+      if (offset < 0) {
+        throw new IllegalArgumentException("offset must not be negative");
+      }
+      if (limit < 1 || limit > BookingService.MAX_PAGE_SIZE) {
+        throw new IllegalArgumentException("limit must be between 1 and " + BookingService.MAX_PAGE_SIZE);
+      }
+    } catch (IllegalArgumentException e) {
+      ErrorResponse error = new ErrorResponse("Invalid query", "INVALID_QUERY", Map.of("message", e.getMessage()));
+      sendJson(exchange, 400, objectMapper.writeValueAsBytes(error));
+      return;
+    }
+
+    ByteArrayOutputStream page = new ByteArrayOutputStream();
+    boolean more = false;
+    try (MergedListing listing = scatterGather.listPassengerBookings(rawPassengerDocument,
+        BookingService.MAX_PAGE_SIZE)) {
+      if (listing.rejection() != null) {
+        sendJson(exchange, listing.rejection().status(), listing.rejection().body());
+        return;
+      }
+      if (listing.isEmptyCluster()) {
+        sendError(exchange, 502, "No node could be listed", "SHARDS_UNAVAILABLE",
+            "Unavailable nodes: " + String.join(",", listing.unavailable()));
+        return;
+      }
+      page.write('[');
+      int skipped = 0;
+      int taken = 0;
+      byte[] booking;
+      while ((booking = listing.next()) != null) {
+        if (skipped < offset) {
+          skipped++;
+        } else if (taken == limit) {
+          more = true;
+          break;
+        } else {
+          if (taken++ > 0) {
+            page.write(',');
+          }
+          page.write(booking);
+        }
+      }
+      page.write(']');
+      if (!listing.unavailable().isEmpty()) {
+        exchange.getResponseHeaders().set(UNAVAILABLE_SHARDS_HEADER, String.join(",", listing.unavailable()));
+      }
+    } catch (UncheckedIOException e) {
+      LOGGER.log(Level.WARNING, "Passenger lookup failed", e);
+      sendError(exchange, 502, "A node failed during the lookup", "SHARDS_UNAVAILABLE", e.getMessage());
+      return;
+    }
+    if (more) {
+      exchange.getResponseHeaders().set(BookingHandler.NEXT_OFFSET_HEADER, String.valueOf(offset + limit));
+    }
+    sendJson(exchange, 200, page.toByteArray());
+  }
+
+  private static int pageParam(String rawQuery, String name, int defaultValue) {
+    String value = queryParam(rawQuery, name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " must be an integer");
+    }
+  }
+
+  private static void sendJson(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(statusCode, body.length == 0 ? -1 : body.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  private void listEverywhere(HttpExchange exchange) throws IOException {
+    try (MergedListing listing = scatterGather.listFlights(exchange.getRequestURI().getRawQuery())) {
+      if (listing.rejection() != null) {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        byte[] body = listing.rejection().body();
+        exchange.sendResponseHeaders(listing.rejection().status(), body.length == 0 ? -1 : body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+          os.write(body);
+        }
+        return;
+      }
+      if (listing.isEmptyCluster()) {
+        sendError(exchange, 502, "No node could be listed", "SHARDS_UNAVAILABLE",
+            "Unavailable nodes: " + String.join(",", listing.unavailable()));
+        return;
+      }
+
+      exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+      if (!listing.unavailable().isEmpty()) {
+        exchange.getResponseHeaders().set(UNAVAILABLE_SHARDS_HEADER, String.join(",", listing.unavailable()));
+      }
+      exchange.sendResponseHeaders(200, 0);
+      try (OutputStream os = new BufferedOutputStream(exchange.getResponseBody())) {
+        os.write('[');
+        byte[] flight = listing.next();
+        while (flight != null) {
+          os.write(flight);
+          flight = listing.next();
+          if (flight != null) {
+            os.write(',');
+          }
+        }
+        os.write(']');
+      } catch (UncheckedIOException e) {
+        LOGGER.log(Level.WARNING, "Flight listing ended early", e);
+      }
+    }
+  }
+
+  /**
+   * Returns the first path segment after the context, if it is an id.
+   */
+  private static String pathKey(HttpExchange exchange) {
+    String relative = relativePath(exchange);
+    if (relative.isEmpty()) {
+      return null;
+    }
+    int slash = relative.indexOf('/');
+    String segment = (slash < 0 ? relative : relative.substring(0, slash)).trim();
+    return segment.isEmpty() || RESERVED_PATHS.contains(segment) ? null : segment;
+  }
+
+  private static boolean isRoot(HttpExchange exchange) {
+    return relativePath(exchange).isEmpty();
+  }
+
+  private static String relativePath(HttpExchange exchange) {
+    String path = exchange.getRequestURI().getPath();
+    String context = exchange.getHttpContext().getPath();
+    String relative = path.length() > context.length() ? path.substring(context.length()) : "";
+    return relative.startsWith("/") ? relative.substring(1) : relative;
+  }
+
+  private static String queryParam(String rawQuery, String name) {
+    if (rawQuery == null) {
+      return null;
+    }
+    for (String pair : rawQuery.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0 && name.equals(pair.substring(0, equals))) {
+        String value = URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8).trim();
+        return value.isEmpty() ? null : value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the `flightId` of a booking request, or null when the body is not
+   * a JSON object with one; such requests are left to the local handler to
+   * reject.
+   */
+  private String bodyFlightId(byte[] body) {
+    try {
+      JsonNode flightId = objectMapper.readTree(body).path("flightId");
+      return flightId.isTextual() && !flightId.asText().isBlank() ? flightId.asText().trim() : null;
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private void forward(HttpExchange exchange, ClusterNode owner, String forwardedBy) throws IOException {
+    byte[] body;
+    try (InputStream in = exchange.getRequestBody()) {
+      body = in.readAllBytes();
+    }
+    URI request = exchange.getRequestURI();
+    String target = request.getRawPath() + (request.getRawQuery() == null ? "" : "?" + request.getRawQuery());
+    HttpRequest.Builder builder = HttpRequest.newBuilder(owner.uri().resolve(target))
+        .timeout(cluster.timeout())
+        .method(exchange.getRequestMethod(), body.length == 0
+            ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofByteArray(body));
+    for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+      String name = header.getKey().toLowerCase();
+      if (!RESTRICTED_REQUEST_HEADERS.contains(name) && !Cluster.FORWARDED_HEADER.equalsIgnoreCase(name)
+          && !Cluster.SECRET_HEADER.equalsIgnoreCase(name)) {
+        for (String value : header.getValue()) {
+          builder.header(header.getKey(), value);
+        }
+      }
+    }
+    cluster.sign(builder, forwardedBy);
+
+    HttpResponse<byte[]> response;
+    try {
+      response = cluster.client().send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+    } catch (HttpTimeoutException e) {
+      sendError(exchange, 504, "Owner node did not answer in time", "OWNER_TIMEOUT", ownedBy(owner));
+      return;
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Cannot forward " + target + " to node " + owner.name(), e);
+      sendError(exchange, 502, "Owner node unavailable", "OWNER_UNAVAILABLE", ownedBy(owner));
+      return;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      sendError(exchange, 502, "Owner node unavailable", "OWNER_UNAVAILABLE", ownedBy(owner));
+      return;
+    }
+
+    response.headers().map().forEach((name, values) -> {
+      if (!RESTRICTED_RESPONSE_HEADERS.contains(name.toLowerCase()) && !name.startsWith(":")) {
+        exchange.getResponseHeaders().put(name, values);
+      }
+    });
+    byte[] responseBody = response.body();
+    exchange.sendResponseHeaders(response.statusCode(), responseBody.length == 0 ? -1 : responseBody.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(responseBody);
+    }
+  }
+
+  private static String ownedBy(ClusterNode owner) {
+    return "Data is held by node " + owner.name();
+  }
+
+  private void sendError(HttpExchange exchange, int statusCode, String message, String code, String detail)
+      throws IOException {
+    ErrorResponse error = new ErrorResponse(message, code, Map.of("field", "node", "message", detail));
+    byte[] body = objectMapper.writeValueAsString(error).getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(statusCode, body.length);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(body);
+    }
+  }
+
+  @Override
+  public String description() {
+    return "Forwards requests to the node holding their data";
+  }
+}
@@ -0,0 +1,84 @@
+package academy.aicode.astrobookings.presentation.dto;
+
+/**
+ * DTO returned by the API for each item of a booking batch. Exactly one of
+ * `booking` or `error` is set.
+ */
+public class BookingBatchItemResponse {
+  private int index;
+  private int status;
+  private BookingResponse booking;
+  private ErrorResponse error;
+
+  /**
+   * Creates an empty response.
+   */
+  public BookingBatchItemResponse() {
+  }
+
+  /**
+   * Creates a response with all fields.
+   */
+  public BookingBatchItemResponse(int index, int status, BookingResponse booking, ErrorResponse error) {
+    this.index = index;
+    this.status = status;
+    this.booking = booking;
+    this.error = error;
+  }
+
+  /**
+   * Returns the position of the item in the request array.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Sets the position of the item in the request array.
+   */
+  public void setIndex(int index) {
+    this.index = index;
+  }
+
+  /**
+   * Returns the HTTP status the item would have received on its own.
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  /**
+   * Sets the HTTP status the item would have received on its own.
+   */
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  /**
+   * Returns the created booking, or null on failure.
+   */
+  public BookingResponse getBooking() {
+    return booking;
+  }
+
+  /**
+   * Sets the created booking.
+   */
+  public void setBooking(BookingResponse booking) {
+    this.booking = booking;
+  }
+
+  /**
+   * Returns the item error, or null on success.
+   */
+  public ErrorResponse getError() {
+    return error;
+  }
+
+  /**
+   * Sets the item error.
+   */
+  public void setError(ErrorResponse error) {
+    this.error = error;
+  }
+}
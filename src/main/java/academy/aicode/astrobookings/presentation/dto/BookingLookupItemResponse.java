@@ -0,0 +1,84 @@
+package academy.aicode.astrobookings.presentation.dto;
+
+/**
+ * DTO returned by the API for each id of a booking multi-get. Exactly one of
+ * `booking` or `error` is set; missing ids carry a `NOT_FOUND` error.
+ */
+public class BookingLookupItemResponse {
+  private String id;
+  private int status;
+  private BookingResponse booking;
+  private ErrorResponse error;
+
+  /**
+   * Creates an empty response.
+   */
+  public BookingLookupItemResponse() {
+  }
+
+  /**
+   * Creates a response with all fields.
+   */
+  public BookingLookupItemResponse(String id, int status, BookingResponse booking, ErrorResponse error) {
+    this.id = id;
+    this.status = status;
+    this.booking = booking;
+    this.error = error;
+  }
+
+  /**
+   * Returns the requested id.
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the requested id.
+   */
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the HTTP status the id would have received on its own.
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  /**
+   * Sets the HTTP status the id would have received on its own.
+   */
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  /**
+   * Returns the booking, or null when not found.
+   */
+  public BookingResponse getBooking() {
+    return booking;
+  }
+
+  /**
+   * Sets the booking.
+   */
+  public void setBooking(BookingResponse booking) {
+    this.booking = booking;
+  }
+
+  /**
+   * Returns the item error, or null when found.
+   */
+  public ErrorResponse getError() {
+    return error;
+  }
+
+  /**
+   * Sets the item error.
+   */
+  public void setError(ErrorResponse error) {
+    this.error = error;
+  }
+}
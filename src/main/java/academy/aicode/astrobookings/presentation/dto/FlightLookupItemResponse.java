@@ -0,0 +1,84 @@
+package academy.aicode.astrobookings.presentation.dto;
+
+/**
+ * DTO returned by the API for each id of a flight multi-get. Exactly one of
+ * `flight` or `error` is set; missing ids carry a `NOT_FOUND` error.
+ */
+public class FlightLookupItemResponse {
+  private String id;
+  private int status;
+  private FlightResponse flight;
+  private ErrorResponse error;
+
+  /**
+   * Creates an empty response.
+   */
+  public FlightLookupItemResponse() {
+  }
+
+  /**
+   * Creates a response with all fields.
+   */
+  public FlightLookupItemResponse(String id, int status, FlightResponse flight, ErrorResponse error) {
+    this.id = id;
+    this.status = status;
+    this.flight = flight;
+    this.error = error;
+  }
+
+  /**
+   * Returns the requested id.
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Sets the requested id.
+   */
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the HTTP status the id would have received on its own.
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  /**
+   * Sets the HTTP status the id would have received on its own.
+   */
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  /**
+   * Returns the flight, or null when not found.
+   */
+  public FlightResponse getFlight() {
+    return flight;
+  }
+
+  /**
+   * Sets the flight.
+   */
+  public void setFlight(FlightResponse flight) {
+    this.flight = flight;
+  }
+
+  /**
+   * Returns the item error, or null when found.
+   */
+  public ErrorResponse getError() {
+    return error;
+  }
+
+  /**
+   * Sets the item error.
+   */
+  public void setError(ErrorResponse error) {
+    this.error = error;
+  }
+}
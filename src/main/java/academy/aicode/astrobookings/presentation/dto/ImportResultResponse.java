@@ -0,0 +1,86 @@
+package academy.aicode.astrobookings.presentation.dto;
+
+import java.util.List;
+
+/**
+ * DTO returned by the bulk import endpoints with accepted/rejected counts and
+ * the first rejection reasons.
+ */
+public class ImportResultResponse {
+  private int accepted;
+  private int rejected;
+  private boolean completed;
+  private List<ErrorResponse> errors;
+
+  /**
+   * Creates an empty response.
+   */
+  public ImportResultResponse() {
+  }
+
+  /**
+   * Creates a response with all fields.
+   */
+  public ImportResultResponse(int accepted, int rejected, boolean completed, List<ErrorResponse> errors) {
+    this.accepted = accepted;
+    this.rejected = rejected;
+    this.completed = completed;
+    this.errors = errors;
+  }
+
+  /**
+   * Returns the number of stored items.
+   */
+  public int getAccepted() {
+    return accepted;
+  }
+
+  /**
+   * Sets the number of stored items.
+   */
+  public void setAccepted(int accepted) {
+    this.accepted = accepted;
+  }
+
+  /**
+   * Returns the number of rejected items.
+   */
+  public int getRejected() {
+    return rejected;
+  }
+
+  /**
+   * Sets the number of rejected items.
+   */
+  public void setRejected(int rejected) {
+    this.rejected = rejected;
+  }
+
+  /**
+   * Returns false when the payload could not be read to the end.
+   */
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  /**
+   * Sets whether the payload was read to the end.
+   */
+  public void setCompleted(boolean completed) {
+    this.completed = completed;
+  }
+
+  /**
+   * Returns the reported rejections; `details.index` points at the item.
+   */
+  public List<ErrorResponse> getErrors() {
+    return errors;
+  }
+
+  /**
+   * Sets the reported rejections.
+   */
+  public void setErrors(List<ErrorResponse> errors) {
+    this.errors = errors;
+  }
+}
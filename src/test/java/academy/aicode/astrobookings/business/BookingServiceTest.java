@@ -2,19 +2,18 @@ package academy.aicode.astrobookings.business;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import java.lang.reflect.Field;
 import java.time.Instant;
-import java.util.Map;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import academy.aicode.astrobookings.persistence.BookingRepository;
 import academy.aicode.astrobookings.persistence.FlightRepository;
-import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackends;
 import academy.aicode.astrobookings.persistence.models.Booking;
 import academy.aicode.astrobookings.persistence.models.Flight;
 import academy.aicode.astrobookings.persistence.models.FlightState;
@@ -29,9 +28,7 @@ class BookingServiceTest {
 
   @BeforeEach
   void setUp() {
-    clearBookingRepository();
-    clearFlightRepository();
-    clearRocketRepository();
+    StorageBackends.use(StorageBackends.create(StorageBackends.DEFAULT));
     bookingService = new BookingService();
   }
 
@@ -88,7 +85,7 @@ class BookingServiceTest {
   @Test
   void create_whenFlightIsCancelled_throwsBookingConflictException() {
     Rocket rocket = seedRocket(2);
-    FlightRepository flightRepository = new FlightRepository();
+    FlightRepository flightRepository = StorageBackends.current().flights();
 
     Flight cancelled = new Flight();
     cancelled.setRocketId(rocket.getId());
@@ -130,7 +127,7 @@ class BookingServiceTest {
   @Test
   void create_whenFlightIsRuleCancelledWithin7Days_throwsBookingConflictException() {
     Rocket rocket = seedRocket(5);
-    FlightRepository flightRepository = new FlightRepository();
+    FlightRepository flightRepository = StorageBackends.current().flights();
 
     Flight nearLaunch = new Flight();
     nearLaunch.setRocketId(rocket.getId());
@@ -227,6 +224,73 @@ class BookingServiceTest {
     assertEquals(FlightState.SOLD_OUT, refreshed.getState());
   }
 
+  @Test
+  void createBatch_whenRequestsAreEmpty_throwsIllegalArgumentException() {
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> bookingService.createBatch(List.of()));
+    assertTrue(ex.getMessage().contains("non-empty array"));
+  }
+
+  @Test
+  void createBatch_whenItemsSpanFlights_returnsResultsInRequestOrder_andAppliesDiscountSequence() {
+    Rocket rocket = seedRocket(3);
+    Flight first = createFutureFlight(rocket.getId(), 2, 1000.0);
+    Flight second = createFutureFlight(rocket.getId(), 1, 500.0);
+
+    List<BookingBatchResult> results = bookingService.createBatch(List.of(
+        bookingRequest(first.getId(), "Ada", "P1"),
+        bookingRequest(second.getId(), "Grace", "P2"),
+        bookingRequest(first.getId(), "Katherine", "P3"),
+        bookingRequest("missing", "Mary", "P4"),
+        bookingRequest(first.getId(), "   ", "P5")));
+
+    assertEquals(5, results.size());
+    assertEquals(first.getId(), results.get(0).getBooking().getFlightId());
+    assertEquals(10, results.get(0).getBooking().getDiscountPercent());
+    assertEquals(second.getId(), results.get(1).getBooking().getFlightId());
+    assertEquals(30, results.get(1).getBooking().getDiscountPercent());
+    assertEquals(30, results.get(2).getBooking().getDiscountPercent());
+    assertTrue(results.get(3).getError().getMessage().contains("flightId does not exist"));
+    assertTrue(results.get(4).getError().getMessage().contains("passengerName must be provided"));
+
+    Flight refreshed = new FlightService().findById(first.getId());
+    assertEquals(FlightState.CONFIRMED, refreshed.getState());
+  }
+
+  @Test
+  void createBatch_whenItemsExceedCapacity_rejectsOverflow_andRefreshesFlightToSoldOut() {
+    Rocket rocket = seedRocket(2);
+    Flight flight = createFutureFlight(rocket.getId(), 1, 1000.0);
+
+    List<BookingBatchResult> results = bookingService.createBatch(List.of(
+        bookingRequest(flight.getId(), "Ada", "P1"),
+        bookingRequest(flight.getId(), "Grace", "P2"),
+        bookingRequest(flight.getId(), "Katherine", "P3")));
+
+    assertTrue(results.get(0).isSuccess());
+    assertTrue(results.get(1).isSuccess());
+    assertEquals(0, results.get(1).getBooking().getDiscountPercent());
+    assertTrue(results.get(2).getError() instanceof BookingConflictException);
+
+    Flight refreshed = new FlightService().findById(flight.getId());
+    assertEquals(FlightState.SOLD_OUT, refreshed.getState());
+  }
+
+  @Test
+  void findByIds_whenIdsAreMixed_returnsBookingsInRequestOrder_withNullForMissing() {
+    Rocket rocket = seedRocket(5);
+    Flight flight = createFutureFlight(rocket.getId(), 2, 1000.0);
+    Booking first = bookingService.create(bookingRequest(flight.getId(), "Ada", "P1"));
+    Booking second = bookingService.create(bookingRequest(flight.getId(), "Grace", "P2"));
+
+    List<Booking> found = bookingService.findByIds(List.of(second.getId(), "missing-id", first.getId()));
+
+    assertEquals(3, found.size());
+    assertEquals(second.getId(), found.get(0).getId());
+    assertNull(found.get(1));
+    assertEquals(first.getId(), found.get(2).getId());
+  }
+
   @Test
   void computeDiscountPercent_whenBookingIsLastSeat_returns0() {
     assertEquals(0, bookingService.computeDiscountPercent(3, 3, 2));
@@ -242,6 +306,15 @@ class BookingServiceTest {
     assertEquals(10, bookingService.computeDiscountPercent(1, 5, 2));
   }
 
+  private static CreateBookingRequest bookingRequest(String flightId, String passengerName,
+      String passengerDocument) {
+    CreateBookingRequest req = new CreateBookingRequest();
+    req.setFlightId(flightId);
+    req.setPassengerName(passengerName);
+    req.setPassengerDocument(passengerDocument);
+    return req;
+  }
+
   private static Rocket seedRocket(int capacity) {
     RocketService rocketService = new RocketService();
     CreateRocketRequest rocketRequest = new CreateRocketRequest();
@@ -259,40 +332,4 @@ class BookingServiceTest {
     flightRequest.setMinimumPassengers(minimumPassengers);
     return flightService.create(flightRequest);
   }
-
-  private static void clearRocketRepository() {
-    try {
-      Field field = RocketRepository.class.getDeclaredField("rockets");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Rocket> rockets = (Map<String, Rocket>) field.get(null);
-      rockets.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
-
-  private static void clearFlightRepository() {
-    try {
-      Field field = FlightRepository.class.getDeclaredField("flights");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Flight> flights = (Map<String, Flight>) field.get(null);
-      flights.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
-
-  private static void clearBookingRepository() {
-    try {
-      Field field = BookingRepository.class.getDeclaredField("bookings");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Booking> bookings = (Map<String, Booking>) field.get(null);
-      bookings.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
 }
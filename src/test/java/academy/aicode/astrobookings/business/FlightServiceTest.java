@@ -6,9 +6,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import java.lang.reflect.Field;
 import java.time.Instant;
-import java.util.Map;
+import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -17,7 +16,7 @@ import org.junit.jupiter.params.provider.ValueSource;
 
 import academy.aicode.astrobookings.persistence.BookingRepository;
 import academy.aicode.astrobookings.persistence.FlightRepository;
-import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackends;
 import academy.aicode.astrobookings.persistence.models.Booking;
 import academy.aicode.astrobookings.persistence.models.Flight;
 import academy.aicode.astrobookings.persistence.models.FlightState;
@@ -31,9 +30,7 @@ class FlightServiceTest {
 
   @BeforeEach
   void setUp() {
-    clearFlightRepository();
-    clearBookingRepository();
-    clearRocketRepository();
+    StorageBackends.use(StorageBackends.create(StorageBackends.DEFAULT));
     flightService = new FlightService();
   }
 
@@ -159,7 +156,7 @@ class FlightServiceTest {
 
   @Test
   void refreshStateOnRead_whenLaunchDateTimeIsInPast_setsDone() {
-    FlightRepository repo = new FlightRepository();
+    FlightRepository repo = StorageBackends.current().flights();
     Flight flight = new Flight();
     flight.setRocketId("rocket-1");
     flight.setLaunchDateTime(Instant.now().minusSeconds(3600));
@@ -204,7 +201,7 @@ class FlightServiceTest {
   @Test
   void refreshStateOnRead_whenWithin7DaysAndBelowMinimumPassengers_setsCancelled() {
     Rocket rocket = seedRocket(5);
-    FlightRepository repo = new FlightRepository();
+    FlightRepository repo = StorageBackends.current().flights();
 
     Flight flight = new Flight();
     flight.setRocketId(rocket.getId());
@@ -257,6 +254,53 @@ class FlightServiceTest {
     assertEquals(FlightState.SOLD_OUT, flight.getState());
   }
 
+  @Test
+  void findByIds_whenIdsAreMixed_returnsFlightsInRequestOrder_withNullForMissing() {
+    Rocket rocket = seedRocket(5);
+    Flight first = createFutureFlight(rocket.getId(), 1);
+    Flight second = createFutureFlight(rocket.getId(), 1);
+
+    List<Flight> found = flightService.findByIds(List.of(second.getId(), "missing-id", first.getId(), second.getId()));
+
+    assertEquals(4, found.size());
+    assertEquals(second.getId(), found.get(0).getId());
+    assertNull(found.get(1));
+    assertEquals(first.getId(), found.get(2).getId());
+    assertEquals(second.getId(), found.get(3).getId());
+  }
+
+  @Test
+  void findByIds_whenIdsAreEmpty_throwsIllegalArgumentException() {
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> flightService.findByIds(List.of()));
+    assertTrue(ex.getMessage().contains("ids must contain"));
+  }
+
+  @Test
+  void importBatch_whenItemsAreMixed_storesValidFlights_andRecordsRejectionsByIndex() {
+    Rocket rocket = seedRocket(5);
+
+    CreateFlightRequest valid = new CreateFlightRequest();
+    valid.setRocketId(rocket.getId());
+    valid.setLaunchDateTime(Instant.now().plusSeconds(3600));
+    valid.setBasePrice(1000.0);
+    valid.setMinimumPassengers(1);
+
+    CreateFlightRequest unknownRocket = new CreateFlightRequest();
+    unknownRocket.setRocketId("missing");
+    unknownRocket.setLaunchDateTime(Instant.now().plusSeconds(3600));
+    unknownRocket.setBasePrice(1000.0);
+    unknownRocket.setMinimumPassengers(1);
+
+    ImportResult result = new ImportResult();
+    flightService.importBatch(List.of(unknownRocket, valid), 0, result);
+
+    assertEquals(1, result.getAccepted());
+    assertEquals(1, result.getRejected());
+    assertTrue(result.getRejections().get(0).contains("rocketId does not exist"));
+    assertEquals(1, flightService.findFutureFlights(null).size());
+  }
+
   @Test
   void cancelById_whenIdIsBlank_throwsIllegalArgumentException() {
     IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> flightService.cancelById("   "));
@@ -286,9 +330,74 @@ class FlightServiceTest {
     assertEquals(1, flightService.findFutureFlights(FlightState.CANCELLED).size());
   }
 
+  @Test
+  void findFutureFlights_whenStateFilterIsGiven_includesFlightsChangedOnlyByTime() {
+    Rocket rocket = seedRocket(5);
+    FlightRepository repo = StorageBackends.current().flights();
+
+    Flight nearLaunch = new Flight();
+    nearLaunch.setRocketId(rocket.getId());
+    nearLaunch.setLaunchDateTime(Instant.now().plusSeconds(6 * 24 * 3600));
+    nearLaunch.setBasePrice(1000.0);
+    nearLaunch.setMinimumPassengers(3);
+    nearLaunch.setState(FlightState.SCHEDULED);
+    repo.save(nearLaunch);
+    Flight farLaunch = new Flight();
+    farLaunch.setRocketId(rocket.getId());
+    farLaunch.setLaunchDateTime(Instant.now().plusSeconds(30L * 24 * 3600));
+    farLaunch.setBasePrice(1000.0);
+    farLaunch.setMinimumPassengers(3);
+    farLaunch.setState(FlightState.SCHEDULED);
+    repo.save(farLaunch);
+
+    List<Flight> cancelled = flightService.findFutureFlights(FlightState.CANCELLED);
+
+    assertEquals(List.of(nearLaunch.getId()), cancelled.stream().map(Flight::getId).toList());
+    assertEquals(List.of(nearLaunch.getId()),
+        repo.findByState(FlightState.CANCELLED).stream().map(Flight::getId).toList());
+    assertEquals(List.of(farLaunch.getId()),
+        flightService.findFutureFlights(FlightState.SCHEDULED).stream().map(Flight::getId).toList());
+  }
+
+  @Test
+  void findFutureFlights_whenBookingsConfirmFlight_findsItUnderConfirmed() {
+    Rocket rocket = seedRocket(5);
+    Flight flight = createFutureFlight(rocket.getId(), 1);
+    saveBookingForFlight(flight.getId());
+
+    flightService.findById(flight.getId());
+
+    assertTrue(StorageBackends.current().flights().findByState(FlightState.SCHEDULED).isEmpty());
+    assertEquals(1, flightService.findFutureFlights(FlightState.CONFIRMED).size());
+  }
+
+  @Test
+  void findFutureFlights_afterRocketCapacityChanges_findsFlightsBeyondTheHorizonUnderTheirNewState() {
+    Rocket rocket = seedRocket(2);
+    Flight flight = new Flight();
+    flight.setRocketId(rocket.getId());
+    flight.setLaunchDateTime(Instant.now().plusSeconds(30L * 24 * 3600));
+    flight.setBasePrice(1000.0);
+    flight.setMinimumPassengers(1);
+    flight.setState(FlightState.SCHEDULED);
+    StorageBackends.current().flights().save(flight);
+    saveBookingForFlight(flight.getId());
+    saveBookingForFlight(flight.getId());
+    flightService.findById(flight.getId());
+    assertEquals(1, flightService.findFutureFlights(FlightState.SOLD_OUT).size());
+
+    Rocket updates = new Rocket();
+    updates.setCapacity(5);
+    new RocketService().update(rocket.getId(), updates);
+
+    assertEquals(List.of(flight.getId()),
+        flightService.findFutureFlights(FlightState.CONFIRMED).stream().map(Flight::getId).toList());
+    assertTrue(flightService.findFutureFlights(FlightState.SOLD_OUT).isEmpty());
+  }
+
   @Test
   void cancelById_whenFlightIsDone_throwsIllegalStateException() {
-    FlightRepository repo = new FlightRepository();
+    FlightRepository repo = StorageBackends.current().flights();
     Flight flight = new Flight();
     flight.setRocketId("rocket-1");
     flight.setLaunchDateTime(Instant.now().minusSeconds(3600));
@@ -320,7 +429,7 @@ class FlightServiceTest {
   }
 
   private static void saveBookingForFlight(String flightId) {
-    BookingRepository repo = new BookingRepository();
+    BookingRepository repo = StorageBackends.current().bookings();
     Booking booking = new Booking();
     booking.setFlightId(flightId);
     booking.setPassengerName("Ada");
@@ -328,40 +437,4 @@ class FlightServiceTest {
     booking.setFinalPrice(1000.0);
     repo.save(booking);
   }
-
-  private static void clearRocketRepository() {
-    try {
-      Field field = RocketRepository.class.getDeclaredField("rockets");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Rocket> rockets = (Map<String, Rocket>) field.get(null);
-      rockets.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
-
-  private static void clearFlightRepository() {
-    try {
-      Field field = FlightRepository.class.getDeclaredField("flights");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Flight> flights = (Map<String, Flight>) field.get(null);
-      flights.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
-
-  private static void clearBookingRepository() {
-    try {
-      Field field = BookingRepository.class.getDeclaredField("bookings");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Booking> bookings = (Map<String, Booking>) field.get(null);
-      bookings.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
 }
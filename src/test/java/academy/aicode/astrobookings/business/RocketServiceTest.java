@@ -6,15 +6,14 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import java.lang.reflect.Field;
-import java.util.Map;
+import java.util.Arrays;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
-import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackends;
 import academy.aicode.astrobookings.persistence.models.Range;
 import academy.aicode.astrobookings.persistence.models.Rocket;
 import academy.aicode.astrobookings.presentation.dto.CreateRocketRequest;
@@ -25,7 +24,7 @@ class RocketServiceTest {
 
   @BeforeEach
   void setUp() {
-    clearRocketRepository();
+    StorageBackends.use(StorageBackends.create(StorageBackends.DEFAULT));
     rocketService = new RocketService();
   }
 
@@ -105,15 +104,56 @@ class RocketServiceTest {
     assertNull(found);
   }
 
-  private static void clearRocketRepository() {
-    try {
-      Field field = RocketRepository.class.getDeclaredField("rockets");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Rocket> rockets = (Map<String, Rocket>) field.get(null);
-      rockets.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
+  @Test
+  void importBatch_whenItemsAreMixed_storesValidRockets_andRecordsRejectionsByIndex() {
+    CreateRocketRequest valid = new CreateRocketRequest();
+    valid.setName("Falcon");
+    valid.setCapacity(5);
+
+    CreateRocketRequest invalid = new CreateRocketRequest();
+    invalid.setName("Starship");
+    invalid.setCapacity(50);
+
+    ImportResult result = new ImportResult();
+    rocketService.importBatch(Arrays.asList(valid, invalid, null), 10, result);
+
+    assertEquals(1, result.getAccepted());
+    assertEquals(2, result.getRejected());
+    assertTrue(result.getRejections().get(11).contains("capacity"));
+    assertTrue(result.getRejections().get(12).contains("Request body must be provided"));
+    assertEquals(1, rocketService.findAll().size());
+  }
+
+  @Test
+  void update_whenCapacityIsInvalid_leavesTheStoredRocketUntouched() {
+    CreateRocketRequest req = new CreateRocketRequest();
+    req.setName("Falcon");
+    req.setCapacity(5);
+    Rocket saved = rocketService.create(req);
+
+    Rocket updates = new Rocket();
+    updates.setName("Starship");
+    updates.setCapacity(50);
+    assertThrows(IllegalArgumentException.class, () -> rocketService.update(saved.getId(), updates));
+
+    assertEquals("Falcon", rocketService.findById(saved.getId()).getName());
+    assertEquals("Falcon", saved.getName());
+  }
+
+  @Test
+  void update_savesACopy_andLeavesThePublishedInstanceUnchanged() {
+    CreateRocketRequest req = new CreateRocketRequest();
+    req.setName("Falcon");
+    req.setCapacity(5);
+    Rocket saved = rocketService.create(req);
+
+    Rocket updates = new Rocket();
+    updates.setName("Starship");
+    updates.setCapacity(8);
+    Rocket updated = rocketService.update(saved.getId(), updates);
+
+    assertEquals("Falcon", saved.getName());
+    assertEquals("Starship", rocketService.findById(saved.getId()).getName());
+    assertEquals(8, updated.getCapacity());
   }
 }
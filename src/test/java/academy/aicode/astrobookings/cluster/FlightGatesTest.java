@@ -0,0 +1,64 @@
+package academy.aicode.astrobookings.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class FlightGatesTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  private final FlightGates gates = new FlightGates();
+
+  @Test
+  void block_waitsForRequestsInProgress() throws Exception {
+    assertTrue(gates.enter("f1", TIMEOUT));
+    CompletableFuture<Boolean> block = CompletableFuture.supplyAsync(() -> {
+      try {
+        return gates.block("f1", TIMEOUT);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    Thread.sleep(50);
+    assertFalse(block.isDone());
+
+    gates.exit("f1");
+
+    assertTrue(block.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void enter_whileBlocked_waitsForTheReleaseAndAsksToRouteAgain() throws Exception {
+    assertTrue(gates.block("f1", TIMEOUT));
+    CompletableFuture<Boolean> request = CompletableFuture.supplyAsync(() -> {
+      try {
+        return gates.enter("f1", TIMEOUT);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertTrue(gates.enter("f2", TIMEOUT));
+    gates.exit("f2");
+    Thread.sleep(50);
+    assertFalse(request.isDone());
+
+    gates.release("f1");
+
+    assertFalse(request.get(5, TimeUnit.SECONDS));
+    assertTrue(gates.enter("f1", TIMEOUT));
+  }
+
+  @Test
+  void block_givesUpWhenRequestsDoNotFinish() throws Exception {
+    assertTrue(gates.enter("f1", TIMEOUT));
+
+    assertFalse(gates.block("f1", Duration.ofMillis(50)));
+    assertTrue(gates.isBlocked("f1"));
+  }
+}
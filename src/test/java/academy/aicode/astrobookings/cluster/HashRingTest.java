@@ -0,0 +1,73 @@
+package academy.aicode.astrobookings.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class HashRingTest {
+
+  private static final ClusterNode A = new ClusterNode("a", URI.create("http://localhost:8081"));
+  private static final ClusterNode B = new ClusterNode("b", URI.create("http://localhost:8082"));
+  private static final ClusterNode C = new ClusterNode("c", URI.create("http://localhost:8083"));
+  private static final ClusterNode D = new ClusterNode("d", URI.create("http://localhost:8084"));
+
+  @Test
+  void owner_spreadsKeysEvenlyOverNodes() {
+    HashRing ring = new HashRing(List.of(A, B, C), 128);
+    Map<ClusterNode, Integer> counts = new HashMap<>();
+    for (int i = 0; i < 30_000; i++) {
+      counts.merge(ring.owner(UUID.randomUUID().toString()), 1, Integer::sum);
+    }
+
+    for (ClusterNode node : List.of(A, B, C)) {
+      int count = counts.getOrDefault(node, 0);
+      assertTrue(count > 8_000 && count < 12_000, node.name() + " owns " + count);
+    }
+  }
+
+  @Test
+  void owner_afterAddingANode_onlyMovesKeysToTheNewNode() {
+    HashRing three = new HashRing(List.of(A, B, C), 128);
+    HashRing four = new HashRing(List.of(D, C, B, A), 128);
+    int moved = 0;
+    for (int i = 0; i < 20_000; i++) {
+      String key = UUID.randomUUID().toString();
+      ClusterNode before = three.owner(key);
+      ClusterNode after = four.owner(key);
+      if (before != after) {
+        assertEquals(D, after);
+        moved++;
+      }
+    }
+
+    assertTrue(moved > 3_500 && moved < 6_500, "moved " + moved);
+  }
+
+  @Test
+  void newLocalId_isOwnedBySelf() {
+    Cluster cluster = new Cluster(List.of(A, B, C), "b", 128, Duration.ofSeconds(1), "secret");
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(B, cluster.owner(cluster.newLocalId()));
+    }
+  }
+
+  @Test
+  void parseNodes_readsNamesAndUris() {
+    List<ClusterNode> nodes = Cluster.parseNodes("a=http://localhost:8081, b=http://localhost:8082");
+
+    assertEquals(List.of(A, B), nodes);
+    assertThrows(IllegalArgumentException.class, () -> Cluster.parseNodes("a=http://localhost:8081,b"));
+    assertThrows(IllegalArgumentException.class,
+        () -> new Cluster(nodes, "z", 128, Duration.ofSeconds(1), "secret"));
+  }
+}
@@ -0,0 +1,115 @@
+package academy.aicode.astrobookings.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class MergedListingTest {
+
+  private static final Instant T0 = Instant.parse("2030-01-01T00:00:00Z");
+
+  @Test
+  void next_mergesShardsInLaunchOrder() throws Exception {
+    ShardStream a = shard("a", 5000, 1, 4);
+    ShardStream b = shard("b", 5000, 2, 3);
+    ShardStream c = shard("c", 5000);
+
+    try (MergedListing listing = new MergedListing(List.of(a, b, c))) {
+      assertEquals(List.of("f1", "f2", "f3", "f4"), drain(listing));
+      assertTrue(listing.unavailable().isEmpty());
+    }
+  }
+
+  @Test
+  void next_returnsEarlierFlightsBeforeASlowShardEnds() throws Exception {
+    ShardStream fast = shard("a", 5000, 1, 2);
+    ShardStream slow = shardStream("b", 300);
+    slow.add(item(3));
+
+    try (MergedListing listing = new MergedListing(List.of(fast, slow))) {
+      assertEquals("f1", new String(listing.next(), StandardCharsets.UTF_8));
+      assertEquals("f2", new String(listing.next(), StandardCharsets.UTF_8));
+      // f3 is known, but the slow shard never says whether anything follows it
+      assertThrows(UncheckedIOException.class, listing::next);
+    }
+  }
+
+  @Test
+  void next_waitsTheTimeoutForEachFlightRatherThanForTheWholeListing() throws Exception {
+    ShardStream shard = shardStream("a", 200);
+    Thread producer = new Thread(() -> {
+      try {
+        for (int hour = 1; hour <= 4; hour++) {
+          Thread.sleep(100);
+          shard.add(item(hour));
+        }
+        shard.end();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+
+    try (MergedListing listing = new MergedListing(List.of(shard))) {
+      assertEquals(List.of("f1", "f2", "f3", "f4"), drain(listing));
+    }
+    producer.join();
+  }
+
+  @Test
+  void constructor_leavesOutShardsFailingBeforeTheirFirstFlight() throws Exception {
+    ShardStream a = shard("a", 5000, 1);
+    ShardStream b = shardStream("b", 5000);
+    b.fail(new IOException("connection refused"));
+    ShardStream c = shardStream("c", 50);
+
+    try (MergedListing listing = new MergedListing(List.of(a, b, c))) {
+      assertEquals(List.of("b", "c"), listing.unavailable());
+      assertEquals(List.of("f1"), drain(listing));
+      assertNull(listing.rejection());
+    }
+  }
+
+  private static List<String> drain(MergedListing listing) {
+    List<String> ids = new ArrayList<>();
+    for (byte[] json = listing.next(); json != null; json = listing.next()) {
+      ids.add(new String(json, StandardCharsets.UTF_8));
+    }
+    return ids;
+  }
+
+  private static ShardStream shard(String name, long timeoutMillis, int... hours) throws InterruptedException {
+    ShardStream shard = shardStream(name, timeoutMillis);
+    for (int hour : hours) {
+      shard.add(item(hour));
+    }
+    shard.end();
+    return shard;
+  }
+
+  private static ShardStream shardStream(String name, long timeoutMillis) {
+    long timeout = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    return new ShardStream(node(name), System.nanoTime() + timeout, timeout);
+  }
+
+  private static ShardStream.Item item(int hour) {
+    return new ShardStream.Item(T0.plusSeconds(hour * 3600L), "id" + hour,
+        ("f" + hour).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static ClusterNode node(String name) {
+    return new ClusterNode(name, URI.create("http://" + name + ".invalid"));
+  }
+}
@@ -0,0 +1,34 @@
+package academy.aicode.astrobookings.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class RebalancerTest {
+
+  @Test
+  void plan_movesTheSurplusToTheNodesBelowTheirShare() {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    counts.put("a", 10);
+    counts.put("b", 7);
+    counts.put("c", 1);
+    counts.put("d", 0);
+
+    Map<String, List<MoveRequest>> plan = Rebalancer.plan(counts);
+
+    // 18 flights over 4 nodes: a and b keep 5, c and d end with 4
+    assertEquals(List.of(new MoveRequest("c", 3), new MoveRequest("d", 2)), plan.get("a"));
+    assertEquals(List.of(new MoveRequest("d", 2)), plan.get("b"));
+    assertEquals(2, plan.size());
+  }
+
+  @Test
+  void plan_ofABalancedCluster_isEmpty() {
+    assertTrue(Rebalancer.plan(Map.of("a", 4, "b", 3, "c", 4)).isEmpty());
+  }
+}
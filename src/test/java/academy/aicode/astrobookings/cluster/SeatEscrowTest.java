@@ -0,0 +1,257 @@
+package academy.aicode.astrobookings.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpServer;
+
+import academy.aicode.astrobookings.persistence.StorageBackend;
+import academy.aicode.astrobookings.persistence.StorageBackends;
+import academy.aicode.astrobookings.presentation.BookingHandler;
+import academy.aicode.astrobookings.presentation.ClusterHandler;
+import academy.aicode.astrobookings.presentation.FlightHandler;
+import academy.aicode.astrobookings.presentation.RocketHandler;
+import academy.aicode.astrobookings.presentation.ShardingFilter;
+
+class SeatEscrowTest {
+
+  private static final int QUOTA = 2;
+
+  @TempDir
+  Path dataDir;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final List<HttpServer> servers = new ArrayList<>();
+  private final List<ClusterNode> nodes = new ArrayList<>();
+  private final List<Cluster> clusters = new ArrayList<>();
+  private final List<StorageBackend> locals = new ArrayList<>();
+  private final List<ShardedStorageBackend> backends = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    for (int i = 0; i < 3; i++) {
+      servers.add(HttpServer.create(new InetSocketAddress("localhost", 0), 0));
+      nodes.add(new ClusterNode("n" + i, URI.create("http://localhost:" + servers.get(i).getAddress().getPort())));
+    }
+    for (int i = 0; i < 3; i++) {
+      clusters.add(new Cluster(nodes, "n" + i, 64, Duration.ofSeconds(5), "secret"));
+      locals.add(StorageBackends.create(StorageBackends.DEFAULT));
+      backends.add(null);
+      start(i);
+    }
+  }
+
+  /**
+   * Starts node {@code i} on its local backend and escrow log, as after a
+   * restart.
+   */
+  private void start(int i) throws IOException {
+    ShardedStorageBackend backend = new ShardedStorageBackend(clusters.get(i), locals.get(i), QUOTA,
+        dataDir.resolve("escrow-n" + i + ".log"));
+    // Services take their repositories from the current backend when created
+    StorageBackends.use(backend);
+    Filter sharding = new ShardingFilter(clusters.get(i), backend.escrow());
+    HttpServer server = servers.get(i);
+    if (backends.get(i) != null) {
+      server = HttpServer.create(server.getAddress(), 0);
+      servers.set(i, server);
+    }
+    server.createContext("/rockets", new RocketHandler()).getFilters().add(sharding);
+    server.createContext("/flights", new FlightHandler()).getFilters().add(sharding);
+    server.createContext("/bookings", new BookingHandler()).getFilters().add(sharding);
+    server.createContext("/cluster", new ClusterHandler(clusters.get(i), backend.migrator(), backend.escrow()));
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+    backends.set(i, backend);
+  }
+
+  /**
+   * Stops node {@code i} without giving its quotas back.
+   */
+  private void stop(int i) {
+    servers.get(i).stop(0);
+    backends.get(i).escrow().close();
+  }
+
+  @AfterEach
+  void tearDown() {
+    servers.forEach(server -> server.stop(0));
+    backends.forEach(backend -> backend.escrow().close());
+  }
+
+  @Test
+  void booking_onAnotherNode_isSoldFromItsQuota_andHandedOverToTheFlightsNode() throws Exception {
+    String flightId = flightOn(0, 10);
+
+    String bookingId = create(1, "/bookings", booking(flightId, "D0"));
+
+    // Made on n1 rather than forwarded, so its id is homed there
+    assertEquals("n1", clusters.get(0).owner(bookingId).name());
+    assertEquals(200, get(2, "/bookings/" + bookingId).statusCode());
+    awaitEquals(1, () -> locals.get(0).bookings().countByFlightId(flightId));
+    assertEquals(200, get(2, "/bookings/" + bookingId).statusCode());
+    assertEquals(1, objectMapper.readTree(get(1, "/bookings?flightId=" + flightId).body()).size());
+  }
+
+  @Test
+  void concurrentBookings_onEveryNode_neverOversellTheFlight() throws Exception {
+    String flightId = flightOn(0, 10);
+    ExecutorService pool = Executors.newFixedThreadPool(12);
+    int created = 0;
+    try {
+      List<Future<Integer>> statuses = new ArrayList<>();
+      for (int i = 0; i < 30; i++) {
+        int node = i % 3;
+        String document = "D" + i;
+        statuses.add(pool.submit(() -> post(node, "/bookings", booking(flightId, document)).statusCode()));
+      }
+      for (Future<Integer> status : statuses) {
+        int code = status.get();
+        assertTrue(code == 201 || code == 409, "Unexpected status " + code);
+        created += code == 201 ? 1 : 0;
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    assertTrue(created <= 10, created + " bookings on 10 seats");
+
+    // Seats left in quotas come back once they go unused
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (created < 10 && System.nanoTime() < deadline) {
+      if (post(0, "/bookings", booking(flightId, "late" + created)).statusCode() == 201) {
+        created++;
+      } else {
+        Thread.sleep(100);
+      }
+    }
+    assertEquals(10, created);
+    for (int node = 0; node < 3; node++) {
+      assertEquals(409, post(node, "/bookings", booking(flightId, "extra" + node)).statusCode());
+    }
+    awaitEquals(10, () -> locals.get(0).bookings().countByFlightId(flightId));
+  }
+
+  @Test
+  void nodeStoppedWithAQuota_blocksItsSeatsUntilItRestartsAndReports() throws Exception {
+    String flightId = flightOn(0, 10);
+    create(1, "/bookings", booking(flightId, "D0"));
+    stop(1);
+
+    int sold = 0;
+    while (post(0, "/bookings", booking(flightId, "D" + (sold + 1))).statusCode() == 201) {
+      sold++;
+    }
+    assertEquals(10 - QUOTA, sold);
+
+    start(1);
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    int status;
+    while ((status = post(0, "/bookings", booking(flightId, "D9")).statusCode()) != 201
+        && System.nanoTime() < deadline) {
+      Thread.sleep(50);
+    }
+    assertEquals(201, status);
+    assertEquals(409, post(0, "/bookings", booking(flightId, "D10")).statusCode());
+    assertEquals(10, locals.get(0).bookings().countByFlightId(flightId));
+  }
+
+  @Test
+  void restartedNode_goesOnFromTheSequenceInItsLog() throws Exception {
+    long reserved = Long.MAX_VALUE / 4;
+    stop(1);
+    Files.writeString(dataDir.resolve("escrow-n1.log"), "S " + reserved + "\n", StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+    start(1);
+    String flightId = flightOn(0, 10);
+
+    create(1, "/bookings", booking(flightId, "D0"));
+
+    String granted = Files.readAllLines(dataDir.resolve("escrow-n0.log")).stream()
+        .filter(line -> line.startsWith("H " + flightId + " n1 ")).findFirst().orElseThrow();
+    assertTrue(Long.parseLong(granted.split(" ")[3]) > reserved, granted);
+  }
+
+  @Test
+  void migrate_takesQuotasBackFirst_andTheFlightStaysWithinItsCapacity() throws Exception {
+    String flightId = flightOn(0, 5);
+    String bookingId = create(1, "/bookings", booking(flightId, "D0"));
+
+    assertEquals(1, backends.get(0).migrator().migrate(flightId, nodes.get(2)));
+
+    assertNull(backends.get(1).escrow().leasedFlight(flightId));
+    assertEquals(1, locals.get(2).bookings().countByFlightId(flightId));
+    assertEquals(200, get(0, "/bookings/" + bookingId).statusCode());
+    int created = 1;
+    for (int i = 1; i < 12; i++) {
+      created += post(i % 3, "/bookings", booking(flightId, "D" + i)).statusCode() == 201 ? 1 : 0;
+    }
+    assertTrue(created <= 5, created + " bookings on 5 seats");
+    awaitEquals(created, () -> locals.get(2).bookings().countByFlightId(flightId));
+  }
+
+  private String flightOn(int node, int capacity) throws Exception {
+    String rocketId = create(node, "/rockets", "{\"name\":\"Falcon\",\"capacity\":" + capacity + "}");
+    return create(node, "/flights", "{\"rocketId\":\"" + rocketId + "\",\"launchDateTime\":\""
+        + Instant.now().plus(Duration.ofDays(30)) + "\",\"basePrice\":100.0,\"minimumPassengers\":1}");
+  }
+
+  private static String booking(String flightId, String document) {
+    return "{\"flightId\":\"" + flightId + "\",\"passengerName\":\"Ada\",\"passengerDocument\":\"" + document
+        + "\"}";
+  }
+
+  private static void awaitEquals(int expected, IntSupplier actual) throws InterruptedException {
+    long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+    while (actual.getAsInt() != expected && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    assertEquals(expected, actual.getAsInt());
+  }
+
+  private String create(int node, String path, String json) throws Exception {
+    HttpResponse<String> response = post(node, path, json);
+    assertEquals(201, response.statusCode(), response.body());
+    return objectMapper.readTree(response.body()).get("id").asText();
+  }
+
+  private HttpResponse<String> post(int node, String path, String json) throws Exception {
+    return client.send(HttpRequest.newBuilder(uri(node, path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(json)).build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> get(int node, String path) throws Exception {
+    return client.send(HttpRequest.newBuilder(uri(node, path)).build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private URI uri(int node, String path) {
+    return URI.create("http://localhost:" + servers.get(node).getAddress().getPort() + path);
+  }
+}
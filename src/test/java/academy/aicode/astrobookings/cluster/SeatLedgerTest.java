@@ -0,0 +1,40 @@
+package academy.aicode.astrobookings.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SeatLedgerTest {
+
+  private final SeatLedger ledger = new SeatLedger("F1", 5, 0, new HashMap<>());
+
+  @Test
+  void grantedSeats_stayHeldUntilTheirNodeGivesThemBack() {
+    assertEquals(3, ledger.grant("n1", 1, 3, null).length);
+    // n1 sold one seat and has not handed it over yet
+    ledger.report("n1", 2, 3, 1, 0, null);
+
+    assertEquals(2, ledger.take(5).length);
+    assertEquals(0, ledger.take(5).length);
+
+    ledger.report("n1", 3, 1, 1, 0, null);
+    assertEquals(2, ledger.take(5).length);
+    assertEquals(List.of("n1"), ledger.holders());
+    assertEquals(1, ledger.selling());
+  }
+
+  @Test
+  void seatsSoldSinceTheLastReport_stillFitTheFlight() {
+    ledger.grant("n1", 1, 3, null);
+    assertEquals(2, ledger.take(5).length);
+
+    // n1 was cut off after the grant and sold its three seats meanwhile
+    ledger.report("n1", 2, 0, 0, 3, null);
+
+    assertEquals(List.of(), ledger.holders());
+    assertEquals(0, ledger.take(5).length);
+  }
+}
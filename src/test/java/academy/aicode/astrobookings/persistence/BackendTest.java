@@ -0,0 +1,52 @@
+package academy.aicode.astrobookings.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Named;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Marks a conformance test: it runs once per registered storage backend, each
+ * time with a fresh backend instance, on an empty data directory under
+ * `target`, passed as the {@link StorageBackend} parameter. The backend is
+ * closed after the test.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@ParameterizedTest(name = "{0}")
+@MethodSource("academy.aicode.astrobookings.persistence.BackendTest$Backends#all")
+public @interface BackendTest {
+
+  /**
+   * Argument source for {@link BackendTest}.
+   */
+  final class Backends {
+
+    private Backends() {
+    }
+
+    static Stream<Arguments> all() {
+      return StorageBackends.names().stream()
+          .map(name -> Arguments.of(Named.of(name, StorageBackends.create(name, emptyDataDir(name)))));
+    }
+
+    private static Path emptyDataDir(String name) {
+      try {
+        Path target = Files.createDirectories(Path.of("target", "backend-tests"));
+        return Files.createTempDirectory(target, name + "-");
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+}
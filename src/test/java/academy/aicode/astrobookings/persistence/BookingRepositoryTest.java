@@ -0,0 +1,140 @@
+package academy.aicode.astrobookings.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Conformance suite for {@link BookingRepository}: every test runs once per
+ * backend registered in {@link StorageBackends}.
+ */
+class BookingRepositoryTest {
+
+  @BackendTest
+  void save_whenIdIsNull_generatesId_setsCreatedAt_andStoresBooking(StorageBackend backend) {
+    BookingRepository bookingRepository = backend.bookings();
+    Booking saved = bookingRepository.save(booking("flight-1"));
+
+    assertNotNull(saved.getId());
+    assertNotNull(saved.getCreatedAt());
+    assertNotNull(bookingRepository.findById(saved.getId()));
+  }
+
+  @BackendTest
+  void findByFlightId_returnsOnlyBookingsOfThatFlight(StorageBackend backend) {
+    BookingRepository bookingRepository = backend.bookings();
+    bookingRepository.save(booking("flight-1"));
+    bookingRepository.save(booking("flight-1"));
+    bookingRepository.save(booking("flight-2"));
+
+    List<Booking> found = bookingRepository.findByFlightId("flight-1");
+
+    assertEquals(2, found.size());
+    assertTrue(found.stream().allMatch(b -> "flight-1".equals(b.getFlightId())));
+    assertEquals(2, bookingRepository.countByFlightId("flight-1"));
+    assertEquals(1, bookingRepository.countByFlightId("flight-2"));
+  }
+
+  @BackendTest
+  void countByFlightId_whenFlightHasNoBookings_returnsZero_andEmptyList(StorageBackend backend) {
+    BookingRepository bookingRepository = backend.bookings();
+    assertEquals(0, bookingRepository.countByFlightId("missing"));
+    assertTrue(bookingRepository.findByFlightId("missing").isEmpty());
+  }
+
+  @BackendTest
+  void save_whenBookingIsSavedTwice_countsItOnce(StorageBackend backend) {
+    BookingRepository bookingRepository = backend.bookings();
+    Booking saved = bookingRepository.save(booking("flight-1"));
+    bookingRepository.save(saved);
+
+    assertEquals(1, bookingRepository.countByFlightId("flight-1"));
+  }
+
+  @BackendTest
+  void findById_returnsTheSameVersionUntilTheBookingIsReplaced(StorageBackend backend) {
+    BookingRepository bookingRepository = backend.bookings();
+    Booking saved = bookingRepository.save(booking("flight-1"));
+    long version = bookingRepository.findById(saved.getId()).version();
+
+    assertEquals(version, bookingRepository.findById(saved.getId()).version());
+    assertEquals(version, bookingRepository.findByFlightId("flight-1").get(0).version());
+
+    Booking replaced = booking("flight-1");
+    replaced.setId(saved.getId());
+    replaced.setPassengerName(saved.getPassengerName() + " Jr.");
+    bookingRepository.save(replaced);
+
+    assertNotEquals(version, bookingRepository.findById(saved.getId()).version());
+  }
+
+  @BackendTest
+  void save_whenFlightIdChanges_movesBookingBetweenFlights(StorageBackend backend) {
+    BookingRepository bookingRepository = backend.bookings();
+    Booking saved = bookingRepository.save(booking("flight-1"));
+
+    Booking moved = booking("flight-2");
+    moved.setId(saved.getId());
+    bookingRepository.save(moved);
+
+    assertEquals(0, bookingRepository.countByFlightId("flight-1"));
+    assertEquals(1, bookingRepository.countByFlightId("flight-2"));
+  }
+
+  @BackendTest
+  void findByPassengerDocument_returnsPagesOldestFirst_andFollowsDocumentChanges(StorageBackend backend) {
+    BookingRepository bookingRepository = backend.bookings();
+    Booking third = bookingRepository.save(booking("flight-1", "P1", "2030-01-03T00:00:00Z"));
+    Booking first = bookingRepository.save(booking("flight-2", "P1", "2030-01-01T00:00:00Z"));
+    Booking second = bookingRepository.save(booking("flight-1", "P1", "2030-01-02T00:00:00Z"));
+    Booking other = bookingRepository.save(booking("flight-1", "P2", "2030-01-01T00:00:00Z"));
+
+    assertEquals(List.of(first.getId(), second.getId()),
+        ids(bookingRepository.findByPassengerDocument("P1", 0, 2)));
+    assertEquals(List.of(third.getId()), ids(bookingRepository.findByPassengerDocument("P1", 2, 2)));
+    assertTrue(bookingRepository.findByPassengerDocument("P1", 3, 2).isEmpty());
+    assertTrue(bookingRepository.findByPassengerDocument("missing", 0, 10).isEmpty());
+
+    Booking changed = booking("flight-1", "P2", "2030-01-02T00:00:00Z");
+    changed.setId(second.getId());
+    bookingRepository.save(changed);
+
+    assertEquals(List.of(first.getId(), third.getId()),
+        ids(bookingRepository.findByPassengerDocument("P1", 0, 10)));
+    assertEquals(List.of(other.getId(), second.getId()),
+        ids(bookingRepository.findByPassengerDocument("P2", 0, 10)));
+  }
+
+  @BackendTest
+  void findById_whenMissing_returnsNull(StorageBackend backend) {
+    BookingRepository bookingRepository = backend.bookings();
+    assertNull(bookingRepository.findById("missing-id"));
+  }
+
+  private static Booking booking(String flightId) {
+    Booking booking = new Booking();
+    booking.setFlightId(flightId);
+    booking.setPassengerName("Ada");
+    booking.setPassengerDocument("DOC");
+    booking.setFinalPrice(1000.0);
+    return booking;
+  }
+
+  private static Booking booking(String flightId, String passengerDocument, String createdAt) {
+    Booking booking = booking(flightId);
+    booking.setPassengerDocument(passengerDocument);
+    booking.setCreatedAt(Instant.parse(createdAt));
+    return booking;
+  }
+
+  private static List<String> ids(List<Booking> bookings) {
+    return bookings.stream().map(Booking::getId).toList();
+  }
+}
@@ -1,33 +1,26 @@
 package academy.aicode.astrobookings.persistence;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import java.lang.reflect.Field;
 import java.time.Instant;
 import java.util.List;
-import java.util.Map;
-
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
 
 import academy.aicode.astrobookings.persistence.models.Flight;
 import academy.aicode.astrobookings.persistence.models.FlightState;
 
+/**
+ * Conformance suite for {@link FlightRepository}: every test runs once per
+ * backend registered in {@link StorageBackends}.
+ */
 class FlightRepositoryTest {
 
-  private FlightRepository flightRepository;
-
-  @BeforeEach
-  void setUp() {
-    clearFlightRepository();
-    flightRepository = new FlightRepository();
-  }
-
-  @Test
-  void save_whenIdIsNull_generatesId_andStoresFlight() {
+  @BackendTest
+  void save_whenIdIsNull_generatesId_andStoresFlight(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
     Flight flight = new Flight();
     flight.setRocketId("rocket-1");
     flight.setLaunchDateTime(Instant.now().plusSeconds(3600));
@@ -43,8 +36,9 @@ class FlightRepositoryTest {
     assertEquals("rocket-1", found.getRocketId());
   }
 
-  @Test
-  void save_whenIdIsProvided_preservesId() {
+  @BackendTest
+  void save_whenIdIsProvided_preservesId(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
     Flight flight = new Flight();
     flight.setId("fixed-id");
     flight.setRocketId("rocket-1");
@@ -59,16 +53,18 @@ class FlightRepositoryTest {
     assertNotNull(flightRepository.findById("fixed-id"));
   }
 
-  @Test
-  void findAll_whenEmpty_returnsEmptyList() {
+  @BackendTest
+  void findAll_whenEmpty_returnsEmptyList(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
     List<Flight> all = flightRepository.findAll();
 
     assertNotNull(all);
     assertTrue(all.isEmpty());
   }
 
-  @Test
-  void findAll_whenHasItems_returnsAllItems() {
+  @BackendTest
+  void findAll_whenHasItems_returnsAllItems(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
     Flight f1 = new Flight();
     f1.setRocketId("rocket-1");
     f1.setLaunchDateTime(Instant.now().plusSeconds(3600));
@@ -90,21 +86,136 @@ class FlightRepositoryTest {
     assertEquals(2, all.size());
   }
 
-  @Test
-  void findById_whenMissing_returnsNull() {
+  @BackendTest
+  void findById_whenMissing_returnsNull(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
     Flight found = flightRepository.findById("missing-id");
     assertNull(found);
   }
 
-  private static void clearFlightRepository() {
-    try {
-      Field field = FlightRepository.class.getDeclaredField("flights");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Flight> flights = (Map<String, Flight>) field.get(null);
-      flights.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+  @BackendTest
+  void findById_returnsTheSameVersionUntilTheFlightChanges(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
+    Flight saved = flightRepository.save(flightLaunchingAt(Instant.now().plusSeconds(3600)));
+    long version = flightRepository.findById(saved.getId()).version();
+
+    assertEquals(version, flightRepository.findById(saved.getId()).version());
+    assertEquals(version, flightRepository.findAll().get(0).version());
+
+    flightRepository.updateState(flightRepository.findById(saved.getId()), FlightState.CONFIRMED);
+    long confirmed = flightRepository.findById(saved.getId()).version();
+    assertNotEquals(version, confirmed);
+
+    Flight replaced = flightRepository.findById(saved.getId()).copy();
+    replaced.setBasePrice(2000.0);
+    flightRepository.save(replaced);
+
+    assertNotEquals(confirmed, flightRepository.findById(saved.getId()).version());
+  }
+
+  @BackendTest
+  void findLaunchingAfter_returnsOnlyLaterFlights_orderedByLaunchTime(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
+    Instant now = Instant.now();
+    Flight past = flightRepository.save(flightLaunchingAt(now.minusSeconds(3600)));
+    Flight later = flightRepository.save(flightLaunchingAt(now.plusSeconds(7200)));
+    Flight sooner = flightRepository.save(flightLaunchingAt(now.plusSeconds(3600)));
+
+    List<Flight> found = flightRepository.findLaunchingAfter(now);
+
+    assertEquals(List.of(sooner.getId(), later.getId()), found.stream().map(Flight::getId).toList());
+    assertTrue(found.stream().noneMatch(f -> f.getId().equals(past.getId())));
+  }
+
+  @BackendTest
+  void findLaunchingBetween_whenWindowIsHalfOpen_includesFromAndExcludesTo(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
+    Instant base = Instant.parse("2030-01-01T00:00:00Z");
+    Flight atFrom = flightRepository.save(flightLaunchingAt(base));
+    Flight inside = flightRepository.save(flightLaunchingAt(base.plusSeconds(60)));
+    flightRepository.save(flightLaunchingAt(base.plusSeconds(120)));
+
+    List<Flight> found = flightRepository.findLaunchingBetween(base, base.plusSeconds(120));
+
+    assertEquals(List.of(atFrom.getId(), inside.getId()), found.stream().map(Flight::getId).toList());
+  }
+
+  @BackendTest
+  void save_whenLaunchDateTimeChanges_reindexesFlight(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
+    Instant base = Instant.parse("2030-01-01T00:00:00Z");
+    Flight flight = flightRepository.save(flightLaunchingAt(base));
+
+    flight.setLaunchDateTime(base.plusSeconds(3600));
+    flightRepository.save(flight);
+
+    assertTrue(flightRepository.findLaunchingBetween(base, base.plusSeconds(60)).isEmpty());
+    assertEquals(1, flightRepository.findLaunchingBetween(base, null).size());
+  }
+
+  @BackendTest
+  void updateState_movesFlightBetweenStateIndexes(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
+    Flight flight = flightRepository.save(flightLaunchingAt(Instant.parse("2030-01-01T00:00:00Z")));
+
+    flightRepository.updateState(flight, FlightState.CONFIRMED);
+
+    assertEquals(FlightState.CONFIRMED, flight.getState());
+    assertTrue(flightRepository.findByState(FlightState.SCHEDULED).isEmpty());
+    assertEquals(List.of(flight.getId()),
+        flightRepository.findByState(FlightState.CONFIRMED).stream().map(Flight::getId).toList());
+  }
+
+  @BackendTest
+  void updateState_whenFlightIsNotStored_doesNotIndexIt(StorageBackend backend) {
+    FlightRepository flightRepository = backend.flights();
+    Flight flight = flightLaunchingAt(Instant.parse("2030-01-01T00:00:00Z"));
+    flight.setId("not-stored");
+
+    flightRepository.updateState(flight, FlightState.CANCELLED);
+
+    assertEquals(FlightState.CANCELLED, flight.getState());
+    assertTrue(flightRepository.findByState(FlightState.CANCELLED).isEmpty());
+  }
+
+  @BackendTest
+  void updateState_whenConcurrent_leavesIndexMatchingFinalState(StorageBackend backend) throws Exception {
+    FlightRepository flightRepository = backend.flights();
+    Flight flight = flightRepository.save(flightLaunchingAt(Instant.parse("2030-01-01T00:00:00Z")));
+    FlightState[] states = { FlightState.SCHEDULED, FlightState.CONFIRMED, FlightState.SOLD_OUT };
+
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      int offset = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 2_000; i++) {
+          flightRepository.updateState(flight, states[(i + offset) % states.length]);
+        }
+      });
+      threads[t].start();
     }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    int indexed = 0;
+    for (FlightState state : FlightState.values()) {
+      List<Flight> inState = flightRepository.findByState(state);
+      indexed += inState.size();
+      if (!inState.isEmpty()) {
+        assertEquals(flight.getState(), state);
+      }
+    }
+    assertEquals(1, indexed);
+  }
+
+  private static Flight flightLaunchingAt(Instant launch) {
+    Flight flight = new Flight();
+    flight.setRocketId("rocket-1");
+    flight.setLaunchDateTime(launch);
+    flight.setBasePrice(1000.0);
+    flight.setMinimumPassengers(1);
+    flight.setState(FlightState.SCHEDULED);
+    return flight;
   }
 }
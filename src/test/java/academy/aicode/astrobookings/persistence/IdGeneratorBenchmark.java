@@ -0,0 +1,59 @@
+package academy.aicode.astrobookings.persistence;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Manual benchmark of the registered {@link IdGenerator}s under concurrency:
+ * each thread generates ids as fast as it can and the harness reports the
+ * total throughput. It is not a JUnit test; run it like
+ * {@code StorageBenchmark} with the main class
+ * `academy.aicode.astrobookings.persistence.IdGeneratorBenchmark` and
+ * arguments `threads idsPerThread` (default 64 100000).
+ */
+public final class IdGeneratorBenchmark {
+
+  private IdGeneratorBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+    int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+    for (int round = 0; round < 3; round++) {
+      for (String name : IdGenerators.names()) {
+        run(name, IdGenerators.create(name), threads, perThread);
+      }
+    }
+  }
+
+  private static void run(String name, IdGenerator generator, int threads, int perThread) throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    long[] checksums = new long[threads];
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      int worker = t;
+      workers[t] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        long checksum = 0;
+        for (int i = 0; i < perThread; i++) {
+          checksum += generator.nextId().charAt(35);
+        }
+        checksums[worker] = checksum;
+      });
+      workers[t].start();
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    long elapsed = System.nanoTime() - begin;
+    long total = (long) threads * perThread;
+    System.out.printf("%-7s %3d threads %,14.0f ids/s %8.3f us/id%n", name, threads, total / (elapsed / 1e9),
+        elapsed / 1e3 / total);
+  }
+}
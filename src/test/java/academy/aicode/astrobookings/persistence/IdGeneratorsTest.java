@@ -0,0 +1,76 @@
+package academy.aicode.astrobookings.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class IdGeneratorsTest {
+
+  @AfterEach
+  void tearDown() {
+    IdGenerators.use(IdGenerators.create(IdGenerators.DEFAULT));
+  }
+
+  @Test
+  void timeOrdered_emitsVersion7UuidsThatSortByCreationWithinAThread() {
+    TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+
+    List<String> ids = IntStream.range(0, 10_000).mapToObj(i -> generator.nextId()).toList();
+
+    for (int i = 0; i < ids.size(); i++) {
+      UUID uuid = UUID.fromString(ids.get(i));
+      assertEquals(7, uuid.version());
+      assertEquals(2, uuid.variant());
+      assertEquals(ids.get(i), uuid.toString());
+      if (i > 0) {
+        assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0, ids.get(i - 1) + " >= " + ids.get(i));
+      }
+    }
+  }
+
+  @Test
+  void timeOrdered_embedsCurrentTimeInMilliseconds() {
+    long before = System.currentTimeMillis();
+    UUID uuid = new TimeOrderedIdGenerator().nextUuid();
+    long after = System.currentTimeMillis();
+
+    long millis = uuid.getMostSignificantBits() >>> 16;
+    assertTrue(millis >= before && millis <= after + 1);
+  }
+
+  @Test
+  void timeOrdered_whenCalledFromManyThreads_neverRepeatsAnId() {
+    TimeOrderedIdGenerator generator = new TimeOrderedIdGenerator();
+    Set<String> ids = ConcurrentHashMap.newKeySet();
+
+    IntStream.range(0, 200_000).parallel().forEach(i -> ids.add(generator.nextId()));
+
+    assertEquals(200_000, ids.size());
+  }
+
+  @Test
+  void use_replacesGeneratorUsedByRepositories() {
+    IdGenerator fixed = () -> "fixed-id";
+    IdGenerators.use(fixed);
+
+    assertSame(fixed, IdGenerators.current());
+    assertEquals("fixed-id", IdGenerators.nextId());
+  }
+
+  @Test
+  void create_whenNameIsUnknown_throwsIllegalArgumentException() {
+    assertTrue(IdGenerators.names().containsAll(List.of(TimeOrderedIdGenerator.NAME, IdGenerators.RANDOM)));
+    assertEquals(4, UUID.fromString(IdGenerators.create(IdGenerators.RANDOM).nextId()).version());
+    assertThrows(IllegalArgumentException.class, () -> IdGenerators.create("sequential"));
+  }
+}
@@ -1,32 +1,32 @@
 package academy.aicode.astrobookings.persistence;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import academy.aicode.astrobookings.persistence.models.Range;
 import academy.aicode.astrobookings.persistence.models.Rocket;
 
+/**
+ * Conformance suite for {@link RocketRepository}: every test runs once per
+ * backend registered in {@link StorageBackends}.
+ */
 class RocketRepositoryTest {
 
-  private RocketRepository rocketRepository;
-
-  @BeforeEach
-  void setUp() {
-    clearRocketRepository();
-    rocketRepository = new RocketRepository();
-  }
-
-  @Test
-  void save_whenIdIsNull_generatesId_andStoresRocket() {
+  @BackendTest
+  void save_whenIdIsNull_generatesId_andStoresRocket(StorageBackend backend) {
+    RocketRepository rocketRepository = backend.rockets();
     Rocket rocket = new Rocket();
     rocket.setName("Falcon");
     rocket.setCapacity(10);
@@ -41,8 +41,9 @@ class RocketRepositoryTest {
     assertEquals("Falcon", found.getName());
   }
 
-  @Test
-  void save_whenIdIsProvided_preservesId() {
+  @BackendTest
+  void save_whenIdIsProvided_preservesId(StorageBackend backend) {
+    RocketRepository rocketRepository = backend.rockets();
     Rocket rocket = new Rocket();
     rocket.setId("fixed-id");
     rocket.setName("Falcon");
@@ -54,15 +55,17 @@ class RocketRepositoryTest {
     assertNotNull(rocketRepository.findById("fixed-id"));
   }
 
-  @Test
-  void findAll_whenEmpty_returnsEmptyList() {
+  @BackendTest
+  void findAll_whenEmpty_returnsEmptyList(StorageBackend backend) {
+    RocketRepository rocketRepository = backend.rockets();
     List<Rocket> all = rocketRepository.findAll();
     assertNotNull(all);
     assertTrue(all.isEmpty());
   }
 
-  @Test
-  void findAll_whenHasItems_returnsAllItems() {
+  @BackendTest
+  void findAll_whenHasItems_returnsAllItems(StorageBackend backend) {
+    RocketRepository rocketRepository = backend.rockets();
     Rocket r1 = new Rocket();
     r1.setName("Falcon");
     r1.setCapacity(10);
@@ -77,21 +80,88 @@ class RocketRepositoryTest {
     assertEquals(2, all.size());
   }
 
-  @Test
-  void findById_whenMissing_returnsNull() {
+  @BackendTest
+  void findById_whenMissing_returnsNull(StorageBackend backend) {
+    RocketRepository rocketRepository = backend.rockets();
     Rocket found = rocketRepository.findById("missing-id");
     assertNull(found);
   }
 
-  private static void clearRocketRepository() {
+  @BackendTest
+  void findById_returnsTheSameVersionUntilTheRocketIsReplaced(StorageBackend backend) {
+    RocketRepository rocketRepository = backend.rockets();
+    Rocket rocket = new Rocket();
+    rocket.setName("Falcon");
+    rocket.setCapacity(10);
+    Rocket saved = rocketRepository.save(rocket);
+    long version = rocketRepository.findById(saved.getId()).version();
+
+    assertEquals(version, rocketRepository.findById(saved.getId()).version());
+    assertEquals(version, rocketRepository.findAll().get(0).version());
+
+    Rocket replaced = rocketRepository.findById(saved.getId()).copy();
+    replaced.setCapacity(12);
+    rocketRepository.save(replaced);
+
+    assertNotEquals(version, rocketRepository.findById(saved.getId()).version());
+  }
+
+  @BackendTest
+  void save_whenCalledConcurrently_losesNoUpdates_andReadersNeverFail(StorageBackend backend) throws Exception {
+    RocketRepository rocketRepository = backend.rockets();
+    int writers = 8;
+    int rocketsPerWriter = 250;
+    ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicBoolean writing = new AtomicBoolean(true);
+    List<Future<List<String>>> written = new ArrayList<>();
+    List<Future<Integer>> readers = new ArrayList<>();
+
     try {
-      Field field = RocketRepository.class.getDeclaredField("rockets");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Rocket> rockets = (Map<String, Rocket>) field.get(null);
-      rockets.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
+      for (int w = 0; w < writers; w++) {
+        int writer = w;
+        written.add(executor.submit(() -> {
+          start.await();
+          List<String> ids = new ArrayList<>();
+          for (int i = 0; i < rocketsPerWriter; i++) {
+            Rocket rocket = new Rocket();
+            rocket.setName("Rocket-" + writer + "-" + i);
+            rocket.setCapacity(5);
+            ids.add(rocketRepository.save(rocket).getId());
+          }
+          return ids;
+        }));
+      }
+      for (int r = 0; r < 2; r++) {
+        readers.add(executor.submit(() -> {
+          start.await();
+          int reads = 0;
+          while (writing.get()) {
+            for (Rocket rocket : rocketRepository.findAll()) {
+              assertNotNull(rocketRepository.findById(rocket.getId()));
+            }
+            reads++;
+          }
+          return reads;
+        }));
+      }
+
+      start.countDown();
+      List<String> allIds = new ArrayList<>();
+      for (Future<List<String>> ids : written) {
+        allIds.addAll(ids.get(30, TimeUnit.SECONDS));
+      }
+      writing.set(false);
+      for (Future<Integer> reader : readers) {
+        reader.get(30, TimeUnit.SECONDS);
+      }
+
+      assertEquals(writers * rocketsPerWriter, rocketRepository.findAll().size());
+      for (String id : allIds) {
+        assertNotNull(rocketRepository.findById(id));
+      }
+    } finally {
+      executor.shutdownNow();
     }
   }
 }
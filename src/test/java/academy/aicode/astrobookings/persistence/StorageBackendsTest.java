@@ -0,0 +1,52 @@
+package academy.aicode.astrobookings.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+class StorageBackendsTest {
+
+  @Test
+  void names_includesDefaultBackend() {
+    assertTrue(StorageBackends.names().contains(StorageBackends.DEFAULT));
+  }
+
+  @Test
+  void create_whenNameIsUnknown_throwsIllegalArgumentException() {
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+        () -> StorageBackends.create("missing"));
+
+    assertTrue(ex.getMessage().contains("missing"));
+  }
+
+  @Test
+  void create_returnsIndependentInstances() {
+    StorageBackend first = StorageBackends.create(StorageBackends.DEFAULT);
+    StorageBackend second = StorageBackends.create(StorageBackends.DEFAULT);
+
+    Rocket rocket = new Rocket();
+    rocket.setName("Falcon");
+    rocket.setCapacity(5);
+    first.rockets().save(rocket);
+
+    assertNotSame(first, second);
+    assertEquals(StorageBackends.DEFAULT, first.name());
+    assertNull(second.rockets().findById(rocket.getId()));
+  }
+
+  @Test
+  void use_replacesCurrentBackend() {
+    StorageBackend backend = StorageBackends.create(StorageBackends.DEFAULT);
+
+    StorageBackends.use(backend);
+
+    assertSame(backend, StorageBackends.current());
+  }
+}
@@ -0,0 +1,118 @@
+package academy.aicode.astrobookings.persistence;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+/**
+ * Manual benchmark harness for the storage backends. It runs the same workload
+ * against every registered backend (or only the ones named after the sizes) so
+ * they can be compared on the same machine. It is not a JUnit test; build the
+ * classpath with `mvn test-compile dependency:build-classpath
+ * -Dmdep.outputFile=cp.txt` and run it with `java -cp
+ * target/test-classes:target/classes:$(cat cp.txt)
+ * academy.aicode.astrobookings.persistence.StorageBenchmark 1000000 10000
+ * memory` (bookings, flights, backends...). Durable backends write under
+ * `astrobookings.dataDir`, which should be emptied between runs.
+ */
+public final class StorageBenchmark {
+
+  private static final Instant BASE = Instant.parse("2030-01-01T00:00:00Z");
+
+  private StorageBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    int bookingCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+    int flightCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+    List<String> backends = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : StorageBackends.names();
+
+    for (String name : backends) {
+      System.out.println("== " + name);
+      try (StorageBackend backend = StorageBackends.create(name)) {
+        run(backend, bookingCount, flightCount);
+      }
+    }
+  }
+
+  private static void run(StorageBackend backend, int bookingCount, int flightCount) {
+    int queries = 100_000;
+    FlightRepository flights = backend.flights();
+    BookingRepository bookings = backend.bookings();
+
+    List<Flight> batch = new ArrayList<>(flightCount);
+    for (int i = 0; i < flightCount; i++) {
+      Flight flight = new Flight();
+      flight.setId("flight-" + i);
+      flight.setRocketId("rocket-1");
+      flight.setLaunchDateTime(BASE.plusSeconds(3600L * i));
+      flight.setBasePrice(1000.0);
+      flight.setMinimumPassengers(1);
+      flight.setState(FlightState.SCHEDULED);
+      batch.add(flight);
+    }
+    long start = System.nanoTime();
+    flights.saveAll(batch);
+    report("flights.saveAll", flightCount, System.nanoTime() - start);
+
+    start = System.nanoTime();
+    for (int i = 0; i < bookingCount; i++) {
+      Booking booking = new Booking();
+      booking.setFlightId("flight-" + (i % flightCount));
+      booking.setPassengerName("Passenger " + i);
+      booking.setPassengerDocument("DOC" + i);
+      booking.setFinalPrice(1000.0);
+      booking.setDiscountPercent(10);
+      bookings.save(booking);
+    }
+    report("bookings.save", bookingCount, System.nanoTime() - start);
+    System.out.printf("%-18s %,12d MB%n", "heap after save", usedHeap() >> 20);
+
+    long checksum = 0;
+    start = System.nanoTime();
+    for (int i = 0; i < queries; i++) {
+      checksum += flights.findById("flight-" + (i % flightCount)).getMinimumPassengers();
+    }
+    report("flights.findById", queries, System.nanoTime() - start);
+
+    int windows = queries / 100;
+    start = System.nanoTime();
+    for (int i = 0; i < windows; i++) {
+      Instant from = BASE.plusSeconds(3600L * (i % flightCount));
+      checksum += flights.findLaunchingBetween(from, from.plusSeconds(3600L * 24)).size();
+    }
+    report("flights.window", windows, System.nanoTime() - start);
+
+    start = System.nanoTime();
+    for (int i = 0; i < queries; i++) {
+      checksum += bookings.countByFlightId("flight-" + (i % flightCount));
+    }
+    report("bookings.count", queries, System.nanoTime() - start);
+
+    start = System.nanoTime();
+    for (int i = 0; i < queries; i++) {
+      checksum += bookings.findByFlightId("flight-" + (i % flightCount)).size();
+    }
+    report("bookings.byFlight", queries, System.nanoTime() - start);
+
+    System.out.println("checksum=" + checksum);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void report(String operation, int operations, long elapsedNanos) {
+    System.out.printf("%-18s %,12d ops %10.1f ms %10.3f us/op%n", operation, operations, elapsedNanos / 1e6,
+        elapsedNanos / 1e3 / operations);
+  }
+}
@@ -0,0 +1,89 @@
+package academy.aicode.astrobookings.persistence.columnar;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.memory.InMemoryBookingRepository;
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Manual benchmark of an analytics query, revenue per flight, over many
+ * bookings: the `memory` repository answers it through
+ * {@code findByFlightId} for every flight, the columnar one with a single
+ * {@link ColumnarBookingRepository#scan}. It also reports heap and off-heap
+ * use after loading. It is not a JUnit test; run it like
+ * {@code StorageBenchmark} with the main class
+ * `academy.aicode.astrobookings.persistence.columnar.ColumnScanBenchmark` and
+ * arguments `bookings flights [memory|columnar]` (default 10000000 10000,
+ * both).
+ */
+public final class ColumnScanBenchmark {
+
+  private ColumnScanBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    int bookingCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+    int flightCount = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+    String only = args.length > 2 ? args[2] : null;
+
+    if (only == null || only.equals("memory")) {
+      InMemoryBookingRepository memory = new InMemoryBookingRepository();
+      load(memory, bookingCount, flightCount);
+      System.out.printf("%-9s heap %,8d MB%n", "memory", usedHeap() >> 20);
+      for (int round = 0; round < 3; round++) {
+        long start = System.nanoTime();
+        double[] revenue = new double[flightCount];
+        for (int f = 0; f < flightCount; f++) {
+          for (Booking booking : memory.findByFlightId("flight-" + f)) {
+            revenue[f] += booking.getFinalPrice();
+          }
+        }
+        report("memory", start, revenue);
+      }
+      memory = null;
+    }
+
+    if (only == null || only.equals("columnar")) {
+      ColumnarBookingRepository columnar = new ColumnarBookingRepository();
+      load(columnar, bookingCount, flightCount);
+      System.out.printf("%-9s heap %,8d MB, off-heap %,8d MB%n", "columnar", usedHeap() >> 20,
+          columnar.offHeapBytes() >> 20);
+      for (int round = 0; round < 3; round++) {
+        long start = System.nanoTime();
+        double[] revenue = new double[flightCount];
+        columnar.scan((flightKey, price, discount, createdAt) -> revenue[flightKey] += price);
+        report("columnar", start, revenue);
+      }
+    }
+  }
+
+  private static void load(BookingRepository bookings, int bookingCount, int flightCount) {
+    long start = System.nanoTime();
+    for (int i = 0; i < bookingCount; i++) {
+      Booking booking = new Booking();
+      booking.setFlightId("flight-" + (i % flightCount));
+      booking.setPassengerName("Passenger " + (i % 50_000));
+      booking.setPassengerDocument("DOC" + i);
+      booking.setFinalPrice(1000.0 - i % 7);
+      booking.setDiscountPercent(i % 30);
+      bookings.save(booking);
+    }
+    System.out.printf("loaded %,d bookings in %,d ms%n", bookingCount, (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private static void report(String name, long start, double[] revenue) {
+    double total = 0;
+    for (double value : revenue) {
+      total += value;
+    }
+    System.out.printf("%-9s revenue per flight %,8.1f ms (total %.0f)%n", name, (System.nanoTime() - start) / 1e6,
+        total);
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
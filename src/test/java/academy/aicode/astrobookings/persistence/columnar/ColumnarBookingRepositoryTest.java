@@ -0,0 +1,107 @@
+package academy.aicode.astrobookings.persistence.columnar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+class ColumnarBookingRepositoryTest {
+
+  private final ColumnarBookingRepository repository = new ColumnarBookingRepository();
+
+  @Test
+  void findById_returnsAllFieldsIncludingNullsAndNonAsciiStrings() {
+    Booking booking = booking("flight-1", 850.0);
+    booking.setPassengerName("Zoë Ñúñez 🚀");
+    booking.setPassengerDocument(null);
+    booking.setDiscountPercent(null);
+    booking.setCreatedAt(Instant.parse("2030-01-01T10:00:00.123456789Z"));
+    repository.save(booking);
+
+    Booking found = repository.findById(booking.getId());
+
+    assertEquals("flight-1", found.getFlightId());
+    assertEquals("Zoë Ñúñez 🚀", found.getPassengerName());
+    assertNull(found.getPassengerDocument());
+    assertNull(found.getDiscountPercent());
+    assertEquals(850.0, found.getFinalPrice());
+    assertEquals(Instant.parse("2030-01-01T10:00:00.123456789Z"), found.getCreatedAt());
+  }
+
+  @Test
+  void findByFlightId_acrossChunks_returnsBookingsOldestFirst() {
+    int count = 3 * (1 << 16) / 2;
+    for (int i = 0; i < count; i++) {
+      repository.save(booking("flight-" + (i % 3), i));
+    }
+
+    List<Booking> found = repository.findByFlightId("flight-2");
+
+    assertEquals(count / 3, found.size());
+    assertEquals(count / 3, repository.countByFlightId("flight-2"));
+    assertEquals(2.0, found.get(0).getFinalPrice());
+    assertEquals(count - 1.0, found.get(found.size() - 1).getFinalPrice());
+  }
+
+  @Test
+  void scan_visitsOnlyLatestVersionOfEachBooking() {
+    Booking first = repository.save(booking("flight-1", 100.0));
+    repository.save(booking("flight-2", 200.0));
+    Booking replaced = booking("flight-2", 300.0);
+    replaced.setId(first.getId());
+    repository.save(replaced);
+
+    Map<String, Double> revenue = new HashMap<>();
+    repository.scan((flightKey, price, discount, createdAt) -> revenue
+        .merge(repository.flightId(flightKey), price, Double::sum));
+
+    assertEquals(Map.of("flight-2", 500.0), revenue);
+    assertEquals(0, repository.countByFlightId("flight-1"));
+    assertTrue(repository.findByFlightId("flight-1").isEmpty());
+  }
+
+  @Test
+  void scanFlight_whenFieldsAreMissing_passesNaNAndMinusOne() {
+    Booking booking = booking("flight-1", 0);
+    booking.setFinalPrice(null);
+    booking.setDiscountPercent(null);
+    repository.save(booking);
+
+    List<double[]> rows = new ArrayList<>();
+    repository.scanFlight("flight-1", (flightKey, price, discount, createdAt) -> rows
+        .add(new double[] { price, discount }));
+
+    assertEquals(1, rows.size());
+    assertTrue(Double.isNaN(rows.get(0)[0]));
+    assertEquals(-1.0, rows.get(0)[1]);
+    assertEquals(-1, repository.flightKey("missing"));
+  }
+
+  @Test
+  void save_whenCreatedAtIsOutOfRange_throwsIllegalArgumentException() {
+    Booking booking = booking("flight-1", 1.0);
+    booking.setCreatedAt(Instant.parse("2300-01-01T00:00:00Z"));
+
+    assertThrows(IllegalArgumentException.class, () -> repository.save(booking));
+  }
+
+  private static Booking booking(String flightId, double price) {
+    Booking booking = new Booking();
+    booking.setFlightId(flightId);
+    booking.setPassengerName("Ada");
+    booking.setPassengerDocument("DOC");
+    booking.setFinalPrice(price);
+    booking.setDiscountPercent(10);
+    return booking;
+  }
+}
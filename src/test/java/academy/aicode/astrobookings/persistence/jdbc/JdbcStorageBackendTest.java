@@ -0,0 +1,57 @@
+package academy.aicode.astrobookings.persistence.jdbc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+class JdbcStorageBackendTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void reopen_keepsEverySavedRowAndState() {
+    List<Flight> batch = new ArrayList<>();
+    String bookingId;
+    try (JdbcStorageBackend backend = JdbcStorageBackend.open(dir)) {
+      for (int i = 0; i < 3; i++) {
+        Flight flight = new Flight(null, "rocket-1", Instant.parse("2030-01-01T10:00:00.123456789Z").plusSeconds(i),
+            1000.0, 2, FlightState.SCHEDULED);
+        batch.add(flight);
+      }
+      backend.flights().saveAll(batch);
+      backend.flights().updateState(batch.get(1), FlightState.CONFIRMED);
+      Booking booking = new Booking(null, batch.get(1).getId(), "Zoë Ñúñez", null, 900.0, 10, null);
+      bookingId = backend.bookings().save(booking).getId();
+    }
+
+    try (JdbcStorageBackend backend = JdbcStorageBackend.open(dir)) {
+      Flight flight = backend.flights().findById(batch.get(1).getId());
+      assertEquals(FlightState.CONFIRMED, flight.getState());
+      assertEquals(Instant.parse("2030-01-01T10:00:01.123456789Z"), flight.getLaunchDateTime());
+      assertEquals(2, backend.flights().findByState(FlightState.SCHEDULED).size());
+
+      Booking booking = backend.bookings().findById(bookingId);
+      assertEquals("Zoë Ñúñez", booking.getPassengerName());
+      assertNull(booking.getPassengerDocument());
+      assertEquals(1, backend.bookings().countByFlightId(flight.getId()));
+    }
+  }
+
+  @Test
+  void open_withUnreachableUrl_throwsDataAccessException() {
+    assertThrows(DataAccessException.class, () -> JdbcStorageBackend.open("jdbc:unknown:nowhere", 1));
+  }
+}
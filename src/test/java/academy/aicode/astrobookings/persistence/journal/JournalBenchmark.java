@@ -0,0 +1,96 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Manual benchmark of booking writes through the journal under each
+ * {@link FsyncPolicy}: concurrent writers save bookings and the harness
+ * reports throughput and latency percentiles. It is not a JUnit test; run it
+ * like {@code StorageBenchmark} with the main class
+ * `academy.aicode.astrobookings.persistence.journal.JournalBenchmark` and
+ * arguments `threads bookingsPerThread [directory]`.
+ */
+public final class JournalBenchmark {
+
+  private JournalBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+    int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+    Path root = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("journal-bench");
+
+    System.out.printf("%-7s %8s %12s %10s %10s %10s%n", "policy", "threads", "bookings/s", "p50 us", "p99 us",
+        "max us");
+    for (FsyncPolicy policy : FsyncPolicy.values()) {
+      run(policy, root.resolve(policy.name().toLowerCase()), threads, perThread);
+    }
+  }
+
+  private static void run(FsyncPolicy policy, Path dir, int threads, int perThread) throws Exception {
+    long[][] latencies = new long[threads][perThread];
+    long elapsed;
+    try (JournalStorageBackend backend = new JournalStorageBackend(dir, policy, 2, 256 * 1024)) {
+      BookingRepository bookings = backend.bookings();
+      CountDownLatch start = new CountDownLatch(1);
+      Thread[] workers = new Thread[threads];
+      for (int t = 0; t < threads; t++) {
+        int worker = t;
+        workers[t] = new Thread(() -> {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int i = 0; i < perThread; i++) {
+            long begin = System.nanoTime();
+            bookings.save(booking(worker, i));
+            latencies[worker][i] = System.nanoTime() - begin;
+          }
+        });
+        workers[t].start();
+      }
+      long begin = System.nanoTime();
+      start.countDown();
+      for (Thread worker : workers) {
+        worker.join();
+      }
+      elapsed = System.nanoTime() - begin;
+    }
+
+    long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+    System.out.printf("%-7s %8d %12.0f %10.1f %10.1f %10.1f%n", policy, threads, all.length / (elapsed / 1e9),
+        percentile(all, 0.50) / 1e3, percentile(all, 0.99) / 1e3, all[all.length - 1] / 1e3);
+    deleteRecursively(dir);
+  }
+
+  private static long percentile(long[] sorted, double p) {
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+  }
+
+  private static Booking booking(int worker, int i) {
+    Booking booking = new Booking();
+    booking.setFlightId("flight-" + (i % 100));
+    booking.setPassengerName("Passenger " + worker + "-" + i);
+    booking.setPassengerDocument("DOC" + worker + "-" + i);
+    booking.setFinalPrice(1000.0);
+    booking.setDiscountPercent(0);
+    return booking;
+  }
+
+  private static void deleteRecursively(Path dir) throws IOException {
+    try (var paths = Files.walk(dir)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.time.Instant;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+/**
+ * Entities shared by the journal, replication and raft tests.
+ */
+final class JournalFixtures {
+
+  private JournalFixtures() {
+  }
+
+  static Rocket rocket() {
+    Rocket rocket = new Rocket();
+    rocket.setName("Falcon");
+    rocket.setCapacity(5);
+    return rocket;
+  }
+
+  static Flight flight(String rocketId) {
+    Flight flight = new Flight();
+    flight.setRocketId(rocketId);
+    flight.setLaunchDateTime(Instant.parse("2030-01-01T00:00:00Z"));
+    flight.setBasePrice(1000.0);
+    flight.setMinimumPassengers(1);
+    flight.setState(FlightState.SCHEDULED);
+    return flight;
+  }
+
+  static Booking booking(String flightId) {
+    Booking booking = new Booking();
+    booking.setFlightId(flightId);
+    booking.setPassengerName("Ada");
+    booking.setPassengerDocument("DOC");
+    booking.setFinalPrice(1000.0);
+    return booking;
+  }
+}
@@ -0,0 +1,238 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import static academy.aicode.astrobookings.persistence.journal.JournalFixtures.booking;
+import static academy.aicode.astrobookings.persistence.journal.JournalFixtures.flight;
+import static academy.aicode.astrobookings.persistence.journal.JournalFixtures.rocket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+class JournalStorageBackendTest {
+
+  @TempDir
+  Path dir;
+
+  @ParameterizedTest
+  @EnumSource(FsyncPolicy.class)
+  void reopen_replaysRocketsFlightsBookingsAndStateChanges(FsyncPolicy policy) throws IOException {
+    String rocketId;
+    String flightId;
+    String bookingId;
+    try (JournalStorageBackend backend = open(policy)) {
+      rocketId = backend.rockets().save(rocket()).getId();
+      Flight flight = backend.flights().save(flight(rocketId));
+      flightId = flight.getId();
+      bookingId = backend.bookings().save(booking(flightId)).getId();
+      backend.flights().updateState(flight, FlightState.CONFIRMED);
+    }
+
+    try (JournalStorageBackend backend = open(policy)) {
+      assertEquals("Falcon", backend.rockets().findById(rocketId).getName());
+      assertEquals(FlightState.CONFIRMED, backend.flights().findById(flightId).getState());
+      assertEquals(1, backend.flights().findByState(FlightState.CONFIRMED).size());
+      assertNotNull(backend.bookings().findById(bookingId).getCreatedAt());
+      assertEquals(1, backend.bookings().countByFlightId(flightId));
+    }
+  }
+
+  @Test
+  void reopen_whenTailIsTorn_dropsItAndKeepsAppending() throws IOException {
+    String rocketId;
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      rocketId = backend.rockets().save(rocket()).getId();
+    }
+    Path file = Journal.segmentPath(dir, 0);
+    long goodSize = Files.size(file);
+    Files.write(file, new byte[] { 0, 0, 0, 42, 1, 2 }, StandardOpenOption.APPEND);
+
+    String secondId;
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      assertNotNull(backend.rockets().findById(rocketId));
+      assertEquals(goodSize, Files.size(file));
+      secondId = backend.rockets().save(rocket()).getId();
+    }
+
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      assertEquals(2, backend.rockets().findAll().size());
+      assertNotNull(backend.rockets().findById(secondId));
+    }
+  }
+
+  @Test
+  void reopen_whenLastRecordChecksumDoesNotMatch_dropsIt() throws IOException {
+    String firstId;
+    long firstRecordEnd;
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      firstId = backend.rockets().save(rocket()).getId();
+      firstRecordEnd = Files.size(Journal.segmentPath(dir, 0));
+      backend.rockets().save(rocket());
+    }
+    try (FileChannel channel = FileChannel.open(Journal.segmentPath(dir, 0), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[] { 'X' }), channel.size() - 2);
+    }
+
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      assertEquals(1, backend.rockets().findAll().size());
+      assertNotNull(backend.rockets().findById(firstId));
+      assertEquals(firstRecordEnd, Files.size(Journal.segmentPath(dir, 0)));
+    }
+  }
+
+  @Test
+  void snapshot_thenReopen_loadsSnapshotReplaysTail_andDeletesOldSegments() throws IOException {
+    String rocketId;
+    String flightId;
+    String tailBookingId;
+    try (JournalStorageBackend backend = open(FsyncPolicy.GROUP)) {
+      rocketId = backend.rockets().save(rocket()).getId();
+      Flight flight = backend.flights().save(flight(rocketId));
+      flightId = flight.getId();
+      backend.bookings().save(booking(flightId));
+
+      long segment = backend.snapshot();
+
+      backend.flights().updateState(flight, FlightState.SOLD_OUT);
+      tailBookingId = backend.bookings().save(booking(flightId)).getId();
+      assertEquals(List.of(segment), Journal.listSegments(dir));
+      assertEquals(List.of(segment), SnapshotFile.list(dir));
+    }
+
+    try (JournalStorageBackend backend = open(FsyncPolicy.GROUP)) {
+      assertNotNull(backend.rockets().findById(rocketId));
+      assertEquals(FlightState.SOLD_OUT, backend.flights().findById(flightId).getState());
+      assertEquals(2, backend.bookings().countByFlightId(flightId));
+      assertNotNull(backend.bookings().findById(tailBookingId));
+    }
+  }
+
+  @Test
+  void snapshot_whileBookingsAreWritten_losesNoBookings() throws Exception {
+    int writers = 4;
+    int perWriter = 500;
+    try (JournalStorageBackend backend = open(FsyncPolicy.ASYNC)) {
+      Thread[] threads = new Thread[writers];
+      for (int w = 0; w < writers; w++) {
+        threads[w] = new Thread(() -> {
+          for (int i = 0; i < perWriter; i++) {
+            backend.bookings().save(booking("flight-1"));
+          }
+        });
+        threads[w].start();
+      }
+      for (int i = 0; i < 5; i++) {
+        backend.snapshot();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+    }
+
+    try (JournalStorageBackend backend = open(FsyncPolicy.ASYNC)) {
+      assertEquals(writers * perWriter, backend.bookings().countByFlightId("flight-1"));
+    }
+  }
+
+  @Test
+  void open_whenSnapshotIsCorrupt_throwsIOException() throws IOException {
+    long segment;
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      backend.rockets().save(rocket());
+      segment = backend.snapshot();
+    }
+    Path snapshot = SnapshotFile.path(dir, segment);
+    byte[] bytes = Files.readAllBytes(snapshot);
+    bytes[bytes.length / 2] ^= 0x5A;
+    Files.write(snapshot, bytes);
+
+    assertThrows(IOException.class, () -> open(FsyncPolicy.ALWAYS));
+  }
+
+  @Test
+  void open_whenLegacyJournalFileExists_replaysItAsFirstSegment() throws IOException {
+    String rocketId;
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      rocketId = backend.rockets().save(rocket()).getId();
+    }
+    Files.move(Journal.segmentPath(dir, 0), dir.resolve("journal.log"));
+
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      assertNotNull(backend.rockets().findById(rocketId));
+    }
+  }
+
+  @Test
+  void updateState_whenFlightIsNotStored_isNotJournaled() throws IOException {
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      Flight flight = flight("rocket-1");
+      flight.setId("not-stored");
+
+      backend.flights().updateState(flight, FlightState.CANCELLED);
+
+      assertEquals(FlightState.CANCELLED, flight.getState());
+    }
+    try (JournalStorageBackend backend = open(FsyncPolicy.ALWAYS)) {
+      assertNull(backend.flights().findById("not-stored"));
+    }
+  }
+
+  @Test
+  void reopen_whenClockSteppedBack_continuesAfterTheLastOffset() throws IOException {
+    long now = System.currentTimeMillis();
+    long last;
+    try (Journal journal = new Journal(dir, 0, FsyncPolicy.ALWAYS, 2, 64 * 1024, (type, payload) -> {
+    }, () -> now + 60_000)) {
+      journal.append(JournalStorageBackend.ROCKET, List.of(new byte[1], new byte[1]), () -> {
+      });
+      journal.rotate();
+      journal.deleteSegmentsBefore(journal.currentSegment());
+      last = journal.offset();
+    }
+
+    try (Journal journal = new Journal(dir, 0, FsyncPolicy.ALWAYS, 2, 64 * 1024, (type, payload) -> {
+    }, () -> now)) {
+      assertEquals(last, journal.offset());
+      journal.append(JournalStorageBackend.ROCKET, List.of(new byte[1]), () -> {
+      });
+      assertEquals(last + 1, journal.offset());
+    }
+    try (Journal journal = new Journal(dir, 0, FsyncPolicy.ALWAYS, 2, 64 * 1024, (type, payload) -> {
+    }, () -> now)) {
+      assertEquals(last + 1, journal.offset());
+    }
+  }
+
+  @Test
+  void save_whenClosed_throwsIllegalStateException() throws IOException {
+    JournalStorageBackend backend = open(FsyncPolicy.GROUP);
+    backend.close();
+
+    assertThrows(IllegalStateException.class, () -> backend.rockets().save(rocket()));
+  }
+
+  @Test
+  void parse_whenPolicyIsUnknown_throwsIllegalArgumentException() {
+    assertEquals(FsyncPolicy.GROUP, FsyncPolicy.parse(" Group "));
+    assertThrows(IllegalArgumentException.class, () -> FsyncPolicy.parse("sometimes"));
+  }
+
+  private JournalStorageBackend open(FsyncPolicy policy) throws IOException {
+    return new JournalStorageBackend(dir, policy, 2, 64 * 1024);
+  }
+}
@@ -0,0 +1,113 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Manual benchmark of the raft backend: groups of 1, 3 and 5 in-process nodes
+ * over loopback TCP, with {@code writers} threads saving bookings on the
+ * leader, and reports the acknowledged writes per second and the average
+ * write latency. It is not a JUnit test; run it like {@code JournalBenchmark}
+ * with the main class
+ * `academy.aicode.astrobookings.persistence.journal.RaftBenchmark` and
+ * arguments `bookingCount writers` (default 50000 32). A smaller unreported
+ * round runs first to warm up the JIT.
+ */
+public final class RaftBenchmark {
+
+  private RaftBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+    int writers = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+    Path root = Files.createTempDirectory("raft-bench");
+
+    run(root.resolve("warmup"), count / 4, 3, writers, false);
+    System.out.printf("%6s %8s %12s %12s%n", "nodes", "writers", "writes/s", "avg ms");
+    for (int nodes : new int[] { 1, 3, 5 }) {
+      run(root.resolve("n" + nodes), count, nodes, writers, true);
+    }
+    deleteRecursively(root);
+  }
+
+  private static void run(Path dir, int count, int nodeCount, int writers, boolean print) throws Exception {
+    Map<String, InetSocketAddress> group = new LinkedHashMap<>();
+    for (int i = 0; i < nodeCount; i++) {
+      try (ServerSocket probe = new ServerSocket(0)) {
+        group.put("r" + i, new InetSocketAddress("localhost", probe.getLocalPort()));
+      }
+    }
+    List<RaftStorageBackend> nodes = new ArrayList<>();
+    for (String name : group.keySet()) {
+      nodes.add(new RaftStorageBackend(dir.resolve(name), group, name, Duration.ofMillis(300),
+          Duration.ofMillis(50), Duration.ofSeconds(30)));
+    }
+    try {
+      RaftStorageBackend leader = awaitLeader(nodes);
+      ExecutorService pool = Executors.newFixedThreadPool(writers);
+      long begin = System.nanoTime();
+      List<Future<?>> done = new ArrayList<>();
+      for (int w = 0; w < writers; w++) {
+        int writer = w;
+        done.add(pool.submit(() -> {
+          for (int i = writer; i < count; i += writers) {
+            Booking booking = new Booking();
+            booking.setFlightId("flight-" + (i % 100));
+            booking.setPassengerName("Passenger " + i);
+            booking.setPassengerDocument("DOC" + i);
+            booking.setFinalPrice(1000.0);
+            leader.bookings().save(booking);
+          }
+          return null;
+        }));
+      }
+      for (Future<?> writer : done) {
+        writer.get();
+      }
+      long nanos = System.nanoTime() - begin;
+      pool.shutdown();
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+      if (print) {
+        System.out.printf("%6d %8d %12.0f %12.2f%n", nodeCount, writers, count / (nanos / 1e9),
+            nanos / 1e6 / (count / (double) writers));
+      }
+    } finally {
+      nodes.forEach(RaftStorageBackend::close);
+    }
+  }
+
+  private static RaftStorageBackend awaitLeader(List<RaftStorageBackend> nodes) throws InterruptedException {
+    while (true) {
+      for (RaftStorageBackend node : nodes) {
+        if (node.isLeader()) {
+          return node;
+        }
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private static void deleteRecursively(Path dir) throws IOException {
+    try (var paths = Files.walk(dir)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+}
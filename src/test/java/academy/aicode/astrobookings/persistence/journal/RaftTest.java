@@ -0,0 +1,196 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import static academy.aicode.astrobookings.persistence.journal.JournalFixtures.booking;
+import static academy.aicode.astrobookings.persistence.journal.JournalFixtures.flight;
+import static academy.aicode.astrobookings.persistence.journal.JournalFixtures.rocket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+class RaftTest {
+
+  private static final Duration WAIT = Duration.ofSeconds(10);
+
+  @TempDir
+  Path dir;
+
+  private final Map<String, InetSocketAddress> group = new LinkedHashMap<>();
+  private final List<RaftStorageBackend> nodes = new ArrayList<>();
+
+  @AfterEach
+  void tearDown() {
+    nodes.forEach(RaftStorageBackend::close);
+  }
+
+  @Test
+  void write_isAppliedOnEveryNode_andOnlyTheLeaderAcceptsWrites() throws Exception {
+    start(3);
+    RaftStorageBackend leader = awaitLeader();
+
+    Rocket rocket = leader.rockets().save(rocket());
+    Flight flight = leader.flights().save(flight(rocket.getId()));
+    Booking booking = leader.bookings().save(booking(flight.getId()));
+    leader.flights().updateState(flight, FlightState.CONFIRMED);
+
+    for (RaftStorageBackend node : nodes) {
+      assertTrue(node.awaitLogOffset(leader.logOffset(), WAIT));
+      assertEquals("Falcon", node.rockets().findById(rocket.getId()).getName());
+      assertEquals("Ada", node.bookings().findById(booking.getId()).getPassengerName());
+      assertEquals(FlightState.CONFIRMED, node.flights().findById(flight.getId()).getState());
+      if (node != leader) {
+        assertEquals(group.keySet().stream().toList().get(nodes.indexOf(leader)), node.leader());
+        assertThrows(IllegalStateException.class, () -> node.bookings().save(booking(flight.getId())));
+      }
+    }
+  }
+
+  @Test
+  void leaderCrash_losesNoAcknowledgedBooking_andTheRestartedNodeCatchesUp() throws Exception {
+    start(3);
+    RaftStorageBackend leader = awaitLeader();
+    String flightId = leader.flights().save(flight("rocket-1")).getId();
+    for (int i = 0; i < 20; i++) {
+      leader.bookings().save(booking(flightId));
+    }
+
+    int crashed = nodes.indexOf(leader);
+    leader.close();
+    RaftStorageBackend successor = awaitLeader();
+
+    assertNotEquals(leader, successor);
+    assertEquals(20, successor.bookings().countByFlightId(flightId));
+    successor.bookings().save(booking(flightId));
+
+    RaftStorageBackend restarted = open(crashed);
+    nodes.set(crashed, restarted);
+    assertTrue(restarted.awaitLogOffset(successor.logOffset(), WAIT));
+    assertEquals(21, restarted.bookings().countByFlightId(flightId));
+  }
+
+  @Test
+  void concurrentBookings_onTheLeader_neverTakeMoreSeatsThanTheFlightHas() throws Exception {
+    start(3);
+    RaftStorageBackend leader = awaitLeader();
+    String flightId = leader.flights().save(flight("rocket-1")).getId();
+    int capacity = 5;
+    Set<Integer> numbers = Collections.synchronizedSet(new HashSet<>());
+    CountDownLatch go = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<?>> buyers = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        buyers.add(pool.submit(() -> {
+          go.await();
+          int[] seats = leader.bookings().takeSeats(flightId, capacity, 1);
+          if (seats.length == 1) {
+            leader.bookings().save(booking(flightId));
+            assertTrue(numbers.add(seats[0]), () -> "seat " + seats[0] + " taken twice");
+          }
+          return null;
+        }));
+      }
+      go.countDown();
+      for (Future<?> buyer : buyers) {
+        buyer.get();
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+
+    assertEquals(capacity, leader.bookings().countByFlightId(flightId));
+    assertEquals(Set.of(1, 2, 3, 4, 5), numbers);
+  }
+
+  @Test
+  void isolatedLeader_cannotAcknowledgeWrites_andDropsThemOnceReconnected() throws Exception {
+    start(3);
+    RaftStorageBackend leader = awaitLeader();
+    String flightId = leader.flights().save(flight("rocket-1")).getId();
+
+    leader.isolate(true);
+    RuntimeException lost = assertThrows(RuntimeException.class, () -> leader.bookings().save(booking(flightId)));
+    assertTrue(lost instanceof IllegalStateException || lost instanceof UncheckedIOException, lost::toString);
+    RaftStorageBackend successor = awaitLeader();
+    Booking kept = successor.bookings().save(booking(flightId));
+
+    leader.isolate(false);
+    assertTrue(leader.awaitLogOffset(successor.logOffset(), WAIT));
+    assertEquals(1, leader.bookings().countByFlightId(flightId));
+    assertEquals(kept.getId(), leader.bookings().findByFlightId(flightId).get(0).getId());
+  }
+
+  @Test
+  void fiveNodes_keepCommittingWithTwoDown_andStopWithThreeDown() throws Exception {
+    start(5);
+    RaftStorageBackend leader = awaitLeader();
+    String flightId = leader.flights().save(flight("rocket-1")).getId();
+
+    List<RaftStorageBackend> followers = nodes.stream().filter(node -> node != leader).toList();
+    followers.get(0).close();
+    followers.get(1).close();
+    leader.bookings().save(booking(flightId));
+    assertEquals(1, leader.bookings().countByFlightId(flightId));
+
+    followers.get(2).close();
+    assertThrows(RuntimeException.class, () -> leader.bookings().save(booking(flightId)));
+    assertNull(nodes.stream().filter(RaftStorageBackend::isLeader).findAny().orElse(null));
+  }
+
+  private void start(int count) throws IOException {
+    for (int i = 0; i < count; i++) {
+      try (ServerSocket probe = new ServerSocket(0)) {
+        group.put("r" + i, new InetSocketAddress("localhost", probe.getLocalPort()));
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      nodes.add(open(i));
+    }
+  }
+
+  private RaftStorageBackend open(int index) throws IOException {
+    return new RaftStorageBackend(dir.resolve("r" + index), group, "r" + index, Duration.ofMillis(100),
+        Duration.ofMillis(20), Duration.ofSeconds(1));
+  }
+
+  private RaftStorageBackend awaitLeader() throws InterruptedException {
+    long deadline = System.nanoTime() + WAIT.toNanos();
+    while (System.nanoTime() < deadline) {
+      for (RaftStorageBackend node : nodes) {
+        if (node.isLeader()) {
+          return node;
+        }
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("no leader elected");
+  }
+}
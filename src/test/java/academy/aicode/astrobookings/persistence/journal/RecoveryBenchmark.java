@@ -0,0 +1,102 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import academy.aicode.astrobookings.persistence.BookingRepository;
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Manual benchmark of restart time versus data size: for each booking count it
+ * fills a journal, then measures reopening it from the journal alone and from
+ * a snapshot followed by a 1% journal tail. It is not a JUnit test; run it
+ * like {@code JournalBenchmark} with the main class
+ * `academy.aicode.astrobookings.persistence.journal.RecoveryBenchmark` and
+ * arguments `bookingCount...` (default 100000 500000 1000000).
+ */
+public final class RecoveryBenchmark {
+
+  private RecoveryBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    long[] counts = args.length > 0
+        ? Arrays.stream(args).mapToLong(Long::parseLong).toArray()
+        : new long[] { 100_000, 500_000, 1_000_000 };
+    Path root = Files.createTempDirectory("recovery-bench");
+
+    System.out.printf("%10s %14s %12s %14s %12s %12s%n", "bookings", "journal MB", "replay ms", "snapshot MB",
+        "tail", "restore ms");
+    for (long count : counts) {
+      run(root.resolve("n" + count), count);
+    }
+    deleteRecursively(root);
+  }
+
+  private static void run(Path dir, long count) throws IOException {
+    try (JournalStorageBackend backend = new JournalStorageBackend(dir, FsyncPolicy.ASYNC, 2, 256 * 1024)) {
+      write(backend.bookings(), count);
+    }
+    long journalBytes = directorySize(dir);
+    long replayMillis = reopen(dir, count);
+
+    long tail = Math.max(1, count / 100);
+    try (JournalStorageBackend backend = new JournalStorageBackend(dir, FsyncPolicy.ASYNC, 2, 256 * 1024)) {
+      backend.snapshot();
+      write(backend.bookings(), tail);
+    }
+    long snapshotBytes = Files.size(SnapshotFile.path(dir, SnapshotFile.list(dir).get(0)));
+    long restoreMillis = reopen(dir, count + tail);
+
+    System.out.printf("%10d %14.1f %12d %14.1f %12d %12d%n", count, journalBytes / 1e6, replayMillis,
+        snapshotBytes / 1e6, tail, restoreMillis);
+  }
+
+  private static long reopen(Path dir, long expected) throws IOException {
+    long begin = System.nanoTime();
+    try (JournalStorageBackend backend = new JournalStorageBackend(dir, FsyncPolicy.ASYNC, 2, 256 * 1024)) {
+      long elapsed = (System.nanoTime() - begin) / 1_000_000;
+      long found = 0;
+      for (int f = 0; f < 100; f++) {
+        found += backend.bookings().countByFlightId("flight-" + f);
+      }
+      if (found != expected) {
+        throw new IllegalStateException("Expected " + expected + " bookings after restart, found " + found);
+      }
+      return elapsed;
+    }
+  }
+
+  private static void write(BookingRepository bookings, long count) {
+    for (long i = 0; i < count; i++) {
+      Booking booking = new Booking();
+      booking.setFlightId("flight-" + (i % 100));
+      booking.setPassengerName("Passenger " + i);
+      booking.setPassengerDocument("DOC" + i);
+      booking.setFinalPrice(1000.0);
+      booking.setDiscountPercent(0);
+      bookings.save(booking);
+    }
+  }
+
+  private static long directorySize(Path dir) throws IOException {
+    try (var paths = Files.list(dir)) {
+      long size = 0;
+      for (Path path : paths.toList()) {
+        size += Files.size(path);
+      }
+      return size;
+    }
+  }
+
+  private static void deleteRecursively(Path dir) throws IOException {
+    try (var paths = Files.walk(dir)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+}
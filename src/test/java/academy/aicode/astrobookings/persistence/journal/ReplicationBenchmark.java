@@ -0,0 +1,111 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+/**
+ * Manual benchmark of log shipping: it writes bookings to a primary followed
+ * by 0 to {@code replicas} in-process replicas over loopback TCP, and reports
+ * the primary's write throughput, the largest lag seen on any replica while
+ * writing, and how long the replicas take to catch up after the last write.
+ * It is not a JUnit test; run it like {@code JournalBenchmark} with the main
+ * class `academy.aicode.astrobookings.persistence.journal.ReplicationBenchmark`
+ * and arguments `bookingCount replicas` (default 200000 2). A smaller
+ * unreported round runs first to warm up the JIT.
+ */
+public final class ReplicationBenchmark {
+
+  private ReplicationBenchmark() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int replicas = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+    Path root = Files.createTempDirectory("replication-bench");
+
+    run(root.resolve("warmup"), count / 4, Math.max(1, replicas), false);
+    System.out.printf("%8s %12s %14s %14s %14s%n", "replicas", "writes/s", "max lag recs", "max lag ms",
+        "catch-up ms");
+    for (int n = 0; n <= replicas; n = n == 0 ? 1 : n * 2) {
+      run(root.resolve("r" + n), count, n, true);
+      if (n == replicas) {
+        break;
+      }
+    }
+    deleteRecursively(root);
+  }
+
+  private static void run(Path dir, int count, int replicaCount, boolean print)
+      throws IOException, InterruptedException {
+    try (JournalStorageBackend primary = new JournalStorageBackend(dir, FsyncPolicy.ASYNC, 2, 256 * 1024)) {
+      int port = primary.startReplication(0, 1_000_000).port();
+      List<ReplicaStorageBackend> replicas = new ArrayList<>();
+      for (int i = 0; i < replicaCount; i++) {
+        ReplicaStorageBackend replica = new ReplicaStorageBackend(new InetSocketAddress("localhost", port),
+            Duration.ofMillis(20));
+        replica.awaitLogOffset(primary.logOffset(), Duration.ofSeconds(30));
+        replicas.add(replica);
+      }
+
+      long[] maxLag = new long[2];
+      Thread sampler = new Thread(() -> {
+        while (!Thread.currentThread().isInterrupted()) {
+          for (ReplicaStorageBackend replica : replicas) {
+            maxLag[0] = Math.max(maxLag[0], replica.lagRecords());
+            maxLag[1] = Math.max(maxLag[1], replica.lagMillis());
+          }
+          try {
+            Thread.sleep(5);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      });
+      sampler.start();
+
+      long begin = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        Booking booking = new Booking();
+        booking.setFlightId("flight-" + (i % 100));
+        booking.setPassengerName("Passenger " + i);
+        booking.setPassengerDocument("DOC" + i);
+        booking.setFinalPrice(1000.0);
+        primary.bookings().save(booking);
+      }
+      long writeNanos = System.nanoTime() - begin;
+      long caughtUp = System.nanoTime();
+      for (ReplicaStorageBackend replica : replicas) {
+        if (!replica.awaitLogOffset(primary.logOffset(), Duration.ofMinutes(5))) {
+          throw new IllegalStateException("Replica did not catch up");
+        }
+      }
+      long catchUpMillis = (System.nanoTime() - caughtUp) / 1_000_000;
+      sampler.interrupt();
+      sampler.join();
+      for (ReplicaStorageBackend replica : replicas) {
+        replica.close();
+      }
+
+      if (print) {
+        System.out.printf("%8d %12.0f %14d %14d %14d%n", replicaCount, count / (writeNanos / 1e9), maxLag[0],
+            maxLag[1], catchUpMillis);
+      }
+    }
+  }
+
+  private static void deleteRecursively(Path dir) throws IOException {
+    try (var paths = Files.walk(dir)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+}
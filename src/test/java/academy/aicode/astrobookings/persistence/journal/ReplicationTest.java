@@ -0,0 +1,137 @@
+package academy.aicode.astrobookings.persistence.journal;
+
+import static academy.aicode.astrobookings.persistence.journal.JournalFixtures.booking;
+import static academy.aicode.astrobookings.persistence.journal.JournalFixtures.flight;
+import static academy.aicode.astrobookings.persistence.journal.JournalFixtures.rocket;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+class ReplicationTest {
+
+  private static final Duration WAIT = Duration.ofSeconds(10);
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void replica_copiesExistingState_thenAppliesLaterWritesInOrder() throws IOException {
+    try (JournalStorageBackend primary = open()) {
+      Rocket rocket = primary.rockets().save(rocket());
+      Flight flight = primary.flights().save(flight(rocket.getId()));
+      ReplicationServer server = primary.startReplication(0, 1000);
+
+      try (ReplicaStorageBackend replica = follow(server)) {
+        assertTrue(replica.awaitLogOffset(primary.logOffset(), WAIT));
+        assertEquals("Falcon", replica.rockets().findById(rocket.getId()).getName());
+
+        Booking booking = primary.bookings().save(booking(flight.getId()));
+        primary.flights().updateState(flight, FlightState.CONFIRMED);
+
+        assertTrue(replica.awaitLogOffset(primary.logOffset(), WAIT));
+        assertEquals(primary.logOffset(), replica.logOffset());
+        assertEquals("Ada", replica.bookings().findById(booking.getId()).getPassengerName());
+        assertEquals(1, replica.bookings().countByFlightId(flight.getId()));
+        assertEquals(FlightState.CONFIRMED, replica.flights().findById(flight.getId()).getState());
+        assertTrue(replica.isConnected());
+      }
+    }
+  }
+
+  @Test
+  void replica_afterPrimaryRestart_copiesTheNewStateAgain() throws IOException {
+    String flightId;
+    ReplicaStorageBackend replica;
+    int port;
+    try (JournalStorageBackend primary = open()) {
+      flightId = primary.flights().save(flight("rocket-1")).getId();
+      ReplicationServer server = primary.startReplication(0, 1000);
+      port = server.port();
+      replica = follow(server);
+      assertTrue(replica.awaitLogOffset(primary.logOffset(), WAIT));
+    }
+
+    try (replica; JournalStorageBackend primary = open()) {
+      primary.startReplication(port, 1000);
+      Booking booking = primary.bookings().save(booking(flightId));
+
+      assertTrue(replica.awaitLogOffset(primary.logOffset(), WAIT));
+      assertEquals(1, replica.bookings().countByFlightId(flightId));
+      assertEquals(booking.getPassengerName(), replica.bookings().findById(booking.getId()).getPassengerName());
+    }
+  }
+
+  @Test
+  void primary_afterRestartWithClockSteppedBack_stillHasReachedOffsetsGivenBefore() throws IOException {
+    Rocket rocket = rocket();
+    rocket.setId("rocket-1");
+    long token;
+    // Written by a run whose clock was an hour ahead of the next one
+    try (Journal journal = new Journal(dir, 0, FsyncPolicy.ALWAYS, 2, 64 * 1024, (type, payload) -> {
+    }, () -> System.currentTimeMillis() + 3_600_000)) {
+      journal.append(JournalStorageBackend.ROCKET, List.of(new JournalCodec().encode(rocket)), () -> {
+      });
+      token = journal.offset();
+    }
+
+    try (JournalStorageBackend primary = open()) {
+      assertTrue(primary.awaitLogOffset(token, Duration.ZERO));
+      primary.rockets().save(rocket());
+      assertEquals(token + 1, primary.logOffset());
+      assertEquals("Falcon", primary.rockets().findById("rocket-1").getName());
+    }
+  }
+
+  @Test
+  void replica_rejectsWrites_andTimesOutWaitingForUnknownOffsets() throws IOException {
+    try (JournalStorageBackend primary = open();
+        ReplicaStorageBackend replica = follow(primary.startReplication(0, 1000))) {
+      assertTrue(replica.awaitLogOffset(primary.logOffset(), WAIT));
+
+      assertThrows(UnsupportedOperationException.class, () -> replica.rockets().save(rocket()));
+      assertThrows(UnsupportedOperationException.class, () -> replica.bookings().save(booking("f")));
+      assertFalse(replica.awaitLogOffset(primary.logOffset() + 1, Duration.ofMillis(50)));
+    }
+  }
+
+  @Test
+  void replicationLog_readsAfterAnOffset_andReportsRecordsNoLongerRetained() throws InterruptedException {
+    ReplicationLog log = new ReplicationLog(4);
+    log.startAfter(100);
+    log.append(101, JournalStorageBackend.ROCKET, List.of(new byte[] { 1 }, new byte[] { 2 }, new byte[] { 3 }));
+
+    List<ReplicationLog.Entry> entries = log.read(101, 10, 0);
+    assertEquals(List.of(102L, 103L), entries.stream().map(ReplicationLog.Entry::offset).toList());
+    assertTrue(log.retainsAfter(100));
+    assertFalse(log.retainsAfter(99));
+
+    log.append(104, JournalStorageBackend.ROCKET, List.of(new byte[] { 4 }, new byte[] { 5 }));
+    assertNull(log.read(100, 10, 0));
+    assertEquals(1, log.read(104, 10, 0).size());
+    assertTrue(log.read(105, 10, 1).isEmpty());
+  }
+
+  private JournalStorageBackend open() throws IOException {
+    return new JournalStorageBackend(dir, FsyncPolicy.ASYNC, 2, 64 * 1024);
+  }
+
+  private static ReplicaStorageBackend follow(ReplicationServer server) {
+    return new ReplicaStorageBackend(new InetSocketAddress("localhost", server.port()), Duration.ofMillis(20));
+  }
+}
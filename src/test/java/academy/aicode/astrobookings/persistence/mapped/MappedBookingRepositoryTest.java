@@ -0,0 +1,109 @@
+package academy.aicode.astrobookings.persistence.mapped;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import academy.aicode.astrobookings.persistence.models.Booking;
+
+class MappedBookingRepositoryTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void findById_returnsAllFieldsIncludingNullsAndNonAsciiStrings() throws IOException {
+    try (MappedBookingRepository repository = open()) {
+      Booking booking = booking("flight-1", "Zoë Ñúñez 🚀");
+      booking.setFinalPrice(null);
+      booking.setPassengerDocument(null);
+      booking.setCreatedAt(Instant.parse("2030-01-01T10:00:00.123456789Z"));
+      repository.save(booking);
+
+      Booking found = repository.findById(booking.getId());
+
+      assertEquals("flight-1", found.getFlightId());
+      assertEquals("Zoë Ñúñez 🚀", found.getPassengerName());
+      assertNull(found.getPassengerDocument());
+      assertNull(found.getFinalPrice());
+      assertEquals(15, found.getDiscountPercent());
+      assertEquals(Instant.parse("2030-01-01T10:00:00.123456789Z"), found.getCreatedAt());
+    }
+  }
+
+  @Test
+  void save_beyondOneSegment_mapsNewSegments() throws IOException {
+    List<String> ids = new ArrayList<>();
+    try (MappedBookingRepository repository = open()) {
+      for (int i = 0; i < 100; i++) {
+        ids.add(repository.save(booking("flight-" + (i % 3), "Passenger " + i)).getId());
+      }
+
+      assertEquals(34, repository.countByFlightId("flight-0"));
+      assertEquals("Passenger 99", repository.findById(ids.get(99)).getPassengerName());
+    }
+  }
+
+  @Test
+  void reopen_rebuildsIndexes_andKeepsLatestVersionOfEachBooking() throws IOException {
+    List<String> ids = new ArrayList<>();
+    try (MappedBookingRepository repository = open()) {
+      for (int i = 0; i < 50; i++) {
+        ids.add(repository.save(booking("flight-" + (i % 5), "Passenger " + i)).getId());
+      }
+      Booking moved = booking("flight-9", "Moved");
+      moved.setId(ids.get(0));
+      repository.save(moved);
+    }
+
+    try (MappedBookingRepository repository = open()) {
+      assertEquals(9, repository.countByFlightId("flight-0"));
+      assertEquals(1, repository.countByFlightId("flight-9"));
+      assertEquals("Moved", repository.findById(ids.get(0)).getPassengerName());
+      assertEquals("Passenger 49", repository.findById(ids.get(49)).getPassengerName());
+
+      String added = repository.save(booking("flight-9", "After reopen")).getId();
+      assertEquals(2, repository.countByFlightId("flight-9"));
+      assertEquals("After reopen", repository.findById(added).getPassengerName());
+      assertEquals("Passenger 48", repository.findById(ids.get(48)).getPassengerName());
+    }
+  }
+
+  @Test
+  void save_whenStringDoesNotFitInSegment_throwsIllegalArgumentException() throws IOException {
+    try (MappedBookingRepository repository = open()) {
+      assertThrows(IllegalArgumentException.class, () -> repository.save(booking("flight-1", "x".repeat(600))));
+    }
+  }
+
+  @Test
+  void findById_whenClosed_throwsIllegalStateException() throws IOException {
+    MappedBookingRepository repository = open();
+    repository.close();
+
+    assertThrows(IllegalStateException.class, () -> repository.findById("any"));
+  }
+
+  private MappedBookingRepository open() throws IOException {
+    return new MappedBookingRepository(dir, 16, 512);
+  }
+
+  private static Booking booking(String flightId, String passengerName) {
+    Booking booking = new Booking();
+    booking.setFlightId(flightId);
+    booking.setPassengerName(passengerName);
+    booking.setPassengerDocument("DOC");
+    booking.setFinalPrice(850.0);
+    booking.setDiscountPercent(15);
+    return booking;
+  }
+}
@@ -0,0 +1,69 @@
+package academy.aicode.astrobookings.persistence.memory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class SurrogateKeysTest {
+
+  @Test
+  void key_assignsDenseKeysInFirstSeenOrder_andMapsBothWays() {
+    SurrogateKeys keys = new SurrogateKeys();
+
+    assertEquals(0, keys.key("a"));
+    assertEquals(1, keys.key("b"));
+    assertEquals(0, keys.key("a"));
+
+    assertEquals(1, keys.find("b"));
+    assertEquals(-1, keys.find("missing"));
+    assertEquals(-1, keys.find(null));
+    assertEquals("b", keys.id(1));
+    assertEquals(2, keys.size());
+  }
+
+  @Test
+  void key_whenCalledConcurrently_assignsEachIdOnce() {
+    SurrogateKeys keys = new SurrogateKeys();
+
+    IntStream.range(0, 20_000).parallel().forEach(i -> keys.key("id-" + (i % 10_000)));
+
+    assertEquals(10_000, keys.size());
+    for (int key = 0; key < 10_000; key++) {
+      assertEquals(key, keys.find(keys.id(key)));
+    }
+  }
+
+  @Test
+  void denseArray_acrossChunks_returnsNullForUnsetKeys() {
+    DenseArray<String> array = new DenseArray<>();
+    int far = 40 * DenseArray.CHUNK + 3;
+
+    array.set(far, "far");
+
+    assertEquals("far", array.get(far));
+    assertNull(array.get(far + 1));
+    assertNull(array.get(5));
+    assertEquals("far", array.getAndSet(far, "near"));
+  }
+
+  @Test
+  void denseBitSet_forEach_visitsKeysInAscendingOrder() {
+    DenseBitSet set = new DenseBitSet();
+    int far = 3 * DenseArray.CHUNK + 63;
+    set.add(far);
+    set.add(64);
+    set.add(0);
+    set.add(7);
+    set.remove(7);
+
+    List<Integer> visited = new ArrayList<>();
+    set.forEach(visited::add);
+
+    assertEquals(List.of(0, 64, far), visited);
+  }
+}
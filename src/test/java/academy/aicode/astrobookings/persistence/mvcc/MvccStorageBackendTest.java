@@ -0,0 +1,167 @@
+package academy.aicode.astrobookings.persistence.mvcc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import academy.aicode.astrobookings.persistence.ReadView;
+import academy.aicode.astrobookings.persistence.models.Booking;
+import academy.aicode.astrobookings.persistence.models.Flight;
+import academy.aicode.astrobookings.persistence.models.FlightState;
+
+class MvccStorageBackendTest {
+
+  private final MvccStorageBackend backend = new MvccStorageBackend();
+
+  @Test
+  void view_keepsSeeingTheDataOfItsStart_whileAnotherThreadWrites() throws Exception {
+    Flight flight = backend.flights().save(flight(FlightState.SCHEDULED));
+    backend.bookings().save(booking(flight.getId()));
+
+    ReadView view = backend.beginRead();
+    try {
+      CompletableFuture.runAsync(() -> {
+        backend.bookings().save(booking(flight.getId()));
+        backend.flights().updateState(backend.flights().findById(flight.getId()), FlightState.CONFIRMED);
+        backend.flights().save(flight(FlightState.SCHEDULED));
+      }).get();
+
+      assertEquals(1, backend.bookings().countByFlightId(flight.getId()));
+      assertEquals(1, backend.bookings().findByFlightId(flight.getId()).size());
+      assertEquals(FlightState.SCHEDULED, backend.flights().findById(flight.getId()).getState());
+      assertEquals(List.of(flight.getId()),
+          backend.flights().findByState(FlightState.SCHEDULED).stream().map(Flight::getId).toList());
+      assertTrue(backend.flights().findByState(FlightState.CONFIRMED).isEmpty());
+      assertEquals(1, backend.flights().findAll().size());
+    } finally {
+      view.close();
+    }
+
+    assertEquals(2, backend.bookings().countByFlightId(flight.getId()));
+    assertEquals(FlightState.CONFIRMED, backend.flights().findById(flight.getId()).getState());
+    assertEquals(2, backend.flights().findAll().size());
+  }
+
+  @Test
+  void updateState_fromAStaleView_doesNotOverwriteALaterState() throws Exception {
+    Flight flight = backend.flights().save(flight(FlightState.SCHEDULED));
+
+    ReadView view = backend.beginRead();
+    try {
+      Flight read = backend.flights().findById(flight.getId());
+      CompletableFuture.runAsync(() -> backend.flights().updateState(backend.flights().findById(flight.getId()),
+          FlightState.CANCELLED)).get();
+
+      backend.flights().updateState(read, FlightState.CONFIRMED);
+
+      assertEquals(FlightState.CONFIRMED, read.getState());
+    } finally {
+      view.close();
+    }
+
+    assertEquals(FlightState.CANCELLED, backend.flights().findById(flight.getId()).getState());
+  }
+
+  @Test
+  void updateState_fromAStaleView_doesNotMakeOtherViewsStale() throws Exception {
+    Flight flight = backend.flights().save(flight(FlightState.SCHEDULED));
+    Flight other = backend.flights().save(flight(FlightState.SCHEDULED));
+    CountDownLatch otherViewOpen = new CountDownLatch(1);
+    CountDownLatch staleUpdateDone = new CountDownLatch(1);
+
+    ReadView view = backend.beginRead();
+    try {
+      Flight read = backend.flights().findById(flight.getId());
+      CompletableFuture.runAsync(() -> backend.flights().updateState(backend.flights().findById(flight.getId()),
+          FlightState.CANCELLED)).get();
+      CompletableFuture<Void> otherView = CompletableFuture.runAsync(() -> {
+        ReadView later = backend.beginRead();
+        try {
+          Flight otherRead = backend.flights().findById(other.getId());
+          otherViewOpen.countDown();
+          staleUpdateDone.await(5, TimeUnit.SECONDS);
+          backend.flights().updateState(otherRead, FlightState.CONFIRMED);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          later.close();
+        }
+      });
+      assertTrue(otherViewOpen.await(5, TimeUnit.SECONDS));
+
+      backend.flights().updateState(read, FlightState.CONFIRMED);
+      staleUpdateDone.countDown();
+      otherView.get();
+    } finally {
+      view.close();
+    }
+
+    assertEquals(FlightState.CONFIRMED, backend.flights().findById(other.getId()).getState());
+  }
+
+  @Test
+  void versions_areTrimmedOnceNoViewCanSeeThem() throws Exception {
+    Flight flight = backend.flights().save(flight(FlightState.SCHEDULED));
+    ReadView view = backend.beginRead();
+    for (FlightState state : List.of(FlightState.CONFIRMED, FlightState.SOLD_OUT)) {
+      CompletableFuture.runAsync(() -> backend.flights().updateState(backend.flights().findById(flight.getId()),
+          state)).get();
+    }
+    assertEquals(2, backend.retainedVersions());
+    assertEquals(FlightState.SCHEDULED, backend.flights().findById(flight.getId()).getState());
+
+    view.close();
+    backend.flights().save(flight(FlightState.SCHEDULED));
+
+    assertEquals(0, backend.openViews());
+    assertEquals(0, backend.retainedVersions());
+    assertTrue(backend.flights().findByState(FlightState.CONFIRMED).isEmpty());
+    assertEquals(FlightState.SOLD_OUT, backend.flights().findById(flight.getId()).getState());
+  }
+
+  @Test
+  void nestedViews_shareTheOuterOne() {
+    Flight flight = backend.flights().save(flight(FlightState.SCHEDULED));
+    ReadView outer = backend.beginRead();
+    try {
+      ReadView inner = backend.beginRead();
+      try {
+        assertEquals(1, backend.openViews());
+      } finally {
+        inner.close();
+      }
+      assertEquals(1, backend.openViews());
+      assertNull(backend.bookings().findById("missing"));
+      assertEquals(flight.getId(), backend.flights().findById(flight.getId()).getId());
+    } finally {
+      outer.close();
+    }
+    assertEquals(0, backend.openViews());
+  }
+
+  private static Flight flight(FlightState state) {
+    Flight flight = new Flight();
+    flight.setRocketId("rocket-1");
+    flight.setLaunchDateTime(Instant.parse("2030-01-01T00:00:00Z"));
+    flight.setBasePrice(1000.0);
+    flight.setMinimumPassengers(1);
+    flight.setState(state);
+    return flight;
+  }
+
+  private static Booking booking(String flightId) {
+    Booking booking = new Booking();
+    booking.setFlightId(flightId);
+    booking.setPassengerName("Ada");
+    booking.setPassengerDocument("D1");
+    return booking;
+  }
+}
@@ -2,6 +2,7 @@ package academy.aicode.astrobookings.presentation;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
@@ -9,7 +10,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
@@ -35,12 +35,12 @@ import com.sun.net.httpserver.HttpServer;
 import academy.aicode.astrobookings.business.BookingService;
 import academy.aicode.astrobookings.business.FlightService;
 import academy.aicode.astrobookings.business.RocketService;
-import academy.aicode.astrobookings.persistence.BookingRepository;
-import academy.aicode.astrobookings.persistence.FlightRepository;
-import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackends;
 import academy.aicode.astrobookings.persistence.models.Booking;
 import academy.aicode.astrobookings.persistence.models.Flight;
 import academy.aicode.astrobookings.persistence.models.Rocket;
+import academy.aicode.astrobookings.presentation.dto.BookingBatchItemResponse;
+import academy.aicode.astrobookings.presentation.dto.BookingLookupItemResponse;
 import academy.aicode.astrobookings.presentation.dto.BookingResponse;
 import academy.aicode.astrobookings.presentation.dto.CreateBookingRequest;
 import academy.aicode.astrobookings.presentation.dto.CreateFlightRequest;
@@ -52,14 +52,14 @@ class BookingHandlerTest {
   private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
       .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 
+  private IdempotencyStore idempotency;
   private BookingHandler handler;
 
   @BeforeEach
   void setUp() {
-    clearBookingRepository();
-    clearFlightRepository();
-    clearRocketRepository();
-    handler = new BookingHandler();
+    StorageBackends.use(StorageBackends.create(StorageBackends.DEFAULT));
+    idempotency = IdempotencyStore.fromProperties();
+    handler = new BookingHandler(idempotency);
   }
 
   @Test
@@ -130,6 +130,78 @@ class BookingHandlerTest {
     assertEquals("CONFLICT", response.getCode());
   }
 
+  @Test
+  void post_whenRetriedWithSameIdempotencyKey_replaysFirstResponse_withoutCreatingAgain() throws IOException {
+    Rocket rocket = seedRocket(5);
+    Flight flight = createFutureFlight(rocket.getId(), 2, 1000.0);
+    CreateBookingRequest req = new CreateBookingRequest();
+    req.setFlightId(flight.getId());
+    req.setPassengerName("Ada Lovelace");
+    req.setPassengerDocument("P123456");
+    String json = objectMapper.writeValueAsString(req);
+
+    FakeHttpExchange first = FakeHttpExchange.create("POST", URI.create("/bookings"), "/bookings", json);
+    first.getRequestHeaders().set(IdempotencyStore.HEADER, "retry-1");
+    handler.handle(first);
+    FakeHttpExchange retry = FakeHttpExchange.create("POST", URI.create("/bookings"), "/bookings", json);
+    retry.getRequestHeaders().set(IdempotencyStore.HEADER, "retry-1");
+    handler.handle(retry);
+    FakeHttpExchange reused = FakeHttpExchange.create("POST", URI.create("/bookings"), "/bookings",
+        json.replace("Ada Lovelace", "Grace Hopper"));
+    reused.getRequestHeaders().set(IdempotencyStore.HEADER, "retry-1");
+    handler.handle(reused);
+
+    assertEquals(201, first.getStatusCode());
+    assertEquals("false", first.getResponseHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    assertEquals(201, retry.getStatusCode());
+    assertEquals("true", retry.getResponseHeaders().getFirst(IdempotencyStore.REPLAYED_HEADER));
+    assertEquals(first.getResponseBodyAsString(), retry.getResponseBodyAsString());
+    assertEquals(422, reused.getStatusCode());
+    assertEquals(1, new BookingService().findByFlightId(flight.getId()).size());
+
+    FakeHttpExchange stats = FakeHttpExchange.create("GET", URI.create("/metrics/idempotency"), "/metrics", null);
+    new MetricsHandler(idempotency).handle(stats);
+    assertEquals(200, stats.getStatusCode());
+    assertEquals(0.5, objectMapper.readTree(stats.getResponseBodyAsString()).get("hitRate").asDouble());
+  }
+
+  @Test
+  void postBatch_whenItemsAreMixed_returns200_withPerItemResults() throws IOException {
+    Rocket rocket = seedRocket(1);
+    Flight flight = createFutureFlight(rocket.getId(), 1, 1000.0);
+
+    String json = "[{\"flightId\":\"" + flight.getId() + "\",\"passengerName\":\"Ada\",\"passengerDocument\":\"P1\"},"
+        + "{\"flightId\":\"" + flight.getId() + "\",\"passengerName\":\"Grace\",\"passengerDocument\":\"P2\"},"
+        + "{\"flightId\":\"missing\",\"passengerName\":\"Mary\",\"passengerDocument\":\"P3\"}]";
+    FakeHttpExchange exchange = FakeHttpExchange.create("POST", URI.create("/bookings/batch"), "/bookings", json);
+
+    handler.handle(exchange);
+
+    assertEquals(200, exchange.getStatusCode());
+    BookingBatchItemResponse[] items = objectMapper.readValue(exchange.getResponseBodyAsString(),
+        BookingBatchItemResponse[].class);
+    assertEquals(3, items.length);
+    assertEquals(201, items[0].getStatus());
+    assertEquals(flight.getId(), items[0].getBooking().getFlightId());
+    assertEquals(409, items[1].getStatus());
+    assertEquals("CONFLICT", items[1].getError().getCode());
+    assertEquals(2, items[2].getIndex());
+    assertEquals(400, items[2].getStatus());
+    assertEquals("INVALID_INPUT", items[2].getError().getCode());
+  }
+
+  @Test
+  void postBatch_whenBodyIsNotAnArray_returns400_invalidJson() throws IOException {
+    FakeHttpExchange exchange = FakeHttpExchange.create("POST", URI.create("/bookings/batch"), "/bookings",
+        "{\"flightId\":\"f-1\"}");
+
+    handler.handle(exchange);
+
+    assertEquals(400, exchange.getStatusCode());
+    ErrorResponse response = objectMapper.readValue(exchange.getResponseBodyAsString(), ErrorResponse.class);
+    assertEquals("INVALID_JSON", response.getCode());
+  }
+
   @Test
   void get_whenOmittingFlightIdQuery_returns400_invalidQuery() throws IOException {
     FakeHttpExchange exchange = FakeHttpExchange.create("GET", URI.create("/bookings"), "/bookings", null);
@@ -195,6 +267,72 @@ class BookingHandlerTest {
     assertEquals(flight.getId(), response.getFlightId());
   }
 
+  @Test
+  void get_whenMultiGetByIds_returns200_withItemsInRequestOrder_andNotFoundMarkers() throws IOException {
+    Rocket rocket = seedRocket(5);
+    Flight flight = createFutureFlight(rocket.getId(), 1, 1000.0);
+
+    BookingService seed = new BookingService();
+    CreateBookingRequest req = new CreateBookingRequest();
+    req.setFlightId(flight.getId());
+    req.setPassengerName("Ada");
+    req.setPassengerDocument("P1");
+    Booking created = seed.create(req);
+
+    FakeHttpExchange exchange = FakeHttpExchange.create("GET",
+        URI.create("/bookings?ids=" + created.getId() + ",missing-id"), "/bookings", null);
+
+    handler.handle(exchange);
+
+    assertEquals(200, exchange.getStatusCode());
+    BookingLookupItemResponse[] items = objectMapper.readValue(exchange.getResponseBodyAsString(),
+        BookingLookupItemResponse[].class);
+    assertEquals(2, items.length);
+    assertEquals(200, items[0].getStatus());
+    assertEquals(created.getId(), items[0].getBooking().getId());
+    assertEquals("missing-id", items[1].getId());
+    assertEquals(404, items[1].getStatus());
+    assertEquals("NOT_FOUND", items[1].getError().getCode());
+  }
+
+  @Test
+  void get_whenListingByPassengerDocument_returnsPages_withNextOffsetHeader() throws IOException {
+    Rocket rocket = seedRocket(5);
+    Flight flight = createFutureFlight(rocket.getId(), 1, 1000.0);
+
+    BookingService seed = new BookingService();
+    for (String document : new String[] { "P1", "P1", "P2", "P1" }) {
+      CreateBookingRequest req = new CreateBookingRequest();
+      req.setFlightId(flight.getId());
+      req.setPassengerName("Ada");
+      req.setPassengerDocument(document);
+      seed.create(req);
+    }
+
+    FakeHttpExchange first = FakeHttpExchange.create("GET",
+        URI.create("/bookings?passengerDocument=P1&limit=2"), "/bookings", null);
+    handler.handle(first);
+    FakeHttpExchange last = FakeHttpExchange.create("GET",
+        URI.create("/bookings?passengerDocument=P1&offset=2&limit=2"), "/bookings", null);
+    handler.handle(last);
+    FakeHttpExchange invalid = FakeHttpExchange.create("GET",
+        URI.create("/bookings?passengerDocument=P1&limit=501"), "/bookings", null);
+    handler.handle(invalid);
+
+    assertEquals(200, first.getStatusCode());
+    BookingResponse[] firstPage = objectMapper.readValue(first.getResponseBodyAsString(), BookingResponse[].class);
+    assertEquals(2, firstPage.length);
+    assertEquals("2", first.getResponseHeaders().getFirst(BookingHandler.NEXT_OFFSET_HEADER));
+    assertEquals(200, last.getStatusCode());
+    BookingResponse[] lastPage = objectMapper.readValue(last.getResponseBodyAsString(), BookingResponse[].class);
+    assertEquals(1, lastPage.length);
+    assertEquals("P1", lastPage[0].getPassengerDocument());
+    assertNull(last.getResponseHeaders().getFirst(BookingHandler.NEXT_OFFSET_HEADER));
+    assertEquals(400, invalid.getStatusCode());
+    assertEquals("INVALID_QUERY", objectMapper.readValue(invalid.getResponseBodyAsString(), ErrorResponse.class)
+        .getCode());
+  }
+
   @Test
   void get_whenIdDoesNotExist_returns404_notFound() throws IOException {
     FakeHttpExchange exchange = FakeHttpExchange.create("GET", URI.create("/bookings/missing-id"), "/bookings",
@@ -235,41 +373,8 @@ class BookingHandlerTest {
     return flightService.create(flightRequest);
   }
 
-  private static void clearRocketRepository() {
-    try {
-      Field field = RocketRepository.class.getDeclaredField("rockets");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Rocket> rockets = (Map<String, Rocket>) field.get(null);
-      rockets.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
 
-  private static void clearFlightRepository() {
-    try {
-      Field field = FlightRepository.class.getDeclaredField("flights");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Flight> flights = (Map<String, Flight>) field.get(null);
-      flights.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
 
-  private static void clearBookingRepository() {
-    try {
-      Field field = BookingRepository.class.getDeclaredField("bookings");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Booking> bookings = (Map<String, Booking>) field.get(null);
-      bookings.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
 
   private static final class FakeHttpExchange extends HttpExchange {
 
@@ -0,0 +1,251 @@
+package academy.aicode.astrobookings.presentation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpServer;
+
+import academy.aicode.astrobookings.cluster.Cluster;
+import academy.aicode.astrobookings.cluster.ClusterNode;
+import academy.aicode.astrobookings.cluster.ShardedStorageBackend;
+import academy.aicode.astrobookings.persistence.StorageBackends;
+
+class ClusterHandlerTest {
+
+  private static final String SECRET = "cluster-test-secret";
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final List<HttpServer> servers = new ArrayList<>();
+  private final List<ClusterNode> nodes = new ArrayList<>();
+  private final List<Cluster> clusters = new ArrayList<>();
+  private final List<ShardedStorageBackend> backends = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    for (int i = 0; i < 4; i++) {
+      servers.add(HttpServer.create(new InetSocketAddress("localhost", 0), 0));
+      nodes.add(new ClusterNode("n" + i, URI.create("http://localhost:" + servers.get(i).getAddress().getPort())));
+    }
+    // n3 is started with every node but has to join the other three, which do not know it yet
+    for (int i = 0; i < servers.size(); i++) {
+      Cluster cluster = new Cluster(i == 3 ? nodes : nodes.subList(0, 3), "n" + i, i == 3, 64,
+          Duration.ofSeconds(5), SECRET);
+      ShardedStorageBackend backend = new ShardedStorageBackend(cluster,
+          StorageBackends.create(StorageBackends.DEFAULT));
+      // Services take their repositories from the current backend when created
+      StorageBackends.use(backend);
+      Filter sharding = new ShardingFilter(cluster);
+      HttpServer server = servers.get(i);
+      server.createContext("/rockets", new RocketHandler()).getFilters().add(sharding);
+      server.createContext("/flights", new FlightHandler()).getFilters().add(sharding);
+      server.createContext("/bookings", new BookingHandler()).getFilters().add(sharding);
+      server.createContext("/cluster", new ClusterHandler(cluster, backend.migrator()));
+      server.setExecutor(Executors.newCachedThreadPool());
+      server.start();
+      clusters.add(cluster);
+      backends.add(backend);
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    servers.forEach(server -> server.stop(0));
+  }
+
+  @Test
+  void migrate_movesTheFlightAndItsBookings_andEveryNodeFindsThem() throws Exception {
+    String rocketId = create(0, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+    String flightId = create(0, "/flights", flight(rocketId, 30));
+    String bookingId = create(1, "/bookings", booking(flightId, "D0"));
+
+    assertEquals(1, backends.get(0).migrator().migrate(flightId, nodes.get(2)));
+
+    assertNull(backends.get(0).flights().findById(flightId));
+    assertEquals(1, backends.get(2).bookings().countByFlightId(flightId));
+    for (int node = 0; node < 3; node++) {
+      assertEquals(200, get(node, "/flights/" + flightId).statusCode());
+      assertEquals(200, get(node, "/bookings/" + bookingId).statusCode());
+      assertEquals(1, objectMapper.readTree(get(node, "/bookings?flightId=" + flightId).body()).size());
+    }
+    create(0, "/bookings", booking(flightId, "D1"));
+    assertEquals(2, backends.get(2).bookings().countByFlightId(flightId));
+    assertEquals(1, objectMapper.readTree(get(1, "/flights").body()).size());
+  }
+
+  @Test
+  void migrate_whileBookingsArrive_losesNoBooking() throws Exception {
+    List<String> flights = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      String rocketId = create(0, "/rockets", "{\"name\":\"Falcon\",\"capacity\":10}");
+      flights.add(create(0, "/flights", flight(rocketId, 30)));
+    }
+    AtomicBoolean done = new AtomicBoolean();
+    ExecutorService pool = Executors.newFixedThreadPool(flights.size() + 1);
+    try {
+      Future<?> mover = pool.submit(() -> {
+        int round = 0;
+        while (!done.get()) {
+          for (String flightId : flights) {
+            int from = round % 2 == 0 ? 0 : 1;
+            backends.get(from).migrator().migrate(flightId, nodes.get(1 - from));
+          }
+          round++;
+        }
+        return null;
+      });
+      List<Future<Integer>> booked = new ArrayList<>();
+      for (String flightId : flights) {
+        booked.add(pool.submit(() -> {
+          int created = 0;
+          for (int seat = 0; seat < 10; seat++) {
+            HttpResponse<String> response = post(seat % 3, "/bookings", booking(flightId, flightId + "-" + seat));
+            assertEquals(201, response.statusCode(), response.body());
+            created++;
+          }
+          return created;
+        }));
+      }
+      for (int i = 0; i < flights.size(); i++) {
+        int created = booked.get(i).get();
+        for (int node = 0; node < 3; node++) {
+          JsonNode bookings = objectMapper.readTree(get(node, "/bookings?flightId=" + flights.get(i)).body());
+          assertEquals(created, bookings.size());
+        }
+      }
+      done.set(true);
+      mover.get();
+    } finally {
+      done.set(true);
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  void migrate_toANodeThatIsDown_keepsTheFlight() throws Exception {
+    String rocketId = create(0, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+    String flightId = create(0, "/flights", flight(rocketId, 30));
+    servers.get(1).stop(0);
+
+    assertThrows(IOException.class, () -> backends.get(0).migrator().migrate(flightId, nodes.get(1)));
+
+    assertEquals(200, get(0, "/flights/" + flightId).statusCode());
+    assertEquals(201, post(0, "/bookings", booking(flightId, "D0")).statusCode());
+  }
+
+  @Test
+  void joinAndRebalance_spreadFlightsEvenly_andKeepEveryKeyReachable() throws Exception {
+    List<String> flights = new ArrayList<>();
+    List<String> bookings = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      int node = i % 3;
+      String rocketId = create(node, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+      String flightId = create(node, "/flights", flight(rocketId, 30 + i));
+      flights.add(flightId);
+      bookings.add(create(node, "/bookings", booking(flightId, "D" + i)));
+    }
+
+    HttpResponse<String> joined = post(1, "/cluster/nodes",
+        "{\"name\":\"n3\",\"uri\":\"" + nodes.get(3).uri() + "\"}");
+    assertEquals(200, joined.statusCode(), joined.body());
+    assertEquals(4, objectMapper.readTree(joined.body()).get("nodes").size());
+    assertTrue(clusters.get(3).isMember());
+
+    HttpResponse<String> rebalanced = post(2, "/cluster/rebalance", "");
+    assertEquals(200, rebalanced.statusCode(), rebalanced.body());
+    JsonNode report = objectMapper.readTree(rebalanced.body());
+    assertEquals(3, report.get("flights").asInt());
+    assertEquals(3, report.get("bookings").asInt());
+    report.get("after").forEach(count -> assertEquals(3, count.asInt()));
+
+    for (int node = 0; node < 4; node++) {
+      for (int i = 0; i < flights.size(); i++) {
+        assertEquals(200, get(node, "/flights/" + flights.get(i)).statusCode());
+        assertEquals(200, get(node, "/bookings/" + bookings.get(i)).statusCode());
+      }
+      assertEquals(12, objectMapper.readTree(get(node, "/flights").body()).size());
+    }
+    String rocketId = create(3, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+    String flightId = create(3, "/flights", flight(rocketId, 60));
+    assertEquals(201, post(0, "/bookings", booking(flightId, "D99")).statusCode());
+    assertEquals(1, backends.get(3).bookings().countByFlightId(flightId));
+  }
+
+  @Test
+  void join_ofAMember_isAConflict() throws Exception {
+    HttpResponse<String> response = post(0, "/cluster/nodes",
+        "{\"name\":\"n1\",\"uri\":\"" + nodes.get(1).uri() + "\"}");
+
+    assertEquals(409, response.statusCode());
+  }
+
+  @Test
+  void callsBetweenNodes_withoutTheClusterSecret_areForbidden() throws Exception {
+    HttpResponse<String> pointers = post(0, "/cluster/pointers", "{\"node\":\"n1\",\"ids\":[\"x\"]}");
+    HttpResponse<String> join = client.send(HttpRequest.newBuilder(uri(0, "/cluster/join/prepare"))
+        .header("Content-Type", "application/json")
+        .header(Cluster.FORWARDED_HEADER, "n1")
+        .header(Cluster.SECRET_HEADER, "guess")
+        .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"n9\",\"uri\":\"http://localhost:1\"}")).build(),
+        HttpResponse.BodyHandlers.ofString());
+
+    assertEquals(403, pointers.statusCode());
+    assertTrue(pointers.body().contains("NOT_A_CLUSTER_NODE"));
+    assertEquals(403, join.statusCode());
+    assertEquals(200, get(0, "/cluster").statusCode());
+  }
+
+  private static String flight(String rocketId, int daysAhead) {
+    return "{\"rocketId\":\"" + rocketId + "\",\"launchDateTime\":\""
+        + Instant.now().plus(Duration.ofDays(daysAhead)) + "\",\"basePrice\":100.0,\"minimumPassengers\":1}";
+  }
+
+  private static String booking(String flightId, String document) {
+    return "{\"flightId\":\"" + flightId + "\",\"passengerName\":\"Ada\",\"passengerDocument\":\"" + document
+        + "\"}";
+  }
+
+  private String create(int node, String path, String json) throws Exception {
+    HttpResponse<String> response = post(node, path, json);
+    assertEquals(201, response.statusCode(), response.body());
+    return objectMapper.readTree(response.body()).get("id").asText();
+  }
+
+  private HttpResponse<String> post(int node, String path, String json) throws Exception {
+    return client.send(HttpRequest.newBuilder(uri(node, path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(json)).build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> get(int node, String path) throws Exception {
+    return client.send(HttpRequest.newBuilder(uri(node, path)).build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private URI uri(int node, String path) {
+    return URI.create("http://localhost:" + servers.get(node).getAddress().getPort() + path);
+  }
+}
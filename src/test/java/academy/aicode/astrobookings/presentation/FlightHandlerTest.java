@@ -9,7 +9,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
@@ -35,8 +34,7 @@ import com.sun.net.httpserver.HttpServer;
 import academy.aicode.astrobookings.business.FlightService;
 import academy.aicode.astrobookings.business.RocketService;
 import academy.aicode.astrobookings.persistence.BookingRepository;
-import academy.aicode.astrobookings.persistence.FlightRepository;
-import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackends;
 import academy.aicode.astrobookings.persistence.models.Booking;
 import academy.aicode.astrobookings.persistence.models.Flight;
 import academy.aicode.astrobookings.persistence.models.FlightState;
@@ -44,7 +42,9 @@ import academy.aicode.astrobookings.persistence.models.Rocket;
 import academy.aicode.astrobookings.presentation.dto.CreateFlightRequest;
 import academy.aicode.astrobookings.presentation.dto.CreateRocketRequest;
 import academy.aicode.astrobookings.presentation.dto.ErrorResponse;
+import academy.aicode.astrobookings.presentation.dto.FlightLookupItemResponse;
 import academy.aicode.astrobookings.presentation.dto.FlightResponse;
+import academy.aicode.astrobookings.presentation.dto.ImportResultResponse;
 
 class FlightHandlerTest {
 
@@ -55,9 +55,7 @@ class FlightHandlerTest {
 
   @BeforeEach
   void setUp() {
-    clearFlightRepository();
-    clearBookingRepository();
-    clearRocketRepository();
+    StorageBackends.use(StorageBackends.create(StorageBackends.DEFAULT));
     handler = new FlightHandler();
   }
 
@@ -133,7 +131,7 @@ class FlightHandlerTest {
     pastFlight.setBasePrice(1000.0);
     pastFlight.setMinimumPassengers(1);
     pastFlight.setState(FlightState.SCHEDULED);
-    new FlightRepository().save(pastFlight);
+    StorageBackends.current().flights().save(pastFlight);
 
     FakeHttpExchange exchange = FakeHttpExchange.create("GET", URI.create("/flights"), "/flights", null);
 
@@ -169,6 +167,44 @@ class FlightHandlerTest {
     assertEquals(FlightState.CONFIRMED, responses[0].getState());
   }
 
+  @Test
+  void get_whenLaunchWindowIsGiven_returnsFlightsInWindowOrderedByLaunch() throws IOException {
+    Rocket rocket = seedRocket(10);
+    Instant base = Instant.now().plusSeconds(30 * 24 * 3600);
+
+    FlightService seed = new FlightService();
+    Flight[] created = new Flight[3];
+    for (int i = 2; i >= 0; i--) {
+      CreateFlightRequest req = new CreateFlightRequest();
+      req.setRocketId(rocket.getId());
+      req.setLaunchDateTime(base.plusSeconds(i * 3600L));
+      req.setBasePrice(1000.0);
+      req.setMinimumPassengers(1);
+      created[i] = seed.create(req);
+    }
+
+    URI uri = URI.create("/flights?from=" + base + "&to=" + base.plusSeconds(2 * 3600));
+    FakeHttpExchange exchange = FakeHttpExchange.create("GET", uri, "/flights", null);
+    handler.handle(exchange);
+
+    assertEquals(200, exchange.getStatusCode());
+    FlightResponse[] responses = objectMapper.readValue(exchange.getResponseBodyAsString(), FlightResponse[].class);
+    assertEquals(2, responses.length);
+    assertEquals(created[0].getId(), responses[0].getId());
+    assertEquals(created[1].getId(), responses[1].getId());
+  }
+
+  @Test
+  void get_whenLaunchWindowIsInvalid_returns400_invalidQuery() throws IOException {
+    FakeHttpExchange exchange = FakeHttpExchange.create("GET", URI.create("/flights?from=tomorrow"), "/flights",
+        null);
+    handler.handle(exchange);
+
+    assertEquals(400, exchange.getStatusCode());
+    ErrorResponse response = objectMapper.readValue(exchange.getResponseBodyAsString(), ErrorResponse.class);
+    assertEquals("INVALID_QUERY", response.getCode());
+  }
+
   @Test
   void get_whenStateQueryIsInvalid_returns400_invalidQuery() throws IOException {
     FakeHttpExchange exchange = FakeHttpExchange.create("GET", URI.create("/flights?state=BAD"), "/flights", null);
@@ -213,6 +249,54 @@ class FlightHandlerTest {
     assertEquals("NOT_FOUND", response.getCode());
   }
 
+  @Test
+  void get_whenMultiGetByIds_returns200_withItemsInRequestOrder_andNotFoundMarkers() throws IOException {
+    Rocket rocket = seedRocket(10);
+
+    FlightService seed = new FlightService();
+    CreateFlightRequest req = new CreateFlightRequest();
+    req.setRocketId(rocket.getId());
+    req.setLaunchDateTime(Instant.now().plusSeconds(3600));
+    req.setBasePrice(1000.0);
+    req.setMinimumPassengers(1);
+    Flight saved = seed.create(req);
+
+    FakeHttpExchange exchange = FakeHttpExchange.create("GET",
+        URI.create("/flights?ids=missing-id," + saved.getId()), "/flights", null);
+
+    handler.handle(exchange);
+
+    assertEquals(200, exchange.getStatusCode());
+    FlightLookupItemResponse[] items = objectMapper.readValue(exchange.getResponseBodyAsString(),
+        FlightLookupItemResponse[].class);
+    assertEquals(2, items.length);
+    assertEquals("missing-id", items[0].getId());
+    assertEquals(404, items[0].getStatus());
+    assertEquals("NOT_FOUND", items[0].getError().getCode());
+    assertEquals(200, items[1].getStatus());
+    assertEquals(saved.getId(), items[1].getFlight().getId());
+  }
+
+  @Test
+  void postImport_whenPayloadIsValid_returns200_withAcceptedAndRejectedCounts() throws IOException {
+    Rocket rocket = seedRocket(10);
+    String launch = Instant.now().plusSeconds(3600).toString();
+    String json = "[{\"rocketId\":\"" + rocket.getId() + "\",\"launchDateTime\":\"" + launch
+        + "\",\"basePrice\":1000.0,\"minimumPassengers\":1},"
+        + "{\"rocketId\":\"missing\",\"launchDateTime\":\"" + launch
+        + "\",\"basePrice\":1000.0,\"minimumPassengers\":1}]";
+    FakeHttpExchange exchange = FakeHttpExchange.create("POST", URI.create("/flights/import"), "/flights", json);
+
+    handler.handle(exchange);
+
+    assertEquals(200, exchange.getStatusCode());
+    ImportResultResponse response = objectMapper.readValue(exchange.getResponseBodyAsString(),
+        ImportResultResponse.class);
+    assertEquals(1, response.getAccepted());
+    assertEquals(1, response.getRejected());
+    assertEquals("1", response.getErrors().get(0).getDetails().get("index"));
+  }
+
   @Test
   void unsupportedMethod_returns405() throws IOException {
     FakeHttpExchange exchange = FakeHttpExchange.create("DELETE", URI.create("/flights"), "/flights", null);
@@ -277,7 +361,7 @@ class FlightHandlerTest {
     flight.setBasePrice(1000.0);
     flight.setMinimumPassengers(1);
     flight.setState(FlightState.SCHEDULED);
-    Flight saved = new FlightRepository().save(flight);
+    Flight saved = StorageBackends.current().flights().save(flight);
 
     FakeHttpExchange exchange = FakeHttpExchange.create("POST", URI.create("/flights/" + saved.getId() + "/cancel"),
         "/flights", null);
@@ -309,7 +393,7 @@ class FlightHandlerTest {
     pastCancelled.setBasePrice(1000.0);
     pastCancelled.setMinimumPassengers(1);
     pastCancelled.setState(FlightState.CANCELLED);
-    new FlightRepository().save(pastCancelled);
+    StorageBackends.current().flights().save(pastCancelled);
 
     FakeHttpExchange exchange = FakeHttpExchange.create("GET", URI.create("/flights?state=CANCELLED"), "/flights",
         null);
@@ -342,7 +426,7 @@ class FlightHandlerTest {
   }
 
   private static void saveBookingForFlight(String flightId) {
-    BookingRepository repo = new BookingRepository();
+    BookingRepository repo = StorageBackends.current().bookings();
     Booking booking = new Booking();
     booking.setFlightId(flightId);
     booking.setPassengerName("Ada");
@@ -351,41 +435,8 @@ class FlightHandlerTest {
     repo.save(booking);
   }
 
-  private static void clearRocketRepository() {
-    try {
-      Field field = RocketRepository.class.getDeclaredField("rockets");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Rocket> rockets = (Map<String, Rocket>) field.get(null);
-      rockets.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
 
-  private static void clearFlightRepository() {
-    try {
-      Field field = FlightRepository.class.getDeclaredField("flights");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Flight> flights = (Map<String, Flight>) field.get(null);
-      flights.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
 
-  private static void clearBookingRepository() {
-    try {
-      Field field = BookingRepository.class.getDeclaredField("bookings");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Booking> bookings = (Map<String, Booking>) field.get(null);
-      bookings.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-  }
 
   private static final class FakeHttpExchange extends HttpExchange {
 
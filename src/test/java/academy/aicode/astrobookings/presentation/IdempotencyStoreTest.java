@@ -0,0 +1,149 @@
+package academy.aicode.astrobookings.presentation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class IdempotencyStoreTest {
+
+  private static final byte[] BODY = IdempotencyStore.fingerprint("{}");
+
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicInteger runs = new AtomicInteger();
+
+  private IdempotencyStore.Response run() {
+    return new IdempotencyStore.Response(201, "{\"run\":" + runs.incrementAndGet() + "}");
+  }
+
+  @Test
+  void execute_whenDuplicatesArriveWhileRunning_runsOnce_andTheyWaitForItsResponse() throws Exception {
+    IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(1), 100, 10_000);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      Future<IdempotencyStore.Outcome> first = pool.submit(() -> store.execute("k", BODY, () -> {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return run();
+      }));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+      List<Future<IdempotencyStore.Outcome>> duplicates = new ArrayList<>();
+      for (int i = 0; i < 7; i++) {
+        duplicates.add(pool.submit(() -> store.execute("k", BODY, this::run)));
+      }
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (store.stats().waits() < 7 && System.nanoTime() < deadline) {
+        Thread.sleep(5);
+      }
+      release.countDown();
+
+      assertFalse(first.get().replayed());
+      for (Future<IdempotencyStore.Outcome> duplicate : duplicates) {
+        assertTrue(duplicate.get().replayed());
+        assertEquals("{\"run\":1}", duplicate.get().response().body());
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    assertEquals(1, runs.get());
+    assertEquals(7, store.stats().waits());
+    assertEquals(7.0 / 8, store.stats().hitRate());
+  }
+
+  @Test
+  void execute_whenTheRunningRequestOutlastsTheWait_givesUp_andLeavesItRunning() throws Exception {
+    IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(1), 100, 10_000, Duration.ofMillis(50));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      Future<IdempotencyStore.Outcome> first = pool.submit(() -> store.execute("k", BODY, () -> {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return run();
+      }));
+      assertTrue(started.await(5, TimeUnit.SECONDS));
+
+      assertThrows(IdempotencyStore.StillRunningException.class, () -> store.execute("k", BODY, this::run));
+      assertEquals(1, store.stats().timeouts());
+
+      release.countDown();
+      assertFalse(first.get().replayed());
+      assertTrue(store.execute("k", BODY, this::run).replayed());
+    } finally {
+      pool.shutdownNow();
+    }
+    assertEquals(1, runs.get());
+  }
+
+  @Test
+  void execute_whenResponseExpired_runsAgain() {
+    IdempotencyStore store = new IdempotencyStore(Duration.ofSeconds(10), 100, 10_000, now::get);
+    store.execute("k", BODY, this::run);
+
+    now.addAndGet(Duration.ofSeconds(9).toNanos());
+    assertTrue(store.execute("k", BODY, this::run).replayed());
+    now.addAndGet(Duration.ofSeconds(1).toNanos());
+    assertFalse(store.execute("k", BODY, this::run).replayed());
+
+    assertEquals(2, runs.get());
+    assertEquals(1, store.stats().expired());
+  }
+
+  @Test
+  void execute_whenOverTheCaps_evictsOldestResponses() {
+    IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(1), 3, 40, now::get);
+    for (int i = 0; i < 5; i++) {
+      store.execute("k" + i, BODY, this::run);
+    }
+
+    // Each body is 9 chars: 4 fit in 40, but only 3 keys are kept
+    assertEquals(3, store.stats().entries());
+    assertEquals(27, store.stats().chars());
+    assertEquals(2, store.stats().evictions());
+    assertFalse(store.execute("k0", BODY, this::run).replayed());
+    assertTrue(store.execute("k4", BODY, this::run).replayed());
+  }
+
+  @Test
+  void execute_whenServerError_doesNotKeepTheResponse() {
+    IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(1), 100, 10_000, now::get);
+    store.execute("k", BODY, () -> new IdempotencyStore.Response(500, "{}"));
+
+    assertFalse(store.execute("k", BODY, this::run).replayed());
+    assertEquals(0, store.stats().replays());
+  }
+
+  @Test
+  void execute_whenKeyComesWithAnotherBody_isRefused() {
+    IdempotencyStore store = new IdempotencyStore(Duration.ofMinutes(1), 100, 10_000, now::get);
+    store.execute("k", BODY, this::run);
+
+    assertThrows(IdempotencyStore.KeyReusedException.class,
+        () -> store.execute("k", IdempotencyStore.fingerprint("{\"other\":1}"), this::run));
+    assertEquals(1, runs.get());
+  }
+}
@@ -0,0 +1,78 @@
+package academy.aicode.astrobookings.presentation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+class JsonFragmentCacheTest {
+
+  private final JsonFragmentCache cache = new JsonFragmentCache(JsonFragmentCache.DEFAULT_MAX_CHARS);
+
+  @Test
+  void fragment_whenVersionIsUnchanged_returnsCachedJsonWithoutEncoding() throws JsonProcessingException {
+    AtomicInteger encodes = new AtomicInteger();
+
+    String first = cache.fragment("test", "same-version", 1L, () -> "{\"n\":" + encodes.incrementAndGet() + "}");
+    String second = cache.fragment("test", "same-version", 1L, () -> "{\"n\":" + encodes.incrementAndGet() + "}");
+
+    assertEquals("{\"n\":1}", first);
+    assertEquals(first, second);
+    assertEquals(1, encodes.get());
+  }
+
+  @Test
+  void fragment_whenVersionChanges_reencodes() throws JsonProcessingException {
+    cache.fragment("test", "new-version", 1L, () -> "{\"state\":\"SCHEDULED\"}");
+
+    String refreshed = cache.fragment("test", "new-version", 2L, () -> "{\"state\":\"CANCELLED\"}");
+
+    assertEquals("{\"state\":\"CANCELLED\"}", refreshed);
+  }
+
+  @Test
+  void fragment_whenIdIsNull_alwaysEncodes() throws JsonProcessingException {
+    AtomicInteger encodes = new AtomicInteger();
+
+    cache.fragment("test", null, 1L, () -> "{\"n\":" + encodes.incrementAndGet() + "}");
+    cache.fragment("test", null, 1L, () -> "{\"n\":" + encodes.incrementAndGet() + "}");
+
+    assertEquals(2, encodes.get());
+  }
+
+  @Test
+  void fragment_whenFilledPastTheBudget_staysWithinIt_andKeepsRecentlyUsedFragments() throws JsonProcessingException {
+    JsonFragmentCache small = new JsonFragmentCache(1_000);
+    AtomicInteger hotEncodes = new AtomicInteger();
+
+    for (int i = 0; i < 500; i++) {
+      small.fragment("test", "hot", 1L, () -> "{\"hot\":" + hotEncodes.incrementAndGet() + "}");
+      small.fragment("test", "cold-" + i, 1L, () -> "{\"cold\":true}");
+      assertTrue(small.usedChars() <= 1_000);
+    }
+
+    assertEquals(1, hotEncodes.get());
+    assertTrue(small.usedChars() > 1_000 - 20);
+  }
+
+  @Test
+  void invalidate_dropsTheFragment() throws JsonProcessingException {
+    AtomicInteger encodes = new AtomicInteger();
+    cache.fragment("test", "invalidated", 1L, () -> "{\"n\":" + encodes.incrementAndGet() + "}");
+
+    cache.invalidate("test", "invalidated");
+
+    assertEquals("{\"n\":2}", cache.fragment("test", "invalidated", 1L, () -> "{\"n\":" + encodes.incrementAndGet() + "}"));
+  }
+
+  @Test
+  void toJsonArray_joinsFragmentsInOrder() {
+    assertEquals("[]", JsonFragmentCache.toJsonArray(List.of()));
+    assertEquals("[{\"a\":1},{\"b\":2}]", JsonFragmentCache.toJsonArray(List.of("{\"a\":1}", "{\"b\":2}")));
+  }
+}
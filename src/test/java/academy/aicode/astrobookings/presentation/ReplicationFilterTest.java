@@ -0,0 +1,135 @@
+package academy.aicode.astrobookings.presentation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+import academy.aicode.astrobookings.persistence.StorageBackends;
+import academy.aicode.astrobookings.persistence.journal.FsyncPolicy;
+import academy.aicode.astrobookings.persistence.journal.JournalStorageBackend;
+import academy.aicode.astrobookings.persistence.journal.RaftStorageBackend;
+import academy.aicode.astrobookings.persistence.journal.ReplicaStorageBackend;
+import academy.aicode.astrobookings.persistence.models.Rocket;
+
+class ReplicationFilterTest {
+
+  @TempDir
+  Path dir;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private JournalStorageBackend primary;
+  private ReplicaStorageBackend replica;
+  private HttpServer server;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    primary = new JournalStorageBackend(dir, FsyncPolicy.ASYNC, 2, 64 * 1024);
+    int port = primary.startReplication(0, 1000).port();
+    replica = new ReplicaStorageBackend(new InetSocketAddress("localhost", port), Duration.ofMillis(20));
+    StorageBackends.use(replica);
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/rockets", new RocketHandler()).getFilters()
+        .add(new ReplicationFilter(replica, Duration.ofMillis(200)));
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+    replica.close();
+    primary.close();
+  }
+
+  @Test
+  void get_withMinLogOffsetOfAWriteOnThePrimary_seesTheWrite() throws Exception {
+    Rocket rocket = new Rocket();
+    rocket.setName("Falcon");
+    rocket.setCapacity(5);
+    primary.rockets().save(rocket);
+
+    HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/rockets/" + rocket.getId()))
+        .header(ReplicationFilter.MIN_LOG_OFFSET_HEADER, String.valueOf(primary.logOffset())));
+
+    assertEquals(200, response.statusCode());
+    assertTrue(response.body().contains("Falcon"));
+    assertEquals(String.valueOf(primary.logOffset()),
+        response.headers().firstValue(ReplicationFilter.LOG_OFFSET_HEADER).orElseThrow());
+    assertTrue(response.headers().firstValue(ReplicationFilter.LAG_MILLIS_HEADER).isPresent());
+  }
+
+  @Test
+  void get_withOffsetNotAppliedInTime_returns503WithRetryAfter() throws Exception {
+    HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/rockets"))
+        .header(ReplicationFilter.MIN_LOG_OFFSET_HEADER, String.valueOf(primary.logOffset() + 1)));
+
+    assertEquals(503, response.statusCode());
+    assertEquals("1", response.headers().firstValue("Retry-After").orElseThrow());
+  }
+
+  @Test
+  void get_withMalformedOffset_returns400() throws Exception {
+    HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/rockets"))
+        .header(ReplicationFilter.MIN_LOG_OFFSET_HEADER, "soon"));
+
+    assertEquals(400, response.statusCode());
+  }
+
+  @Test
+  void post_onReplica_returns405() throws Exception {
+    HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/rockets"))
+        .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Falcon\",\"capacity\":5}")));
+
+    assertEquals(405, response.statusCode());
+    assertTrue(response.body().contains("READ_ONLY_REPLICA"));
+  }
+
+  @Test
+  void post_onRaftNodeWithoutLeader_returns503NotLeader() throws Exception {
+    // The other member never starts, so no leader can be elected
+    Map<String, InetSocketAddress> group = new LinkedHashMap<>();
+    for (String name : List.of("a", "b")) {
+      try (ServerSocket probe = new ServerSocket(0)) {
+        group.put(name, new InetSocketAddress("localhost", probe.getLocalPort()));
+      }
+    }
+    try (RaftStorageBackend raft = new RaftStorageBackend(dir.resolve("raft"), group, "a", Duration.ofMillis(50),
+        Duration.ofMillis(10), Duration.ofMillis(200))) {
+      server.createContext("/flights", new FlightHandler()).getFilters()
+          .add(new ReplicationFilter(raft, Duration.ofMillis(200)));
+
+      HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/flights"))
+          .POST(HttpRequest.BodyPublishers.ofString("{}")));
+
+      assertEquals(503, response.statusCode());
+      assertEquals("1", response.headers().firstValue("Retry-After").orElseThrow());
+      assertTrue(response.body().contains("NOT_LEADER"));
+    }
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+  }
+
+  private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+    return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+}
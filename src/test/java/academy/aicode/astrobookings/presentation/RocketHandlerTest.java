@@ -9,7 +9,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.lang.reflect.Field;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
@@ -30,11 +29,12 @@ import com.sun.net.httpserver.HttpPrincipal;
 import com.sun.net.httpserver.HttpServer;
 
 import academy.aicode.astrobookings.business.RocketService;
-import academy.aicode.astrobookings.persistence.RocketRepository;
+import academy.aicode.astrobookings.persistence.StorageBackends;
 import academy.aicode.astrobookings.persistence.models.Range;
 import academy.aicode.astrobookings.persistence.models.Rocket;
 import academy.aicode.astrobookings.presentation.dto.CreateRocketRequest;
 import academy.aicode.astrobookings.presentation.dto.ErrorResponse;
+import academy.aicode.astrobookings.presentation.dto.ImportResultResponse;
 import academy.aicode.astrobookings.presentation.dto.RocketResponse;
 
 class RocketHandlerTest {
@@ -44,7 +44,7 @@ class RocketHandlerTest {
 
   @BeforeEach
   void setUp() {
-    clearRocketRepository();
+    StorageBackends.use(StorageBackends.create(StorageBackends.DEFAULT));
     handler = new RocketHandler();
   }
 
@@ -132,6 +132,30 @@ class RocketHandlerTest {
     assertEquals(saved.getId(), response.getId());
   }
 
+  @Test
+  void get_afterUpdate_returnsFreshRepresentation() throws IOException {
+    RocketService seed = new RocketService();
+    CreateRocketRequest req = new CreateRocketRequest();
+    req.setName("Falcon");
+    req.setCapacity(10);
+    Rocket saved = seed.create(req);
+
+    FakeHttpExchange first = FakeHttpExchange.create("GET", URI.create("/rockets"), "/rockets", null);
+    handler.handle(first);
+    assertTrue(first.getResponseBodyAsString().contains("Falcon"));
+
+    Rocket updates = new Rocket();
+    updates.setName("Falcon Heavy");
+    seed.update(saved.getId(), updates);
+
+    FakeHttpExchange second = FakeHttpExchange.create("GET", URI.create("/rockets"), "/rockets", null);
+    handler.handle(second);
+
+    RocketResponse[] responses = objectMapper.readValue(second.getResponseBodyAsString(), RocketResponse[].class);
+    assertEquals(1, responses.length);
+    assertEquals("Falcon Heavy", responses[0].getName());
+  }
+
   @Test
   void get_whenIdDoesNotExist_returns404_notFound() throws IOException {
     FakeHttpExchange exchange = FakeHttpExchange.create("GET", URI.create("/rockets/missing-id"), "/rockets", null);
@@ -151,18 +175,57 @@ class RocketHandlerTest {
     assertTrue(exchange.getResponseBodyAsString().contains("Method not allowed"));
   }
 
-  private static void clearRocketRepository() {
-    try {
-      Field field = RocketRepository.class.getDeclaredField("rockets");
-      field.setAccessible(true);
-      @SuppressWarnings("unchecked")
-      Map<String, Rocket> rockets = (Map<String, Rocket>) field.get(null);
-      rockets.clear();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
+  @Test
+  void postImport_whenPayloadIsJsonArray_returns200_withCounts_andRejections() throws IOException {
+    String json = "[{\"name\":\"Falcon\",\"capacity\":5},"
+        + "{\"name\":\"Starship\",\"capacity\":50},"
+        + "{\"name\":\"Vega\",\"capacity\":\"many\"},"
+        + "{\"name\":\"Ariane\",\"capacity\":3}]";
+    FakeHttpExchange exchange = FakeHttpExchange.create("POST", URI.create("/rockets/import"), "/rockets", json);
+
+    handler.handle(exchange);
+
+    assertEquals(200, exchange.getStatusCode());
+    ImportResultResponse response = objectMapper.readValue(exchange.getResponseBodyAsString(),
+        ImportResultResponse.class);
+    assertEquals(2, response.getAccepted());
+    assertEquals(2, response.getRejected());
+    assertTrue(response.isCompleted());
+    assertEquals("1", response.getErrors().get(0).getDetails().get("index"));
+    assertEquals("2", response.getErrors().get(1).getDetails().get("index"));
+    assertEquals(2, new RocketService().findAll().size());
+  }
+
+  @Test
+  void postImport_whenPayloadIsNdjson_importsEveryLine() throws IOException {
+    String ndjson = "{\"name\":\"Falcon\",\"capacity\":5}\n{\"name\":\"Ariane\",\"capacity\":3}\n";
+    FakeHttpExchange exchange = FakeHttpExchange.create("POST", URI.create("/rockets/import"), "/rockets", ndjson);
+
+    handler.handle(exchange);
+
+    assertEquals(200, exchange.getStatusCode());
+    ImportResultResponse response = objectMapper.readValue(exchange.getResponseBodyAsString(),
+        ImportResultResponse.class);
+    assertEquals(2, response.getAccepted());
+    assertEquals(0, response.getRejected());
   }
 
+  @Test
+  void postImport_whenJsonIsMalformed_keepsPriorItems_andReportsIncomplete() throws IOException {
+    String json = "[{\"name\":\"Falcon\",\"capacity\":5}, {\"name\": ";
+    FakeHttpExchange exchange = FakeHttpExchange.create("POST", URI.create("/rockets/import"), "/rockets", json);
+
+    handler.handle(exchange);
+
+    assertEquals(200, exchange.getStatusCode());
+    ImportResultResponse response = objectMapper.readValue(exchange.getResponseBodyAsString(),
+        ImportResultResponse.class);
+    assertEquals(1, response.getAccepted());
+    assertEquals(1, response.getRejected());
+    assertEquals(false, response.isCompleted());
+  }
+
+
   private static final class FakeHttpExchange extends HttpExchange {
 
     private final Headers requestHeaders = new Headers();
@@ -0,0 +1,242 @@
+package academy.aicode.astrobookings.presentation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpServer;
+
+import academy.aicode.astrobookings.cluster.Cluster;
+import academy.aicode.astrobookings.cluster.ClusterNode;
+import academy.aicode.astrobookings.cluster.ShardedStorageBackend;
+import academy.aicode.astrobookings.persistence.StorageBackend;
+import academy.aicode.astrobookings.persistence.StorageBackends;
+
+class ShardingFilterTest {
+
+  private static final String SECRET = "cluster-test-secret";
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final List<HttpServer> servers = new ArrayList<>();
+  private final List<Cluster> clusters = new ArrayList<>();
+  private final List<StorageBackend> backends = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    for (int i = 0; i < 3; i++) {
+      servers.add(HttpServer.create(new InetSocketAddress("localhost", 0), 0));
+    }
+    List<ClusterNode> nodes = new ArrayList<>();
+    for (int i = 0; i < servers.size(); i++) {
+      nodes.add(new ClusterNode("n" + i, URI.create("http://localhost:" + servers.get(i).getAddress().getPort())));
+    }
+    for (int i = 0; i < servers.size(); i++) {
+      Cluster cluster = new Cluster(nodes, "n" + i, 64, Duration.ofSeconds(5), SECRET);
+      StorageBackend backend = new ShardedStorageBackend(cluster, StorageBackends.create(StorageBackends.DEFAULT));
+      // Services take their repositories from the current backend when created
+      StorageBackends.use(backend);
+      Filter sharding = new ShardingFilter(cluster);
+      HttpServer server = servers.get(i);
+      server.createContext("/rockets", new RocketHandler()).getFilters().add(sharding);
+      server.createContext("/flights", new FlightHandler()).getFilters().add(sharding);
+      server.createContext("/bookings", new BookingHandler()).getFilters().add(sharding);
+      server.setExecutor(Executors.newCachedThreadPool());
+      server.start();
+      clusters.add(cluster);
+      backends.add(backend);
+    }
+  }
+
+  @AfterEach
+  void tearDown() {
+    servers.forEach(server -> server.stop(0));
+  }
+
+  @Test
+  void requestsOnAnyNode_reachTheOwnerOfTheFlight() throws Exception {
+    String rocketId = create(0, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+    String flightId = create(1, "/flights", flight(rocketId, 30));
+    String bookingId = create(2, "/bookings", "{\"flightId\":\"" + flightId
+        + "\",\"passengerName\":\"Ada\",\"passengerDocument\":\"X1\"}");
+
+    assertEquals("n0", clusters.get(0).owner(rocketId).name());
+    assertEquals("n1", clusters.get(0).owner(flightId).name());
+    assertEquals("n1", clusters.get(0).owner(bookingId).name());
+    assertEquals(1, backends.get(1).bookings().countByFlightId(flightId));
+    for (int node = 0; node < 3; node++) {
+      assertEquals(200, get(node, "/flights/" + flightId).statusCode());
+      assertEquals(200, get(node, "/bookings/" + bookingId).statusCode());
+      assertEquals(200, get(node, "/rockets/" + rocketId).statusCode());
+      JsonNode bookings = objectMapper.readTree(get(node, "/bookings?flightId=" + flightId).body());
+      assertEquals(1, bookings.size());
+    }
+  }
+
+  @Test
+  void cancel_onAnotherNode_changesTheOwnersFlight() throws Exception {
+    String rocketId = create(2, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+    String flightId = create(2, "/flights", flight(rocketId, 30));
+
+    HttpResponse<String> response = send(0, HttpRequest.newBuilder(uri(0, "/flights/" + flightId + "/cancel"))
+        .POST(HttpRequest.BodyPublishers.noBody()));
+
+    assertEquals(200, response.statusCode());
+    assertTrue(response.body().contains("CANCELLED"));
+    assertEquals("CANCELLED", backends.get(2).flights().findById(flightId).getState().name());
+  }
+
+  @Test
+  void unknownId_isNotFoundOnItsOwner() throws Exception {
+    String id = clusters.get(1).newLocalId();
+
+    HttpResponse<String> response = get(0, "/flights/" + id);
+
+    assertEquals(404, response.statusCode());
+  }
+
+  @Test
+  void forwardedHeader_withoutTheClusterSecret_isForbidden() throws Exception {
+    String rocketId = create(0, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+
+    HttpResponse<String> spoofed = send(0, HttpRequest.newBuilder(uri(0, "/rockets/" + rocketId))
+        .header(Cluster.FORWARDED_HEADER, "n2"));
+    HttpResponse<String> signed = send(0, clusters.get(2).sign(HttpRequest.newBuilder(uri(0, "/rockets/" + rocketId))));
+
+    assertEquals(403, spoofed.statusCode());
+    assertTrue(spoofed.body().contains("NOT_A_CLUSTER_NODE"));
+    assertEquals(200, signed.statusCode(), signed.body());
+  }
+
+  @Test
+  void ownerDown_returns502() throws Exception {
+    servers.get(1).stop(0);
+    String id = clusters.get(1).newLocalId();
+
+    HttpResponse<String> response = get(0, "/bookings/" + id);
+
+    assertEquals(502, response.statusCode());
+    assertTrue(response.body().contains("OWNER_UNAVAILABLE"));
+  }
+
+  @Test
+  void listing_onAnyNode_mergesEveryNodeInLaunchOrder() throws Exception {
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 9; i++) {
+      int node = i % 3;
+      String rocketId = create(node, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+      expected.add(create(node, "/flights", flight(rocketId, 30 + i)));
+    }
+
+    for (int node = 0; node < 3; node++) {
+      HttpResponse<String> response = get(node, "/flights?state=SCHEDULED");
+      assertEquals(200, response.statusCode());
+      List<String> ids = new ArrayList<>();
+      objectMapper.readTree(response.body()).forEach(flight -> ids.add(flight.get("id").asText()));
+      assertEquals(expected, ids);
+    }
+  }
+
+  @Test
+  void listing_withANodeDown_returnsTheOthersAndNamesIt() throws Exception {
+    String rocketId = create(0, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+    String flightId = create(0, "/flights", flight(rocketId, 30));
+    servers.get(2).stop(0);
+
+    HttpResponse<String> response = get(0, "/flights");
+
+    assertEquals(200, response.statusCode());
+    assertEquals("n2", response.headers().firstValue(ShardingFilter.UNAVAILABLE_SHARDS_HEADER).orElseThrow());
+    assertEquals(flightId, objectMapper.readTree(response.body()).get(0).get("id").asText());
+  }
+
+  @Test
+  void listing_withInvalidState_returnsTheNodesRejection() throws Exception {
+    HttpResponse<String> response = get(1, "/flights?state=BOARDING");
+
+    assertEquals(400, response.statusCode());
+    assertTrue(response.body().contains("INVALID_QUERY"));
+  }
+
+  @Test
+  void passengerLookup_onAnyNode_pagesThroughEveryNodesBookingsOldestFirst() throws Exception {
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      int node = i % 3;
+      String rocketId = create(node, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+      String flightId = create(node, "/flights", flight(rocketId, 30));
+      expected.add(create(node, "/bookings", "{\"flightId\":\"" + flightId
+          + "\",\"passengerName\":\"Ada\",\"passengerDocument\":\"P 1\"}"));
+    }
+
+    for (int node = 0; node < 3; node++) {
+      List<String> ids = new ArrayList<>();
+      String offset = "0";
+      while (offset != null) {
+        HttpResponse<String> response = get(node, "/bookings?passengerDocument=P%201&limit=2&offset=" + offset);
+        assertEquals(200, response.statusCode(), response.body());
+        objectMapper.readTree(response.body()).forEach(booking -> ids.add(booking.get("id").asText()));
+        offset = response.headers().firstValue(BookingHandler.NEXT_OFFSET_HEADER).orElse(null);
+      }
+      assertEquals(expected, ids);
+    }
+  }
+
+  @Test
+  void passengerLookup_withANodeDown_returnsTheOthersAndNamesIt() throws Exception {
+    String rocketId = create(0, "/rockets", "{\"name\":\"Falcon\",\"capacity\":5}");
+    String flightId = create(0, "/flights", flight(rocketId, 30));
+    String bookingId = create(0, "/bookings", "{\"flightId\":\"" + flightId
+        + "\",\"passengerName\":\"Ada\",\"passengerDocument\":\"P1\"}");
+    servers.get(2).stop(0);
+
+    HttpResponse<String> response = get(1, "/bookings?passengerDocument=P1");
+
+    assertEquals(200, response.statusCode());
+    assertEquals("n2", response.headers().firstValue(ShardingFilter.UNAVAILABLE_SHARDS_HEADER).orElseThrow());
+    assertEquals(bookingId, objectMapper.readTree(response.body()).get(0).get("id").asText());
+  }
+
+  private static String flight(String rocketId, int daysAhead) {
+    return "{\"rocketId\":\"" + rocketId + "\",\"launchDateTime\":\""
+        + Instant.now().plus(Duration.ofDays(daysAhead)) + "\",\"basePrice\":100.0,\"minimumPassengers\":1}";
+  }
+
+  private String create(int node, String path, String json) throws Exception {
+    HttpResponse<String> response = send(node, HttpRequest.newBuilder(uri(node, path))
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(json)));
+    assertEquals(201, response.statusCode(), response.body());
+    return objectMapper.readTree(response.body()).get("id").asText();
+  }
+
+  private HttpResponse<String> get(int node, String path) throws Exception {
+    return send(node, HttpRequest.newBuilder(uri(node, path)));
+  }
+
+  private URI uri(int node, String path) {
+    return URI.create("http://localhost:" + servers.get(node).getAddress().getPort() + path);
+  }
+
+  private HttpResponse<String> send(int node, HttpRequest.Builder request) throws Exception {
+    return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+}